@@ -55,11 +55,14 @@ public interface IClassifier extends JCLEC
 	public String toString(IMetadata metadata);
 	
 	/**
-	 * Obtains the confusion matrix for a dataset
+	 * Obtains the confusion matrix for a dataset. Every instance is
+	 * counted as many times as its weight, which must be an integer.
 	 * 
 	 * @param dataset the dataset to classify
 	 * 
 	 * @return the confusion matrix
+	 * 
+	 * @throws IllegalArgumentException if an instance has a fractional weight
 	 */
 	
 	public int[][] getConfusionMatrix(IDataset dataset);
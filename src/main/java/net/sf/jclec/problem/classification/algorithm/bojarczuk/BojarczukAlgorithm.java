@@ -279,7 +279,7 @@ public class BojarczukAlgorithm extends ClassificationAlgorithm
 		((BojarczukSyntaxTreeSpecies) species).setMaxDerivSize(maxDerivSize);
 
 		// Establishes the training set for evaluating
-		((BojarczukEvaluator) evaluator).setDataset(getTrainSet());
+		((BojarczukEvaluator) evaluator).setDataset(getEvaluationSet());
 		((BojarczukEvaluator) evaluator).setMaxDerivSize(maxDerivSize);
 
 		String fitness = settings.getString("fitness");
@@ -358,8 +358,8 @@ public class BojarczukAlgorithm extends ClassificationAlgorithm
 		List<Double> classes = new ArrayList<Double>();
 
 		// We leave space for the best rules per class that existed in the previous population
-		if(cset.size() + getTrainSet().getMetadata().numberOfClasses() > populationSize)
-			bset = bettersSelector.select(cset, populationSize-getTrainSet().getMetadata().numberOfClasses());
+		if(cset.size() + getTrainSet().getCompiledMetadata().numberOfClasses() > populationSize)
+			bset = bettersSelector.select(cset, populationSize-getTrainSet().getCompiledMetadata().numberOfClasses());
 		else
 			bset = bettersSelector.select(cset);
 
@@ -368,7 +368,7 @@ public class BojarczukAlgorithm extends ClassificationAlgorithm
 		eset = new ArrayList<IIndividual>();
 
 		//Select the best individual for each class
-		for(int i=0; i < bset.size() && classes.size() != getTrainSet().getMetadata().numberOfClasses(); i++)
+		for(int i=0; i < bset.size() && classes.size() != getTrainSet().getCompiledMetadata().numberOfClasses(); i++)
 		{
 			Rule rule = (Rule) ((SyntaxTreeRuleIndividual) bset.get(i)).getPhenotype();
 			rule.setFitness(bset.get(i).getFitness());
@@ -10,10 +10,8 @@ import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeRuleIndividual;
+import net.sf.jclec.problem.util.dataset.ClassPartition;
 import net.sf.jclec.problem.util.dataset.IDataset;
-import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
-import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 /**
  * Evaluator for Bojarczuk et al. 2004 - A constrained-syntax genetic programming system for discovering classification rules: application to medical data sets<p/>
@@ -143,42 +141,27 @@ public class BojarczukEvaluator extends AbstractParallelEvaluator
 	{
 		Rule rule = (Rule) ((SyntaxTreeRuleIndividual) individual).getPhenotype();
 
-		int[] tp, fp, tn, fn;
+		int numClasses = getDataset().getCompiledMetadata().numberOfClasses();
 
-		IMetadata metadata = getDataset().getMetadata();
-		CategoricalAttribute catAttribute = (CategoricalAttribute) metadata.getAttribute(metadata.getClassIndex());
-		int numClasses = catAttribute.getCategories().size();
-
-		tp = new int [numClasses];
-		tn = new int [numClasses];
-		fn = new int [numClasses];
-		fp = new int [numClasses];
-
-		double[] valorOMAE = new double [numClasses];
-
-		int num_instancias = dataset.numberOfInstances();
+		// Covered weight of every class, the other counts are derived from the class totals
+		double[] coverage = rule.getClassCoverage(dataset);
+		ClassPartition partition = dataset.getClassPartition();
 
+		// Instances without a class are negatives of every class, with no class distance
+		double num_instancias = partition.getTotalWeight();
+		double covered = 0.0;
+		for(int c = 0; c < coverage.length; c++)
+			covered += coverage[c];
 
 		if (!fitness.equals("DEFAULT")) {
 
-			//Calculate the confusion matrix for each class
-			for(IInstance instance : dataset.getInstances())
-			{
-
-				if((Boolean) rule.covers(instance))
-				{
-
-					double value = instance.getValue(metadata.getClassIndex());
+			double[] valorOMAE = new double [numClasses];
 
-					for(int i=0; i<numClasses; i++) {
-						valorOMAE[i] += Math.abs(i - value);
-					}
-				}
-				else
-				{
-					double value = instance.getValue(metadata.getClassIndex());
-					valorOMAE[(int) value] += numClasses;
-				}
+			//Calculate the OMAE for each class
+			for(int i=0; i<numClasses; i++) {
+				valorOMAE[i] = (partition.getWeight(i) - coverage[i]) * numClasses;
+				for(int c=0; c<numClasses; c++)
+					valorOMAE[i] += coverage[c] * Math.abs(i - c);
 			}
 
 
@@ -231,26 +214,19 @@ public class BojarczukEvaluator extends AbstractParallelEvaluator
 
 		} // fin if OMAE AMAE y MMAE
 		else {
-				//Calculate the confusion matrix for each class
-			for(IInstance instance : dataset.getInstances())
-			{
-				if((Boolean) rule.covers(instance))
-				{
-					double value = instance.getValue(metadata.getClassIndex());
-					tp[(int) value]++;
-					for(int i=0; i<numClasses; i++)
-						if(((int) value) != i)
-							fp[i]++;
-				}
-				else
-				{
-					double value = instance.getValue(metadata.getClassIndex());
+			double[] tp, fp, tn, fn;
 
-					fn[(int) value]++;
-					for(int i=0; i<numClasses; i++)
-						if(((int) value) != i)
-							tn[i]++;
-				}
+			tp = new double [numClasses];
+			tn = new double [numClasses];
+			fn = new double [numClasses];
+			fp = new double [numClasses];
+
+			//Calculate the confusion matrix for each class
+			for(int i=0; i<numClasses; i++) {
+				tp[i] = coverage[i];
+				fn[i] = partition.getWeight(i) - coverage[i];
+				fp[i] = covered - tp[i];
+				tn[i] = (num_instancias - covered) - fn[i];
 			}
 
 			//Calculate the fitness for each class
@@ -263,12 +239,12 @@ public class BojarczukEvaluator extends AbstractParallelEvaluator
 				if(tp[i]+fn[i] == 0)
 					seAux = 1;
 				else
-					seAux = (double) tp[i]/(tp[i]+fn[i]);
+					seAux = tp[i]/(tp[i]+fn[i]);
 
 				if(tn[i]+fp[i] == 0)
 					spAux = 1;
 				else
-					spAux = (double) tn[i]/(tn[i]+fp[i]);
+					spAux = tn[i]/(tn[i]+fp[i]);
 
 				if(seAux*spAux == se*sp)
 					bestClass = i;
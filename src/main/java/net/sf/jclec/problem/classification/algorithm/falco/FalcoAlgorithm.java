@@ -209,7 +209,7 @@ public class FalcoAlgorithm extends ClassificationAlgorithm
 		// Establishes the metadata for the species
 		((FalcoSyntaxTreeSpecies) species).setMetadata(getTrainSet().getMetadata());
 
-		((FalcoEvaluator) evaluator).setDataset(getTrainSet());
+		((FalcoEvaluator) evaluator).setDataset(getEvaluationSet());
 
 		String fitness = settings.getString("fitness");
 		((FalcoEvaluator) evaluator).setFitness(fitness);
@@ -487,7 +487,7 @@ public class FalcoAlgorithm extends ClassificationAlgorithm
 				classifier.addClassificationRule(rule);
 
 			// If all classes have been covered then finish
-			if (execution == getTrainSet().getMetadata().numberOfClasses())
+			if (execution == getTrainSet().getCompiledMetadata().numberOfClasses())
 			{
 				state = FINISHED;
 				return;
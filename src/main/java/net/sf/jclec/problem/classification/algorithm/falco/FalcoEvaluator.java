@@ -10,9 +10,8 @@ import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeRuleIndividual;
+import net.sf.jclec.problem.util.dataset.ClassPartition;
 import net.sf.jclec.problem.util.dataset.IDataset;
-import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 import org.apache.commons.configuration.Configuration;
 
@@ -108,7 +107,7 @@ public class FalcoEvaluator extends AbstractParallelEvaluator implements IConfig
 	public void setDataset(IDataset dataset)
 	{
 		this.dataset = dataset;
-		numClasses = dataset.getMetadata().numberOfClasses();
+		numClasses = dataset.getCompiledMetadata().numberOfClasses();
 	}
 
 
@@ -197,33 +196,26 @@ public class FalcoEvaluator extends AbstractParallelEvaluator implements IConfig
  	{
 	 		Rule rule = (Rule) ((SyntaxTreeRuleIndividual) individual).getPhenotype();
 
-	 		int fails = 0;
+	 		// Covered weight of every class
+	 		double[] coverage = rule.getClassCoverage(dataset);
+	 		ClassPartition partition = dataset.getClassPartition();
 
-	 		IMetadata metadata = getDataset().getMetadata();
-			double OMAE = 0.0;
-			int num_instancias = dataset.numberOfInstances();
+	 		// Uncovered instances of the class and covered instances of the others are failures
+	 		double fn = partition.getWeight(classifiedClass) - coverage[classifiedClass];
+	 		double fails = fn;
+			double OMAE = fn * numClasses;
 
-	 		//Calculate the confussion matrix
-	 		for(IInstance instance : dataset.getInstances())
-	 		{
-	 			double value = instance.getValue(metadata.getClassIndex());
-
-	 			if((Boolean) rule.covers(instance))
-	 			{
-					OMAE += Math.abs(classifiedClass - value);
-	 				if(value != classifiedClass)
-	 					fails++;
-	 			}
-	 			else
+	 		for(int c = 0; c < partition.numberOfClasses(); c++)
+	 			if(c != classifiedClass)
 	 			{
-	 				if(value == classifiedClass){
-						OMAE += numClasses;
-	 					fails++;
-					}
+	 				fails += coverage[c];
+	 				OMAE += coverage[c] * Math.abs(classifiedClass - c);
 	 			}
-	 		}
 
-			OMAE = OMAE / (double) num_instancias;
+	 		// Covered instances without a class are failures, with no class distance
+	 		fails += coverage[partition.numberOfClasses()];
+
+			OMAE = OMAE / partition.getTotalWeight();
 
 	 		int depth = ((SyntaxTreeRuleIndividual) individual).getGenotype().derivSize();
 	 		int numNodes = rule.getAntecedent().size();
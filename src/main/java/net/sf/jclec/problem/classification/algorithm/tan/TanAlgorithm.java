@@ -16,6 +16,8 @@ import net.sf.jclec.problem.classification.base.ClassificationAlgorithm;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.crisprule.CrispRuleBase;
 import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeRuleIndividual;
+import net.sf.jclec.problem.util.dataset.ClassPartition;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
 
 import org.apache.commons.configuration.Configuration;
@@ -284,7 +286,7 @@ public class TanAlgorithm extends ClassificationAlgorithm
 		((TanSyntaxTreeSpecies) species).setMetadata(getTrainSet().getMetadata());
 
 		// Establishes the training set for evaluating
-		((TanEvaluator) evaluator).setDataset(getTrainSet());
+		((TanEvaluator) evaluator).setDataset(getEvaluationSet());
 
 		String fitness = settings.getString("fitness");
 		((TanEvaluator) evaluator).setFitness(fitness);
@@ -450,7 +452,8 @@ public class TanAlgorithm extends ClassificationAlgorithm
 	 */
 	private List<IIndividual> doTokenCompetition(List<IIndividual> newpop, List<IIndividual> epop, IEvaluator evaluator)
 	{
-		int coversCount, nPatternsCovered;
+		// Patterns are counted with their weights
+		double coversCount, nPatternsCovered;
 
 		List<IIndividual> unitepopulation = new ArrayList<IIndividual>();
 
@@ -466,10 +469,13 @@ public class TanAlgorithm extends ClassificationAlgorithm
 		else
 			unitepopulation = bettersSelector.select(unitepopulation);
 
-		ArrayList<IInstance> instances = getTrainSet().getInstances();
-		int numInstances = instances.size();
+		// Only the patterns of the current class take part in the competition
+		ClassPartition partition = getTrainSet().getClassPartition();
+		int classIndex = partition.getClassIndex();
+		int[] rows = partition.hasRows() ? partition.getRows(execution) : null;
+		List<IInstance> instances = partition.hasRows() ? getTrainSet().getInstances() : null;
 
-		boolean[] patternsCovered = new boolean[numInstances];
+		boolean[] patternsCovered = new boolean[rows != null ? rows.length : getTrainSet().numberOfInstances()];
 
 		int uniteSize = unitepopulation.size();
 		// For each individual from the population
@@ -483,34 +489,58 @@ public class TanAlgorithm extends ClassificationAlgorithm
 			// Number of patterns covered
 			nPatternsCovered = 0;
 
-			for(int j=0; j<numInstances; j++)
+			if(rows != null)
 			{
-				IInstance instance = instances.get(j);
-
-				if(instance.getValue(getTrainSet().getMetadata().getClassIndex()) == execution)
+				for(int j=0; j<rows.length; j++)
 				{
+					IInstance instance = instances.get(rows[j]);
+
 					if((Boolean) rule.covers(instance))
 					{
-						coversCount++;
+						coversCount += instance.getWeight();
 
 						if(!patternsCovered[j])
 						{
 							patternsCovered[j] = true;
-							nPatternsCovered++;
+							nPatternsCovered += instance.getWeight();
 						}
 					}
 				}
 			}
+			else
+			{
+				IInstanceCursor cursor = getTrainSet().openCursor();
+				try {
+					for(int j=0; cursor.next(); j++)
+					{
+						IInstance instance = cursor.getInstance();
+
+						if(instance.getValue(classIndex) == execution && (Boolean) rule.covers(instance))
+						{
+							coversCount += instance.getWeight();
+
+							if(!patternsCovered[j])
+							{
+								patternsCovered[j] = true;
+								nPatternsCovered += instance.getWeight();
+							}
+						}
+					}
+				}
+				finally {
+					cursor.close();
+				}
+			}
 
 			// The fitness is modified based on the token competition
 			if (nPatternsCovered != 0)
 			{
 				double fitness = ((SimpleValueFitness) unitepopulation.get(i).getFitness()).getValue();
-				fitness = fitness * ((double) nPatternsCovered / coversCount);
+				fitness = fitness * (nPatternsCovered / coversCount);
 
 				unitepopulation.get(i).setFitness(new SimpleValueFitness(fitness));
 
-				if (((double) nPatternsCovered / coversCount) >= getSupport())
+				if ((nPatternsCovered / coversCount) >= getSupport())
 					eset.add(unitepopulation.get(i).copy());
 			}
 			else
@@ -624,7 +654,7 @@ public class TanAlgorithm extends ClassificationAlgorithm
 			}
 
 			// If all classes have been covered then finish
-			if (execution == getTrainSet().getMetadata().numberOfClasses())
+			if (execution == getTrainSet().getCompiledMetadata().numberOfClasses())
 			{
 				state = FINISHED;
 
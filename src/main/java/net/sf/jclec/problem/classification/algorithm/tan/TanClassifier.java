@@ -6,7 +6,9 @@ import java.util.List;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.crisprule.CrispRuleBase;
 import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 
 /**
  * Classifier for Tan et al. 2002 - Mining multiple comprehensible classification rules using genetic programming<p/>
@@ -56,47 +58,59 @@ public class TanClassifier extends CrispRuleBase
 
 	public void sortClassifier(IDataset dataset, String fitness)
 	{
-		int[] tp, fp, tn, fn;
+		// Instances are counted with their weights
+		double[] tp, fp, tn, fn;
 
 		int numRules = getClassificationRules().size();
-		tp = new int[numRules];
-		tn = new int[numRules];
-		fn = new int[numRules];
-		fp = new int[numRules];
+		tp = new double[numRules];
+		tn = new double[numRules];
+		fn = new double[numRules];
+		fp = new double[numRules];
 
 		double [] OMAE = new double[numRules];
-		int num_instancias = dataset.numberOfInstances();
-		int numClasses = dataset.getMetadata().numberOfClasses();
+		double num_instancias = 0.0;
+		CompiledMetadata metadata = dataset.getCompiledMetadata();
+		int numClasses = metadata.numberOfClasses();
+		int classIndex = metadata.getClassIndex();
 
 		// Calculates the confusion matrix for each rule
-		for(IInstance instance : dataset.getInstances())
-		{
-			double value = instance.getValue(dataset.getMetadata().getClassIndex());
-
-			for (int i = 0; i < numRules; i++)
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			while(cursor.next())
 			{
-				if ((Boolean) getClassificationRules().get(i).covers(instance))
+				IInstance instance = cursor.getInstance();
+				double value = instance.getValue(classIndex);
+				double weight = instance.getWeight();
+				num_instancias += weight;
+
+				for (int i = 0; i < numRules; i++)
 				{
-					OMAE[i] += Math.abs(getClassificationRules().get(i).getConsequent() - value);
-					if (getClassificationRules().get(i).getConsequent() == value)
-						tp[i]++;
+					if ((Boolean) getClassificationRules().get(i).covers(instance))
+					{
+						OMAE[i] += weight * Math.abs(getClassificationRules().get(i).getConsequent() - value);
+						if (getClassificationRules().get(i).getConsequent() == value)
+							tp[i] += weight;
+						else
+							fp[i] += weight;
+					}
 					else
-						fp[i]++;
-				}
-				else
-				{
-					if (getClassificationRules().get(i).getConsequent() != value)
-						tn[i]++;
-					else {
-						fn[i]++;
-						OMAE[i] += numClasses;
+					{
+						if (getClassificationRules().get(i).getConsequent() != value)
+							tn[i] += weight;
+						else {
+							fn[i] += weight;
+							OMAE[i] += weight * numClasses;
+						}
 					}
 				}
 			}
 		}
+		finally {
+			cursor.close();
+		}
 
 		for (int i = 0; i < numRules; i++) {
-			OMAE[i] /= (double) num_instancias;
+			OMAE[i] /= num_instancias;
 		}
 
 		// Calculates the sensitivity for each rule
@@ -107,7 +121,7 @@ public class TanClassifier extends CrispRuleBase
 			if (tn[i] + fp[i] == 0)
 				se[i] = 0;
 			else
-				se[i] = tn[i] / (double)(tn[i] + fp[i]);
+				se[i] = tn[i] / (tn[i] + fp[i]);
 		}
 
 		List<Rule> rulesAux = new ArrayList<Rule>();
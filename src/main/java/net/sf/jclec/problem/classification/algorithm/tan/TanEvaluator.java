@@ -10,9 +10,8 @@ import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeRuleIndividual;
+import net.sf.jclec.problem.util.dataset.ClassPartition;
 import net.sf.jclec.problem.util.dataset.IDataset;
-import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 import org.apache.commons.configuration.Configuration;
 
@@ -104,7 +103,7 @@ public class TanEvaluator extends AbstractParallelEvaluator implements IConfigur
 	public void setDataset(IDataset dataset)
 	{
 		this.dataset = dataset;
-		numClasses = dataset.getMetadata().numberOfClasses();
+		numClasses = dataset.getCompiledMetadata().numberOfClasses();
 	}
 
 
@@ -209,37 +208,30 @@ public class TanEvaluator extends AbstractParallelEvaluator implements IConfigur
 	{
 		Rule rule = (Rule) ((SyntaxTreeRuleIndividual) individual).getPhenotype();
 
-		int tp = 0, fp = 0, tn = 0, fn = 0;
+		// Covered weight of every class
+		double[] coverage = rule.getClassCoverage(dataset);
+		ClassPartition partition = dataset.getClassPartition();
 
-		IMetadata metadata = getDataset().getMetadata();
-		double OMAE = 0.0;
-		int num_instancias = dataset.numberOfInstances();
+		// Uncovered counts are derived from the class totals
+		double tp = coverage[classifiedClass];
+		double fn = partition.getWeight(classifiedClass) - tp;
+		double fp = 0, tn = 0;
+		double OMAE = fn * numClasses;
 
-		//Calculate the confusion matrix
-		for(IInstance instance : dataset.getInstances())
-		{
-			double value = instance.getValue(metadata.getClassIndex());
-
-			if((Boolean) rule.covers(instance))
-			{
-				OMAE += Math.abs(classifiedClass - value);
-				if (value == classifiedClass)
-					tp++;
-				else
-					fp++;
-			}
-			else
+		for(int c = 0; c < partition.numberOfClasses(); c++)
+			if(c != classifiedClass)
 			{
-				if (value != classifiedClass)
-					tn++;
-				else {
-					OMAE += numClasses;
-					fn++;
-				}
+				fp += coverage[c];
+				tn += partition.getWeight(c) - coverage[c];
+				OMAE += coverage[c] * Math.abs(classifiedClass - c);
 			}
-		}
 
-		OMAE = OMAE / (double) num_instancias;
+		// Instances without a class are negatives, with no class distance
+		double unlabeled = coverage[partition.numberOfClasses()];
+		fp += unlabeled;
+		tn += partition.getUnlabeledWeight() - unlabeled;
+
+		OMAE = OMAE / partition.getTotalWeight();
 
 		double fitness_ev;
 		double se, sp;
@@ -247,12 +239,12 @@ public class TanEvaluator extends AbstractParallelEvaluator implements IConfigur
 	   	if(tp + fn == 0)
 			se = 1;
 		else
-			se = (double) tp / (tp + w1*fn);
+			se = tp / (tp + w1*fn);
 
 		if(tn + fp == 0)
 			sp = 1;
 		else
-			sp = (double) tn / (tn + w2*fp);
+			sp = tn / (tn + w2*fp);
 
 	    // Set the fitness to the individual
 		fitness_ev = se * sp;
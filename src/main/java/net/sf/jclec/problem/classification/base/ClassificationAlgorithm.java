@@ -2,15 +2,32 @@ package net.sf.jclec.problem.classification.base;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 import net.sf.jclec.problem.classification.IClassifier;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeSpecies;
+import net.sf.jclec.problem.util.dataset.AbstractDataset;
+import net.sf.jclec.problem.util.dataset.AttributeIndex;
+import net.sf.jclec.problem.util.dataset.CachedAttributeIndex;
+import net.sf.jclec.problem.util.dataset.DatasetCache;
+import net.sf.jclec.problem.util.dataset.DatasetPartitioner;
+import net.sf.jclec.problem.util.dataset.DatasetSampler;
+import net.sf.jclec.problem.util.dataset.DatasetView;
 import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 import net.sf.jclec.selector.BettersSelector;
 import net.sf.jclec.util.random.IRandGen;
 
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
 
 /**
  * Classification Algorithm<p/>
@@ -60,6 +77,41 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 
 	private IDataset testSet;
 
+	/** Sampler of the training rows evaluated in every generation */
+
+	private DatasetSampler sampler;
+
+	/** Training rows evaluated in the current generation */
+
+	private DatasetView trainView;
+
+	/** Default maximum memory of the coverage cache of the training rows (64 MB) */
+
+	public static final long DEFAULT_COVERAGE_CACHE_MEMORY = 64L << 20;
+
+	/** Maximum memory of the coverage cache of the training rows, in bytes */
+
+	private long coverageCacheMemory = DEFAULT_COVERAGE_CACHE_MEMORY;
+
+	/** Testing Dataset being loaded */
+
+	private transient Future<IDataset> testSetLoader;
+
+	/** Validation Dataset being loaded */
+
+	private transient Future<IDataset> validationSetLoader;
+
+	/** Thread that loads the test and validation datasets */
+
+	private static final ExecutorService datasetLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Dataset loader");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	/** Iteration */
 
 	protected int execution = 0;
@@ -134,7 +186,8 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 	}
 
 	/**
-	 * Set the dataset for train the algorithm
+	 * Set the dataset for train the algorithm. The rules are evaluated on
+	 * it many times, so it is indexed (see AbstractDataset.setIndexed()).
 	 *
 	 * @param dataset the data set
 	 */
@@ -142,27 +195,149 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 	public void setTrainSet(IDataset dataset)
 	{
 		this.trainSet = dataset;
+		this.trainView = null;
+		if(dataset instanceof AbstractDataset)
+			((AbstractDataset) dataset).setIndexed(true);
+		useCoverageCache(dataset);
+	}
+
+	/**
+	 * Access to the dataset used to evaluate the individuals. If training
+	 * sampling is configured, it is a view of the training rows that is
+	 * resampled in every generation; otherwise, it is the train dataset.
+	 *
+	 * @return evaluation dataset
+	 */
+
+	public IDataset getEvaluationSet()
+	{
+		if(sampler == null)
+			return trainSet;
+
+		if(trainView == null)
+		{
+			trainView = new DatasetView(trainSet, new int[trainSet.numberOfInstances()], 0);
+			trainView.resample(sampler, randgen);
+			useCoverageCache(trainView);
+		}
+		return trainView;
+	}
+
+	/**
+	 * Access to the training sampler
+	 *
+	 * @return the sampler, null if the whole train dataset is evaluated
+	 */
+
+	public DatasetSampler getSampler()
+	{
+		return sampler;
 	}
 
 	/**
-	 * Access to the test dataset
+	 * Set the training sampler. It must be set before the evaluator gets
+	 * its dataset.
 	 *
-	 * @return test dataset
+	 * @param sampler the sampler, null to evaluate the whole train dataset
 	 */
 
-	public IDataset getTestSet()
+	public void setSampler(DatasetSampler sampler)
 	{
+		this.sampler = sampler;
+		this.trainView = null;
+	}
+
+	/**
+	 * Access to the maximum memory of the coverage cache
+	 *
+	 * @return maximum memory of the coverage cache of the training rows,
+	 *         in bytes
+	 */
+
+	public long getCoverageCacheMemory()
+	{
+		return coverageCacheMemory;
+	}
+
+	/**
+	 * Set the maximum memory of the coverage cache. The attribute index of
+	 * the training rows keeps the rows covered by the conditions of the
+	 * rules, so the conditions repeated across the population and the
+	 * generations are resolved only once (see CachedAttributeIndex).
+	 *
+	 * @param coverageCacheMemory maximum memory of the coverage cache of the
+	 *                            training rows, in bytes, 0 to disable it
+	 */
+
+	public void setCoverageCacheMemory(long coverageCacheMemory)
+	{
+		this.coverageCacheMemory = coverageCacheMemory;
+		useCoverageCache(trainSet);
+		useCoverageCache(trainView);
+	}
+
+	/**
+	 * Access to the coverage cache of the rows on which the rules are
+	 * evaluated: the training rows, or the current sample of them
+	 *
+	 * @return the coverage cache, with its metrics, or null if it is
+	 *         disabled
+	 */
+
+	public CachedAttributeIndex getCoverageCache()
+	{
+		IDataset dataset = trainView != null ? trainView : trainSet;
+		if(coverageCacheMemory <= 0 || dataset == null)
+			return null;
+
+		AttributeIndex index = dataset.getAttributeIndex();
+		return index instanceof CachedAttributeIndex ? (CachedAttributeIndex) index : null;
+	}
+
+	/**
+	 * Access to the test dataset. Waits for the dataset if it is still
+	 * being loaded.
+	 *
+	 * @return test dataset, null if there is no test dataset
+	 */
+
+	public synchronized IDataset getTestSet()
+	{
+		if(testSetLoader != null)
+		{
+			testSet = await(testSetLoader);
+			testSetLoader = null;
+		}
 		return testSet;
 	}
 
-	public IDataset getValidationSet()
+	/**
+	 * Access to the validation dataset. Waits for the dataset if it is
+	 * still being loaded.
+	 *
+	 * @return validation dataset, null if there is no validation dataset
+	 */
+
+	public synchronized IDataset getValidationSet()
 	{
+		if(validationSetLoader != null)
+		{
+			validationSet = await(validationSetLoader);
+			validationSetLoader = null;
+		}
 		return validationSet;
 	}
 
-	public void setValidationSet(IDataset dataset)
+	/**
+	 * Set the validation dataset
+	 *
+	 * @param dataset validation dataset
+	 */
+
+	public synchronized void setValidationSet(IDataset dataset)
 	{
 		this.validationSet = dataset;
+		this.validationSetLoader = null;
 	}
 
 	/**
@@ -171,9 +346,10 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 	 * @param dataset test dataset
 	 */
 
-	public void setTestSet(IDataset dataset)
+	public synchronized void setTestSet(IDataset dataset)
 	{
 		this.testSet = dataset;
+		this.testSetLoader = null;
 	}
 
 	/**
@@ -193,6 +369,20 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 	 * Configuration method.
 	 *
 	 * Configuration parameters for a Steady State algorithm are:
+	 *
+	 * <ul>
+	 * <li>sampling (optional): if present, the individuals are evaluated
+	 * on a sample of the training rows that changes in every generation.
+	 * Its attributes are those of DatasetSampler, for instance
+	 * &lt;sampling method="stratified" size="0.25"/&gt;. Streamed training
+	 * sets can only be sampled with the random method.</li>
+	 * <li>coverage-cache[@memory] (int, default 64): maximum memory in
+	 * megabytes of the cache of the rows covered by the rule conditions
+	 * on the training rows, 0 to disable it</li>
+	 * <li>missing-values (compare, fail or match, default compare):
+	 * semantics of missing values in the rule conditions (see
+	 * MissingValues)</li>
+	 * </ul>
 	 */
 
 	public void configure(Configuration settings)
@@ -203,15 +393,70 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 		// Dataset settings
 		setDatasetSettings(settings);
 
+		// Semantics of missing values, used by the grammar of the species
+		if(species instanceof SyntaxTreeSpecies)
+		{
+			try {
+				((SyntaxTreeSpecies) species).setMissingValues(MissingValues.forName(settings.getString("missing-values", MissingValues.Compare.name())));
+			}
+			catch(IllegalArgumentException e) {
+				throw new ConfigurationRuntimeException(e.getMessage(), e);
+			}
+		}
+
+		// Coverage cache of the training rows
+		setCoverageCacheMemory(settings.getLong("coverage-cache[@memory]", DEFAULT_COVERAGE_CACHE_MEMORY >> 20) << 20);
+
+		// Training sampling
+		if(settings.containsKey("sampling[@method]") || settings.containsKey("sampling[@size]"))
+		{
+			DatasetSampler sampler = new DatasetSampler();
+			sampler.configure(settings.subset("sampling"));
+			setSampler(sampler);
+		}
+		else
+			setSampler(null);
+
 		initRandGen();
 	}
 
+	/////////////////////////////////////////////////////////////////
+	//--------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Draw a new training sample, if sampling is configured, before every
+	 * generation. The view reuses its buffers, so nothing is allocated.
+	 */
+
+	@Override
+	protected void doIterate()
+	{
+		if(trainView != null)
+			trainView.resample(sampler, randgen);
+
+		super.doIterate();
+	}
+
 	/////////////////////////////////////////////////////////////////
 	//----------------------------------------------- Private methods
 	/////////////////////////////////////////////////////////////////
 
 	/**
-	 * Set the dataset settings
+	 * Set the dataset settings. The training set is loaded immediately.
+	 * The test and validation sets are loaded on a background thread
+	 * while the algorithm runs, and only if they are configured.
+	 *
+	 * Instead of train-data and test-data, the dataset can define a single
+	 * data file and its partition (see DatasetPartitioner), for instance
+	 * &lt;data&gt;data/iris/iris.dat&lt;/data&gt;
+	 * &lt;partition method="kfold" folds="10" fold="1"/&gt;. The training
+	 * and test sets are then views of the rows of the loaded file.
+	 *
+	 * With &lt;dataset cache="true"&gt; the files already loaded by other
+	 * runs in the process are shared through DatasetCache. The cache is
+	 * disabled by default, because the shared instances must not be
+	 * modified by the runs that use them.
 	 */
 	@SuppressWarnings("unchecked")
 	protected void setDatasetSettings(Configuration settings) {
@@ -221,51 +466,136 @@ public abstract class ClassificationAlgorithm extends PopulationAlgorithm
 			Class<? extends IDataset> datasetClass;
 			datasetClass = (Class<? extends IDataset>) Class.forName(datasetClassname);
 
-			// Training set
-			setTrainSet(datasetClass.newInstance());
+			// Share the files already loaded
+			boolean cache = settings.getBoolean("dataset[@cache]", false);
 
-			// Configure training set
-			Configuration datasetSettings = settings.subset("dataset.train-data");
-			getTrainSet().configure(datasetSettings);
+			// Gets the attribute class
+			String attributeClass = settings.getString("dataset.attribute-class-name");
+
+			IDataset dataset = datasetClass.newInstance();
+
+			if(settings.containsKey("dataset.data"))
+			{
+				// Training and test sets partitioned from a single file
+				dataset.configure(settings.subset("dataset.data"));
+				dataset = loadDataset(dataset, cache, attributeClass);
 
-			// Testing set
-			setTestSet(datasetClass.newInstance());
+				DatasetPartitioner partitioner = new DatasetPartitioner();
+				partitioner.configure(settings.subset("dataset.partition"));
+				DatasetView[] partition = partitioner.split(dataset);
 
-			// Configure test set
-			datasetSettings = settings.subset("dataset.test-data");
-			getTestSet().configure(datasetSettings);
+				setTrainSet(partition[0]);
+				setTestSet(partition[1]);
+			}
+			else
+			{
+				// Configure and load training set
+				dataset.configure(settings.subset("dataset.train-data"));
+				setTrainSet(loadDataset(dataset, cache, attributeClass));
+
+				// Testing set
+				setTestSet(null);
+				if(settings.containsKey("dataset.test-data"))
+				{
+					dataset = datasetClass.newInstance();
+					dataset.configure(settings.subset("dataset.test-data"));
+					testSetLoader = loadLater(dataset, cache, attributeClass);
+				}
+			}
 
 			// Validation set
-			setValidationSet(datasetClass.newInstance());
+			setValidationSet(null);
+			if(settings.containsKey("dataset.validation-data"))
+			{
+				dataset = datasetClass.newInstance();
+				dataset.configure(settings.subset("dataset.validation-data"));
+				validationSetLoader = loadLater(dataset, cache, attributeClass);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
 
+	/**
+	 * Set the maximum memory of the coverage cache of a dataset
+	 *
+	 * @param dataset Dataset, which is ignored if it is null or does not
+	 *                support the cache
+	 */
 
-			// Configure Validation set
-			datasetSettings = settings.subset("dataset.validation-data");
-			getValidationSet().configure(datasetSettings);
+	private void useCoverageCache(IDataset dataset)
+	{
+		if(dataset instanceof AbstractDataset)
+			((AbstractDataset) dataset).setCoverageCacheMemory(coverageCacheMemory);
+	}
 
-			// Load dataset instances
-			getTrainSet().loadInstances();
-			getTestSet().loadInstances();
-			getValidationSet().loadInstances();
+	/**
+	 * Load a configured dataset and set its class attribute
+	 *
+	 * @param dataset Configured dataset
+	 * @param cache Use the dataset cache
+	 * @param attributeClass Name of the class attribute, null for the last attribute
+	 *
+	 * @return the loaded dataset
+	 */
 
-			// Gets the attribute class
-			String attributeClass = settings.getString("dataset.attribute-class-name");
+	private static IDataset loadDataset(IDataset dataset, boolean cache, String attributeClass)
+	{
+		// Load dataset instances
+		if(cache)
+			dataset = DatasetCache.load(dataset);
+		else
+			dataset.loadInstances();
 
-			if(attributeClass != null)
-			{
-				int attributeClassIndex = getTrainSet().getMetadata().getIndex(attributeClass);
-				getTrainSet().getMetadata().setClassIndex(attributeClassIndex);
-				getTestSet().getMetadata().setClassIndex(attributeClassIndex);
-				getValidationSet().getMetadata().setClassIndex(attributeClassIndex);
-			}
-			else
+		IMetadata metadata = dataset.getMetadata();
+
+		if(attributeClass != null)
+			metadata.setClassIndex(metadata.getIndex(attributeClass));
+		else
+			metadata.setClassIndex(metadata.numberOfAttributes()-1);
+
+		return dataset;
+	}
+
+	/**
+	 * Load a configured dataset on the background thread
+	 *
+	 * @param dataset Configured dataset
+	 * @param cache Use the dataset cache
+	 * @param attributeClass Name of the class attribute, null for the last attribute
+	 *
+	 * @return the pending dataset
+	 */
+
+	private static Future<IDataset> loadLater(final IDataset dataset, final boolean cache, final String attributeClass)
+	{
+		return datasetLoader.submit(new Callable<IDataset>() {
+			public IDataset call()
 			{
-				getTrainSet().getMetadata().setClassIndex(getTrainSet().getMetadata().numberOfAttributes()-1);
-				getTestSet().getMetadata().setClassIndex(getTestSet().getMetadata().numberOfAttributes()-1);
-				getValidationSet().getMetadata().setClassIndex(getTestSet().getMetadata().numberOfAttributes()-1);
+				return loadDataset(dataset, cache, attributeClass);
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+		});
+	}
+
+	/**
+	 * Wait for a dataset loaded on the background thread
+	 *
+	 * @param loader Pending dataset
+	 *
+	 * @return the loaded dataset
+	 */
+
+	private static IDataset await(Future<IDataset> loader)
+	{
+		try {
+			return loader.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConfigurationRuntimeException("Interrupted while loading a dataset", e);
+		}
+		catch (ExecutionException e) {
+			throw new ConfigurationRuntimeException("Problems loading a dataset", e.getCause());
 		}
 	}
 }
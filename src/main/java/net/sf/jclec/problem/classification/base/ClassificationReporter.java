@@ -14,10 +14,12 @@ import net.sf.jclec.IIndividual;
 import net.sf.jclec.fitness.IValueFitness;
 import net.sf.jclec.problem.classification.IClassifier;
 import net.sf.jclec.problem.classification.IClassifierIndividual;
+import net.sf.jclec.problem.util.dataset.FileDataset;
 import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
 import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
-import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 import net.sf.jclec.selector.BettersSelector;
 
 import org.apache.commons.configuration.Configuration;
@@ -313,17 +315,25 @@ public abstract class ClassificationReporter implements IAlgorithmListener, ICon
 		File trainReportFile = new File(reportDirectory, trainReportFilename);
 
 		try {
-			testReportFile.createNewFile();
-			testFile = new FileWriter (testReportFile);
 			trainReportFile.createNewFile();
 			trainFile = new FileWriter (trainReportFile);
-			validationReportFile.createNewFile();
-			validationFile = new FileWriter (validationReportFile);
-
 
 			printResult(algorithm.getTrainSet(), classifier, trainFile);
-			printResult(algorithm.getTestSet(), classifier, testFile);
-			printResult(algorithm.getValidationSet(), classifier, validationFile);
+
+			// Test and validation sets are optional
+			if(algorithm.getTestSet() != null)
+			{
+				testReportFile.createNewFile();
+				testFile = new FileWriter (testReportFile);
+				printResult(algorithm.getTestSet(), classifier, testFile);
+			}
+
+			if(algorithm.getValidationSet() != null)
+			{
+				validationReportFile.createNewFile();
+				validationFile = new FileWriter (validationReportFile);
+				printResult(algorithm.getValidationSet(), classifier, validationFile);
+			}
 		}
 		catch (IOException e)
 		{
@@ -340,7 +350,7 @@ public abstract class ClassificationReporter implements IAlgorithmListener, ICon
 	 */
     protected void printResult(IDataset dataset, IClassifier classifier, FileWriter file)
     {
-    	IMetadata metadata = dataset.getMetadata();
+    	CompiledMetadata metadata = dataset.getCompiledMetadata();
 		int numAttributes = metadata.numberOfAttributes();
 		int numInstances = 0;
 
@@ -349,29 +359,36 @@ public abstract class ClassificationReporter implements IAlgorithmListener, ICon
     	try {
     		file.write("DATASET: " + dataset.getName());
 
-    		for (IInstance instance : dataset.getInstances())
-        	{
-				double value = instance.getValue(metadata.getClassIndex());
-				IAttribute attribute = null;
-				file.write("\n");
-
-				for(int j=0; j<numAttributes-1; j++)
-				{
-					attribute = metadata.getAttribute(j);
-					file.write(attribute.show(instance.getValue(j)) + ", ");
-				}
-				attribute = metadata.getAttribute(numAttributes-1);
-				file.write(attribute.show(instance.getValue(numAttributes-1)));
-
-				if(predicted[numInstances] == -1)
-					file.write("\t Predicted: Unclassified -> FAIL" );
-				else if(value != predicted[numInstances])
-					file.write("\t Predicted: "+attribute.show(predicted[numInstances]) + " -> FAIL");
-				else
-					file.write("\t Predicted: "+attribute.show(predicted[numInstances]) + " -> HIT");
-
-				numInstances++;
-        	}
+    		IInstanceCursor cursor = dataset.openCursor();
+    		try {
+    			while(cursor.next())
+    			{
+    				IInstance instance = cursor.getInstance();
+    				double value = instance.getValue(metadata.getClassIndex());
+    				IAttribute attribute = null;
+    				file.write("\n");
+
+    				for(int j=0; j<numAttributes-1; j++)
+    				{
+    					attribute = metadata.getAttribute(j);
+    					file.write(attribute.show(instance.getValue(j)) + ", ");
+    				}
+    				attribute = metadata.getAttribute(numAttributes-1);
+    				file.write(attribute.show(instance.getValue(numAttributes-1)));
+
+    				if(predicted[numInstances] == -1)
+    					file.write("\t Predicted: Unclassified -> FAIL" );
+    				else if(value != predicted[numInstances])
+    					file.write("\t Predicted: "+attribute.show(predicted[numInstances]) + " -> FAIL");
+    				else
+    					file.write("\t Predicted: "+attribute.show(predicted[numInstances]) + " -> HIT");
+
+    				numInstances++;
+    			}
+    		}
+    		finally {
+    			cursor.close();
+    		}
 
 			file.close();
 
@@ -525,6 +542,22 @@ public abstract class ClassificationReporter implements IAlgorithmListener, ICon
 		return Math.pow(gm, 1.0 / (double) confusionMatrix.length);
 	}
 
+	/**
+	 * Name of a dataset in the reports: the file name of file datasets,
+	 * the dataset name otherwise (for instance, the folds of a partition)
+	 *
+	 * @param dataset the dataset, null if it is not configured
+	 * @return the name of the dataset, empty if it is not configured
+	 */
+	protected static String datasetName(IDataset dataset)
+	{
+		if(dataset == null)
+			return "";
+		if(dataset instanceof FileDataset)
+			return ((FileDataset) dataset).getFileName();
+		return dataset.getName();
+	}
+
 	/**
 	 * Make a classifier report in train and test
 	 *
@@ -1,13 +1,18 @@
 package net.sf.jclec.problem.classification.base;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 import net.sf.jclec.IFitness;
 import net.sf.jclec.exprtree.ExprTree;
 import net.sf.jclec.exprtree.fun.ExprTreeFunction;
 import net.sf.jclec.problem.classification.IClassifier;
+import net.sf.jclec.problem.classification.coverage.InstancePredicate;
+import net.sf.jclec.problem.util.dataset.ClassPartition;
 import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 /**
@@ -20,6 +25,7 @@ import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
  *    The classify() method classifies a complete dataset and returns the class predictions for all the instances. 
  *    The covers() method checks whether the antecedent of the rule covers or not a particular instance.
  *    The getConfusionMatrix() method classifies a dataset and returns the confusion matrix.
+ *    The getClassCoverage() method obtains the weight of the instances of every class covered by the rule.
  * 
  * @author Sebastian Ventura
  * @author Amelia Zafra
@@ -173,11 +179,16 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 	@Override
 	public double[] classify(IDataset dataset)
 	{
-		ArrayList<IInstance> instances = dataset.getInstances();
-		double[] predicted = new double[instances.size()];
+		double[] predicted = new double[dataset.numberOfInstances()];
 		
-		for(int i = 0; i < instances.size(); i++)
-			predicted[i] = classify(instances.get(i));
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			for(int i = 0; cursor.next(); i++)
+				predicted[i] = classify(cursor.getInstance());
+		}
+		finally {
+			cursor.close();
+		}
 		
 		return predicted;
 	}
@@ -197,6 +208,25 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 		// Execute code, using this as context
 		return super.<Object>execute(this);
 	}
+	
+	/**
+	 * Obtains the antecedent as a predicate, to check whether it covers
+	 * many instances. This implementation interprets the antecedent with
+	 * covers(), so the predicate must not be used by several threads at
+	 * the same time; subclasses can return a compiled predicate instead.
+	 * 
+	 * @return the antecedent predicate
+	 */
+	
+	public InstancePredicate getPredicate()
+	{
+		return new InstancePredicate() {
+			public boolean covers(IInstance instance)
+			{
+				return (Boolean) Rule.this.covers(instance);
+			}
+		};
+	}
 
 	/** 
 	 *  Shows the complete rule antecedent and consequent
@@ -218,24 +248,112 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 	 * Obtains the confusion matrix for a dataset
 	 * @param dataset the dataset
 	 * @return the confusion matrix
+	 * @throws IllegalArgumentException if an instance has a fractional weight
 	 */
 	
 	public int[][] getConfusionMatrix(IDataset dataset)
 	{
-		IMetadata metadata = dataset.getMetadata();
-		ArrayList<IInstance> instances = dataset.getInstances();
+		CompiledMetadata metadata = dataset.getCompiledMetadata();
 		int [][] confusionMatrix = new int[metadata.numberOfClasses()][metadata.numberOfClasses()];
 		
-		double [] predicted = classify(dataset);
-		
-		for(int i = 0; i < instances.size(); i++) 
-    	{
-			confusionMatrix[(int) instances.get(i).getValue(metadata.getClassIndex())][(int) predicted[i]]++;
-    	}
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			while(cursor.next())
+			{
+				IInstance instance = cursor.getInstance();
+				// Weighted instances stand for as many identical rows
+				double weight = instance.getWeight();
+				if(weight != Math.rint(weight))
+					throw new IllegalArgumentException("Instances with a fractional weight (" + weight + ") cannot be counted");
+				confusionMatrix[(int) instance.getValue(metadata.getClassIndex())][(int) classify(instance)] += (int) weight;
+			}
+		}
+		finally {
+			cursor.close();
+		}
 		
 		return confusionMatrix;
 	}
 	
+	/**
+	 * Obtains the weight of the instances of every class covered by the
+	 * rule. For datasets held in memory, the covered rows are obtained as
+	 * a bit set from the attribute index if possible, and counted against
+	 * the rows of every class; otherwise, the rows are visited class by
+	 * class through the class partition. Instances without a valid class
+	 * are counted after the classes.
+	 * 
+	 * @param dataset the dataset
+	 * @return the covered weight of every class, followed by the covered
+	 *         weight of the instances without a class
+	 */
+	
+	public double[] getClassCoverage(IDataset dataset)
+	{
+		ClassPartition partition = dataset.getClassPartition();
+		
+		if(partition.hasRows())
+		{
+			BitSet covered = getCoveredRows(dataset);
+			if(covered != null)
+				return partition.getCoverage(covered);
+		}
+		
+		int numberOfClasses = partition.numberOfClasses();
+		double[] coverage = new double[numberOfClasses + 1];
+		
+		if(partition.hasRows())
+		{
+			List<IInstance> instances = dataset.getInstances();
+			InstancePredicate predicate = getPredicate();
+			
+			for(int c = 0; c <= numberOfClasses; c++)
+				for(int row : c < numberOfClasses ? partition.getRows(c) : partition.getUnlabeledRows())
+				{
+					IInstance instance = instances.get(row);
+					if(predicate.covers(instance))
+						coverage[c] += instance.getWeight();
+				}
+		}
+		else
+		{
+			int classIndex = partition.getClassIndex();
+			InstancePredicate predicate = getPredicate();
+			
+			IInstanceCursor cursor = dataset.openCursor();
+			try {
+				while(cursor.next())
+				{
+					IInstance instance = cursor.getInstance();
+					if(predicate.covers(instance))
+					{
+						int c = ClassPartition.label(instance.getValue(classIndex), numberOfClasses);
+						coverage[c >= 0 ? c : numberOfClasses] += instance.getWeight();
+					}
+				}
+			}
+			finally {
+				cursor.close();
+			}
+		}
+		
+		return coverage;
+	}
+	
+	/**
+	 * Obtains the rows of a dataset held in memory covered by the rule,
+	 * without evaluating the rule for every row. This implementation
+	 * returns null, so the rows are always evaluated.
+	 * 
+	 * @param dataset the dataset
+	 * @return the covered rows, or null if they cannot be obtained
+	 */
+	
+	protected BitSet getCoveredRows(IDataset dataset)
+	{
+		return null;
+	}
+	
 	public abstract Rule copy();
 	
 	/////////////////////////////////////////////////////////////////
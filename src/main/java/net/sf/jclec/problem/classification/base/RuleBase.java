@@ -5,8 +5,9 @@ import java.util.List;
 
 import net.sf.jclec.problem.classification.IClassifier;
 import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 
 /**
  * RuleBase for classification problems.<p/>
@@ -237,11 +238,16 @@ public abstract class RuleBase implements IClassifier
 	@Override
 	public double[] classify(IDataset dataset)
 	{
-		ArrayList<IInstance> instances = dataset.getInstances();
-		double[] predicted = new double[instances.size()];
+		double[] predicted = new double[dataset.numberOfInstances()];
 		
-		for(int i = 0; i < instances.size(); i++)
-			predicted[i] = classify(instances.get(i));
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			for(int i = 0; cursor.next(); i++)
+				predicted[i] = classify(cursor.getInstance());
+		}
+		finally {
+			cursor.close();
+		}
 		
 		return predicted;
 	}
@@ -251,20 +257,29 @@ public abstract class RuleBase implements IClassifier
 	 * 
 	 * @param dataset the dataset
 	 * @return the confusion matrix
+	 * @throws IllegalArgumentException if an instance has a fractional weight
 	 */
 	
 	public int[][] getConfusionMatrix(IDataset dataset)
 	{
-		IMetadata metadata = dataset.getMetadata();
-		ArrayList<IInstance> instances = dataset.getInstances();
+		CompiledMetadata metadata = dataset.getCompiledMetadata();
 		int [][] confusionMatrix = new int[metadata.numberOfClasses()][metadata.numberOfClasses()];
 		
-		double [] predicted = classify(dataset);
-		
-		for(int i = 0; i < instances.size(); i++) 
-    	{
-			confusionMatrix[(int) instances.get(i).getValue(metadata.getClassIndex())][(int) predicted[i]]++;
-    	}
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			while(cursor.next())
+			{
+				IInstance instance = cursor.getInstance();
+				// Weighted instances stand for as many identical rows
+				double weight = instance.getWeight();
+				if(weight != Math.rint(weight))
+					throw new IllegalArgumentException("Instances with a fractional weight (" + weight + ") cannot be counted");
+				confusionMatrix[(int) instance.getValue(metadata.getClassIndex())][(int) classify(instance)] += (int) weight;
+			}
+		}
+		finally {
+			cursor.close();
+		}
 		
 		return confusionMatrix;
 	}
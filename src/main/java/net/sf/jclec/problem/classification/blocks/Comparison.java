@@ -0,0 +1,97 @@
+package net.sf.jclec.problem.classification.blocks;
+
+import net.sf.jclec.exprtree.fun.AbstractPrimitive;
+
+/**
+ * Base class of the blocks that compare attribute values.
+ *
+ * A comparison has the semantics of missing values chosen by the species
+ * that creates it. With the default semantics (Compare) the operands are
+ * compared as doubles, NaN included; otherwise, a comparison with a
+ * missing operand is false (Fail) or true (Match) whatever the operator.
+ */
+
+public abstract class Comparison extends AbstractPrimitive
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 6412907335182718523L;
+
+	/** Semantics of missing values */
+
+	protected MissingValues missingValues = MissingValues.Compare;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the argument types. Comparisons return a
+	 * Boolean.
+	 *
+	 * @param argumentTypes Argument types
+	 */
+
+	protected Comparison(Class<?> [] argumentTypes)
+	{
+		super(argumentTypes, Boolean.class);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the semantics of missing values
+	 *
+	 * @return the semantics of missing values
+	 */
+
+	public final MissingValues getMissingValues()
+	{
+		return missingValues;
+	}
+
+	/**
+	 * Set the semantics of missing values
+	 *
+	 * @param missingValues the semantics of missing values
+	 */
+
+	public final void setMissingValues(MissingValues missingValues)
+	{
+		this.missingValues = missingValues;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check if the result is decided by a missing operand
+	 *
+	 * @param arg1 First operand
+	 * @param arg2 Second operand
+	 *
+	 * @return true if an operand is missing and missing values are not
+	 *         compared as NaN
+	 */
+
+	protected final boolean isMissing(double arg1, double arg2)
+	{
+		return missingValues != MissingValues.Compare && (arg1 != arg1 || arg2 != arg2);
+	}
+
+	/**
+	 * Result of a comparison decided by a missing operand
+	 *
+	 * @return true if conditions on missing values match
+	 */
+
+	protected final boolean missingResult()
+	{
+		return missingValues == MissingValues.Match;
+	}
+}
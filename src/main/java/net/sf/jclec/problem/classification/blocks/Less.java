@@ -1,6 +1,5 @@
 package net.sf.jclec.problem.classification.blocks;
 
-import net.sf.jclec.exprtree.fun.AbstractPrimitive;
 import net.sf.jclec.exprtree.fun.ExprTreeFunction;
 import net.sf.jclec.exprtree.IPrimitive;
 
@@ -14,7 +13,7 @@ import net.sf.jclec.exprtree.IPrimitive;
  * @author Juan Luis Olmo
  */
 
-public class Less extends AbstractPrimitive
+public class Less extends Comparison
 {
 	/////////////////////////////////////////////////////////////////
 	// ----------------------------------------------- Argument types
@@ -37,7 +36,7 @@ public class Less extends AbstractPrimitive
 	
 	public Less()
 	{
-		super(ARG_TYPES,Boolean.class);
+		super(ARG_TYPES);
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -55,7 +54,9 @@ public class Less extends AbstractPrimitive
 		Double arg1 = (Double) super.pop(context);
 		Double arg2 = (Double) super.pop(context);
 		
-		if (arg1 < arg2) 
+		if (isMissing(arg1, arg2))
+			super.push(context, missingResult());
+		else if (arg1 < arg2) 
 			super.push(context,true);
 		else 
 			super.push(context,false);
@@ -0,0 +1,41 @@
+package net.sf.jclec.problem.classification.blocks;
+
+/**
+ * Semantics of the comparison blocks when an operand is a missing value.
+ *
+ * Missing values are stored as NaN in the instances.
+ */
+
+public enum MissingValues
+{
+	/** Missing values are compared as NaN: only the Equal block matches two missing values, only NotEqual matches a missing and a known value */
+
+	Compare,
+
+	/** Conditions on missing values are false */
+
+	Fail,
+
+	/** Conditions on missing values are true */
+
+	Match;
+
+	/**
+	 * Get the semantics with the given name, ignoring case
+	 *
+	 * @param name Semantics name
+	 *
+	 * @return the semantics
+	 *
+	 * @throws IllegalArgumentException if there are no semantics with this name
+	 */
+
+	public static MissingValues forName(String name)
+	{
+		for(MissingValues missingValues : values())
+			if(missingValues.name().equalsIgnoreCase(name))
+				return missingValues;
+
+		throw new IllegalArgumentException("Unknown missing value semantics: " + name);
+	}
+}
@@ -1,6 +1,5 @@
 package net.sf.jclec.problem.classification.blocks;
 
-import net.sf.jclec.exprtree.fun.AbstractPrimitive;
 import net.sf.jclec.exprtree.fun.ExprTreeFunction;
 import net.sf.jclec.exprtree.IPrimitive;
 
@@ -14,7 +13,7 @@ import net.sf.jclec.exprtree.IPrimitive;
  * @author Juan Luis Olmo
  */
 
-public class Out extends AbstractPrimitive
+public class Out extends Comparison
 {
 	/////////////////////////////////////////////////////////////////
 	// ----------------------------------------------- Argument types
@@ -37,7 +36,7 @@ public class Out extends AbstractPrimitive
 	
 	public Out()
 	{
-		super(ARG_TYPES, Boolean.class);
+		super(ARG_TYPES);
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -56,6 +55,12 @@ public class Out extends AbstractPrimitive
 		double min = (Double) super.pop(context);
 		double max = (Double) super.pop(context);
 		
+		if(isMissing(arg, min) || isMissing(arg, max))
+		{
+			super.push(context, missingResult());
+			return;
+		}
+		
 		if (min > max) 
 		{
 			double aux = min;
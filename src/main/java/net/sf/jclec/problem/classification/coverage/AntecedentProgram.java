@@ -0,0 +1,463 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.Comparison;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.Greater;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.blocks.Not;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.blocks.Or;
+import net.sf.jclec.problem.classification.blocks.Out;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Crisp antecedent translated into an array of opcodes, run by an
+ * interpreter with typed stacks.
+ *
+ * The blocks of the antecedent run through a stack of boxed values, so
+ * every block allocates a Double or a Boolean for every instance. A
+ * program keeps, for every block in execution order, an opcode and its
+ * primitive operand (an attribute index, a constant or the semantics of
+ * missing values of a comparison). The interpreter runs the opcodes with
+ * a double stack for the attribute values and a boolean stack for the
+ * conditions, both allocated once, so no memory is allocated per instance.
+ *
+ * Unlike the RuleCompiler, a program runs any antecedent made of the
+ * logical operators, the comparisons, attribute values and constants, in
+ * any combination (for instance, conditions between two attributes), with
+ * the same results as the blocks. Antecedents with other blocks cannot be
+ * translated.
+ *
+ * Programs are immutable; every thread must run them with its own
+ * predicate (see newPredicate()).
+ */
+
+public final class AntecedentProgram
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------------ Opcodes
+	/////////////////////////////////////////////////////////////////
+
+	/** Push the value of an attribute */
+
+	private static final int ATTRIBUTE = 0;
+
+	/** Push a constant */
+
+	private static final int CONSTANT = 1;
+
+	/** Logical AND */
+
+	private static final int AND = 2;
+
+	/** Logical OR */
+
+	private static final int OR = 3;
+
+	/** Logical NOT */
+
+	private static final int NOT = 4;
+
+	/** First operand less than the second one */
+
+	private static final int LESS = 5;
+
+	/** First operand less than or equal to the second one */
+
+	private static final int LESS_OR_EQUAL = 6;
+
+	/** First operand greater than the second one */
+
+	private static final int GREATER = 7;
+
+	/** First operand greater than or equal to the second one */
+
+	private static final int GREATER_OR_EQUAL = 8;
+
+	/** Operands equal, as Double.compareTo() does */
+
+	private static final int EQUAL = 9;
+
+	/** Operands not equal, as Double.compareTo() does */
+
+	private static final int NOT_EQUAL = 10;
+
+	/** First operand inside the open interval of the other two */
+
+	private static final int IN = 11;
+
+	/** First operand outside the open interval of the other two */
+
+	private static final int OUT = 12;
+
+	/** Ordinal of the Compare semantics of missing values */
+
+	private static final int COMPARE = MissingValues.Compare.ordinal();
+
+	/** Ordinal of the Match semantics of missing values */
+
+	private static final int MATCH = MissingValues.Match.ordinal();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Opcodes, in execution order */
+
+	private final int[] opcodes;
+
+	/** Attribute index or semantics of missing values of every opcode */
+
+	private final int[] arguments;
+
+	/** Constant of every opcode */
+
+	private final double[] constants;
+
+	/** Maximum size of the double stack */
+
+	private final int valueDepth;
+
+	/** Maximum size of the boolean stack */
+
+	private final int conditionDepth;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param opcodes Opcodes
+	 * @param arguments Opcode arguments
+	 * @param constants Opcode constants
+	 * @param valueDepth Maximum size of the double stack
+	 * @param conditionDepth Maximum size of the boolean stack
+	 */
+
+	private AntecedentProgram(int[] opcodes, int[] arguments, double[] constants, int valueDepth, int conditionDepth)
+	{
+		super();
+		this.opcodes = opcodes;
+		this.arguments = arguments;
+		this.constants = constants;
+		this.valueDepth = valueDepth;
+		this.conditionDepth = conditionDepth;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Translate an antecedent
+	 *
+	 * @param code Antecedent code
+	 *
+	 * @return the program, or null if the antecedent has other blocks or
+	 *         is not a well-formed condition
+	 */
+
+	public static AntecedentProgram compile(ExprTree code)
+	{
+		int size = code.size();
+		int[] opcodes = new int[size];
+		int[] arguments = new int[size];
+		double[] constants = new double[size];
+
+		// Blocks run from the last one, so the first operand is on top of the stack
+		int values = 0, conditions = 0, valueDepth = 0, conditionDepth = 0;
+
+		for(int i = 0; i < size; i++)
+		{
+			IPrimitive block = code.getBlock(size - 1 - i);
+			int opcode = opcode(block);
+
+			switch(opcode)
+			{
+				case ATTRIBUTE:
+					arguments[i] = ((AttributeValue) block).getAttributeIndex();
+					values++;
+					break;
+				case CONSTANT:
+					constants[i] = ((ConstantValue) block).getValue();
+					values++;
+					break;
+				case AND:
+				case OR:
+					if(conditions < 2)
+						return null;
+					conditions--;
+					break;
+				case NOT:
+					if(conditions < 1)
+						return null;
+					break;
+				case IN:
+				case OUT:
+					if(values < 3)
+						return null;
+					arguments[i] = ((Comparison) block).getMissingValues().ordinal();
+					values -= 3;
+					conditions++;
+					break;
+				case -1:
+					return null;
+				default:
+					if(values < 2)
+						return null;
+					arguments[i] = ((Comparison) block).getMissingValues().ordinal();
+					values -= 2;
+					conditions++;
+			}
+
+			opcodes[i] = opcode;
+			valueDepth = Math.max(valueDepth, values);
+			conditionDepth = Math.max(conditionDepth, conditions);
+		}
+
+		if(values != 0 || conditions != 1)
+			return null;
+
+		return new AntecedentProgram(opcodes, arguments, constants, valueDepth, conditionDepth);
+	}
+
+	/**
+	 * Create a predicate that runs this program with its own stacks. The
+	 * predicate must not be used by several threads at the same time.
+	 *
+	 * @return the predicate
+	 */
+
+	public InstancePredicate newPredicate()
+	{
+		return new Interpreter(this);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the opcode of a block
+	 *
+	 * @param block Block
+	 *
+	 * @return the opcode, -1 for other blocks
+	 */
+
+	private static int opcode(IPrimitive block)
+	{
+		if(block instanceof AttributeValue)
+			return ATTRIBUTE;
+		if(block instanceof ConstantValue)
+			return CONSTANT;
+		if(block instanceof And)
+			return AND;
+		if(block instanceof Or)
+			return OR;
+		if(block instanceof Not)
+			return NOT;
+		if(block instanceof Less)
+			return LESS;
+		if(block instanceof LessOrEqual)
+			return LESS_OR_EQUAL;
+		if(block instanceof Greater)
+			return GREATER;
+		if(block instanceof GreaterOrEqual)
+			return GREATER_OR_EQUAL;
+		if(block instanceof Equal)
+			return EQUAL;
+		if(block instanceof NotEqual)
+			return NOT_EQUAL;
+		if(block instanceof In)
+			return IN;
+		if(block instanceof Out)
+			return OUT;
+		return -1;
+	}
+
+	/**
+	 * Run the program
+	 *
+	 * @param instance Instance
+	 * @param values Double stack
+	 * @param conditions Boolean stack
+	 *
+	 * @return the value of the antecedent
+	 */
+
+	private boolean run(IInstance instance, double[] values, boolean[] conditions)
+	{
+		int value = 0, condition = 0;
+
+		for(int i = 0; i < opcodes.length; i++)
+		{
+			switch(opcodes[i])
+			{
+				case ATTRIBUTE:
+					values[value++] = instance.getValue(arguments[i]);
+					break;
+				case CONSTANT:
+					values[value++] = constants[i];
+					break;
+				case AND:
+				{
+					boolean first = conditions[--condition];
+					conditions[condition - 1] &= first;
+					break;
+				}
+				case OR:
+				{
+					boolean first = conditions[--condition];
+					conditions[condition - 1] |= first;
+					break;
+				}
+				case NOT:
+					conditions[condition - 1] = !conditions[condition - 1];
+					break;
+				case IN:
+				case OUT:
+				{
+					double arg = values[--value];
+					double min = values[--value];
+					double max = values[--value];
+					conditions[condition++] = interval(opcodes[i] == IN, arguments[i], arg, min, max);
+					break;
+				}
+				default:
+				{
+					double first = values[--value];
+					double second = values[--value];
+					conditions[condition++] = compare(opcodes[i], arguments[i], first, second);
+				}
+			}
+		}
+
+		return conditions[0];
+	}
+
+	/**
+	 * Compare two operands, as the comparison blocks do
+	 *
+	 * @param opcode Comparison opcode
+	 * @param missingValues Ordinal of the semantics of missing values
+	 * @param arg1 First operand
+	 * @param arg2 Second operand
+	 *
+	 * @return the result of the comparison
+	 */
+
+	private static boolean compare(int opcode, int missingValues, double arg1, double arg2)
+	{
+		if(isMissing(missingValues, arg1, arg2))
+			return missingValues == MATCH;
+
+		switch(opcode)
+		{
+			case LESS:
+				return arg1 < arg2;
+			case LESS_OR_EQUAL:
+				return arg1 <= arg2;
+			case GREATER:
+				return arg1 > arg2;
+			case GREATER_OR_EQUAL:
+				return arg1 >= arg2;
+			case EQUAL:
+				return Double.compare(arg1, arg2) == 0;
+			default:
+				return Double.compare(arg1, arg2) != 0;
+		}
+	}
+
+	/**
+	 * Check an interval condition, as the In and Out blocks do
+	 *
+	 * @param in In condition, otherwise Out
+	 * @param missingValues Ordinal of the semantics of missing values
+	 * @param arg Operand
+	 * @param min Interval end
+	 * @param max Interval end
+	 *
+	 * @return the result of the condition
+	 */
+
+	private static boolean interval(boolean in, int missingValues, double arg, double min, double max)
+	{
+		if(isMissing(missingValues, arg, min) || isMissing(missingValues, arg, max))
+			return missingValues == MATCH;
+
+		if(min > max)
+		{
+			double aux = min;
+			min = max;
+			max = aux;
+		}
+
+		if(in)
+			return arg > min && arg < max;
+		else
+			return arg <= min || arg >= max;
+	}
+
+	/**
+	 * Check if the result of a comparison is decided by a missing operand
+	 *
+	 * @param missingValues Ordinal of the semantics of missing values
+	 * @param arg1 First operand
+	 * @param arg2 Second operand
+	 *
+	 * @return true if an operand is missing and missing values are not
+	 *         compared as NaN
+	 */
+
+	private static boolean isMissing(int missingValues, double arg1, double arg2)
+	{
+		return missingValues != COMPARE && (arg1 != arg1 || arg2 != arg2);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Predicate that runs a program with its own stacks
+	 */
+
+	private static final class Interpreter extends InstancePredicate
+	{
+		/** Program */
+
+		private final AntecedentProgram program;
+
+		/** Double stack */
+
+		private final double[] values;
+
+		/** Boolean stack */
+
+		private final boolean[] conditions;
+
+		Interpreter(AntecedentProgram program)
+		{
+			this.program = program;
+			this.values = new double[program.valueDepth];
+			this.conditions = new boolean[program.conditionDepth];
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			return program.run(instance, values, conditions);
+		}
+	}
+}
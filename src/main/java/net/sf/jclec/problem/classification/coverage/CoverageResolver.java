@@ -0,0 +1,269 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.BitSet;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.util.dataset.AttributeIndex;
+import net.sf.jclec.problem.util.dataset.CachedAttributeIndex;
+
+/**
+ * Computation of the rows covered by a crisp antecedent from an attribute
+ * index, without evaluating the antecedent row by row.
+ *
+ * Every condition that compares an attribute against constants is
+ * resolved by the index into the set of rows it covers, and the logical
+ * operators combine these sets. The result is the same set of rows for
+ * which the antecedent evaluates to true, with the semantics of missing
+ * values of every comparison. Antecedents with other blocks
+ * (for instance, conditions between two attributes) cannot be resolved.
+ *
+ * The antecedent is resolved through its canonical form (see SubtreeKey).
+ * If the index is a CachedAttributeIndex, the rows covered by every
+ * logical operator are also kept in its cache, under the canonical form
+ * of the subtree. Sub-antecedents copied by crossover, or left untouched
+ * by mutation, are then found in the cache in any order of their
+ * arguments, and only the operators on the path to the changed
+ * conditions are combined again.
+ */
+
+public final class CoverageResolver
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Attribute index */
+
+	private final AttributeIndex index;
+
+	/** Cache of the covered rows of the subtrees, null if the index has none */
+
+	private final CachedAttributeIndex cache;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param index Attribute index
+	 */
+
+	private CoverageResolver(AttributeIndex index)
+	{
+		super();
+		this.index = index;
+		this.cache = index instanceof CachedAttributeIndex ? (CachedAttributeIndex) index : null;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compute the rows covered by an antecedent
+	 *
+	 * @param code Antecedent code
+	 * @param index Index of the dataset attributes
+	 *
+	 * @return the covered rows, or null if the antecedent cannot be resolved
+	 */
+
+	public static BitSet resolve(ExprTree code, AttributeIndex index)
+	{
+		SubtreeKey antecedent = SubtreeKey.parse(code);
+
+		return antecedent == null ? null : resolve(antecedent, index);
+	}
+
+	/**
+	 * Compute the rows covered by the canonical form of an antecedent
+	 *
+	 * @param antecedent Canonical antecedent
+	 * @param index Index of the dataset attributes
+	 *
+	 * @return the covered rows
+	 */
+
+	public static BitSet resolve(SubtreeKey antecedent, AttributeIndex index)
+	{
+		return new CoverageResolver(index).resolveNode(antecedent);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Resolve a canonical subtree
+	 *
+	 * @param node Subtree
+	 *
+	 * @return the covered rows
+	 */
+
+	private BitSet resolveNode(SubtreeKey node)
+	{
+		switch(node.getType())
+		{
+			case SubtreeKey.AND:
+			case SubtreeKey.OR:
+			case SubtreeKey.NOT:
+				return resolveOperator(node);
+			case SubtreeKey.IN:
+			case SubtreeKey.OUT:
+				return resolveInterval(node);
+			default:
+				return resolveComparison(node);
+		}
+	}
+
+	/**
+	 * Resolve a logical operator, from the cache if possible
+	 *
+	 * @param node Operator
+	 *
+	 * @return the covered rows
+	 */
+
+	private BitSet resolveOperator(SubtreeKey node)
+	{
+		BitSet covered = cache != null ? cache.lookup(node) : null;
+		if(covered != null)
+			return covered;
+
+		SubtreeKey [] arguments = node.getArguments();
+		covered = resolveNode(arguments[0]);
+
+		switch(node.getType())
+		{
+			case SubtreeKey.AND:
+				// Once no rows are left, the other arguments cannot add any
+				for(int i = 1; i < arguments.length && !covered.isEmpty(); i++)
+					covered.and(resolveNode(arguments[i]));
+				break;
+			case SubtreeKey.OR:
+				for(int i = 1; i < arguments.length; i++)
+					covered.or(resolveNode(arguments[i]));
+				break;
+			default:
+				covered.flip(0, index.numberOfRows());
+		}
+
+		return cache != null ? cache.store(node, covered) : covered;
+	}
+
+	/**
+	 * Resolve a comparison between an attribute and a constant
+	 *
+	 * @param node Comparison
+	 *
+	 * @return the covered rows
+	 */
+
+	private BitSet resolveComparison(SubtreeKey node)
+	{
+		int attribute = node.getAttribute();
+		double constant = node.getLow();
+
+		MissingValues missingValues = node.getMissingValues();
+		if(missingValues != MissingValues.Compare && constant != constant)
+			return missingResult(missingValues);
+
+		BitSet covered;
+
+		switch(node.getType())
+		{
+			case SubtreeKey.EQUAL:
+				covered = index.equal(attribute, constant);
+				break;
+			case SubtreeKey.NOT_EQUAL:
+				covered = index.equal(attribute, constant);
+				covered.flip(0, index.numberOfRows());
+				break;
+			case SubtreeKey.GREATER:
+				covered = index.range(attribute, constant, false, Double.POSITIVE_INFINITY, true);
+				break;
+			case SubtreeKey.GREATER_OR_EQUAL:
+				covered = index.range(attribute, constant, true, Double.POSITIVE_INFINITY, true);
+				break;
+			case SubtreeKey.LESS:
+				covered = index.range(attribute, Double.NEGATIVE_INFINITY, true, constant, false);
+				break;
+			default:
+				covered = index.range(attribute, Double.NEGATIVE_INFINITY, true, constant, true);
+		}
+
+		return applyMissing(covered, attribute, missingValues);
+	}
+
+	/**
+	 * Resolve an interval condition on an attribute
+	 *
+	 * @param node In or Out condition, with sorted ends
+	 *
+	 * @return the covered rows
+	 */
+
+	private BitSet resolveInterval(SubtreeKey node)
+	{
+		int attribute = node.getAttribute();
+		double min = node.getLow();
+		double max = node.getHigh();
+
+		MissingValues missingValues = node.getMissingValues();
+		if(missingValues != MissingValues.Compare && (min != min || max != max))
+			return missingResult(missingValues);
+
+		BitSet covered;
+
+		if(node.getType() == SubtreeKey.IN)
+			covered = index.range(attribute, min, false, max, false);
+		else
+		{
+			covered = index.range(attribute, Double.NEGATIVE_INFINITY, true, min, true);
+			covered.or(index.range(attribute, max, true, Double.POSITIVE_INFINITY, true));
+		}
+
+		return applyMissing(covered, attribute, missingValues);
+	}
+
+	/**
+	 * Set the rows with a missing attribute value as the semantics of
+	 * missing values decide
+	 *
+	 * @param covered Rows covered if missing values are compared as NaN
+	 * @param attribute Attribute index
+	 * @param missingValues Semantics of missing values
+	 *
+	 * @return the covered rows
+	 */
+
+	private BitSet applyMissing(BitSet covered, int attribute, MissingValues missingValues)
+	{
+		if(missingValues == MissingValues.Fail)
+			covered.andNot(index.missing(attribute));
+		else if(missingValues == MissingValues.Match)
+			covered.or(index.missing(attribute));
+		return covered;
+	}
+
+	/**
+	 * Rows covered by a condition with a missing constant
+	 *
+	 * @param missingValues Semantics of missing values
+	 *
+	 * @return all the rows if conditions on missing values match, none
+	 *         otherwise
+	 */
+
+	private BitSet missingResult(MissingValues missingValues)
+	{
+		BitSet covered = new BitSet(index.numberOfRows());
+		if(missingValues == MissingValues.Match)
+			covered.set(0, index.numberOfRows());
+		return covered;
+	}
+}
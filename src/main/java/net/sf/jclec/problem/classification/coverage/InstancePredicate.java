@@ -0,0 +1,41 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Condition on the attribute values of an instance, such as the antecedent
+ * of a rule.
+ *
+ * The predicates built by the RuleCompiler are immutable, so they can be
+ * shared by the threads that evaluate the rules.
+ */
+
+public abstract class InstancePredicate
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	protected InstancePredicate()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check if an instance satisfies the condition
+	 *
+	 * @param instance Instance
+	 *
+	 * @return true if the instance is covered
+	 */
+
+	public abstract boolean covers(IInstance instance);
+}
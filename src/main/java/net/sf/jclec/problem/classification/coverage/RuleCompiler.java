@@ -0,0 +1,580 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.Comparison;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.Greater;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.blocks.Not;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.blocks.Or;
+import net.sf.jclec.problem.classification.blocks.Out;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Compilation of a crisp antecedent into an instance predicate.
+ *
+ * The interpreter of the antecedent runs every block of the tree through
+ * a stack of boxed values for every instance. The compiler walks the tree
+ * once and builds a tree of predicates, one class per operator, that keep
+ * the attribute index and the constants of every condition as primitive
+ * fields: every condition reads a single attribute value and compares it
+ * without boxing, and the logical operators stop as soon as their result
+ * is known. The compiled predicate covers the same instances as the
+ * interpreter, with the semantics of missing values of every comparison.
+ * Antecedents with other blocks (for instance, conditions between two
+ * attributes) cannot be compiled.
+ */
+
+public final class RuleCompiler
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Antecedent code */
+
+	private final ExprTree code;
+
+	/** Position of the next block */
+
+	private int position;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param code Antecedent code
+	 */
+
+	private RuleCompiler(ExprTree code)
+	{
+		super();
+		this.code = code;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compile an antecedent
+	 *
+	 * @param code Antecedent code
+	 *
+	 * @return the compiled predicate, or null if the antecedent cannot be
+	 *         compiled
+	 */
+
+	public static InstancePredicate compile(ExprTree code)
+	{
+		RuleCompiler compiler = new RuleCompiler(code);
+		InstancePredicate predicate = compiler.compileNode();
+
+		return compiler.position == code.size() ? predicate : null;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compile the subtree that starts at the current position
+	 *
+	 * @return the compiled subtree, or null if it cannot be compiled
+	 */
+
+	private InstancePredicate compileNode()
+	{
+		if(position >= code.size())
+			return null;
+
+		IPrimitive block = code.getBlock(position++);
+
+		if(block instanceof And || block instanceof Or)
+		{
+			InstancePredicate left = compileNode();
+			if(left == null)
+				return null;
+			InstancePredicate right = compileNode();
+			if(right == null)
+				return null;
+
+			if(block instanceof And)
+				return new AndPredicate(left, right);
+			else
+				return new OrPredicate(left, right);
+		}
+
+		if(block instanceof Not)
+		{
+			InstancePredicate argument = compileNode();
+			if(argument == null)
+				return null;
+
+			// Double negations cancel out
+			if(argument instanceof NotPredicate)
+				return ((NotPredicate) argument).argument;
+			return new NotPredicate(argument);
+		}
+
+		if(block instanceof In || block instanceof Out)
+			return compileInterval(block);
+
+		if(block instanceof Greater || block instanceof GreaterOrEqual || block instanceof Less ||
+				block instanceof LessOrEqual || block instanceof Equal || block instanceof NotEqual)
+			return compileComparison(block);
+
+		return null;
+	}
+
+	/**
+	 * Compile a comparison between an attribute and a constant, in any order
+	 *
+	 * @param block Comparison block
+	 *
+	 * @return the compiled comparison, or null if the operands are not an
+	 *         attribute and a constant
+	 */
+
+	private InstancePredicate compileComparison(IPrimitive block)
+	{
+		IPrimitive first = nextLeaf();
+		IPrimitive second = nextLeaf();
+
+		int attribute;
+		double constant;
+		boolean reversed;
+
+		if(first instanceof AttributeValue && second instanceof ConstantValue)
+		{
+			attribute = ((AttributeValue) first).getAttributeIndex();
+			constant = ((ConstantValue) second).getValue();
+			reversed = false;
+		}
+		else if(first instanceof ConstantValue && second instanceof AttributeValue)
+		{
+			attribute = ((AttributeValue) second).getAttributeIndex();
+			constant = ((ConstantValue) first).getValue();
+			reversed = true;
+		}
+		else
+			return null;
+
+		MissingValues missingValues = ((Comparison) block).getMissingValues();
+		if(missingValues != MissingValues.Compare && constant != constant)
+			return ConstantPredicate.of(missingValues == MissingValues.Match);
+
+		if(block instanceof Equal || block instanceof NotEqual)
+		{
+			// As Double.compareTo(), a missing value only equals a missing constant
+			boolean equal = block instanceof Equal;
+			boolean missing = missingValues == MissingValues.Compare ? (constant != constant) == equal : missingValues == MissingValues.Match;
+
+			if(equal)
+				return new EqualPredicate(attribute, constant, missing);
+			else
+				return new NotEqualPredicate(attribute, constant, missing);
+		}
+
+		// Comparisons with a missing value are false, as with the primitive operators
+		boolean missing = missingValues == MissingValues.Match;
+
+		// The first operand is compared against the second one
+		boolean greater = (block instanceof Greater || block instanceof GreaterOrEqual) != reversed;
+		boolean inclusive = block instanceof GreaterOrEqual || block instanceof LessOrEqual;
+
+		if(greater)
+			return inclusive ? new GreaterOrEqualPredicate(attribute, constant, missing) : new GreaterPredicate(attribute, constant, missing);
+		else
+			return inclusive ? new LessOrEqualPredicate(attribute, constant, missing) : new LessPredicate(attribute, constant, missing);
+	}
+
+	/**
+	 * Compile an interval condition on an attribute
+	 *
+	 * @param block In or Out block
+	 *
+	 * @return the compiled condition, or null if the operands are not an
+	 *         attribute and two constants
+	 */
+
+	private InstancePredicate compileInterval(IPrimitive block)
+	{
+		IPrimitive argument = nextLeaf();
+		IPrimitive lower = nextLeaf();
+		IPrimitive upper = nextLeaf();
+
+		if(!(argument instanceof AttributeValue && lower instanceof ConstantValue && upper instanceof ConstantValue))
+			return null;
+
+		int attribute = ((AttributeValue) argument).getAttributeIndex();
+		double min = ((ConstantValue) lower).getValue();
+		double max = ((ConstantValue) upper).getValue();
+
+		MissingValues missingValues = ((Comparison) block).getMissingValues();
+		if(missingValues != MissingValues.Compare && (min != min || max != max))
+			return ConstantPredicate.of(missingValues == MissingValues.Match);
+
+		if(min > max)
+		{
+			double aux = min;
+			min = max;
+			max = aux;
+		}
+
+		boolean missing = missingValues == MissingValues.Match;
+
+		if(block instanceof In)
+			return new InPredicate(attribute, min, max, missing);
+		else
+			return new OutPredicate(attribute, min, max, missing);
+	}
+
+	/**
+	 * Read a leaf block at the current position
+	 *
+	 * @return the leaf block, or null if the block has arguments
+	 */
+
+	private IPrimitive nextLeaf()
+	{
+		if(position >= code.size())
+			return null;
+
+		IPrimitive block = code.getBlock(position);
+		if(block.argumentTypes().length != 0)
+			return null;
+
+		position++;
+		return block;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Condition with a constant result
+	 */
+
+	private static final class ConstantPredicate extends InstancePredicate
+	{
+		/** Always true */
+
+		static final ConstantPredicate TRUE = new ConstantPredicate(true);
+
+		/** Always false */
+
+		static final ConstantPredicate FALSE = new ConstantPredicate(false);
+
+		/** Result */
+
+		private final boolean result;
+
+		ConstantPredicate(boolean result)
+		{
+			this.result = result;
+		}
+
+		static ConstantPredicate of(boolean result)
+		{
+			return result ? TRUE : FALSE;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			return result;
+		}
+	}
+
+	/**
+	 * Logical AND of two conditions
+	 */
+
+	private static final class AndPredicate extends InstancePredicate
+	{
+		private final InstancePredicate left;
+
+		private final InstancePredicate right;
+
+		AndPredicate(InstancePredicate left, InstancePredicate right)
+		{
+			this.left = left;
+			this.right = right;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			return left.covers(instance) && right.covers(instance);
+		}
+	}
+
+	/**
+	 * Logical OR of two conditions
+	 */
+
+	private static final class OrPredicate extends InstancePredicate
+	{
+		private final InstancePredicate left;
+
+		private final InstancePredicate right;
+
+		OrPredicate(InstancePredicate left, InstancePredicate right)
+		{
+			this.left = left;
+			this.right = right;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			return left.covers(instance) || right.covers(instance);
+		}
+	}
+
+	/**
+	 * Logical NOT of a condition
+	 */
+
+	private static final class NotPredicate extends InstancePredicate
+	{
+		private final InstancePredicate argument;
+
+		NotPredicate(InstancePredicate argument)
+		{
+			this.argument = argument;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			return !argument.covers(instance);
+		}
+	}
+
+	/**
+	 * Attribute value less than a constant. The result for missing values
+	 * is decided when the condition is compiled, as in all the conditions
+	 * below.
+	 */
+
+	private static final class LessPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		LessPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value < constant : missing;
+		}
+	}
+
+	/**
+	 * Attribute value less than or equal to a constant
+	 */
+
+	private static final class LessOrEqualPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		LessOrEqualPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value <= constant : missing;
+		}
+	}
+
+	/**
+	 * Attribute value greater than a constant
+	 */
+
+	private static final class GreaterPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		GreaterPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value > constant : missing;
+		}
+	}
+
+	/**
+	 * Attribute value greater than or equal to a constant
+	 */
+
+	private static final class GreaterOrEqualPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		GreaterOrEqualPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value >= constant : missing;
+		}
+	}
+
+	/**
+	 * Attribute value equal to a constant, as Double.compareTo() does
+	 */
+
+	private static final class EqualPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		EqualPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? Double.compare(value, constant) == 0 : missing;
+		}
+	}
+
+	/**
+	 * Attribute value not equal to a constant, as Double.compareTo() does
+	 */
+
+	private static final class NotEqualPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double constant;
+
+		private final boolean missing;
+
+		NotEqualPredicate(int attribute, double constant, boolean missing)
+		{
+			this.attribute = attribute;
+			this.constant = constant;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? Double.compare(value, constant) != 0 : missing;
+		}
+	}
+
+	/**
+	 * Attribute value inside an open interval
+	 */
+
+	private static final class InPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double min;
+
+		private final double max;
+
+		private final boolean missing;
+
+		InPredicate(int attribute, double min, double max, boolean missing)
+		{
+			this.attribute = attribute;
+			this.min = min;
+			this.max = max;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value > min && value < max : missing;
+		}
+	}
+
+	/**
+	 * Attribute value outside an open interval
+	 */
+
+	private static final class OutPredicate extends InstancePredicate
+	{
+		private final int attribute;
+
+		private final double min;
+
+		private final double max;
+
+		private final boolean missing;
+
+		OutPredicate(int attribute, double min, double max, boolean missing)
+		{
+			this.attribute = attribute;
+			this.min = min;
+			this.max = max;
+			this.missing = missing;
+		}
+
+		public boolean covers(IInstance instance)
+		{
+			double value = instance.getValue(attribute);
+			return value == value ? value <= min || value >= max : missing;
+		}
+	}
+}
@@ -0,0 +1,648 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.Comparison;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.Greater;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.blocks.Not;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.blocks.Or;
+import net.sf.jclec.problem.classification.blocks.Out;
+
+/**
+ * Canonical form of a crisp antecedent (or of any of its subtrees), used
+ * as the key of its covered rows.
+ *
+ * Crossover and mutation copy whole sub-antecedents between rules, but
+ * the copies seldom keep the same shape: AND(a, b) can come back as
+ * AND(b, a) or as part of AND(AND(b, c), a). The canonical form removes
+ * these differences, so equivalent subtrees have equal keys:
+ * <ul>
+ * <li>Nested And (or Or) operators are flattened into one node, whose
+ * arguments are sorted and without duplicates.</li>
+ * <li>Double negations are removed.</li>
+ * <li>Comparisons have the attribute as first operand ("3 &lt; a" is
+ * "a &gt; 3"), and the ends of the intervals are sorted.</li>
+ * </ul>
+ * Constants are compared by their bits, so only conditions with the same
+ * results are merged. Keys are immutable and their hash codes are
+ * computed once, so they are cheap to look up in a cache.
+ *
+ * Only antecedents that the CoverageResolver can resolve (logical
+ * operators over conditions between an attribute and constants) have a
+ * canonical form.
+ */
+
+public final class SubtreeKey implements Comparable<SubtreeKey>
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Node types
+	/////////////////////////////////////////////////////////////////
+
+	/** Logical AND of the arguments */
+
+	static final int AND = 0;
+
+	/** Logical OR of the arguments */
+
+	static final int OR = 1;
+
+	/** Logical NOT of the argument */
+
+	static final int NOT = 2;
+
+	/** Attribute less than the constant */
+
+	static final int LESS = 3;
+
+	/** Attribute less than or equal to the constant */
+
+	static final int LESS_OR_EQUAL = 4;
+
+	/** Attribute greater than the constant */
+
+	static final int GREATER = 5;
+
+	/** Attribute greater than or equal to the constant */
+
+	static final int GREATER_OR_EQUAL = 6;
+
+	/** Attribute equal to the constant */
+
+	static final int EQUAL = 7;
+
+	/** Attribute not equal to the constant */
+
+	static final int NOT_EQUAL = 8;
+
+	/** Attribute inside the open interval */
+
+	static final int IN = 9;
+
+	/** Attribute outside the open interval */
+
+	static final int OUT = 10;
+
+	/** Empty arguments of the conditions */
+
+	private static final SubtreeKey [] NO_ARGUMENTS = new SubtreeKey[0];
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Node type */
+
+	private final int type;
+
+	/** Attribute index of a condition */
+
+	private final int attribute;
+
+	/** Constant (or lower end of the interval) of a condition */
+
+	private final double low;
+
+	/** Upper end of the interval of a condition */
+
+	private final double high;
+
+	/** Semantics of missing values of a condition */
+
+	private final MissingValues missingValues;
+
+	/** Arguments of a logical operator */
+
+	private final SubtreeKey [] arguments;
+
+	/** Hash code */
+
+	private final int hash;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor of a condition
+	 *
+	 * @param type Node type
+	 * @param attribute Attribute index
+	 * @param low Constant or lower end of the interval
+	 * @param high Upper end of the interval
+	 * @param missingValues Semantics of missing values
+	 */
+
+	private SubtreeKey(int type, int attribute, double low, double high, MissingValues missingValues)
+	{
+		super();
+		this.type = type;
+		this.attribute = attribute;
+		this.low = low;
+		this.high = high;
+		this.missingValues = missingValues;
+		this.arguments = NO_ARGUMENTS;
+
+		long bits = 31L * (31L * (31L * (31L * type + attribute) + Double.doubleToLongBits(low))
+				+ Double.doubleToLongBits(high)) + missingValues.ordinal();
+		this.hash = (int) (bits ^ (bits >>> 32));
+	}
+
+	/**
+	 * Constructor of a logical operator
+	 *
+	 * @param type Node type
+	 * @param arguments Arguments, in canonical order
+	 */
+
+	private SubtreeKey(int type, SubtreeKey [] arguments)
+	{
+		super();
+		this.type = type;
+		this.attribute = -1;
+		this.low = 0.0;
+		this.high = 0.0;
+		this.missingValues = MissingValues.Compare;
+		this.arguments = arguments;
+
+		int hash = type;
+		for(SubtreeKey argument : arguments)
+			hash = 31 * hash + argument.hash;
+		this.hash = hash;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compute the canonical form of an antecedent
+	 *
+	 * @param code Antecedent code
+	 *
+	 * @return the canonical form, or null if the antecedent has other
+	 *         blocks or is not a well-formed condition
+	 */
+
+	public static SubtreeKey parse(ExprTree code)
+	{
+		Parser parser = new Parser(code);
+		SubtreeKey key = parser.parseNode();
+
+		return parser.position == code.size() ? key : null;
+	}
+
+	/**
+	 * Check if this key is a logical operator
+	 *
+	 * @return true for And, Or and Not nodes, false for conditions
+	 */
+
+	public boolean isOperator()
+	{
+		return type <= NOT;
+	}
+
+	/**
+	 * Get the number of nodes of the canonical form
+	 *
+	 * @return number of operators and conditions
+	 */
+
+	public int size()
+	{
+		int size = 1;
+		for(SubtreeKey argument : arguments)
+			size += argument.size();
+		return size;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Package methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the node type
+	 *
+	 * @return node type
+	 */
+
+	int getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Access to the attribute of a condition
+	 *
+	 * @return attribute index
+	 */
+
+	int getAttribute()
+	{
+		return attribute;
+	}
+
+	/**
+	 * Access to the constant (or lower end of the interval) of a condition
+	 *
+	 * @return constant
+	 */
+
+	double getLow()
+	{
+		return low;
+	}
+
+	/**
+	 * Access to the upper end of the interval of a condition
+	 *
+	 * @return upper end
+	 */
+
+	double getHigh()
+	{
+		return high;
+	}
+
+	/**
+	 * Access to the semantics of missing values of a condition
+	 *
+	 * @return semantics of missing values
+	 */
+
+	MissingValues getMissingValues()
+	{
+		return missingValues;
+	}
+
+	/**
+	 * Access to the arguments of a logical operator. The array must not
+	 * be modified.
+	 *
+	 * @return arguments, in canonical order
+	 */
+
+	SubtreeKey [] getArguments()
+	{
+		return arguments;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if(other == this)
+			return true;
+		if(other instanceof SubtreeKey)
+		{
+			SubtreeKey cother = (SubtreeKey) other;
+			return hash == cother.hash && compareTo(cother) == 0;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	/**
+	 * Shows the canonical form in prefix notation
+	 *
+	 * @return the canonical form
+	 */
+
+	@Override
+	public String toString()
+	{
+		StringBuffer buffer = new StringBuffer();
+		append(buffer);
+		return buffer.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------- Implementing Comparable interface
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Total order of the keys, used to sort the arguments of the
+	 * operators. Equal keys compare as 0.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	public int compareTo(SubtreeKey other)
+	{
+		if(other == this)
+			return 0;
+		if(hash != other.hash)
+			return hash < other.hash ? -1 : 1;
+		if(type != other.type)
+			return type < other.type ? -1 : 1;
+		if(attribute != other.attribute)
+			return attribute < other.attribute ? -1 : 1;
+
+		int cmp = Double.compare(low, other.low);
+		if(cmp == 0)
+			cmp = Double.compare(high, other.high);
+		if(cmp == 0)
+			cmp = missingValues.compareTo(other.missingValues);
+		if(cmp == 0 && arguments.length != other.arguments.length)
+			cmp = arguments.length < other.arguments.length ? -1 : 1;
+		for(int i = 0; cmp == 0 && i < arguments.length; i++)
+			cmp = arguments[i].compareTo(other.arguments[i]);
+		return cmp;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Canonical And or Or of two subtrees
+	 *
+	 * @param type AND or OR
+	 * @param left First argument
+	 * @param right Second argument
+	 *
+	 * @return the canonical operator, or its only argument if both are equal
+	 */
+
+	private static SubtreeKey combine(int type, SubtreeKey left, SubtreeKey right)
+	{
+		List<SubtreeKey> list = new ArrayList<SubtreeKey>();
+		flatten(type, left, list);
+		flatten(type, right, list);
+
+		SubtreeKey [] arguments = list.toArray(new SubtreeKey[list.size()]);
+		Arrays.sort(arguments);
+
+		// x AND x = x, x OR x = x
+		int size = 1;
+		for(int i = 1; i < arguments.length; i++)
+			if(!arguments[i].equals(arguments[size - 1]))
+				arguments[size++] = arguments[i];
+
+		if(size == 1)
+			return arguments[0];
+		return new SubtreeKey(type, size == arguments.length ? arguments : Arrays.copyOf(arguments, size));
+	}
+
+	/**
+	 * Add the arguments of a subtree, merging the nested operators of the
+	 * same type
+	 *
+	 * @param type AND or OR
+	 * @param key Subtree
+	 * @param list Arguments
+	 */
+
+	private static void flatten(int type, SubtreeKey key, List<SubtreeKey> list)
+	{
+		if(key.type == type)
+			list.addAll(Arrays.asList(key.arguments));
+		else
+			list.add(key);
+	}
+
+	/**
+	 * Canonical Not of a subtree
+	 *
+	 * @param argument Argument
+	 *
+	 * @return the canonical operator, or the argument of a double negation
+	 */
+
+	private static SubtreeKey negate(SubtreeKey argument)
+	{
+		if(argument.type == NOT)
+			return argument.arguments[0];
+		return new SubtreeKey(NOT, new SubtreeKey [] {argument});
+	}
+
+	/**
+	 * Append the prefix notation of this key
+	 *
+	 * @param buffer Buffer
+	 */
+
+	private void append(StringBuffer buffer)
+	{
+		final String [] names = {"AND", "OR", "NOT", "<", "<=", ">", ">=", "=", "!=", "IN", "OUT"};
+
+		buffer.append(names[type]);
+		if(isOperator())
+		{
+			buffer.append('(');
+			for(int i = 0; i < arguments.length; i++)
+			{
+				if(i > 0)
+					buffer.append(", ");
+				arguments[i].append(buffer);
+			}
+			buffer.append(')');
+		}
+		else
+		{
+			buffer.append(' ').append(attribute).append(' ').append(low);
+			if(type >= IN)
+				buffer.append(' ').append(high);
+			if(missingValues != MissingValues.Compare)
+				buffer.append(' ').append(missingValues);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Translation of the prefix code of an antecedent
+	 */
+
+	private static final class Parser
+	{
+		/** Antecedent code */
+
+		private final ExprTree code;
+
+		/** Position of the next block */
+
+		private int position;
+
+		Parser(ExprTree code)
+		{
+			this.code = code;
+		}
+
+		/**
+		 * Translate the subtree that starts at the current position
+		 *
+		 * @return the canonical subtree, or null if it has other blocks
+		 */
+
+		SubtreeKey parseNode()
+		{
+			if(position >= code.size())
+				return null;
+
+			IPrimitive block = code.getBlock(position++);
+
+			if(block instanceof And || block instanceof Or)
+			{
+				SubtreeKey left = parseNode();
+				if(left == null)
+					return null;
+				SubtreeKey right = parseNode();
+				if(right == null)
+					return null;
+
+				return combine(block instanceof And ? AND : OR, left, right);
+			}
+
+			if(block instanceof Not)
+			{
+				SubtreeKey argument = parseNode();
+				return argument == null ? null : negate(argument);
+			}
+
+			if(block instanceof In || block instanceof Out)
+				return parseInterval(block);
+
+			if(block instanceof Greater || block instanceof GreaterOrEqual || block instanceof Less ||
+					block instanceof LessOrEqual || block instanceof Equal || block instanceof NotEqual)
+				return parseComparison(block);
+
+			return null;
+		}
+
+		/**
+		 * Translate a comparison between an attribute and a constant, in
+		 * any order
+		 *
+		 * @param block Comparison block
+		 *
+		 * @return the condition, or null if the operands are not an
+		 *         attribute and a constant
+		 */
+
+		private SubtreeKey parseComparison(IPrimitive block)
+		{
+			IPrimitive first = nextLeaf();
+			IPrimitive second = nextLeaf();
+
+			int attribute;
+			double constant;
+			boolean reversed;
+
+			if(first instanceof AttributeValue && second instanceof ConstantValue)
+			{
+				attribute = ((AttributeValue) first).getAttributeIndex();
+				constant = ((ConstantValue) second).getValue();
+				reversed = false;
+			}
+			else if(first instanceof ConstantValue && second instanceof AttributeValue)
+			{
+				attribute = ((AttributeValue) second).getAttributeIndex();
+				constant = ((ConstantValue) first).getValue();
+				reversed = true;
+			}
+			else
+				return null;
+
+			int type;
+			if(block instanceof Equal)
+				type = EQUAL;
+			else if(block instanceof NotEqual)
+				type = NOT_EQUAL;
+			else if(block instanceof Less)
+				type = reversed ? GREATER : LESS;
+			else if(block instanceof LessOrEqual)
+				type = reversed ? GREATER_OR_EQUAL : LESS_OR_EQUAL;
+			else if(block instanceof Greater)
+				type = reversed ? LESS : GREATER;
+			else
+				type = reversed ? LESS_OR_EQUAL : GREATER_OR_EQUAL;
+
+			return new SubtreeKey(type, attribute, constant, 0.0, ((Comparison) block).getMissingValues());
+		}
+
+		/**
+		 * Translate an interval condition on an attribute
+		 *
+		 * @param block In or Out block
+		 *
+		 * @return the condition, or null if the operands are not an
+		 *         attribute and two constants
+		 */
+
+		private SubtreeKey parseInterval(IPrimitive block)
+		{
+			IPrimitive argument = nextLeaf();
+			IPrimitive lower = nextLeaf();
+			IPrimitive upper = nextLeaf();
+
+			if(!(argument instanceof AttributeValue && lower instanceof ConstantValue && upper instanceof ConstantValue))
+				return null;
+
+			double min = ((ConstantValue) lower).getValue();
+			double max = ((ConstantValue) upper).getValue();
+
+			// The blocks swap the ends in the same way
+			if(min > max)
+			{
+				double aux = min;
+				min = max;
+				max = aux;
+			}
+
+			return new SubtreeKey(block instanceof In ? IN : OUT, ((AttributeValue) argument).getAttributeIndex(),
+					min, max, ((Comparison) block).getMissingValues());
+		}
+
+		/**
+		 * Read a leaf block at the current position
+		 *
+		 * @return the leaf block, or null if the block has arguments
+		 */
+
+		private IPrimitive nextLeaf()
+		{
+			if(position >= code.size())
+				return null;
+
+			IPrimitive block = code.getBlock(position);
+			if(block.argumentTypes().length != 0)
+				return null;
+
+			position++;
+			return block;
+		}
+	}
+}
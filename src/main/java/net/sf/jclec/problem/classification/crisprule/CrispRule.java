@@ -1,5 +1,7 @@
 package net.sf.jclec.problem.classification.crisprule;
 
+import java.util.BitSet;
+
 import net.sf.jclec.exprtree.ExprTree;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.blocks.And;
@@ -7,6 +9,13 @@ import net.sf.jclec.problem.classification.blocks.AttributeValue;
 import net.sf.jclec.problem.classification.blocks.Not;
 import net.sf.jclec.problem.classification.blocks.Or;
 import net.sf.jclec.problem.classification.blocks.RandomConstantOfContinuousValues;
+import net.sf.jclec.problem.classification.coverage.AntecedentProgram;
+import net.sf.jclec.problem.classification.coverage.CoverageResolver;
+import net.sf.jclec.problem.classification.coverage.InstancePredicate;
+import net.sf.jclec.problem.classification.coverage.RuleCompiler;
+import net.sf.jclec.problem.classification.coverage.SubtreeKey;
+import net.sf.jclec.problem.util.dataset.AttributeIndex;
+import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
 import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
@@ -18,6 +27,14 @@ import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
  * If the rule covers an instance it returns the consequent as the class prediction.
  * Otherwise, it returns -1 indicating that the rule cannot classify the given instance.
  * 
+ * The antecedent is compiled by the RuleCompiler the first time it covers an instance, so it is
+ * not interpreted for every instance. Antecedents that cannot be compiled are translated into an
+ * AntecedentProgram, which is interpreted without boxing the values of the blocks. The antecedent
+ * must not be modified once the rule is used: a new antecedent must be set with setAntecedent()
+ * or setCode().
+ * The canonical form of the antecedent, used to resolve its covered rows from an attribute index,
+ * is also computed once.
+ * 
  * The getConditions() method calculates the number of conditions of the rule as indicator of its length.
  * The toString() method shows a human-readable representation of the rule based on the metadata context (attributes names and values).
  * 
@@ -38,6 +55,34 @@ public class CrispRule extends Rule
 	
 	private static final long serialVersionUID = -8174242256644010121L;
 
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Compiled antecedent, null until it is compiled */
+	
+	private transient InstancePredicate predicate;
+	
+	/** Program of an antecedent that cannot be compiled, null if there is no program */
+	
+	private transient AntecedentProgram program;
+	
+	/** Interpreter of the program used by covers() */
+	
+	private transient InstancePredicate interpreter;
+	
+	/** The antecedent has been compiled, though it may not be compilable */
+	
+	private transient boolean compiled;
+	
+	/** Canonical antecedent, null until it is computed or if it cannot be resolved */
+	
+	private transient SubtreeKey canonical;
+	
+	/** The canonical antecedent has been computed */
+	
+	private transient boolean parsed;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -82,6 +127,99 @@ public class CrispRule extends Rule
 			return -1;
 	}
 	
+	/**
+	 * Sets the rule antecedent, which will be compiled again
+	 * 
+	 * @param antecedent rule antecedent
+	 */
+	
+	@Override
+	public void setAntecedent(ExprTree antecedent)
+	{
+		super.setAntecedent(antecedent);
+		this.compiled = false;
+		this.predicate = null;
+		this.program = null;
+		this.interpreter = null;
+		this.parsed = false;
+		this.canonical = null;
+	}
+	
+	/**
+	 * Sets the rule code, which is its antecedent, so it will be compiled again
+	 * 
+	 * @param code rule antecedent
+	 */
+	
+	@Override
+	public void setCode(ExprTree code)
+	{
+		setAntecedent(code);
+	}
+	
+	/**
+	 * Checks if the rule covers an instance with the compiled antecedent
+	 * 
+	 * @param instance the instance
+	 * 
+	 * @return true or false
+	 */
+	
+	@Override
+	public Object covers(IInstance instance)
+	{
+		InstancePredicate predicate = compile();
+		if(predicate != null)
+			return predicate.covers(instance);
+		
+		if(program == null)
+			return super.covers(instance);
+		if(interpreter == null)
+			interpreter = program.newPredicate();
+		return interpreter.covers(instance);
+	}
+	
+	/**
+	 * Obtains the compiled antecedent. The predicate is immutable, so it
+	 * can be shared by several threads. Antecedents that cannot be compiled
+	 * are interpreted by a new predicate, with its own stacks.
+	 * 
+	 * @return the antecedent predicate
+	 */
+	
+	@Override
+	public InstancePredicate getPredicate()
+	{
+		InstancePredicate predicate = compile();
+		if(predicate != null)
+			return predicate;
+		
+		return program != null ? program.newPredicate() : super.getPredicate();
+	}
+	
+	/**
+	 * Obtains the covered rows from the attribute index of the dataset
+	 * 
+	 * @param dataset the dataset
+	 * @return the covered rows, or null if the dataset is not indexed or
+	 *         the antecedent cannot be resolved by the index
+	 */
+	
+	@Override
+	protected BitSet getCoveredRows(IDataset dataset)
+	{
+		AttributeIndex index = dataset.getAttributeIndex();
+		if(index == null)
+			return null;
+		
+		if(!parsed)
+		{
+			canonical = SubtreeKey.parse(code);
+			parsed = true;
+		}
+		return canonical == null ? null : CoverageResolver.resolve(canonical, index);
+	}
+	
 	/**
 	 * Implementation of copy()
 	 * 
@@ -179,4 +317,28 @@ public class CrispRule extends Rule
 				metadata.getAttribute(metadata.getClassIndex()).show(consequent)+")");
 		return sb.toString();
 	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Compiles the antecedent the first time it is required, or translates
+	 * it into a program if it cannot be compiled
+	 * 
+	 * @return the compiled antecedent, null if it cannot be compiled
+	 */
+	
+	private InstancePredicate compile()
+	{
+		if(!compiled)
+		{
+			predicate = RuleCompiler.compile(code);
+			if(predicate == null)
+				program = AntecedentProgram.compile(code);
+			compiled = true;
+		}
+		
+		return predicate;
+	}
 }
\ No newline at end of file
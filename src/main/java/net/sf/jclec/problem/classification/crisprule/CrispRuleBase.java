@@ -5,7 +5,6 @@ import java.util.List;
 
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.base.RuleBase;
-import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
@@ -89,43 +88,6 @@ public class CrispRuleBase extends RuleBase
 		return new CrispRuleBase(newRules, defaultClass);
 	}
 	
-	/**
-	 * Return the estimated values by the classifier to the dataset
-	 * 
-	 * @param dataset the dataset
-	 * @return array of class predictions
-	 */
-	
-	public double[] classify(IDataset dataset) 
-	{
-		/** Get the dataset instances */
-		ArrayList<IInstance> instances = dataset.getInstances();
-		
-        int numInstances = instances.size();
-        int numRules = rules.size();
-        double [] result = new double[numInstances];
-		boolean cover = false;
-        
-        for(int i=0; i<numInstances; i++)
-        {
-        	for(int j=0; j<numRules; j++)
-			{	            		
-				if((Boolean) rules.get(j).covers(instances.get(i)))
-				{
-					result[i] = rules.get(j).getConsequent();
-					cover = true;
-					break;
-				}
-			}
-		
-			if(cover == false)
-				result[i] = defaultClass;
-			
-			cover = false;
-        }
-    	return result;
-	}
-
 	/**
 	 *  Return the estimated value to the instance
 	 *  
@@ -5,7 +5,6 @@ import java.util.List;
 
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.base.RuleBase;
-import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
@@ -73,43 +72,6 @@ public class FuzzyRuleBase extends RuleBase
 	// -------------------------- Implementing IClassifier interface
 	/////////////////////////////////////////////////////////////////
 
-	/**
-	 * Return the estimated values by the classifier to the dataset
-	 * 
-	 * @param dataset the dataset
-	 * @return array of coverage values
-	 */
-	public double[] classify(IDataset dataset) 
-	{
-		/** Get the dataset instances */
-		ArrayList<IInstance> instances = dataset.getInstances();
-		
-        int numInstances = instances.size();
-        int numRules = rules.size();
-        double [] result = new double[numInstances];
-        double [] coverage = new double[numInstances];
-        
-        /** For each instance **/
-        for(int i=0; i < numInstances; i++)
-        {
-        	result[i] = getDefaultClass();
-        	
-        	/** Predict the class with the maximum coverage **/
-        	for(int j = 0; j < numRules; j++)
-        	{
-				double cover = (Double) rules.get(j).covers(instances.get(i));
-				
-				if(cover > coverage[i])
-				{
-					coverage[i] = cover;
-					result[i] = rules.get(j).getConsequent();
-				}
-			}
-        }
-        
-    	return result;
-	}
-
 	/**
 	 *  Return the estimated value to the instance
 	 *  
@@ -4,6 +4,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.util.List;
 
@@ -13,7 +15,8 @@ import net.sf.jclec.problem.classification.base.ClassificationAlgorithm;
 import net.sf.jclec.problem.classification.base.ClassificationReporter;
 import net.sf.jclec.problem.classification.base.Rule;
 import net.sf.jclec.problem.classification.base.RuleBase;
-import net.sf.jclec.problem.util.dataset.FileDataset;
+import net.sf.jclec.problem.util.dataset.CachedAttributeIndex;
+import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
@@ -77,23 +80,29 @@ public class RuleBaseReporter extends ClassificationReporter
 		// Train report file
 		File trainReportFile = new File(reportDirectory, trainReportFilename);
 		// Test file writer
-		FileWriter testFile = null;
+		Writer testFile = null;
 		// Train file writer
 		FileWriter trainFile = null;
-		FileWriter valFile = null;
+		Writer valFile = null;
 		// Number of conditions
 		int conditions = 0;
 		// Classifier
 		IClassifier classifier = algorithm.getClassifier();
 
+		// Test and validation sets are optional
+		IDataset testSet = algorithm.getTestSet();
+		IDataset validationSet = algorithm.getValidationSet();
+
 		int[][] confusionMatrixTrain = classifier.getConfusionMatrix(algorithm.getTrainSet());
-		int[][] confusionMatrixTest = classifier.getConfusionMatrix(algorithm.getTestSet());
-		int[][] confusionMatrixVal = classifier.getConfusionMatrix(algorithm.getValidationSet());
+		int[][] confusionMatrixTest = testSet == null ? new int[confusionMatrixTrain.length][confusionMatrixTrain.length] : classifier.getConfusionMatrix(testSet);
+		int[][] confusionMatrixVal = validationSet == null ? new int[confusionMatrixTrain.length][confusionMatrixTrain.length] : classifier.getConfusionMatrix(validationSet);
 
 		int[] numberInstancesTrain = new int[confusionMatrixTrain.length];
 		int[] numberInstancesTest = new int[confusionMatrixTest.length];
 		int[] numberInstancesVal = new int[confusionMatrixVal.length];
 		int correctedClassifiedTrain = 0, correctedClassifiedTest = 0, correctedClassifiedVal = 0;
+		// Weighted instances are counted by the confusion matrix
+		int totalTrain = 0, totalTest = 0, totalVal = 0;
 
 		for(int i = 0; i < confusionMatrixTrain.length; i++)
 		{
@@ -107,34 +116,41 @@ public class RuleBaseReporter extends ClassificationReporter
 				numberInstancesTest[i] += confusionMatrixTest[i][j];
 				numberInstancesVal[i] += confusionMatrixVal[i][j];
 			}
+
+			totalTrain += numberInstancesTrain[i];
+			totalTest += numberInstancesTest[i];
+			totalVal += numberInstancesVal[i];
 		}
 
 		double kappaRateTrain = Kappa(confusionMatrixTrain);
-		double kappaRateTest = Kappa(confusionMatrixTest);
-		double kappaRateVal = Kappa(confusionMatrixVal);
+		double kappaRateTest = testSet == null ? 0.0 : Kappa(confusionMatrixTest);
+		double kappaRateVal = validationSet == null ? 0.0 : Kappa(confusionMatrixVal);
 
 		double aucTrain = AUC(confusionMatrixTrain);
-		double aucTest = AUC(confusionMatrixTest);
-		double aucVal = AUC(confusionMatrixVal);
+		double aucTest = testSet == null ? 0.0 : AUC(confusionMatrixTest);
+		double aucVal = validationSet == null ? 0.0 : AUC(confusionMatrixVal);
 
 		double mediaGeoTrain = GeoMean(confusionMatrixTrain);
-		double mediaGeoTest = GeoMean(confusionMatrixTest);
-		double mediaGeoVal = GeoMean(confusionMatrixVal);
+		double mediaGeoTest = testSet == null ? 0.0 : GeoMean(confusionMatrixTest);
+		double mediaGeoVal = validationSet == null ? 0.0 : GeoMean(confusionMatrixVal);
 
 		double OMAETrain = OMAE(confusionMatrixTrain);
-		double OMAETest = OMAE(confusionMatrixTest);
-		double OMAEVal = OMAE(confusionMatrixVal);
+		double OMAETest = testSet == null ? 0.0 : OMAE(confusionMatrixTest);
+		double OMAEVal = validationSet == null ? 0.0 : OMAE(confusionMatrixVal);
 
 		DecimalFormat df = new DecimalFormat("0.00");
 		DecimalFormat df4 = new DecimalFormat("0.0000");
 
 		try {
-			testReportFile.createNewFile();
+			if(testSet != null)
+				testReportFile.createNewFile();
 			trainReportFile.createNewFile();
-			validationReportFile.createNewFile();
-			testFile = new FileWriter (testReportFile);
+			if(validationSet != null)
+				validationReportFile.createNewFile();
+			// The reports of the sets that are not configured are discarded
+			testFile = testSet == null ? new StringWriter() : new FileWriter (testReportFile);
 			trainFile = new FileWriter (trainReportFile);
-			valFile = new FileWriter (validationReportFile);
+			valFile = validationSet == null ? new StringWriter() : new FileWriter (validationReportFile);
 
 			// Dataset metadata
 			IMetadata metadata = algorithm.getTrainSet().getMetadata();
@@ -150,13 +166,13 @@ public class RuleBaseReporter extends ClassificationReporter
 			int numClasses = catAttribute.getCategories().size();
 
 			// Train data
-			trainFile.write("File name: " + ((FileDataset) algorithm.getTrainSet()).getFileName());
+			trainFile.write("File name: " + datasetName(algorithm.getTrainSet()));
 			trainFile.write(("\nRuntime (s): " + (((double)(endTime-initTime)) / 1000.0)));
 			trainFile.write("\nNumber of different attributes: " + (metadata.numberOfAttributes()-1));
 			trainFile.write("\nNumber of rules: " + (classificationRules.size()+1));
 			trainFile.write("\nNumber of conditions: "+ conditions);
 			trainFile.write("\nAverage number of conditions per rule: " + (double)conditions/((double)classificationRules.size()+1.0));
-			trainFile.write("\nAccuracy: " + df4.format((correctedClassifiedTrain /  (double) algorithm.getTrainSet().getInstances().size())));
+			trainFile.write("\nAccuracy: " + df4.format((correctedClassifiedTrain /  (double) totalTrain)));
 
 			// Write the geometric mean
 			trainFile.write("\nOMAE mean: " + df4.format(OMAETrain));
@@ -164,16 +180,21 @@ public class RuleBaseReporter extends ClassificationReporter
 			trainFile.write("\nCohen's Kappa rate: " + df4.format(kappaRateTrain));
 			trainFile.write("\nAUC: " + df4.format(aucTrain));
 
+			// Metrics of the coverage cache, if it is enabled
+			CachedAttributeIndex coverageCache = algorithm.getCoverageCache();
+			if(coverageCache != null)
+				trainFile.write("\n" + coverageCache);
+
 			trainFile.write("\n\n#Percentage of correct predictions per class");
 
 			// Test data
-			testFile.write("File name: " + ((FileDataset) algorithm.getTestSet()).getFileName());
+			testFile.write("File name: " + datasetName(testSet));
 			testFile.write(("\nRuntime (s): " + (((double)(endTime-initTime)) / 1000.0)));
 			testFile.write("\nNumber of different attributes: " + (metadata.numberOfAttributes()-1));
 			testFile.write("\nNumber of rules: " + (classificationRules.size()+1));
 			testFile.write("\nNumber of conditions: "+ conditions);
 			testFile.write("\nAverage number of conditions per rule: " + (double)conditions/((double)classificationRules.size()+1.0));
-			testFile.write("\nAccuracy: " + df4.format((correctedClassifiedTest /  (double) algorithm.getTestSet().getInstances().size())));
+			testFile.write("\nAccuracy: " + df4.format((correctedClassifiedTest /  (double) totalTest)));
 
 			// Write the geometric mean
 			testFile.write("\nOMAE mean: " + df4.format(OMAETest));
@@ -186,13 +207,13 @@ public class RuleBaseReporter extends ClassificationReporter
 
 
 			// Test data
-			valFile.write("File name: " + ((FileDataset) algorithm.getValidationSet()).getFileName());
+			valFile.write("File name: " + datasetName(validationSet));
 			valFile.write(("\nRuntime (s): " + (((double)(endTime-initTime)) / 1000.0)));
 			valFile.write("\nNumber of different attributes: " + (metadata.numberOfAttributes()-1));
 			valFile.write("\nNumber of rules: " + (classificationRules.size()+1));
 			valFile.write("\nNumber of conditions: "+ conditions);
 			valFile.write("\nAverage number of conditions per rule: " + (double)conditions/((double)classificationRules.size()+1.0));
-			valFile.write("\nAccuracy: " + df4.format((correctedClassifiedVal /  (double) algorithm.getValidationSet().getInstances().size())));
+			valFile.write("\nAccuracy: " + df4.format((correctedClassifiedVal /  (double) totalVal)));
 
 			// Write the geometric mean
 			valFile.write("\nOMAE mean: " + df4.format(OMAEVal));
@@ -232,7 +253,9 @@ public class RuleBaseReporter extends ClassificationReporter
 			}
 
 			// If the global report for test exist
-			if(fileTest.exists())
+			if(testSet == null)
+				bwTest = new BufferedWriter (new StringWriter());
+			else if(fileTest.exists())
 			{
 				bwTest = new BufferedWriter (new FileWriter(nameFileTest,true));
 				bwTest.write(System.getProperty("line.separator"));
@@ -245,11 +268,11 @@ public class RuleBaseReporter extends ClassificationReporter
 			}
 
 			//Write the train dataset name
-			bwTrain.write(((FileDataset) algorithm.getTrainSet()).getFileName() + ",");
+			bwTrain.write(datasetName(algorithm.getTrainSet()) + ",");
 			//Write the test dataset name
-			bwTest.write(((FileDataset) algorithm.getTestSet()).getFileName() + ",");
+			bwTest.write(datasetName(testSet) + ",");
 			//Write the percentage of correct predictions
-			bwTrain.write(((correctedClassifiedTrain /  (double) algorithm.getTrainSet().getInstances().size())) + ",");
+			bwTrain.write(((correctedClassifiedTrain /  (double) totalTrain)) + ",");
 			bwTrain.write(OMAETrain + ",");
 			bwTrain.write(kappaRateTrain + ",");
 			bwTrain.write(aucTrain + ",");
@@ -285,7 +308,7 @@ public class RuleBaseReporter extends ClassificationReporter
 			trainFile.write(classifier.toString(metadata));
 
 			// Write the Percentage of correct predictions
-			bwTest.write(((correctedClassifiedTest /  (double) algorithm.getTestSet().getInstances().size())) + ",");
+			bwTest.write(((correctedClassifiedTest /  (double) totalTest)) + ",");
 			bwTest.write(OMAETest + ",");
 			bwTest.write(kappaRateTest + ",");
 			bwTest.write(aucTest + ",");
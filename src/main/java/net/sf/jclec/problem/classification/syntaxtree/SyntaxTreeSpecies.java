@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.Comparison;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
 import net.sf.jclec.problem.classification.blocks.RandomConstantOfContinuousValues;
 import net.sf.jclec.problem.classification.blocks.RandomConstantOfDiscreteValues;
 import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
@@ -58,6 +60,10 @@ public abstract class SyntaxTreeSpecies extends net.sf.jclec.syntaxtree.SyntaxTr
 	
 	protected boolean existNumericalAttributes = false;
 	
+	/** Semantics of missing values in the comparisons */
+	
+	protected MissingValues missingValues = MissingValues.Compare;
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -105,6 +111,29 @@ public abstract class SyntaxTreeSpecies extends net.sf.jclec.syntaxtree.SyntaxTr
 		this.metadata = metadata;
 	}
 	
+	/**
+	 * Get the semantics of missing values in the comparisons
+	 *
+	 * @return semantics of missing values
+	 */
+	
+	public MissingValues getMissingValues() 
+	{
+		return missingValues;
+	}
+
+	/**
+	 * Set the semantics of missing values in the comparisons. It is used
+	 * by the grammar built from now on.
+	 *
+	 * @param missingValues semantics of missing values
+	 */
+	
+	public void setMissingValues(MissingValues missingValues) 
+	{
+		this.missingValues = missingValues;
+	}
+	
 	/**
 	 * Set the maximum number of derivations in trees.
 	 * 
@@ -145,6 +174,10 @@ public abstract class SyntaxTreeSpecies extends net.sf.jclec.syntaxtree.SyntaxTr
 				inputAttributes.add(metadata.getAttribute(i));
 		
 		List<TerminalNode> terminals = setTerminalSymbols(inputAttributes);
+		for(TerminalNode terminal : terminals)
+			if(terminal.getCode() instanceof Comparison)
+				((Comparison) terminal.getCode()).setMissingValues(missingValues);
+		
 		List<NonTerminalNode> nonTerminals = setNonTerminalSymbols(inputAttributes);
 		
 		//Fix the gramatical values
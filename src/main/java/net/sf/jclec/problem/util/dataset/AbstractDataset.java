@@ -1,8 +1,10 @@
 package net.sf.jclec.problem.util.dataset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 /**
@@ -34,6 +36,30 @@ public abstract class AbstractDataset implements IDataset
 	/** Dataset instances */
 	
 	protected ArrayList<IInstance> instances;
+	
+	/** Build a sorted index of the attribute values */
+	
+	protected boolean indexed;
+	
+	/** Maximum memory of the results cached by the attribute index, in bytes (0 if they are not cached) */
+	
+	protected long coverageCacheMemory;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Partition of the instances by class (null until requested) */
+	
+	protected transient ClassPartition classPartition;
+	
+	/** Index of the attribute values (null until requested) */
+	
+	protected transient AttributeIndex attributeIndex;
+	
+	/** Compiled snapshot of the metadata (null until requested) */
+	
+	protected transient CompiledMetadata compiledMetadata;
 
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -81,6 +107,17 @@ public abstract class AbstractDataset implements IDataset
 		return metadata;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public synchronized CompiledMetadata getCompiledMetadata()
+	{
+		if(compiledMetadata == null || !compiledMetadata.isCompiledFrom(metadata))
+			compiledMetadata = new CompiledMetadata(metadata);
+		return compiledMetadata;
+	}
+	
 	/**
 	 * Set the metadata
 	 * 
@@ -90,6 +127,7 @@ public abstract class AbstractDataset implements IDataset
 	public void setMetadata(IMetadata metadata)
 	{
 		this.metadata = metadata;
+		invalidateIndexes();
 	}
 
 	/**
@@ -102,4 +140,172 @@ public abstract class AbstractDataset implements IDataset
 	{
 		return instances.size();
 	}
+	
+	/**
+	 * Open a cursor over the instances returned by getInstances()
+	 * 
+	 * @return a new cursor
+	 */
+	
+	public IInstanceCursor openCursor()
+	{
+		return new InstanceListCursor(getInstances());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public synchronized ClassPartition getClassPartition()
+	{
+		int classIndex = metadata.getClassIndex();
+		
+		if(classPartition == null || classPartition.getClassIndex() != classIndex)
+			classPartition = createClassPartition();
+		return classPartition;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public synchronized AttributeIndex getAttributeIndex()
+	{
+		if(attributeIndex == null)
+		{
+			attributeIndex = createAttributeIndex();
+			if(attributeIndex != null && coverageCacheMemory > 0)
+				attributeIndex = new CachedAttributeIndex(attributeIndex, coverageCacheMemory);
+		}
+		return attributeIndex;
+	}
+	
+	/**
+	 * Check if the dataset is indexed
+	 * 
+	 * @return true if a sorted index of the attribute values is built
+	 */
+	
+	public boolean isIndexed()
+	{
+		return indexed;
+	}
+	
+	/**
+	 * Set if the dataset is indexed. Sorting the values of every attribute
+	 * takes time and memory, so only the datasets on which many rules are
+	 * evaluated, such as the training set of an algorithm, should be
+	 * indexed.
+	 * 
+	 * @param indexed Build a sorted index of the attribute values (see
+	 *                SortedAttributeIndex). The index is rebuilt whenever
+	 *                the instances change.
+	 */
+	
+	public synchronized void setIndexed(boolean indexed)
+	{
+		if(this.indexed != indexed)
+		{
+			this.indexed = indexed;
+			this.attributeIndex = null;
+		}
+	}
+	
+	/**
+	 * Access to the maximum memory of the coverage cache
+	 * 
+	 * @return maximum memory of the results cached by the attribute index,
+	 *         in bytes, 0 if they are not cached
+	 */
+	
+	public synchronized long getCoverageCacheMemory()
+	{
+		return coverageCacheMemory;
+	}
+	
+	/**
+	 * Set the maximum memory of the coverage cache. If it is positive, the
+	 * attribute index keeps the rows selected by its queries, so the same
+	 * conditions in different rules are resolved only once (see
+	 * CachedAttributeIndex).
+	 * 
+	 * @param coverageCacheMemory maximum memory of the results cached by
+	 *                            the attribute index, in bytes, 0 to
+	 *                            disable the cache
+	 */
+	
+	public synchronized void setCoverageCacheMemory(long coverageCacheMemory)
+	{
+		if(this.coverageCacheMemory != coverageCacheMemory)
+		{
+			this.coverageCacheMemory = coverageCacheMemory;
+			this.attributeIndex = null;
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Discard the class partition, the attribute index and the compiled
+	 * metadata. Implementations call this method whenever their instances
+	 * change.
+	 */
+	
+	protected synchronized void invalidateIndexes()
+	{
+		classPartition = null;
+		attributeIndex = null;
+		compiledMetadata = null;
+	}
+	
+	/**
+	 * Build the attribute index of the instances returned by getInstances()
+	 * if the dataset is indexed
+	 * 
+	 * @return the attribute index, or null if the dataset is not indexed
+	 */
+	
+	protected AttributeIndex createAttributeIndex()
+	{
+		if(!indexed)
+			return null;
+		return new SortedAttributeIndex(getInstances(), metadata.numberOfAttributes());
+	}
+	
+	/**
+	 * Build the class partition of the instances returned by getInstances()
+	 * 
+	 * @return the class partition
+	 */
+	
+	protected ClassPartition createClassPartition()
+	{
+		CompiledMetadata compiled = getCompiledMetadata();
+		int classIndex = compiled.getClassIndex();
+		int numberOfClasses = compiled.numberOfClasses();
+		
+		ArrayList<IInstance> instances = getInstances();
+		int[] labels = new int[instances.size()];
+		double[] weights = null;
+		
+		for(int i = 0; i < labels.length; i++)
+		{
+			IInstance instance = instances.get(i);
+			labels[i] = ClassPartition.label(instance.getValue(classIndex), numberOfClasses);
+			
+			if(instance.getWeight() != 1.0)
+			{
+				if(weights == null)
+				{
+					weights = new double[labels.length];
+					Arrays.fill(weights, 1.0);
+				}
+				weights[i] = instance.getWeight();
+			}
+		}
+		
+		return new ClassPartition(classIndex, numberOfClasses, labels, weights);
+	}
 }
\ No newline at end of file
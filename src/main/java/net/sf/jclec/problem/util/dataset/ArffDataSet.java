@@ -1,20 +1,18 @@
 package net.sf.jclec.problem.util.dataset;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 
 import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
 import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
-import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
 import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.instance.Instance;
+import net.sf.jclec.problem.util.dataset.instance.SparseInstance;
 import net.sf.jclec.problem.util.dataset.metadata.ClassificationMetadata;
 import net.sf.jclec.util.range.Closure;
 import net.sf.jclec.util.range.Interval;
@@ -23,6 +21,7 @@ import net.sf.jclec.util.range.Interval;
  * Dataset implementation for the ARFF format (Weka dataset).
  * 
  * The main method is loadInstances() that reads the dataset file, the metadata information and the instances.
+ * Sparse rows ({index value, ...}) are loaded as SparseInstances.
  * 
  * @author Amelia Zafra
  * @author Sebastian Ventura
@@ -69,12 +68,10 @@ public class ArffDataSet extends FileDataset {
 	
 	protected String separationValue;
 
-	/** Buffer Instance */
+	/** Number of instances of a streamed dataset */
 	
-	protected String bufferInstance = new String();
+	protected int numberOfRows;
 
-	/** Private cursor */
-	private Instance cursorInstance;
 	
 	/////////////////////////////////////////////////////////////////
 	// -------------------------------------------------- Constructor
@@ -102,55 +99,53 @@ public class ArffDataSet extends FileDataset {
 	public void loadInstances()
 	{		
 		try {
-			
-			open();
-			
-            instances = new ArrayList<IInstance>();
-            
-            reset();
-            
-            while(next())
-            {
-            	instances.add(cursorInstance.copy());
-            }
-            
-            setInstances(instances);
-            
-            close();
-            
-            double[] minValues = new double[metadata.numberOfAttributes()-1];
-            double[] maxValues = new double[metadata.numberOfAttributes()-1];
-            
-            for(int i = 0; i < minValues.length; i++)
-            {
-            	minValues[i] = Double.MAX_VALUE;
-            	maxValues[i] = -Double.MAX_VALUE;
-            }
-            
-            for(IInstance instance : instances)
-            {
-            	for(int i = 0; i < minValues.length; i++)
-            	{
-            		double value = instance.getValue(i);
-            		
-            		if(value < minValues[i])
-            			minValues[i] = value;
-            		if(value > maxValues[i])
-            			maxValues[i] = value;
-            	}
-            }
-            
-            for(int i = 0; i < minValues.length; i++)
-            	if(metadata.getAttribute(i).getType() == AttributeType.Numerical)
-            	{
-            		Interval interval = new Interval(minValues[i], maxValues[i], Closure.ClosedClosed);
-            		((NumericalAttribute) metadata.getAttribute(i)).setInterval(interval);
-            	}
-        }
+			load();
+		}
+		catch (Exception e) 
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Load instances from the data set, throwing the errors
+	 * 
+	 * @throws IOException if the data file cannot be read
+	 */
+	
+	@Override
+	public void load() throws IOException
+	{
+		if(streaming)
+			scanInstances();
+		else
+			readInstances();
+	}
+	
+	/**
+	 * Read the metadata from the header of the data file, without reading
+	 * the data section. Only the first lines of the file are read.
+	 * 
+	 * ARFF headers do not define the range of numerical attributes, so
+	 * it is only known once the instances are loaded.
+	 */
+	
+	@Override
+	public void loadMetadata()
+	{
+		try {
+			InputStream input = DataFileInput.openHeader(fileName);
+			try {
+				readHeader(input);
+			}
+			finally {
+				input.close();
+			}
+		}
 		catch (Exception e) 
-        {
-            e.printStackTrace();
-        }
+		{
+			e.printStackTrace();
+		}
 	}
 	
 	/**
@@ -162,19 +157,59 @@ public class ArffDataSet extends FileDataset {
 	public void setInstances(ArrayList<IInstance> instances)
 	{
 		this.instances = instances;
+		invalidateIndexes();
 	}
 	
 	/**
-	 * Get the dataset instances
+	 * Get the dataset instances. Streamed instances are not held in
+	 * memory, they are read through openCursor().
 	 * 
 	 * @return instances
+	 * 
+	 * @throws IllegalStateException if the dataset is streamed
 	 */
 	
 	public ArrayList<IInstance> getInstances()
 	{
+		if(instances == null && streaming)
+			throw new IllegalStateException("The instances of " + fileName + " are streamed, read them through openCursor()");
 		return instances;
 	}
 	
+	/**
+	 * Get the number of instances
+	 * 
+	 * @return the number of instances
+	 */
+	
+	@Override
+	public int numberOfInstances()
+	{
+		return instances == null ? numberOfRows : instances.size();
+	}
+	
+	/**
+	 * Open a cursor over the instances. Streamed datasets read the data
+	 * file block by block and reuse the same instance for all the rows.
+	 * 
+	 * @return a new cursor
+	 */
+	
+	@Override
+	public IInstanceCursor openCursor()
+	{
+		if(instances != null)
+			return super.openCursor();
+		
+		try {
+			return createParser(true).openCursor(fileName);
+		}
+		catch (IOException e) 
+		{
+			throw new IllegalStateException("Cannot open " + fileName, e);
+		}
+	}
+	
 	/**
 	 * Add the new instances to the dataset
 	 * 
@@ -184,6 +219,55 @@ public class ArffDataSet extends FileDataset {
 	public void addInstances(ArrayList<IInstance> newinstances)
 	{
 		this.instances.addAll(newinstances);
+		invalidateIndexes();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Read the metadata from the header and parse the data section
+	 * straight into columns
+	 * 
+	 * @return the columns
+	 * 
+	 * @throws IOException if the data file cannot be read
+	 */
+	
+	@Override
+	protected double[][] loadColumns() throws IOException
+	{
+		InputStream input = open();
+		double[][] columns;
+		
+		try {
+			columns = createParser(false).parse(input);
+		}
+		finally {
+			input.close();
+		}
+		
+		// ARFF files do not define the range of numerical attributes
+		for(int i = 0; i < columns.length - 1; i++)
+			if(metadata.getAttribute(i).getType() == AttributeType.Numerical)
+			{
+				double minValue = Double.MAX_VALUE;
+				double maxValue = -Double.MAX_VALUE;
+				
+				for(double value : columns[i])
+				{
+					if(value < minValue)
+						minValue = value;
+					if(value > maxValue)
+						maxValue = value;
+				}
+				
+				Interval interval = new Interval(minValue, maxValue, Closure.ClosedClosed);
+				((NumericalAttribute) metadata.getAttribute(i)).setInterval(interval);
+			}
+		
+		return columns;
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -191,184 +275,223 @@ public class ArffDataSet extends FileDataset {
 	/////////////////////////////////////////////////////////////////
 	
 	/**
-	 * Opens the dataset and obtains the metadata
+	 * Opens the dataset and obtains the metadata. The header and the data
+	 * section are read in a single pass: the returned stream is left at
+	 * the start of the data section.
+	 * 
+	 * @return the stream of the data section
+	 * 
+	 * @throws IOException if the header cannot be read
 	 */
 	
-	private void open()
+	private InputStream open() throws IOException
 	{
+		InputStream input = new BufferedInputStream(DataFileInput.open(fileName));
+		
 		// Generate the specification from header of data source file
-		obtainMetadata(fileName);
+		try {
+			readHeader(input);
+		}
+		catch (IOException | RuntimeException e) 
+		{
+			input.close();
+			throw e;
+		}
+		return input;
 	}
 	
 	/**
-	 * Resets the dataset cursor to the beginning
+	 * Read the metadata and the instances, and obtain the range of the
+	 * numerical attributes
+	 * 
+	 * @throws IOException if the data file cannot be read
 	 */
 	
-	private void reset()
+	private void readInstances() throws IOException
 	{
+		InputStream input = open();
+		ArrayList<IInstance> instances;
+		
 		try {
-			fileReader.close();
-			fileReader = new BufferedReader(new FileReader(new File(fileName)));
-
-			//Read until finding the sentence @DATA
-			String line = ((BufferedReader) fileReader).readLine();
-			while (!line.equalsIgnoreCase(ARFF_DATA)){
-				line = ((BufferedReader) fileReader).readLine();
+			instances = createParser(false).parseInstances(input);
+		}
+		finally {
+			input.close();
+		}
+		
+		double[] minValues = new double[metadata.numberOfAttributes()-1];
+		double[] maxValues = new double[metadata.numberOfAttributes()-1];
+		int[] numberOfValues = new int[metadata.numberOfAttributes()-1];
+		
+		for(int i = 0; i < minValues.length; i++)
+		{
+			minValues[i] = Double.MAX_VALUE;
+			maxValues[i] = -Double.MAX_VALUE;
+		}
+		
+		for(IInstance instance : instances)
+		{
+			// Only the stored values of sparse instances are visited
+			SparseInstance sparse = instance instanceof SparseInstance ? (SparseInstance) instance : null;
+			int size = sparse == null ? minValues.length : sparse.numberOfValues();
+			
+			for(int k = 0; k < size; k++)
+			{
+				int i = sparse == null ? k : sparse.getIndex(k);
+				if(i >= minValues.length)
+					break;
+				
+				double value = sparse == null ? instance.getValue(i) : sparse.getValueAt(k);
+				
+				if(value < minValues[i])
+					minValues[i] = value;
+				if(value > maxValues[i])
+					maxValues[i] = value;
+				numberOfValues[i]++;
 			}
-			bufferInstance = ((BufferedReader) fileReader).readLine();
+		}
 		
-			while(bufferInstance.startsWith(commentedValue) || bufferInstance.equalsIgnoreCase("")){
-				bufferInstance = ((BufferedReader) fileReader).readLine();
+		for(int i = 0; i < minValues.length; i++)
+			if(metadata.getAttribute(i).getType() == AttributeType.Numerical)
+			{
+				// Values omitted in sparse instances are 0
+				if(numberOfValues[i] < instances.size())
+				{
+					minValues[i] = Math.min(minValues[i], 0.0);
+					maxValues[i] = Math.max(maxValues[i], 0.0);
+				}
+				
+				Interval interval = new Interval(minValues[i], maxValues[i], Closure.ClosedClosed);
+				((NumericalAttribute) metadata.getAttribute(i)).setInterval(interval);
 			}
 		
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (Exception e){
-			e.printStackTrace();
-		}
-	
+		if(collapseDuplicates)
+			instances = collapseRows(instances);
+		
+		setInstances(instances);
 	}
 	
 	/**
-	 * Reads the next instance
+	 * Read the metadata and scan the data file once to count the
+	 * instances and obtain the range of the numerical attributes
 	 */
 	
-	private boolean next() throws Exception
+	private void scanInstances() throws IOException
 	{
-		if(bufferInstance != null)
+		InputStream input = open();
+		
+		instances = null;
+		numberOfRows = 0;
+		
+		double[] minValues = new double[metadata.numberOfAttributes()-1];
+		double[] maxValues = new double[metadata.numberOfAttributes()-1];
+		
+		for(int i = 0; i < minValues.length; i++)
 		{
-			try{
-				//Get the attributes of this instance
-				StringTokenizer token = new StringTokenizer(bufferInstance, separationValue);
-				int numAttributes = 0;
-				ArrayList<Double> values = new ArrayList<Double>();
-			
-				while(token.hasMoreTokens()){
-					IAttribute attribute = metadata.getAttribute(numAttributes);
-					double value = attribute.parse(token.nextToken().trim());
-					values.add(value);
-								
-					numAttributes++;
-				}
-				
-				cursorInstance = new Instance(numAttributes);
-				
-				for(int i = 0; i < numAttributes; i++)
-					cursorInstance.setValue(i,values.get(i));
-				
-				prepareNextInstance();
-			
-			}catch(Exception e)
+			minValues[i] = Double.MAX_VALUE;
+			maxValues[i] = -Double.MAX_VALUE;
+		}
+		
+		IInstanceCursor cursor = createParser(false).openCursor(input);
+		try {
+			while(cursor.next())
 			{
-				e.printStackTrace();
+				IInstance instance = cursor.getInstance();
+				for(int i = 0; i < minValues.length; i++)
+				{
+					double value = instance.getValue(i);
+					
+					if(value < minValues[i])
+						minValues[i] = value;
+					if(value > maxValues[i])
+						maxValues[i] = value;
+				}
+				numberOfRows++;
 			}
-			
-			return true;
 		}
-		else
-			return false;
+		finally {
+			cursor.close();
+		}
+		
+		for(int i = 0; i < minValues.length; i++)
+			if(metadata.getAttribute(i).getType() == AttributeType.Numerical)
+			{
+				Interval interval = new Interval(minValues[i], maxValues[i], Closure.ClosedClosed);
+				((NumericalAttribute) metadata.getAttribute(i)).setInterval(interval);
+			}
 	}
 	
 	/**
-	 * Closes the dataset file
+	 * Create a parser for the data section of this dataset
+	 * 
+	 * @param skipHeader The parsed streams start with the header
+	 * 
+	 * @return the parser
 	 */
 	
-	private void close() throws Exception {
-		try {
-			fileReader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	private TextDataParser createParser(boolean skipHeader)
+	{
+		TextDataParser parser = new TextDataParser(metadata, ARFF_DATA, separationValue.charAt(0), commentedValue.charAt(0), missedValue);
+		parser.setSkipHeader(skipHeader);
+		return parser;
 	}
-
+	
 	/**
-	 * Generate the dataset specification
+	 * Generate the dataset specification from the header, leaving the
+	 * stream right after the line of the data keyword
 	 *  
-	 * @param fileName Name of data source file
+	 * @param input Stream of the data source file, at its beginning
+	 * 
+	 * @throws IOException if the header cannot be read
 	 */
 	
-	private void obtainMetadata(String fileName)
+	private void readHeader(InputStream input) throws IOException
 	{
-		File file = new File(fileName);
+		setMetadata(new ClassificationMetadata());
 		
-		metadata = new ClassificationMetadata();
+		//Read until finding the sentence @DATA
+		String line = DataFileInput.readLine(input);
+		if(line == null)
+			throw new EOFException("No " + ARFF_DATA + " section in " + fileName);
+		StringTokenizer elementLine = new StringTokenizer(line);
+		String element = elementLine.nextToken();
 		
-		try {
-			
-			fileReader = new BufferedReader(new FileReader(file));
-			
-			//Read until finding the sentence @DATA
-			String line = ((BufferedReader) fileReader).readLine();
-			StringTokenizer elementLine = new StringTokenizer(line);
-			String element = elementLine.nextToken();
+		while (!element.equalsIgnoreCase(ARFF_DATA)){
 			
-			while (!element.equalsIgnoreCase(ARFF_DATA)){
+			if(element.equalsIgnoreCase(ARFF_ATTRIBUTE)){
+				//The next attribute	
+				String name = elementLine.nextToken();
+				String type = elementLine.nextToken();
 				
-				if(element.equalsIgnoreCase(ARFF_ATTRIBUTE)){
-					//The next attribute	
-					String name = elementLine.nextToken();
-					String type = elementLine.nextToken();
-					
-					if(type.equalsIgnoreCase("REAL") || type.equalsIgnoreCase("NUMERIC")){
-						addAttributeToSpecification(type, line, name);
-					}
-					else
-						addAttributeToSpecification("STRING", line, name);
-					
+				if(type.equalsIgnoreCase("REAL") || type.equalsIgnoreCase("NUMERIC")){
+					addAttributeToSpecification(type, line, name);
 				}
-				if(element.equalsIgnoreCase(ARFF_RELATION)){
-					setName(elementLine.nextToken());
-				}
-		
-				//Next line of the file
-				line = ((BufferedReader) fileReader).readLine();
-				while(line.startsWith(commentedValue) || line.equalsIgnoreCase(""))
-					line = ((BufferedReader) fileReader).readLine();
-				
-				int index = line.indexOf('[');
-				if(index != -1)
-				line = line.substring(0,index) + " [" + line.substring(index+1);
-				
-				index = line.indexOf('{');
-				if(index != -1)
-				line = line.substring(0,index) + " {" + line.substring(index+1);
-				
-				elementLine = new StringTokenizer(line);
-				element = elementLine.nextToken();
+				else
+					addAttributeToSpecification("STRING", line, name);
 				
 			}
-					
-			bufferInstance = ((BufferedReader) fileReader).readLine();
-			
-			while(bufferInstance.startsWith(commentedValue) || bufferInstance.equalsIgnoreCase("")){
-				bufferInstance = ((BufferedReader) fileReader).readLine();
+			if(element.equalsIgnoreCase(ARFF_RELATION)){
+				setName(elementLine.nextToken());
 			}
-			
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (Exception e){
-			e.printStackTrace();
-		}
-	}
-	
-	
-	/**
-	 * Store the next instance in bufferInstance
-	 */
-	private void prepareNextInstance()
-	{		
-		try
-		{
-			//Get the next instance
-			String lineInstance = ((BufferedReader) fileReader).readLine();
-			while(lineInstance.startsWith(commentedValue) || lineInstance.equalsIgnoreCase("")){
-				lineInstance = ((BufferedReader) fileReader).readLine();
-			}	
-
-			bufferInstance = lineInstance;
 		
-		}catch(Exception e){
-				bufferInstance = null;
+			//Next line of the file
+			line = DataFileInput.readLine(input);
+			while(line != null && (line.startsWith(commentedValue) || line.equalsIgnoreCase("")))
+				line = DataFileInput.readLine(input);
+			if(line == null)
+				throw new EOFException("No " + ARFF_DATA + " section in " + fileName);
+			
+			int index = line.indexOf('[');
+			if(index != -1)
+			line = line.substring(0,index) + " [" + line.substring(index+1);
+			
+			index = line.indexOf('{');
+			if(index != -1)
+			line = line.substring(0,index) + " {" + line.substring(index+1);
+			
+			elementLine = new StringTokenizer(line);
+			element = elementLine.nextToken();
+			
 		}
 	}
 	
@@ -436,6 +559,16 @@ public class ArffDataSet extends FileDataset {
 		
 		dataset.setMetadata(metadata.copy());
 		
+		// Streamed datasets share the data file
+		if(instances == null)
+		{
+			dataset.setName(name);
+			dataset.setFileName(fileName);
+			dataset.setStreaming(streaming);
+			dataset.numberOfRows = numberOfRows;
+			return dataset;
+		}
+		
 		ArrayList<IInstance> instances = new ArrayList<IInstance>();
 		
 		for(IInstance instance : this.instances)
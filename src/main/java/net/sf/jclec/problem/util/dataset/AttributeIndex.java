@@ -0,0 +1,87 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.BitSet;
+
+/**
+ * Index of the attribute values of a dataset held in memory.
+ *
+ * An attribute index finds the rows selected by a condition that compares
+ * an attribute against constants, without evaluating the condition row by
+ * row. Range queries follow the primitive comparison operators, so rows
+ * with missing values (NaN) are never selected and -0 equals 0; value
+ * queries follow Double.compareTo(), as the Equal block does.
+ *
+ * Indexes are shared by the threads that evaluate the rules, so their
+ * queries must be thread-safe. An index is never modified once built:
+ * datasets build a new one when their instances change.
+ */
+
+public abstract class AttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	protected AttributeIndex()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of indexed rows
+	 *
+	 * @return number of rows
+	 */
+
+	public abstract int numberOfRows();
+
+	/**
+	 * Select the rows whose value lies in a range. The bounds are compared
+	 * with the primitive operators, so rows with missing values are never
+	 * selected. Use infinite bounds for one-sided ranges.
+	 *
+	 * @param attributeIndex Attribute index
+	 * @param low Lower bound
+	 * @param lowInclusive Lower bound is included
+	 * @param high Upper bound
+	 * @param highInclusive Upper bound is included
+	 *
+	 * @return the selected rows
+	 */
+
+	public abstract BitSet range(int attributeIndex, double low, boolean lowInclusive, double high, boolean highInclusive);
+
+	/**
+	 * Select the rows whose value equals a given value, as
+	 * Double.compareTo() does.
+	 *
+	 * @param attributeIndex Attribute index
+	 * @param value Value
+	 *
+	 * @return the selected rows
+	 */
+
+	public abstract BitSet equal(int attributeIndex, double value);
+
+	/**
+	 * Select the rows whose value is missing (the null bitmap of the
+	 * attribute)
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the selected rows
+	 */
+
+	public BitSet missing(int attributeIndex)
+	{
+		return equal(attributeIndex, Double.NaN);
+	}
+}
@@ -0,0 +1,251 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Converts KEEL and ARFF datasets into the binary format read by
+ * MappedDataset.
+ *
+ * Usage: BinaryDatasetConverter input-file output-file
+ */
+
+public class BinaryDatasetConverter
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of values written at once */
+
+	private static final int BLOCK_SIZE = 8192;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public BinaryDatasetConverter()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Convert a text dataset (KEEL or ARFF, chosen by its extension)
+	 *
+	 * @param input Text dataset file name
+	 * @param output Binary dataset file name
+	 *
+	 * @throws IOException if the binary file cannot be written
+	 */
+
+	public void convert(String input, String output) throws IOException
+	{
+		ColumnarDataset dataset = new ColumnarDataset();
+		dataset.setFileName(input);
+		dataset.loadInstances();
+
+		write(dataset, output);
+	}
+
+	/**
+	 * Write a columnar dataset in binary format
+	 *
+	 * @param dataset Dataset to write
+	 * @param output Binary dataset file name
+	 *
+	 * @throws IOException if the binary file cannot be written
+	 */
+
+	public void write(ColumnarDataset dataset, String output) throws IOException
+	{
+		byte[] header = header(dataset);
+
+		FileOutputStream file = new FileOutputStream(output);
+
+		try {
+			FileChannel channel = file.getChannel();
+
+			// Signature and header
+			ByteBuffer prefix = ByteBuffer.allocate(MappedDataset.MAGIC.length + 8);
+			prefix.put(MappedDataset.MAGIC);
+			prefix.putInt(MappedDataset.VERSION);
+			prefix.putInt(header.length);
+			prefix.flip();
+			writeFully(channel, prefix);
+			writeFully(channel, ByteBuffer.wrap(header));
+
+			// Padding
+			long offset = MappedDataset.dataOffset(header.length);
+			writeFully(channel, ByteBuffer.allocate((int) (offset - channel.position())));
+
+			// Columns
+			ByteBuffer block = ByteBuffer.allocate(8 * BLOCK_SIZE).order(MappedDataset.DATA_ORDER);
+			double[] values = new double[BLOCK_SIZE];
+			int numberOfRows = dataset.numberOfInstances();
+
+			for(IColumn column : dataset.getColumns())
+			{
+				for(int from = 0; from < numberOfRows; from += BLOCK_SIZE)
+				{
+					int length = Math.min(BLOCK_SIZE, numberOfRows - from);
+					column.getValues(from, values, 0, length);
+					writeBlock(channel, block, values, length);
+				}
+			}
+
+			// Weights
+			double[] weights = dataset.getWeights();
+			if(weights != null)
+			{
+				for(int from = 0; from < numberOfRows; from += BLOCK_SIZE)
+				{
+					int length = Math.min(BLOCK_SIZE, numberOfRows - from);
+					System.arraycopy(weights, from, values, 0, length);
+					writeBlock(channel, block, values, length);
+				}
+			}
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Main method
+	 *
+	 * @param args Input and output file names
+	 */
+
+	public static void main(String[] args)
+	{
+		if(args.length != 2)
+		{
+			System.out.println("Usage: BinaryDatasetConverter input-file output-file");
+			return;
+		}
+
+		try {
+			new BinaryDatasetConverter().convert(args[0], args[1]);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialize the dataset name, metadata and size
+	 *
+	 * @param dataset Dataset
+	 *
+	 * @return the header bytes
+	 *
+	 * @throws IOException never
+	 */
+
+	private byte[] header(ColumnarDataset dataset) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		IMetadata metadata = dataset.getMetadata();
+
+		out.writeUTF(dataset.getName() == null ? "" : dataset.getName());
+		out.writeInt(metadata.numberOfAttributes());
+		out.writeInt(metadata.getClassIndex());
+
+		for(int i = 0; i < metadata.numberOfAttributes(); i++)
+		{
+			IAttribute attribute = metadata.getAttribute(i);
+
+			out.writeUTF(attribute.getType().name());
+			out.writeUTF(attribute.getName());
+
+			switch(attribute.getType())
+			{
+				case Numerical:
+					net.sf.jclec.util.range.Interval range = ((NumericalAttribute) attribute).intervalValues();
+					out.writeDouble(range.getLeft());
+					out.writeDouble(range.getRight());
+					out.writeUTF(range.getClosure().name());
+					break;
+				case Integer:
+					net.sf.jclec.util.intset.Interval interval = ((IntegerAttribute) attribute).intervalValues();
+					out.writeInt(interval.getLeft());
+					out.writeInt(interval.getRight());
+					out.writeUTF(interval.getClosure().name());
+					break;
+				case Categorical:
+					CategoricalAttribute categorical = (CategoricalAttribute) attribute;
+					out.writeInt(categorical.getCategories().size());
+					for(String category : categorical.getCategories())
+						out.writeUTF(category);
+					break;
+			}
+		}
+
+		out.writeInt(dataset.numberOfInstances());
+		out.writeBoolean(dataset.getWeights() != null);
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write a block of values
+	 *
+	 * @param channel Output channel
+	 * @param block Byte buffer used to encode the values
+	 * @param values Values to write
+	 * @param length Number of values to write
+	 *
+	 * @throws IOException if the values cannot be written
+	 */
+
+	private void writeBlock(FileChannel channel, ByteBuffer block, double[] values, int length) throws IOException
+	{
+		block.clear();
+		DoubleBuffer doubles = block.asDoubleBuffer();
+		doubles.put(values, 0, length);
+		block.limit(8 * length);
+		writeFully(channel, block);
+	}
+
+	/**
+	 * Write all the remaining bytes of a buffer
+	 *
+	 * @param channel Output channel
+	 * @param buffer Buffer to write
+	 *
+	 * @throws IOException if the buffer cannot be written
+	 */
+
+	private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+	}
+}
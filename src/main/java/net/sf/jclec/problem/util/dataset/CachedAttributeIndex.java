@@ -0,0 +1,406 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Attribute index that keeps the results of the queries of another index.
+ *
+ * The same conditions ("attribute op constant") appear in many rules of a
+ * population and survive across generations: crossover and reproduction
+ * copy them, and mutation often changes only the operator. Every query
+ * (the rows of a range, of a value or with a missing value) is resolved
+ * once by the wrapped index, and its set of rows is kept for the next
+ * rules that contain the same condition, so compound rules only combine
+ * the cached sets.
+ *
+ * Other results over the same rows, such as the rows covered by whole
+ * subtrees of the rule antecedents, can be cached with lookup() and
+ * store(), so they share the memory of the query results.
+ *
+ * The cache keeps the most recently used results, up to a maximum memory
+ * usage, and counts its hits, misses and evictions. Callers receive a
+ * copy of every cached set, which they can modify. The cache is
+ * thread-safe, and it is discarded with the index whenever the instances
+ * of the dataset change.
+ */
+
+public final class CachedAttributeIndex extends AttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Estimated memory taken by an entry besides its words */
+
+	private static final long ENTRY_OVERHEAD = 128;
+
+	/** Query of the rows of a range */
+
+	private static final int RANGE = 0;
+
+	/** Query of the rows of a value */
+
+	private static final int EQUAL = 1;
+
+	/** Query of the rows with a missing value */
+
+	private static final int MISSING = 2;
+
+	/** Wrapped index */
+
+	private final AttributeIndex index;
+
+	/** Maximum memory usage in bytes */
+
+	private final long maximumMemory;
+
+	/** Cached results, in access order */
+
+	private final LinkedHashMap<Object, BitSet> entries = new LinkedHashMap<Object, BitSet>(256, 0.75f, true);
+
+	/** Memory usage of the cached results in bytes */
+
+	private long memoryUsage;
+
+	/** Number of queries answered from the cache */
+
+	private long hits;
+
+	/** Number of queries resolved by the wrapped index */
+
+	private long misses;
+
+	/** Number of results discarded to respect the maximum memory */
+
+	private long evictions;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that wraps an index
+	 *
+	 * @param index Wrapped index
+	 * @param maximumMemory Maximum memory usage of the cached results, in bytes
+	 */
+
+	public CachedAttributeIndex(AttributeIndex index, long maximumMemory)
+	{
+		super();
+		this.index = index;
+		this.maximumMemory = maximumMemory;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the wrapped index
+	 *
+	 * @return the wrapped index
+	 */
+
+	public AttributeIndex getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int numberOfRows()
+	{
+		return index.numberOfRows();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet range(int attributeIndex, double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		Query query = new Query(RANGE, attributeIndex, low, lowInclusive, high, highInclusive);
+
+		BitSet rows = lookup(query);
+		if(rows == null)
+			rows = store(query, index.range(attributeIndex, low, lowInclusive, high, highInclusive));
+		return rows;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet equal(int attributeIndex, double value)
+	{
+		Query query = new Query(EQUAL, attributeIndex, value, true, value, true);
+
+		BitSet rows = lookup(query);
+		if(rows == null)
+			rows = store(query, index.equal(attributeIndex, value));
+		return rows;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	@Override
+	public BitSet missing(int attributeIndex)
+	{
+		Query query = new Query(MISSING, attributeIndex, Double.NaN, true, Double.NaN, true);
+
+		BitSet rows = lookup(query);
+		if(rows == null)
+			rows = store(query, index.missing(attributeIndex));
+		return rows;
+	}
+
+	/**
+	 * Look up a cached result, counting a hit or a miss
+	 *
+	 * @param key Result key. Keys must be immutable, and must implement
+	 *            equals() and hashCode().
+	 *
+	 * @return a copy of the cached rows, null if the result is not cached
+	 */
+
+	public synchronized BitSet lookup(Object key)
+	{
+		BitSet rows = entries.get(key);
+
+		if(rows == null)
+		{
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return (BitSet) rows.clone();
+	}
+
+	/**
+	 * Cache a result, evicting the least recently used results if the
+	 * maximum memory is exceeded. Results larger than the maximum memory
+	 * are not cached.
+	 *
+	 * @param key Result key
+	 * @param rows Selected rows, which are copied
+	 *
+	 * @return the rows, which the caller can still modify
+	 */
+
+	public synchronized BitSet store(Object key, BitSet rows)
+	{
+		if(entries.containsKey(key))
+			return rows;
+
+		// The copy drops the unused words of the rows, so it is the copy
+		// that is charged, as it is discharged when it is evicted
+		BitSet copy = (BitSet) rows.clone();
+		long memory = memoryUsage(copy);
+		if(memory > maximumMemory)
+			return rows;
+
+		Iterator<Map.Entry<Object, BitSet>> eldest = entries.entrySet().iterator();
+		while(memoryUsage + memory > maximumMemory && eldest.hasNext())
+		{
+			memoryUsage -= memoryUsage(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+
+		entries.put(key, copy);
+		memoryUsage += memory;
+		return rows;
+	}
+
+	/**
+	 * Access to the maximum memory usage
+	 *
+	 * @return maximum memory usage of the cached results, in bytes
+	 */
+
+	public long getMaximumMemory()
+	{
+		return maximumMemory;
+	}
+
+	/**
+	 * Access to the memory usage
+	 *
+	 * @return estimated memory usage of the cached results, in bytes
+	 */
+
+	public synchronized long getMemoryUsage()
+	{
+		return memoryUsage;
+	}
+
+	/**
+	 * Get the number of cached results
+	 *
+	 * @return number of cached results
+	 */
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of hits
+	 *
+	 * @return number of queries answered from the cache
+	 */
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Get the number of misses
+	 *
+	 * @return number of queries resolved by the wrapped index
+	 */
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Get the number of evictions
+	 *
+	 * @return number of results discarded to respect the maximum memory
+	 */
+
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Get the hit ratio
+	 *
+	 * @return fraction of the queries answered from the cache, 0 if there
+	 *         have been no queries
+	 */
+
+	public synchronized double getHitRatio()
+	{
+		long queries = hits + misses;
+		return queries == 0 ? 0.0 : (double) hits / queries;
+	}
+
+	/**
+	 * Remove all the cached results. The metrics are kept.
+	 */
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		memoryUsage = 0;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Shows the metrics of the cache
+	 *
+	 * @return the number of entries, memory usage, hits, misses and evictions
+	 */
+
+	@Override
+	public synchronized String toString()
+	{
+		return "Coverage cache: " + entries.size() + " entries, " + memoryUsage + "/" + maximumMemory +
+				" bytes, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Estimate the memory taken by a cached result
+	 *
+	 * @param rows Rows
+	 *
+	 * @return estimated size in bytes
+	 */
+
+	private static long memoryUsage(BitSet rows)
+	{
+		return ENTRY_OVERHEAD + rows.size() / 8;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Cache key: a query and its arguments. Bounds are compared by their
+	 * bits, so -0 and 0 are different queries and NaN equals NaN.
+	 */
+
+	private static final class Query
+	{
+		/** Query type */
+
+		private final int type;
+
+		/** Attribute index */
+
+		private final int attribute;
+
+		/** Lower bound (or value) */
+
+		private final long low;
+
+		/** Upper bound (or value) */
+
+		private final long high;
+
+		/** Inclusive bounds: 1 for the lower bound, 2 for the upper bound */
+
+		private final int inclusive;
+
+		Query(int type, int attribute, double low, boolean lowInclusive, double high, boolean highInclusive)
+		{
+			this.type = type;
+			this.attribute = attribute;
+			this.low = Double.doubleToLongBits(low);
+			this.high = Double.doubleToLongBits(high);
+			this.inclusive = (lowInclusive ? 1 : 0) | (highInclusive ? 2 : 0);
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if(other instanceof Query)
+			{
+				Query cother = (Query) other;
+				return type == cother.type && attribute == cother.attribute && low == cother.low &&
+						high == cother.high && inclusive == cother.inclusive;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			long hash = 31L * (31L * (31L * (31L * type + attribute) + low) + high) + inclusive;
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+}
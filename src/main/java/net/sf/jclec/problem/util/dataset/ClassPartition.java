@@ -0,0 +1,363 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Partition of the instances of a dataset by class.
+ *
+ * For every class, the partition keeps the total weight of its instances
+ * and, for datasets held in memory, the indexes of its instances in the
+ * list returned by getInstances(), in ascending order. Evaluators that
+ * target one class visit only the rows of that class, and derive the
+ * counts of the other rows from the class totals. The covered weight of
+ * every class is computed from a set of covered rows: if all the rows
+ * weigh 1, by counting the bits of the set against a bit mask of every
+ * class, 64 rows at a time.
+ *
+ * Instances whose class is missing or is not a valid category do not
+ * belong to any class. They are kept apart as the unlabeled rows, and are
+ * counted in the total weight and in the coverage, so evaluators count
+ * them as negatives of every class. A partition is never modified once
+ * built: datasets build a new one when their instances or their class
+ * index change.
+ */
+
+public final class ClassPartition
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Class attribute index */
+
+	private final int classIndex;
+
+	/** Rows of every class, then the unlabeled rows (null if the instances are not in memory) */
+
+	private final int[][] rows;
+
+	/** Class of every row (null if the instances are not in memory) */
+
+	private final int[] labels;
+
+	/** Weight of every row (null if all the rows weigh 1 or the instances are not in memory) */
+
+	private final double[] rowWeights;
+
+	/** Bit mask of the rows of every class, then of the unlabeled rows (null if the rows are weighted or not in memory) */
+
+	private final long[][] masks;
+
+	/** Total weight of every class */
+
+	private final double[] weights;
+
+	/** Total weight of the unlabeled rows */
+
+	private final double unlabeledWeight;
+
+	/** Total weight of all the rows */
+
+	private final double totalWeight;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that partitions the rows of a dataset held in memory
+	 *
+	 * @param classIndex Class attribute index
+	 * @param numberOfClasses Number of classes
+	 * @param labels Class of every row, -1 if the row has no class. The
+	 *               array is not copied.
+	 * @param rowWeights Weight of every row, null if all the rows weigh 1
+	 */
+
+	public ClassPartition(int classIndex, int numberOfClasses, int[] labels, double[] rowWeights)
+	{
+		super();
+
+		this.classIndex = classIndex;
+		this.labels = labels;
+
+		// The unlabeled rows go after the classes
+		int[] sizes = new int[numberOfClasses + 1];
+		double[] totals = new double[numberOfClasses + 1];
+		for(int i = 0; i < labels.length; i++)
+		{
+			int c = slot(labels[i], numberOfClasses);
+			sizes[c]++;
+			totals[c] += rowWeights == null ? 1.0 : rowWeights[i];
+		}
+
+		this.rows = new int[numberOfClasses + 1][];
+		for(int c = 0; c <= numberOfClasses; c++)
+			rows[c] = new int[sizes[c]];
+
+		Arrays.fill(sizes, 0);
+		for(int i = 0; i < labels.length; i++)
+		{
+			int c = slot(labels[i], numberOfClasses);
+			rows[c][sizes[c]++] = i;
+		}
+
+		this.rowWeights = rowWeights;
+		this.masks = rowWeights == null ? masks(labels, numberOfClasses) : null;
+		this.weights = Arrays.copyOf(totals, numberOfClasses);
+		this.unlabeledWeight = totals[numberOfClasses];
+		this.totalWeight = sum(totals);
+	}
+
+	/**
+	 * Constructor that only keeps the class totals, for datasets that are
+	 * not held in memory
+	 *
+	 * @param classIndex Class attribute index
+	 * @param weights Total weight of every class. The array is not copied.
+	 * @param unlabeledWeight Total weight of the rows without a class
+	 */
+
+	public ClassPartition(int classIndex, double[] weights, double unlabeledWeight)
+	{
+		super();
+		this.classIndex = classIndex;
+		this.rows = null;
+		this.labels = null;
+		this.rowWeights = null;
+		this.masks = null;
+		this.weights = weights;
+		this.unlabeledWeight = unlabeledWeight;
+		this.totalWeight = sum(weights) + unlabeledWeight;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Class of an instance
+	 *
+	 * @param value Class attribute value
+	 * @param numberOfClasses Number of classes
+	 *
+	 * @return the class, or -1 if the value is not a valid class
+	 */
+
+	public static int label(double value, int numberOfClasses)
+	{
+		int label = (int) value;
+		return label == value && label >= 0 && label < numberOfClasses ? label : -1;
+	}
+
+	/**
+	 * Access to the class attribute index used to build the partition
+	 *
+	 * @return class attribute index
+	 */
+
+	public int getClassIndex()
+	{
+		return classIndex;
+	}
+
+	/**
+	 * Get the number of classes
+	 *
+	 * @return number of classes
+	 */
+
+	public int numberOfClasses()
+	{
+		return weights.length;
+	}
+
+	/**
+	 * Check if the partition keeps the rows of every class
+	 *
+	 * @return true if the rows are available
+	 */
+
+	public boolean hasRows()
+	{
+		return rows != null;
+	}
+
+	/**
+	 * Access to the rows of a class. The array must not be modified.
+	 *
+	 * @param classValue Class
+	 *
+	 * @return indexes of the instances of this class, in ascending order
+	 *
+	 * @throws IllegalStateException if the rows are not available
+	 */
+
+	public int[] getRows(int classValue)
+	{
+		if(rows == null)
+			throw new IllegalStateException("The instances are not held in memory");
+		return rows[classValue];
+	}
+
+	/**
+	 * Access to the rows without a class. The array must not be modified.
+	 *
+	 * @return indexes of the instances without a class, in ascending order
+	 *
+	 * @throws IllegalStateException if the rows are not available
+	 */
+
+	public int[] getUnlabeledRows()
+	{
+		if(rows == null)
+			throw new IllegalStateException("The instances are not held in memory");
+		return rows[weights.length];
+	}
+
+	/**
+	 * Get the class of a row
+	 *
+	 * @param row Row index
+	 *
+	 * @return the class of the row, or -1 if the row has no class
+	 *
+	 * @throws IllegalStateException if the rows are not available
+	 */
+
+	public int getLabel(int row)
+	{
+		if(labels == null)
+			throw new IllegalStateException("The instances are not held in memory");
+		return labels[row];
+	}
+
+	/**
+	 * Get the covered weight of every class, and of the rows without a
+	 * class
+	 *
+	 * @param covered Covered rows
+	 *
+	 * @return the weight of the covered rows of every class, followed by
+	 *         the weight of the covered rows without a class
+	 *
+	 * @throws IllegalStateException if the rows are not available
+	 */
+
+	public double[] getCoverage(BitSet covered)
+	{
+		if(labels == null)
+			throw new IllegalStateException("The instances are not held in memory");
+
+		double[] coverage = new double[weights.length + 1];
+
+		if(masks != null)
+		{
+			long[] words = covered.toLongArray();
+			for(int c = 0; c < coverage.length; c++)
+			{
+				long[] mask = masks[c];
+				int count = 0;
+				for(int w = Math.min(words.length, mask.length) - 1; w >= 0; w--)
+					count += Long.bitCount(words[w] & mask[w]);
+				coverage[c] = count;
+			}
+		}
+		else
+		{
+			for(int row = covered.nextSetBit(0); row >= 0 && row < labels.length; row = covered.nextSetBit(row + 1))
+				coverage[slot(labels[row], weights.length)] += rowWeights[row];
+		}
+
+		return coverage;
+	}
+
+	/**
+	 * Get the total weight of the instances of a class
+	 *
+	 * @param classValue Class
+	 *
+	 * @return class weight
+	 */
+
+	public double getWeight(int classValue)
+	{
+		return weights[classValue];
+	}
+
+	/**
+	 * Get the total weight of the instances without a class
+	 *
+	 * @return unlabeled weight
+	 */
+
+	public double getUnlabeledWeight()
+	{
+		return unlabeledWeight;
+	}
+
+	/**
+	 * Get the total weight of all the instances, with or without a class
+	 *
+	 * @return total weight
+	 */
+
+	public double getTotalWeight()
+	{
+		return totalWeight;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Slot of a row in the arrays indexed by class, where the rows without
+	 * a class go after the classes
+	 *
+	 * @param label Class of the row, -1 if the row has no class
+	 * @param numberOfClasses Number of classes
+	 *
+	 * @return the slot
+	 */
+
+	private static int slot(int label, int numberOfClasses)
+	{
+		return label >= 0 ? label : numberOfClasses;
+	}
+
+	/**
+	 * Build the bit mask of the rows of every class, and of the rows
+	 * without a class
+	 *
+	 * @param labels Class of every row
+	 * @param numberOfClasses Number of classes
+	 *
+	 * @return the masks, with one bit per row
+	 */
+
+	private static long[][] masks(int[] labels, int numberOfClasses)
+	{
+		long[][] masks = new long[numberOfClasses + 1][(labels.length + 63) >>> 6];
+		for(int i = 0; i < labels.length; i++)
+			masks[slot(labels[i], numberOfClasses)][i >>> 6] |= 1L << i;
+		return masks;
+	}
+
+	/**
+	 * Sum of an array
+	 *
+	 * @param values Values
+	 *
+	 * @return the sum
+	 */
+
+	private static double sum(double[] values)
+	{
+		double sum = 0.0;
+		for(double value : values)
+			sum += value;
+		return sum;
+	}
+}
@@ -0,0 +1,180 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.BitSet;
+import java.util.List;
+
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Attribute index that answers every query by scanning the values of the
+ * attribute, a column at a time.
+ *
+ * Unlike SortedAttributeIndex and ZoneMapIndex, this index keeps nothing
+ * but a reference to the rows, so it costs nothing to build. Queries read
+ * the values in blocks of 64 rows and compare them into one word of the
+ * resulting bit set, so a rule is evaluated over all the rows with a scan
+ * per condition and word operations to combine the conditions. It suits
+ * datasets whose rows change too often to be sorted, such as sampled views.
+ *
+ * The values are read from the columns of a columnar dataset, through a
+ * row map for views, or from the instances of any other dataset.
+ */
+
+public final class ColumnScanIndex extends AttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Rows per block (a word of the bit sets) */
+
+	private static final int BLOCK_SIZE = 64;
+
+	/** Scanned columns, null if the values are read from the instances */
+
+	private final IColumn[] columns;
+
+	/** Column row of every row, null if the rows are the column rows */
+
+	private final int[] rows;
+
+	/** Scanned instances, null if the values are read from the columns */
+
+	private final List<IInstance> instances;
+
+	/** Number of rows */
+
+	private final int numberOfRows;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that scans some rows of a set of columns
+	 *
+	 * @param columns Columns. They must not change while the index is used.
+	 * @param rows Column row of every row, null to scan the first rows of
+	 *             the columns. The array is not copied.
+	 * @param numberOfRows Number of rows
+	 */
+
+	public ColumnScanIndex(IColumn[] columns, int[] rows, int numberOfRows)
+	{
+		super();
+		this.columns = columns;
+		this.rows = rows;
+		this.instances = null;
+		this.numberOfRows = numberOfRows;
+	}
+
+	/**
+	 * Constructor that scans the values of some instances
+	 *
+	 * @param instances Instances. They must not change while the index is used.
+	 */
+
+	public ColumnScanIndex(List<IInstance> instances)
+	{
+		super();
+		this.columns = null;
+		this.rows = null;
+		this.instances = instances;
+		this.numberOfRows = instances.size();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int numberOfRows()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet range(int attributeIndex, double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		long[] words = new long[(numberOfRows + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		double[] block = new double[BLOCK_SIZE];
+
+		for(int w = 0, from = 0; from < numberOfRows; w++, from += BLOCK_SIZE)
+		{
+			int length = Math.min(BLOCK_SIZE, numberOfRows - from);
+			read(attributeIndex, from, block, length);
+
+			long word = 0L;
+			for(int k = 0; k < length; k++)
+			{
+				double value = block[k];
+				if((lowInclusive ? value >= low : value > low) && (highInclusive ? value <= high : value < high))
+					word |= 1L << k;
+			}
+			words[w] = word;
+		}
+
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet equal(int attributeIndex, double value)
+	{
+		long[] words = new long[(numberOfRows + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		double[] block = new double[BLOCK_SIZE];
+
+		for(int w = 0, from = 0; from < numberOfRows; w++, from += BLOCK_SIZE)
+		{
+			int length = Math.min(BLOCK_SIZE, numberOfRows - from);
+			read(attributeIndex, from, block, length);
+
+			long word = 0L;
+			for(int k = 0; k < length; k++)
+				if(Double.compare(block[k], value) == 0)
+					word |= 1L << k;
+			words[w] = word;
+		}
+
+		return BitSet.valueOf(words);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Read the values of a block of rows
+	 *
+	 * @param attributeIndex Attribute index
+	 * @param from First row
+	 * @param block Destination array
+	 * @param length Number of rows
+	 */
+
+	private void read(int attributeIndex, int from, double[] block, int length)
+	{
+		if(instances != null)
+		{
+			for(int k = 0; k < length; k++)
+				block[k] = instances.get(from + k).getValue(attributeIndex);
+		}
+		else if(rows != null)
+		{
+			IColumn column = columns[attributeIndex];
+			for(int k = 0; k < length; k++)
+				block[k] = column.getValue(rows[from + k]);
+		}
+		else
+			columns[attributeIndex].getValues(from, block, 0, length);
+	}
+}
@@ -0,0 +1,713 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.column.ColumnStorage;
+import net.sf.jclec.problem.util.dataset.column.DoubleColumn;
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.column.ZoneMap;
+import net.sf.jclec.problem.util.dataset.instance.ColumnarInstance;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Dataset implementation that stores the instances by columns.
+ *
+ * Each attribute is kept in its own column, so the data of an attribute
+ * is contiguous in memory and no object is allocated per instance. The
+ * class labels are kept as an int array by the class partition (see
+ * getClassPartition()). The IDataset contract is satisfied through
+ * lightweight row views (ColumnarInstance) over the columns.
+ *
+ * The columns are shared by the copies of a dataset until they are
+ * written. Setting the values or the weight of a row copies the written
+ * columns, or the weights, the first time, so the change is never seen
+ * by the other copies (see setValues()).
+ *
+ * The data file is read with the text loader that matches its extension
+ * (ArffDataSet for .arff files, KeelDataSet otherwise), which parses it
+ * straight into columns. Gzip-compressed files (.gz) are read as well.
+ *
+ * Categorical columns keep the category codes in 8 or 16 bits.
+ * Numerical and integer columns are stored as doubles by default. The
+ * storage attribute of the dataset configuration selects a more compact
+ * mode (see ColumnStorage), and the direct mode keeps them outside of
+ * the Java heap:
+ * <pre>
+ *   &lt;train-data storage="quantized"&gt;data/iris/iris-10-1tra.dat&lt;/train-data&gt;
+ * </pre>
+ * getHeapMemoryUsage() and getOffHeapMemoryUsage() report the memory
+ * taken by the data, to size the heap of large experiments.
+ *
+ * Crisp rules are resolved by scanning the columns by default (see
+ * ColumnScanIndex), so the index takes no memory and no row view is
+ * built. The zone-maps attribute adds block statistics of the columns
+ * (see ZoneMapIndex), which let the scans skip whole blocks of sorted or
+ * clustered data. Otherwise, indexed datasets sort the values of every
+ * attribute (see setIndexed()).
+ */
+
+public class ColumnarDataset extends FileDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -3170484539961262917L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Attribute columns */
+
+	protected IColumn[] columns;
+
+	/** Instance weights (null if all the instances weigh 1) */
+
+	protected double[] weights;
+
+	/** Number of rows */
+
+	protected int numberOfRows;
+
+	/** Storage mode of numerical and integer columns */
+
+	protected ColumnStorage storage = ColumnStorage.Double;
+
+	/** Index the columns with zone maps instead of scanning them */
+
+	protected boolean zoneMaps;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Row views */
+
+	private transient ArrayList<IInstance> views;
+
+	/** Columns copied by this dataset to write them (null if none) */
+
+	private transient boolean[] ownColumns;
+
+	/** The weights have been copied by this dataset to write them */
+
+	private transient boolean ownWeights;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public ColumnarDataset()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that converts a dataset into columns. Streamed datasets
+	 * are read through a cursor, without holding their instances.
+	 *
+	 * @param dataset Dataset to convert
+	 */
+
+	public ColumnarDataset(IDataset dataset)
+	{
+		super();
+		setName(dataset.getName());
+		setMetadata(dataset.getMetadata().copy());
+		if(dataset instanceof FileDataset)
+			setFileName(((FileDataset) dataset).getFileName());
+		readRows(dataset.openCursor(), dataset.numberOfInstances());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load instances from the data file and store them by columns
+	 */
+
+	public void loadInstances()
+	{
+		try {
+			load();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Load instances from the data file and store them by columns,
+	 * throwing the errors
+	 *
+	 * @throws IOException if the data file cannot be read
+	 */
+
+	@Override
+	public void load() throws IOException
+	{
+		FileDataset loader = createLoader();
+		loader.setFileName(fileName);
+
+		double[][] values = loader.loadColumns();
+
+		setName(loader.getName());
+		setMetadata(loader.getMetadata());
+
+		double[] weights = collapseDuplicates ? collapseRows(values) : null;
+
+		int numberOfRows = values.length == 0 ? 0 : values[0].length;
+
+		// Release every parsed column once stored, so that the data is
+		// never held twice if columns are stored in another way
+		IColumn[] columns = new IColumn[values.length];
+		for(int j = 0; j < values.length; j++)
+		{
+			columns[j] = createColumn(j, values[j]);
+			values[j] = null;
+		}
+
+		setColumns(columns, weights, numberOfRows);
+	}
+
+	/**
+	 * Read the metadata of the data file with the text loader, which only
+	 * reads the header of the file
+	 */
+
+	@Override
+	public void loadMetadata()
+	{
+		FileDataset loader = createLoader();
+		loader.setFileName(fileName);
+		loader.loadMetadata();
+
+		setName(loader.getName());
+		setMetadata(loader.getMetadata());
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return the number of instances
+	 */
+
+	@Override
+	public int numberOfInstances()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * Replace the dataset content with the given instances
+	 *
+	 * @param instances the instances
+	 */
+
+	public void setInstances(ArrayList<IInstance> instances)
+	{
+		readRows(new InstanceListCursor(instances), instances.size());
+	}
+
+	/**
+	 * Add the instances at the end of the dataset
+	 *
+	 * @param newinstances instances to add
+	 */
+
+	public void addInstances(ArrayList<IInstance> newinstances)
+	{
+		ArrayList<IInstance> all = new ArrayList<IInstance>(numberOfRows + newinstances.size());
+		all.addAll(getInstances());
+		all.addAll(newinstances);
+		setInstances(all);
+	}
+
+	/**
+	 * Access to the dataset instances as row views over the columns
+	 *
+	 * @return All the instances contained in this dataset
+	 */
+
+	public synchronized ArrayList<IInstance> getInstances()
+	{
+		if(views == null)
+		{
+			views = new ArrayList<IInstance>(numberOfRows);
+			for(int i = 0; i < numberOfRows; i++)
+				views.add(new ColumnarInstance(this, i));
+		}
+		return views;
+	}
+
+	/**
+	 * Set the dataset content
+	 *
+	 * @param columns Attribute columns
+	 * @param weights Instance weights, null if instances are not weighted
+	 * @param numberOfRows Number of rows
+	 */
+
+	public synchronized void setColumns(IColumn[] columns, double[] weights, int numberOfRows)
+	{
+		this.columns = columns;
+		this.weights = weights;
+		this.numberOfRows = numberOfRows;
+		this.ownColumns = null;
+		this.ownWeights = false;
+		invalidateIndexes();
+		this.views = null;
+	}
+
+	/**
+	 * Set the values of a row. The columns whose value changes are copied
+	 * into double columns the first time they are written, so the copies
+	 * of this dataset that share them are not modified.
+	 *
+	 * @param row Row index
+	 * @param values New values of the row
+	 */
+
+	public synchronized void setValues(int row, double[] values)
+	{
+		boolean changed = false;
+
+		for(int j = 0; j < columns.length; j++)
+			if(Double.doubleToLongBits(columns[j].getValue(row)) != Double.doubleToLongBits(values[j]))
+			{
+				writableColumn(j)[row] = values[j];
+				changed = true;
+			}
+
+		if(changed)
+			invalidateIndexes();
+	}
+
+	/**
+	 * Set the weight of a row. The weights are copied the first time they
+	 * are written, so the copies of this dataset that share them are not
+	 * modified.
+	 *
+	 * @param row Row index
+	 * @param weight New weight of the row
+	 */
+
+	public synchronized void setWeight(int row, double weight)
+	{
+		if(!ownWeights)
+		{
+			double[] copy = new double[numberOfRows];
+			if(weights == null)
+				Arrays.fill(copy, 1.0);
+			else
+				System.arraycopy(weights, 0, copy, 0, numberOfRows);
+			weights = copy;
+			ownWeights = true;
+		}
+
+		weights[row] = weight;
+		invalidateIndexes();
+	}
+
+	/**
+	 * Access to the storage mode of numerical and integer columns
+	 *
+	 * @return the storage mode
+	 */
+
+	public ColumnStorage getStorage()
+	{
+		return storage;
+	}
+
+	/**
+	 * Set the storage mode of numerical and integer columns. It is used
+	 * for the columns built from now on.
+	 *
+	 * @param storage the storage mode
+	 */
+
+	public void setStorage(ColumnStorage storage)
+	{
+		this.storage = storage;
+	}
+
+	/**
+	 * Check if the columns are indexed with zone maps
+	 *
+	 * @return true if the columns are indexed with zone maps
+	 */
+
+	public boolean isZoneMaps()
+	{
+		return zoneMaps;
+	}
+
+	/**
+	 * Set the kind of attribute index
+	 *
+	 * @param zoneMaps true to index the columns with zone maps, false to
+	 *                 scan them
+	 */
+
+	public synchronized void setZoneMaps(boolean zoneMaps)
+	{
+		this.zoneMaps = zoneMaps;
+		invalidateIndexes();
+	}
+
+	/**
+	 * Access to an attribute column
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the column of this attribute
+	 */
+
+	public final IColumn getColumn(int attributeIndex)
+	{
+		return columns[attributeIndex];
+	}
+
+	/**
+	 * Access to all the attribute columns
+	 *
+	 * @return the columns
+	 */
+
+	public final IColumn[] getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Access to the instance weights
+	 *
+	 * @return the weights, or null if all the instances weigh 1
+	 */
+
+	public final double[] getWeights()
+	{
+		return weights;
+	}
+
+	/**
+	 * Get the heap memory taken by the dataset data: the columns kept on
+	 * the heap and the instance weights. Object headers
+	 * and the row views built by getInstances() are not counted.
+	 *
+	 * @return size of the heap data in bytes
+	 */
+
+	public synchronized long getHeapMemoryUsage()
+	{
+		long usage = 0;
+
+		if(columns != null)
+			for(IColumn column : columns)
+				if(!column.isOffHeap())
+					usage += column.memoryUsage();
+		if(weights != null)
+			usage += 8L * weights.length;
+
+		return usage;
+	}
+
+	/**
+	 * Get the memory taken by the columns kept outside of the Java heap,
+	 * in direct or memory-mapped buffers.
+	 *
+	 * @return size of the off-heap data in bytes
+	 */
+
+	public synchronized long getOffHeapMemoryUsage()
+	{
+		long usage = 0;
+
+		if(columns != null)
+			for(IColumn column : columns)
+				if(column.isOffHeap())
+					usage += column.memoryUsage();
+
+		return usage;
+	}
+
+	/**
+	 * Copy method. The columns and the weights are shared between this
+	 * dataset and its copy until one of them writes them.
+	 *
+	 * @return A copy of this dataset
+	 */
+
+	public synchronized IDataset copy()
+	{
+		ColumnarDataset dataset = new ColumnarDataset();
+
+		dataset.setName(name);
+		dataset.setFileName(fileName);
+		dataset.setStorage(storage);
+		dataset.setZoneMaps(zoneMaps);
+		dataset.setIndexed(indexed);
+		dataset.setCollapseDuplicates(collapseDuplicates);
+		dataset.setMetadata(metadata.copy());
+		dataset.setColumns(columns, weights, numberOfRows);
+
+		// The columns written so far are shared from now on
+		ownColumns = null;
+		ownWeights = false;
+
+		return dataset;
+	}
+
+	/**
+	 * Shallow copy. Same as copy(), columns are always shared.
+	 *
+	 * @return A copy of this dataset
+	 */
+
+	@Override
+	public FileDataset shallowCopy()
+	{
+		return (FileDataset) copy();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------- Implementing IConfigure interface
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Configuration method.
+	 *
+	 * Configuration parameters for ColumnarDataset are those of
+	 * FileDataset and:
+	 *
+	 * <ul>
+	 * <li>[@storage] (double, float, quantized or direct, default double): storage
+	 * mode of numerical and integer columns</li>
+	 * <li>[@zone-maps] (boolean, default false): index the columns with
+	 * zone maps of ZoneMap.DEFAULT_BLOCK_SIZE rows per block</li>
+	 * </ul>
+	 */
+
+	@Override
+	public void configure(Configuration settings)
+	{
+		super.configure(settings);
+
+		try {
+			setStorage(ColumnStorage.forName(settings.getString("[@storage]", ColumnStorage.Double.name())));
+		}
+		catch(IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+
+		setZoneMaps(settings.getBoolean("[@zone-maps]", false));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create the column of an attribute. Categorical columns are always
+	 * stored as category codes, the other columns use the storage mode.
+	 *
+	 * @param attributeIndex Attribute index
+	 * @param values Column values
+	 *
+	 * @return the column
+	 */
+
+	protected IColumn createColumn(int attributeIndex, double[] values)
+	{
+		IAttribute attribute = metadata.getAttribute(attributeIndex);
+
+		if(attribute.getType() == AttributeType.Categorical)
+			return ColumnStorage.createCodeColumn(values, ((CategoricalAttribute) attribute).getCategories().size());
+		else
+			return storage.createColumn(values);
+	}
+
+	/**
+	 * Columnar datasets are never streamed
+	 *
+	 * @return true
+	 */
+
+	@Override
+	protected boolean isHeldInMemory()
+	{
+		return true;
+	}
+
+	/**
+	 * Load settings. The storage mode and the zone maps are fixed when the
+	 * columns are loaded, so they are part of the settings.
+	 *
+	 * @return the load settings
+	 */
+
+	@Override
+	protected List<Object> getLoadSettings()
+	{
+		List<Object> settings = super.getLoadSettings();
+		settings.add(storage);
+		settings.add(zoneMaps);
+		return settings;
+	}
+
+	/**
+	 * Build the attribute index: the zone maps of the columns if they are
+	 * enabled, a sorted index if the dataset is indexed, or else a scan of
+	 * the columns.
+	 *
+	 * @return the attribute index
+	 */
+
+	@Override
+	protected AttributeIndex createAttributeIndex()
+	{
+		if(!zoneMaps)
+			return indexed ? super.createAttributeIndex() : new ColumnScanIndex(columns, null, numberOfRows);
+
+		CompiledMetadata compiled = getCompiledMetadata();
+		int[] numberOfCategories = new int[columns.length];
+		for(int j = 0; j < columns.length; j++)
+			numberOfCategories[j] = compiled.numberOfCategories(j);
+
+		return new ZoneMapIndex(columns, numberOfCategories, numberOfRows, ZoneMap.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Build the class partition straight from the class column
+	 *
+	 * @return the class partition
+	 */
+
+	@Override
+	protected ClassPartition createClassPartition()
+	{
+		CompiledMetadata compiled = getCompiledMetadata();
+		int classIndex = compiled.getClassIndex();
+		int numberOfClasses = compiled.numberOfClasses();
+
+		IColumn column = columns[classIndex];
+		int[] labels = new int[numberOfRows];
+		for(int i = 0; i < numberOfRows; i++)
+			labels[i] = ClassPartition.label(column.getValue(i), numberOfClasses);
+
+		// The partition shares the weights, so they are copied before they
+		// are written again
+		ownWeights = false;
+
+		return new ClassPartition(classIndex, numberOfClasses, labels, weights);
+	}
+
+	/**
+	 * Create the text loader used to read the data file
+	 *
+	 * @return a dataset able to read the data file
+	 */
+
+	protected FileDataset createLoader()
+	{
+		if(fileName != null && DataFileInput.uncompressedName(fileName).toLowerCase().endsWith(".arff"))
+			return new ArffDataSet();
+		else
+			return new KeelDataSet();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Replace the rows of this dataset by the rows of a cursor, which is
+	 * closed
+	 *
+	 * @param cursor Cursor over the new rows
+	 * @param numberOfRows Number of rows of the cursor
+	 */
+
+	private void readRows(IInstanceCursor cursor, int numberOfRows)
+	{
+		int numberOfAttributes = metadata.numberOfAttributes();
+		double[][] values = new double[numberOfAttributes][numberOfRows];
+		double[] weights = null;
+
+		try {
+			for(int i = 0; cursor.next(); i++)
+			{
+				IInstance instance = cursor.getInstance();
+
+				for(int j = 0; j < numberOfAttributes; j++)
+					values[j][i] = instance.getValue(j);
+
+				if(instance.getWeight() != 1.0)
+				{
+					if(weights == null)
+					{
+						weights = new double[numberOfRows];
+						Arrays.fill(weights, 1.0);
+					}
+					weights[i] = instance.getWeight();
+				}
+			}
+		}
+		finally {
+			cursor.close();
+		}
+
+		IColumn[] columns = new IColumn[numberOfAttributes];
+		for(int j = 0; j < numberOfAttributes; j++)
+			columns[j] = createColumn(j, values[j]);
+
+		setColumns(columns, weights, numberOfRows);
+	}
+
+	/**
+	 * Get a column that this dataset can write, copying it the first time
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the values of the column
+	 */
+
+	private double[] writableColumn(int attributeIndex)
+	{
+		if(ownColumns == null)
+		{
+			columns = columns.clone();
+			ownColumns = new boolean[columns.length];
+		}
+
+		if(!ownColumns[attributeIndex])
+		{
+			double[] values = new double[numberOfRows];
+			columns[attributeIndex].getValues(0, values, 0, numberOfRows);
+			columns[attributeIndex] = new DoubleColumn(values);
+			ownColumns[attributeIndex] = true;
+		}
+
+		return ((DoubleColumn) columns[attributeIndex]).getArray();
+	}
+}
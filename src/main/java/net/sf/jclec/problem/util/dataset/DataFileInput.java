@@ -0,0 +1,417 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens the data files of text datasets, which can be gzip-compressed.
+ *
+ * Files whose name ends with .gz are decompressed on the fly, so they
+ * never need to be decompressed to disk. The data section is decompressed
+ * by a background thread that fills large blocks ahead of the reader, so
+ * decompression overlaps with parsing; the blocks are recycled, so no
+ * memory is allocated while the file is read.
+ */
+
+public final class DataFileInput
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Extension of compressed files */
+
+	public static final String GZIP_EXTENSION = ".gz";
+
+	/** Size of the buffer of the compressed input */
+
+	private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+	/** Size of the buffer of the header streams */
+
+	private static final int HEADER_BUFFER_SIZE = 1 << 13;
+
+	/** Size of the decompressed blocks (1 MB) */
+
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	/** Number of decompressed blocks kept ahead of the reader */
+
+	private static final int BLOCKS_AHEAD = 4;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * This class cannot be instantiated
+	 */
+
+	private DataFileInput()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check if a file is gzip-compressed
+	 *
+	 * @param fileName File name
+	 *
+	 * @return true if the file name ends with .gz
+	 */
+
+	public static boolean isCompressed(String fileName)
+	{
+		return fileName.regionMatches(true, fileName.length() - GZIP_EXTENSION.length(), GZIP_EXTENSION, 0, GZIP_EXTENSION.length());
+	}
+
+	/**
+	 * Get the name of a file without its compression extension
+	 *
+	 * @param fileName File name
+	 *
+	 * @return the name of the decompressed file
+	 */
+
+	public static String uncompressedName(String fileName)
+	{
+		return isCompressed(fileName) ? fileName.substring(0, fileName.length() - GZIP_EXTENSION.length()) : fileName;
+	}
+
+	/**
+	 * Open a data file to read it whole. Compressed files are decompressed
+	 * on a background thread.
+	 *
+	 * @param fileName File name
+	 *
+	 * @return the decompressed content of the file
+	 *
+	 * @throws IOException if the file cannot be opened
+	 */
+
+	public static InputStream open(String fileName) throws IOException
+	{
+		if(!isCompressed(fileName))
+			return new FileInputStream(fileName);
+
+		return new DecompressingInputStream(openGzip(fileName));
+	}
+
+	/**
+	 * Open a data file to read its header. Compressed files are
+	 * decompressed by the calling thread, as only the first lines are read.
+	 *
+	 * @param fileName File name
+	 *
+	 * @return a buffered stream of the decompressed content of the file
+	 *
+	 * @throws IOException if the file cannot be opened
+	 */
+
+	public static InputStream openHeader(String fileName) throws IOException
+	{
+		if(!isCompressed(fileName))
+			return new BufferedInputStream(new FileInputStream(fileName), HEADER_BUFFER_SIZE);
+
+		return new BufferedInputStream(openGzip(fileName), HEADER_BUFFER_SIZE);
+	}
+
+	/**
+	 * Read a line of a stream, leaving the stream right after the line
+	 * break, so the rest of the stream can be parsed as bytes. Lines end
+	 * with \n or \r\n and are decoded with the default charset. The stream
+	 * should be buffered, as it is read byte by byte.
+	 *
+	 * @param input Stream
+	 *
+	 * @return the line without its line break, null at the end of the stream
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+
+	public static String readLine(InputStream input) throws IOException
+	{
+		byte[] line = new byte[128];
+		int length = 0;
+		int read;
+
+		while((read = input.read()) >= 0 && read != '\n')
+		{
+			if(length == line.length)
+				line = Arrays.copyOf(line, 2 * length);
+			line[length++] = (byte) read;
+		}
+
+		if(read < 0 && length == 0)
+			return null;
+		if(length > 0 && line[length - 1] == '\r')
+			length--;
+
+		return new String(line, 0, length, Charset.defaultCharset());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Open a gzip-compressed file
+	 *
+	 * @param fileName File name
+	 *
+	 * @return the decompressed stream
+	 *
+	 * @throws IOException if the file cannot be opened or is not compressed
+	 */
+
+	private static InputStream openGzip(String fileName) throws IOException
+	{
+		InputStream file = new FileInputStream(fileName);
+
+		try {
+			return new GZIPInputStream(file, INPUT_BUFFER_SIZE);
+		}
+		catch(IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Block of decompressed bytes
+	 */
+
+	private static final class Block
+	{
+		/** Bytes */
+
+		final byte[] data;
+
+		/** Number of bytes used */
+
+		int length;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size Block size
+		 */
+
+		Block(int size)
+		{
+			this.data = new byte[size];
+		}
+	}
+
+	/**
+	 * Stream whose content is read from another stream by a background
+	 * thread, a few blocks ahead of the reader
+	 */
+
+	private static final class DecompressingInputStream extends InputStream implements Runnable
+	{
+		/** Block that marks the end of the stream */
+
+		private static final Block END = new Block(0);
+
+		/** Stream read by the background thread */
+
+		private final InputStream source;
+
+		/** Blocks filled by the background thread */
+
+		private final BlockingQueue<Block> filled = new ArrayBlockingQueue<Block>(BLOCKS_AHEAD + 2);
+
+		/** Blocks that can be filled */
+
+		private final BlockingQueue<Block> free = new ArrayBlockingQueue<Block>(BLOCKS_AHEAD + 1);
+
+		/** Background thread */
+
+		private final Thread reader;
+
+		/** Error of the background thread */
+
+		private volatile IOException failure;
+
+		/** Block being read */
+
+		private Block current;
+
+		/** Position in the block being read */
+
+		private int position;
+
+		/** The stream has been closed */
+
+		private volatile boolean closed;
+
+		/**
+		 * Constructor that starts the background thread
+		 *
+		 * @param source Stream to read
+		 */
+
+		DecompressingInputStream(InputStream source)
+		{
+			super();
+			this.source = source;
+
+			for(int i = 0; i <= BLOCKS_AHEAD; i++)
+				free.add(new Block(BLOCK_SIZE));
+
+			reader = new Thread(this, "Dataset decompressor");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		/**
+		 * Fill blocks until the end of the source stream
+		 */
+
+		public void run()
+		{
+			try {
+				boolean end = false;
+				while(!end && !closed)
+				{
+					Block block = free.take();
+
+					block.length = 0;
+					while(block.length < block.data.length)
+					{
+						int read = source.read(block.data, block.length, block.data.length - block.length);
+						if(read < 0)
+						{
+							end = true;
+							break;
+						}
+						block.length += read;
+					}
+
+					if(block.length > 0)
+						filled.put(block);
+				}
+			}
+			catch(IOException e) {
+				failure = e;
+			}
+			catch(InterruptedException e) {
+				// The stream has been closed
+				return;
+			}
+			finally {
+				try {
+					source.close();
+				}
+				catch(IOException e) {
+					if(failure == null)
+						failure = e;
+				}
+			}
+
+			filled.add(END);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+
+		@Override
+		public int read() throws IOException
+		{
+			if(!nextBlock())
+				return -1;
+			return current.data[position++] & 0xFF;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException
+		{
+			if(length == 0)
+				return 0;
+			if(!nextBlock())
+				return -1;
+
+			int count = Math.min(length, current.length - position);
+			System.arraycopy(current.data, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+
+		/**
+		 * Stop the background thread and release the source stream
+		 */
+
+		@Override
+		public void close() throws IOException
+		{
+			if(!closed)
+			{
+				closed = true;
+				reader.interrupt();
+			}
+		}
+
+		/**
+		 * Make sure that the current block has bytes to read, waiting for
+		 * the background thread if needed
+		 *
+		 * @return false at the end of the stream
+		 *
+		 * @throws IOException if the source stream cannot be read
+		 */
+
+		private boolean nextBlock() throws IOException
+		{
+			if(closed)
+				throw new IOException("Stream closed");
+
+			if(current != null && position < current.length)
+				return true;
+
+			if(current == END)
+				return false;
+
+			if(current != null)
+				free.add(current);
+
+			try {
+				current = filled.take();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while decompressing");
+			}
+			position = 0;
+
+			if(current == END)
+			{
+				if(failure != null)
+					throw failure;
+				return false;
+			}
+			return true;
+		}
+	}
+}
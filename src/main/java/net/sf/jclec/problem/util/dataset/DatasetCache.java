@@ -0,0 +1,416 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Process-wide cache of loaded datasets.
+ *
+ * Datasets are identified by the canonical path of their file, its
+ * modification time, the dataset class and its load settings (see
+ * FileDataset.getLoadSettings()), so a file is parsed only once
+ * while it does not change, no matter how many algorithms use it. The
+ * cache keeps the most recently used datasets, up to a maximum heap
+ * memory usage: the heap data of columnar datasets (see
+ * ColumnarDataset.getHeapMemoryUsage()), or an estimate of the size of
+ * the instances of other datasets. Datasets larger than the maximum are
+ * not cached.
+ *
+ * Cached datasets are never handed out. Each request receives a shallow
+ * copy (see FileDataset.shallowCopy()) with its own metadata and sharing
+ * the instances of the cached dataset. The shared instances are the same
+ * objects for all the requests, so callers must not modify them (for
+ * instance, with setValue() or setWeight()). Streamed datasets and
+ * datasets that are not file-based are loaded directly and never cached.
+ *
+ * Datasets that cannot be loaded are not cached: the request that loads
+ * them and the requests waiting for them fail, and the next request
+ * tries again.
+ */
+
+public final class DatasetCache
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Default maximum memory usage of the cached datasets, in bytes */
+
+	public static final long DEFAULT_MAXIMUM_MEMORY = 256L << 20;
+
+	/** Estimated memory taken by an instance besides its values */
+
+	private static final long INSTANCE_OVERHEAD = 48;
+
+	/** Maximum memory usage of the cached datasets, in bytes */
+
+	private static long maximumMemory = DEFAULT_MAXIMUM_MEMORY;
+
+	/** Memory usage of the loaded datasets, in bytes */
+
+	private static long memoryUsage;
+
+	/** Cached datasets, in access order */
+
+	private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * This class cannot be instantiated
+	 */
+
+	private DatasetCache()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load a configured dataset, reusing the cached data when the same
+	 * file has already been loaded with the same dataset class.
+	 *
+	 * @param dataset Configured dataset
+	 *
+	 * @return a loaded dataset: a shallow copy of the cached dataset, or
+	 *         the given dataset if it cannot be cached
+	 */
+
+	public static IDataset load(IDataset dataset)
+	{
+		Key key = key(dataset);
+
+		if(key == null)
+		{
+			dataset.loadInstances();
+			return dataset;
+		}
+
+		final FileDataset prototype = (FileDataset) dataset;
+		Entry entry;
+		boolean owner = false;
+
+		synchronized(entries)
+		{
+			entry = entries.get(key);
+			if(entry == null)
+			{
+				// Load errors are thrown, so that failed datasets are not cached
+				entry = new Entry(new FutureTask<FileDataset>(new Callable<FileDataset>() {
+					public FileDataset call() throws IOException
+					{
+						prototype.load();
+						return prototype;
+					}
+				}));
+				entries.put(key, entry);
+				owner = true;
+			}
+		}
+
+		// The first request loads the dataset, the others wait for it
+		if(owner)
+		{
+			entry.task.run();
+			if(!entry.task.isCancelled())
+				loaded(key, entry);
+		}
+
+		try {
+			return entry.task.get().shallowCopy();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading " + prototype.getFileName(), e);
+		}
+		catch(ExecutionException e) {
+			remove(key, entry);
+			throw new IllegalStateException("Cannot load " + prototype.getFileName(), e.getCause());
+		}
+	}
+
+	/**
+	 * Set the maximum memory usage of the cached datasets. 0 disables the
+	 * cache.
+	 *
+	 * @param maximumMemory Maximum memory usage, in bytes
+	 */
+
+	public static void setMaximumMemory(long maximumMemory)
+	{
+		synchronized(entries)
+		{
+			DatasetCache.maximumMemory = maximumMemory;
+			evict(null);
+		}
+	}
+
+	/**
+	 * Access to the maximum memory usage of the cached datasets
+	 *
+	 * @return the maximum memory usage, in bytes
+	 */
+
+	public static long getMaximumMemory()
+	{
+		synchronized(entries)
+		{
+			return maximumMemory;
+		}
+	}
+
+	/**
+	 * Access to the memory usage of the cached datasets
+	 *
+	 * @return the estimated memory usage of the loaded datasets, in bytes
+	 */
+
+	public static long getMemoryUsage()
+	{
+		synchronized(entries)
+		{
+			return memoryUsage;
+		}
+	}
+
+	/**
+	 * Remove all the cached datasets
+	 */
+
+	public static void clear()
+	{
+		synchronized(entries)
+		{
+			entries.clear();
+			memoryUsage = 0;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Build the cache key of a dataset
+	 *
+	 * @param dataset Configured dataset
+	 *
+	 * @return the key, or null if the dataset cannot be cached
+	 */
+
+	private static Key key(IDataset dataset)
+	{
+		if(!(dataset instanceof FileDataset) || getMaximumMemory() <= 0)
+			return null;
+
+		FileDataset fileDataset = (FileDataset) dataset;
+		if(fileDataset.getFileName() == null || fileDataset.isStreaming())
+			return null;
+
+		File file = new File(fileDataset.getFileName());
+		if(!file.isFile())
+			return null;
+
+		try {
+			return new Key(file.getCanonicalPath(), file.lastModified(), dataset.getClass().getName(),
+					fileDataset.getLoadSettings());
+		}
+		catch(IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Account for the memory of a loaded dataset, evicting the least
+	 * recently used datasets if the maximum memory is exceeded
+	 *
+	 * @param key Entry key
+	 * @param entry Loaded entry
+	 */
+
+	private static void loaded(Key key, Entry entry)
+	{
+		long memory;
+		try {
+			memory = memoryUsage(entry.task.get());
+		}
+		catch(InterruptedException | ExecutionException e) {
+			// The requests report the error
+			return;
+		}
+
+		synchronized(entries)
+		{
+			if(entries.get(key) != entry)
+				return;
+
+			entry.memory = memory;
+			memoryUsage += memory;
+			evict(entry);
+		}
+	}
+
+	/**
+	 * Evict the least recently used datasets until the memory usage does
+	 * not exceed the maximum. The caller must hold the lock of the entries.
+	 *
+	 * @param latest Entry that is only evicted if it exceeds the maximum
+	 *               alone, null if there is none
+	 */
+
+	private static void evict(Entry latest)
+	{
+		Iterator<Entry> eldest = entries.values().iterator();
+		while(memoryUsage > maximumMemory && eldest.hasNext())
+		{
+			Entry entry = eldest.next();
+			if(entry != latest || entry.memory > maximumMemory)
+			{
+				memoryUsage -= entry.memory;
+				eldest.remove();
+			}
+		}
+		if(maximumMemory <= 0)
+		{
+			entries.clear();
+			memoryUsage = 0;
+		}
+	}
+
+	/**
+	 * Estimate the heap memory taken by a loaded dataset
+	 *
+	 * @param dataset Dataset
+	 *
+	 * @return estimated size in bytes
+	 */
+
+	private static long memoryUsage(FileDataset dataset)
+	{
+		if(dataset instanceof ColumnarDataset)
+			return ((ColumnarDataset) dataset).getHeapMemoryUsage();
+
+		ArrayList<IInstance> instances = dataset.getInstances();
+		if(instances == null || dataset.getMetadata() == null)
+			return 0;
+		return instances.size() * (INSTANCE_OVERHEAD + 8L * dataset.getMetadata().numberOfAttributes());
+	}
+
+	/**
+	 * Remove an entry if it is still cached
+	 *
+	 * @param key Entry key
+	 * @param entry Entry
+	 */
+
+	private static void remove(Key key, Entry entry)
+	{
+		synchronized(entries)
+		{
+			if(entries.get(key) == entry)
+			{
+				entries.remove(key);
+				memoryUsage -= entry.memory;
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Cached dataset: the task that loads it and its memory usage
+	 */
+
+	private static final class Entry
+	{
+		/** Load task */
+
+		final FutureTask<FileDataset> task;
+
+		/** Memory usage in bytes, 0 until the dataset is loaded */
+
+		long memory;
+
+		Entry(FutureTask<FileDataset> task)
+		{
+			this.task = task;
+		}
+	}
+
+	/**
+	 * Cache key
+	 */
+
+	private static final class Key
+	{
+		/** Canonical path of the file */
+
+		private final String path;
+
+		/** Modification time of the file */
+
+		private final long modified;
+
+		/** Dataset class name */
+
+		private final String loader;
+
+		/** Load settings of the dataset */
+
+		private final List<Object> settings;
+
+		Key(String path, long modified, String loader, List<Object> settings)
+		{
+			this.path = path;
+			this.modified = modified;
+			this.loader = loader;
+			this.settings = settings;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if(other instanceof Key)
+			{
+				Key cother = (Key) other;
+				EqualsBuilder eb = new EqualsBuilder();
+				eb.append(path, cother.path);
+				eb.append(modified, cother.modified);
+				eb.append(loader, cother.loader);
+				eb.append(settings, cother.settings);
+				return eb.isEquals();
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			HashCodeBuilder hcb = new HashCodeBuilder();
+			hcb.append(path);
+			hcb.append(modified);
+			hcb.append(loader);
+			hcb.append(settings);
+			return hcb.toHashCode();
+		}
+	}
+}
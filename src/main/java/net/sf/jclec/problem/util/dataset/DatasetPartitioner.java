@@ -0,0 +1,482 @@
+package net.sf.jclec.problem.util.dataset;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.RanecuFactory;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Splits a dataset into a training set and a test set, so that a single
+ * data file is enough for cross-validation.
+ *
+ * The partitioning methods are:
+ *
+ * <ul>
+ * <li>kfold: the rows are dealt into k folds; the test set is one fold
+ * and the training set the other k-1</li>
+ * <li>holdout: a fraction of the rows is the test set and the remaining
+ * rows are the training set</li>
+ * </ul>
+ *
+ * Both sets are DatasetViews of the partitioned dataset, so the instances
+ * are shared and never copied. Rows are assigned with a random generator
+ * created from a fixed seed, so the k folds of a dataset are the same in
+ * every run and the runs of the different folds together cover every row
+ * exactly once as a test row. With stratification, every class keeps its
+ * proportion of the dataset in both sets.
+ */
+
+public class DatasetPartitioner implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 6290165736183309128L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Partitioning methods */
+
+	public enum Method
+	{
+		/** k-fold cross-validation */
+
+		KFold,
+
+		/** Single split with a fraction of the rows for testing */
+
+		Holdout;
+
+		/**
+		 * Get the method with the given name, ignoring case
+		 *
+		 * @param name Method name
+		 *
+		 * @return the method
+		 *
+		 * @throws IllegalArgumentException if there is no method with this name
+		 */
+
+		public static Method forName(String name)
+		{
+			for(Method method : values())
+				if(method.name().equalsIgnoreCase(name))
+					return method;
+
+			throw new IllegalArgumentException("Unknown partitioning method: " + name);
+		}
+	}
+
+	/** Default seed of the random generator */
+
+	public static final int DEFAULT_SEED = 123456789;
+
+	/** Partitioning method */
+
+	protected Method method = Method.KFold;
+
+	/** Number of folds */
+
+	protected int numberOfFolds = 10;
+
+	/** Test fold, from 1 to the number of folds */
+
+	protected int fold = 1;
+
+	/** Fraction of the rows in the test set of a holdout */
+
+	protected double testSize = 0.3;
+
+	/** Keep the class proportions in both sets */
+
+	protected boolean stratified = true;
+
+	/** Seed of the random generator */
+
+	protected int seed = DEFAULT_SEED;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public DatasetPartitioner()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the partitioning method
+	 *
+	 * @return the partitioning method
+	 */
+
+	public Method getMethod()
+	{
+		return method;
+	}
+
+	/**
+	 * Set the partitioning method
+	 *
+	 * @param method the partitioning method
+	 */
+
+	public void setMethod(Method method)
+	{
+		this.method = method;
+	}
+
+	/**
+	 * Access to the number of folds
+	 *
+	 * @return the number of folds
+	 */
+
+	public int getNumberOfFolds()
+	{
+		return numberOfFolds;
+	}
+
+	/**
+	 * Set the number of folds
+	 *
+	 * @param numberOfFolds the number of folds, at least 2
+	 *
+	 * @throws IllegalArgumentException if there are less than 2 folds
+	 */
+
+	public void setNumberOfFolds(int numberOfFolds)
+	{
+		if(numberOfFolds < 2)
+			throw new IllegalArgumentException("The number of folds must be at least 2: " + numberOfFolds);
+		this.numberOfFolds = numberOfFolds;
+	}
+
+	/**
+	 * Access to the test fold
+	 *
+	 * @return the test fold, from 1 to the number of folds
+	 */
+
+	public int getFold()
+	{
+		return fold;
+	}
+
+	/**
+	 * Set the test fold
+	 *
+	 * @param fold the test fold, from 1 to the number of folds
+	 *
+	 * @throws IllegalArgumentException if the fold is out of range
+	 */
+
+	public void setFold(int fold)
+	{
+		if(fold < 1 || fold > numberOfFolds)
+			throw new IllegalArgumentException("The fold must be in [1," + numberOfFolds + "]: " + fold);
+		this.fold = fold;
+	}
+
+	/**
+	 * Access to the test size of a holdout
+	 *
+	 * @return fraction of the rows in the test set
+	 */
+
+	public double getTestSize()
+	{
+		return testSize;
+	}
+
+	/**
+	 * Set the test size of a holdout
+	 *
+	 * @param testSize fraction of the rows in the test set, in (0,1)
+	 *
+	 * @throws IllegalArgumentException if the size is out of range
+	 */
+
+	public void setTestSize(double testSize)
+	{
+		if(!(testSize > 0.0 && testSize < 1.0))
+			throw new IllegalArgumentException("The test size must be in (0,1): " + testSize);
+		this.testSize = testSize;
+	}
+
+	/**
+	 * Check if the partition is stratified
+	 *
+	 * @return true if every class keeps its proportion in both sets
+	 */
+
+	public boolean isStratified()
+	{
+		return stratified;
+	}
+
+	/**
+	 * Set if the partition is stratified
+	 *
+	 * @param stratified every class keeps its proportion in both sets
+	 */
+
+	public void setStratified(boolean stratified)
+	{
+		this.stratified = stratified;
+	}
+
+	/**
+	 * Access to the seed of the random generator
+	 *
+	 * @return the seed
+	 */
+
+	public int getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Set the seed of the random generator. The runs of the different
+	 * folds of a dataset must use the same seed.
+	 *
+	 * @param seed the seed
+	 */
+
+	public void setSeed(int seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Split a dataset held in memory. Its class index must be set.
+	 *
+	 * The views are indexed, as their rows never change, and are named
+	 * after the dataset as the files of the KEEL partitions are (for
+	 * instance, iris-10-1tra and iris-10-1tst).
+	 *
+	 * @param dataset Dataset
+	 *
+	 * @return the training set and the test set, in this order
+	 *
+	 * @throws IllegalStateException if the test fold is out of range
+	 */
+
+	public DatasetView[] split(IDataset dataset)
+	{
+		if(method == Method.KFold && fold > numberOfFolds)
+			throw new IllegalStateException("The fold must be in [1," + numberOfFolds + "]: " + fold);
+
+		int numberOfRows = dataset.numberOfInstances();
+		boolean[] test = method == Method.KFold ? foldRows(dataset) : holdoutRows(dataset);
+
+		int testRows = 0;
+		for(int i = 0; i < numberOfRows; i++)
+			if(test[i])
+				testRows++;
+
+		// Both sets keep the rows in dataset order
+		int[] trainSet = new int[numberOfRows - testRows];
+		int[] testSet = new int[testRows];
+		for(int i = 0, train = 0, tst = 0; i < numberOfRows; i++)
+			if(test[i])
+				testSet[tst++] = i;
+			else
+				trainSet[train++] = i;
+
+		String prefix = dataset.getName() + (method == Method.KFold ? "-" + numberOfFolds + "-" + fold : "-");
+
+		return new DatasetView[] {
+				createView(dataset, trainSet, prefix + "tra"),
+				createView(dataset, testSet, prefix + "tst")};
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------- Implementing IConfigure interface
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Configuration method.
+	 *
+	 * Configuration parameters for DatasetPartitioner are:
+	 *
+	 * <ul>
+	 * <li>[@method] (kfold or holdout, default kfold): partitioning
+	 * method</li>
+	 * <li>[@folds] (int, default 10): number of folds</li>
+	 * <li>[@fold] (int, default 1): test fold, from 1 to the number of
+	 * folds</li>
+	 * <li>[@test-size] (double, default 0.3): fraction of the rows in the
+	 * test set of a holdout</li>
+	 * <li>[@stratified] (boolean, default true): keep the class proportions
+	 * in both sets</li>
+	 * <li>[@seed] (int, default 123456789): seed of the random generator,
+	 * the same for all the folds</li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration settings)
+	{
+		try {
+			setMethod(Method.forName(settings.getString("[@method]", Method.KFold.name())));
+			setNumberOfFolds(settings.getInt("[@folds]", 10));
+			setFold(settings.getInt("[@fold]", 1));
+			setTestSize(settings.getDouble("[@test-size]", 0.3));
+			setStratified(settings.getBoolean("[@stratified]", true));
+			setSeed(settings.getInt("[@seed]", DEFAULT_SEED));
+		}
+		catch(IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create the random generator of the partition
+	 *
+	 * @return a generator that always draws the same numbers
+	 */
+
+	private IRandGen createRandGen()
+	{
+		RanecuFactory factory = new RanecuFactory();
+		factory.setSeed(seed);
+		return factory.createRandGen();
+	}
+
+	/**
+	 * Deal the rows into the folds. The rows of every class (or all the
+	 * rows, without stratification) are shuffled and dealt in turn, so
+	 * the sizes of the folds differ by one row at most. Rows without a
+	 * class are dealt after the classes.
+	 *
+	 * @param dataset Dataset
+	 *
+	 * @return the rows of the test fold
+	 */
+
+	private boolean[] foldRows(IDataset dataset)
+	{
+		int numberOfRows = dataset.numberOfInstances();
+		IRandGen randgen = createRandGen();
+		boolean[] test = new boolean[numberOfRows];
+
+		int[][] groups;
+		if(stratified)
+		{
+			ClassPartition partition = dataset.getClassPartition();
+			int numberOfClasses = partition.numberOfClasses();
+			groups = new int[numberOfClasses + 1][];
+
+			int unlabeled = numberOfRows;
+			for(int c = 0; c < numberOfClasses; c++)
+			{
+				groups[c] = partition.getRows(c).clone();
+				unlabeled -= groups[c].length;
+			}
+
+			groups[numberOfClasses] = new int[unlabeled];
+			for(int i = 0, u = 0; u < unlabeled; i++)
+				if(partition.getLabel(i) < 0)
+					groups[numberOfClasses][u++] = i;
+		}
+		else
+		{
+			groups = new int[1][numberOfRows];
+			for(int i = 0; i < numberOfRows; i++)
+				groups[0][i] = i;
+		}
+
+		int next = 0;
+		for(int[] group : groups)
+		{
+			shuffle(group, randgen);
+			for(int row : group)
+			{
+				test[row] = next == fold - 1;
+				next = (next + 1) % numberOfFolds;
+			}
+		}
+
+		return test;
+	}
+
+	/**
+	 * Draw the test rows of a holdout with a DatasetSampler. Without
+	 * stratification the rows are drawn uniformly; with stratification,
+	 * rows without a class are always in the training set.
+	 *
+	 * @param dataset Dataset
+	 *
+	 * @return the test rows
+	 */
+
+	private boolean[] holdoutRows(IDataset dataset)
+	{
+		int numberOfRows = dataset.numberOfInstances();
+		DatasetSampler sampler = new DatasetSampler(
+				stratified ? DatasetSampler.Method.Stratified : DatasetSampler.Method.Random, testSize);
+
+		int[] rows = new int[numberOfRows];
+		int testRows = sampler.sample(dataset, createRandGen(), rows);
+
+		boolean[] test = new boolean[numberOfRows];
+		for(int i = 0; i < testRows; i++)
+			test[rows[i]] = true;
+
+		return test;
+	}
+
+	/**
+	 * Shuffle an array with the Fisher-Yates algorithm
+	 *
+	 * @param rows Rows
+	 * @param randgen Random generator
+	 */
+
+	private static void shuffle(int[] rows, IRandGen randgen)
+	{
+		for(int i = rows.length - 1; i > 0; i--)
+		{
+			int j = (int) (randgen.raw() * (i + 1));
+			int row = rows[i];
+			rows[i] = rows[j];
+			rows[j] = row;
+		}
+	}
+
+	/**
+	 * Create an indexed view of some rows of a dataset
+	 *
+	 * @param dataset Dataset
+	 * @param rows Rows of the view
+	 * @param name Name of the view
+	 *
+	 * @return the view
+	 */
+
+	private static DatasetView createView(IDataset dataset, int[] rows, String name)
+	{
+		DatasetView view = new DatasetView(dataset, rows, rows.length);
+		view.setName(name);
+		view.setIndexed(true);
+		return view;
+	}
+}
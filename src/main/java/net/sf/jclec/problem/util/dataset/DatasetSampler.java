@@ -0,0 +1,336 @@
+package net.sf.jclec.problem.util.dataset;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.util.random.IRandGen;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+/**
+ * Sampler of the rows of a dataset, used to fill the rows of a DatasetView.
+ *
+ * The sampling methods are:
+ *
+ * <ul>
+ * <li>random: rows drawn uniformly without replacement</li>
+ * <li>stratified: every class keeps its proportion of the dataset</li>
+ * <li>balanced: every class gets the same number of rows, or all its rows
+ * if it has fewer</li>
+ * </ul>
+ *
+ * Rows are drawn by selection sampling, which visits the candidate rows
+ * once and keeps them in ascending order, so the sample is written into
+ * the given buffer without any other allocation.
+ */
+
+public class DatasetSampler implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -3056212864916871029L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Sampling methods */
+
+	public enum Method
+	{
+		/** Uniform sampling of all the rows */
+
+		Random,
+
+		/** Uniform sampling within every class, keeping the class proportions */
+
+		Stratified,
+
+		/** Uniform sampling within every class, with the same size for all the classes */
+
+		Balanced;
+
+		/**
+		 * Get the method with the given name, ignoring case
+		 *
+		 * @param name Method name
+		 *
+		 * @return the method
+		 *
+		 * @throws IllegalArgumentException if there is no method with this name
+		 */
+
+		public static Method forName(String name)
+		{
+			for(Method method : values())
+				if(method.name().equalsIgnoreCase(name))
+					return method;
+
+			throw new IllegalArgumentException("Unknown sampling method: " + name);
+		}
+	}
+
+	/** Sampling method */
+
+	protected Method method = Method.Stratified;
+
+	/** Fraction of the rows of the dataset in every sample */
+
+	protected double size = 1.0;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public DatasetSampler()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the sampling method and size
+	 *
+	 * @param method Sampling method
+	 * @param size Fraction of the rows of the dataset in every sample
+	 */
+
+	public DatasetSampler(Method method, double size)
+	{
+		super();
+		setMethod(method);
+		setSize(size);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the sampling method
+	 *
+	 * @return the sampling method
+	 */
+
+	public Method getMethod()
+	{
+		return method;
+	}
+
+	/**
+	 * Set the sampling method
+	 *
+	 * @param method the sampling method
+	 */
+
+	public void setMethod(Method method)
+	{
+		this.method = method;
+	}
+
+	/**
+	 * Access to the sample size
+	 *
+	 * @return fraction of the rows of the dataset in every sample
+	 */
+
+	public double getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Set the sample size
+	 *
+	 * @param size fraction of the rows of the dataset, in (0,1]
+	 *
+	 * @throws IllegalArgumentException if the size is out of range
+	 */
+
+	public void setSize(double size)
+	{
+		if(!(size > 0.0 && size <= 1.0))
+			throw new IllegalArgumentException("The sample size must be in (0,1]: " + size);
+		this.size = size;
+	}
+
+	/**
+	 * Draw a sample of the rows of a dataset. Random samples can be drawn
+	 * from streamed datasets, but stratified and balanced samples need the
+	 * rows of every class, so the dataset must be held in memory.
+	 *
+	 * @param dataset Dataset
+	 * @param randgen Random generator
+	 * @param rows Buffer for the sampled rows, with room for all the rows
+	 *             of the dataset
+	 *
+	 * @return the number of sampled rows
+	 *
+	 * @throws IllegalStateException if a stratified or balanced sample is
+	 *                               drawn from a streamed dataset
+	 */
+
+	public int sample(IDataset dataset, IRandGen randgen, int[] rows)
+	{
+		int numberOfRows = dataset.numberOfInstances();
+		int sampleSize = (int) Math.round(size * numberOfRows);
+
+		if(method == Method.Random)
+			return select(null, numberOfRows, sampleSize, randgen, rows, 0);
+
+		ClassPartition partition = dataset.getClassPartition();
+		int numberOfClasses = partition.numberOfClasses();
+		int[] quotas = method == Method.Stratified ?
+				stratifiedQuotas(partition, sampleSize) : balancedQuotas(partition, sampleSize);
+
+		// Classes are sampled one after another, so rows are grouped by class
+		int sampled = 0;
+		for(int c = 0; c < numberOfClasses; c++)
+		{
+			int[] classRows = partition.getRows(c);
+			sampled = select(classRows, classRows.length, quotas[c], randgen, rows, sampled);
+		}
+
+		return sampled;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------- Implementing IConfigure interface
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Configuration method.
+	 *
+	 * Configuration parameters for DatasetSampler are:
+	 *
+	 * <ul>
+	 * <li>[@method] (random, stratified or balanced, default stratified):
+	 * sampling method</li>
+	 * <li>[@size] (double, default 1): fraction of the rows of the dataset
+	 * in every sample</li>
+	 * </ul>
+	 */
+
+	public void configure(Configuration settings)
+	{
+		try {
+			setMethod(Method.forName(settings.getString("[@method]", Method.Stratified.name())));
+			setSize(settings.getDouble("[@size]", 1.0));
+		}
+		catch(IllegalArgumentException e) {
+			throw new ConfigurationRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Class quotas proportional to the class sizes. The rows left by the
+	 * rounding go to the classes with the largest remainders.
+	 *
+	 * @param partition Class partition
+	 * @param sampleSize Sample size
+	 *
+	 * @return number of rows of every class
+	 */
+
+	private static int[] stratifiedQuotas(ClassPartition partition, int sampleSize)
+	{
+		int numberOfClasses = partition.numberOfClasses();
+		int[] quotas = new int[numberOfClasses];
+		double[] remainders = new double[numberOfClasses];
+
+		int numberOfRows = 0;
+		for(int c = 0; c < numberOfClasses; c++)
+			numberOfRows += partition.getRows(c).length;
+		if(numberOfRows == 0)
+			return quotas;
+
+		int assigned = 0;
+		for(int c = 0; c < numberOfClasses; c++)
+		{
+			double quota = (double) sampleSize * partition.getRows(c).length / numberOfRows;
+			quotas[c] = (int) quota;
+			remainders[c] = quota - quotas[c];
+			assigned += quotas[c];
+		}
+
+		for(; assigned < sampleSize; assigned++)
+		{
+			int largest = -1;
+			for(int c = 0; c < numberOfClasses; c++)
+				if(quotas[c] < partition.getRows(c).length && (largest < 0 || remainders[c] > remainders[largest]))
+					largest = c;
+			if(largest < 0)
+				break;
+			quotas[largest]++;
+			remainders[largest] = -1.0;
+		}
+
+		return quotas;
+	}
+
+	/**
+	 * Same quota for every class that has rows. Classes with fewer rows
+	 * than the quota are taken whole.
+	 *
+	 * @param partition Class partition
+	 * @param sampleSize Sample size
+	 *
+	 * @return number of rows of every class
+	 */
+
+	private static int[] balancedQuotas(ClassPartition partition, int sampleSize)
+	{
+		int numberOfClasses = partition.numberOfClasses();
+		int[] quotas = new int[numberOfClasses];
+
+		int nonEmpty = 0;
+		for(int c = 0; c < numberOfClasses; c++)
+			if(partition.getRows(c).length > 0)
+				nonEmpty++;
+		if(nonEmpty == 0)
+			return quotas;
+
+		int quota = Math.max(1, sampleSize / nonEmpty);
+		for(int c = 0; c < numberOfClasses; c++)
+			quotas[c] = Math.min(quota, partition.getRows(c).length);
+
+		return quotas;
+	}
+
+	/**
+	 * Selection sampling (Knuth's algorithm S): every candidate is taken
+	 * with probability needed/left, so exactly k candidates are taken, in
+	 * ascending order.
+	 *
+	 * @param candidates Candidate rows, null for the rows 0 to n-1
+	 * @param n Number of candidates
+	 * @param k Number of rows to take
+	 * @param randgen Random generator
+	 * @param rows Buffer for the sampled rows
+	 * @param offset First free position of the buffer
+	 *
+	 * @return the next free position of the buffer
+	 */
+
+	private static int select(int[] candidates, int n, int k, IRandGen randgen, int[] rows, int offset)
+	{
+		int needed = Math.min(k, n);
+
+		for(int i = 0; i < n && needed > 0; i++)
+			if((n - i) * randgen.raw() < needed)
+			{
+				rows[offset++] = candidates == null ? i : candidates[i];
+				needed--;
+			}
+
+		return offset;
+	}
+}
@@ -0,0 +1,317 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.util.random.IRandGen;
+
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * Dataset that shows a subset of the rows of another dataset.
+ *
+ * The rows are referenced by their index in the instances of the parent
+ * dataset, so the instances are never copied. A view shares the metadata
+ * of its parent, and can be resampled in place: the row buffer and the
+ * instance list are reused, so an algorithm can evaluate a different
+ * subset in every generation without allocating new instances.
+ *
+ * The instances of streamed parents are not held in memory, so views of
+ * a streamed dataset read their rows through a cursor of the parent and
+ * keep a copy of them, one pass over the data file for every new set of
+ * rows.
+ *
+ * Setting or adding instances never modifies the parent: the view is
+ * detached on write from its parent, and shows all the rows of a copy of
+ * the parent that holds the new instances.
+ *
+ * Views are not indexed unless setIndexed(true) is called, so the
+ * conditions of the rules are evaluated by scanning their rows a column
+ * at a time (see ColumnScanIndex); views whose rows never change, such
+ * as the folds of a partition, should be indexed.
+ */
+
+public class DatasetView extends AbstractDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 2871596143302874155L;
+
+	/** Parent dataset */
+
+	protected IDataset parent;
+
+	/** Parent rows shown by this view */
+
+	protected int[] rows;
+
+	/** Number of rows shown by this view */
+
+	protected int size;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that shows all the rows of a dataset
+	 *
+	 * @param parent Parent dataset
+	 */
+
+	public DatasetView(IDataset parent)
+	{
+		this(parent, identity(parent.numberOfInstances()), parent.numberOfInstances());
+	}
+
+	/**
+	 * Constructor that shows some rows of a dataset
+	 *
+	 * @param parent Parent dataset
+	 * @param rows Parent rows. The array is not copied.
+	 * @param size Number of rows used from the array
+	 */
+
+	public DatasetView(IDataset parent, int[] rows, int size)
+	{
+		super();
+		this.parent = parent;
+		this.instances = new ArrayList<IInstance>(rows.length);
+		setName(parent.getName());
+		setMetadata(parent.getMetadata());
+		setRows(rows, size);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the parent dataset
+	 *
+	 * @return the parent dataset
+	 */
+
+	public IDataset getParent()
+	{
+		return parent;
+	}
+
+	/**
+	 * Access to the parent rows shown by this view. Only the first
+	 * numberOfInstances() entries are used.
+	 *
+	 * @return the parent rows
+	 */
+
+	public int[] getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Set the parent rows shown by this view
+	 *
+	 * @param rows Parent rows. The array is not copied.
+	 * @param size Number of rows used from the array
+	 */
+
+	public synchronized void setRows(int[] rows, int size)
+	{
+		this.rows = rows;
+		this.size = size;
+
+		instances.clear();
+		instances.ensureCapacity(size);
+		if(parent instanceof FileDataset && !((FileDataset) parent).isHeldInMemory())
+			readRows();
+		else
+		{
+			ArrayList<IInstance> all = parent.getInstances();
+			for(int i = 0; i < size; i++)
+				instances.add(all.get(rows[i]));
+		}
+
+		invalidateIndexes();
+	}
+
+	/**
+	 * Draw a new sample of the parent dataset, reusing the row buffer
+	 *
+	 * @param sampler Sampler
+	 * @param randgen Random generator
+	 */
+
+	public synchronized void resample(DatasetSampler sampler, IRandGen randgen)
+	{
+		if(rows.length < parent.numberOfInstances())
+			rows = new int[parent.numberOfInstances()];
+
+		setRows(rows, sampler.sample(parent, randgen, rows));
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return the number of rows shown by this view
+	 */
+
+	@Override
+	public int numberOfInstances()
+	{
+		return size;
+	}
+
+	/**
+	 * Views are built from a loaded dataset, so there is nothing to load
+	 */
+
+	public void loadInstances()
+	{
+		// Nothing to load
+	}
+
+	/**
+	 * Access to the instances shown by this view. The list is reused
+	 * when the view changes, so it must not be modified.
+	 *
+	 * @return the instances of the parent rows
+	 */
+
+	public ArrayList<IInstance> getInstances()
+	{
+		return instances;
+	}
+
+	/**
+	 * Show the given instances. The view is detached from its parent,
+	 * which is not modified: the new parent is a copy of it that holds
+	 * the instances, and the view shows all its rows.
+	 *
+	 * @param instances the instances
+	 */
+
+	public synchronized void setInstances(ArrayList<IInstance> instances)
+	{
+		IDataset detached = parent instanceof FileDataset ? ((FileDataset) parent).shallowCopy() : parent.copy();
+		if(detached instanceof AbstractDataset)
+			((AbstractDataset) detached).setMetadata(metadata);
+		detached.setInstances(new ArrayList<IInstance>(instances));
+
+		this.parent = detached;
+		setRows(identity(instances.size()), instances.size());
+	}
+
+	/**
+	 * Add the instances at the end of the view. The view is detached from
+	 * its parent, as in setInstances().
+	 *
+	 * @param newinstances instances to add
+	 */
+
+	public synchronized void addInstances(ArrayList<IInstance> newinstances)
+	{
+		ArrayList<IInstance> all = new ArrayList<IInstance>(size + newinstances.size());
+		all.addAll(instances);
+		all.addAll(newinstances);
+		setInstances(all);
+	}
+
+	/**
+	 * Copy method. The copy shows the same rows of the same parent.
+	 *
+	 * @return A copy of this view
+	 */
+
+	public IDataset copy()
+	{
+		DatasetView view = new DatasetView(parent, rows.clone(), size);
+		view.setName(name);
+		view.setIndexed(indexed);
+		return view;
+	}
+
+	/**
+	 * Views are not configured, they are built from another dataset
+	 *
+	 * @param settings ignored
+	 */
+
+	public void configure(Configuration settings)
+	{
+		// Nothing to configure
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Build the attribute index if the view is indexed. Sampled views
+	 * change too often to be indexed, so their rows are scanned instead:
+	 * straight from the columns if the parent is a columnar dataset.
+	 *
+	 * @return the attribute index
+	 */
+
+	@Override
+	protected AttributeIndex createAttributeIndex()
+	{
+		if(indexed)
+			return super.createAttributeIndex();
+
+		if(parent instanceof ColumnarDataset)
+			return new ColumnScanIndex(((ColumnarDataset) parent).getColumns(), rows, size);
+		else
+			return new ColumnScanIndex(instances);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Copy the rows shown by this view from a cursor of a streamed parent
+	 */
+
+	private void readRows()
+	{
+		// Rows in parent order, with their position in the view
+		long[] order = new long[size];
+		for(int k = 0; k < size; k++)
+			order[k] = (long) rows[k] << 32 | k;
+		Arrays.sort(order);
+
+		IInstance[] copies = new IInstance[size];
+		IInstanceCursor cursor = parent.openCursor();
+		try {
+			for(int row = 0, k = 0; k < size && cursor.next(); row++)
+				for(; k < size && (int) (order[k] >>> 32) == row; k++)
+					copies[(int) order[k]] = cursor.getInstance().copy();
+		}
+		finally {
+			cursor.close();
+		}
+
+		instances.addAll(Arrays.asList(copies));
+	}
+
+	/**
+	 * Build the identity permutation
+	 *
+	 * @param size Number of rows
+	 *
+	 * @return the rows from 0 to size-1
+	 */
+
+	private static int[] identity(int size)
+	{
+		int[] rows = new int[size];
+		for(int i = 0; i < size; i++)
+			rows[i] = i;
+		return rows;
+	}
+}
@@ -1,6 +1,16 @@
 package net.sf.jclec.problem.util.dataset;
 
-import java.io.Reader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+import net.sf.jclec.problem.util.dataset.instance.SparseInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 
 import org.apache.commons.configuration.Configuration;
 
@@ -22,15 +32,15 @@ public abstract class FileDataset extends AbstractDataset
 	/** Data file name */
 	
 	protected String fileName;
-
-	/////////////////////////////////////////////////////////////////
-	// ------------------------------------------- Internal variables
-	/////////////////////////////////////////////////////////////////
 	
-	/** Data file reader */
-
-	protected Reader fileReader;
+	/** Read the instances from the file on demand instead of loading them */
 	
+	protected boolean streaming;
+	
+	/** Collapse duplicate rows into weighted instances when loading */
+	
+	protected boolean collapseDuplicates;
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	/////////////////////////////////////////////////////////////////
@@ -82,16 +92,503 @@ public abstract class FileDataset extends AbstractDataset
 		this.fileName = fileName;
 	}
 
+	/**
+	 * Access to the streaming mode
+	 * 
+	 * @return true if the instances are read from the file on demand
+	 */
+	
+	public boolean isStreaming() 
+	{
+		return streaming;
+	}
+
+	/**
+	 * Set the streaming mode. Streamed datasets only load their metadata,
+	 * their instances are read block by block through openCursor() and
+	 * getInstances() fails.
+	 * Formats that cannot be streamed ignore this setting.
+	 * 
+	 * @param streaming Streaming mode
+	 */
+	
+	public void setStreaming(boolean streaming) 
+	{
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Access to the duplicate collapsing mode
+	 * 
+	 * @return true if duplicate rows are collapsed when loading
+	 */
+	
+	public boolean isCollapseDuplicates() 
+	{
+		return collapseDuplicates;
+	}
+
+	/**
+	 * Set the duplicate collapsing mode. Identical rows (including the
+	 * class) are loaded as a single instance whose weight is the number
+	 * of rows. Streamed datasets ignore this setting.
+	 * 
+	 * @param collapseDuplicates Duplicate collapsing mode
+	 */
+	
+	public void setCollapseDuplicates(boolean collapseDuplicates) 
+	{
+		this.collapseDuplicates = collapseDuplicates;
+	}
+
+	/**
+	 * Read the metadata (dataset name and attributes) of the data file
+	 * without its instances. It is enough to build the grammar of the
+	 * species, and text formats only read the header of the file, so it
+	 * is much faster than loadInstances() for large files.
+	 * 
+	 * This implementation loads the instances.
+	 */
+	
+	public void loadMetadata()
+	{
+		loadInstances();
+	}
+	
+	/**
+	 * Load the instances as loadInstances() does, but throw the errors
+	 * instead of printing them, so that a file that cannot be read is
+	 * never taken for an empty dataset.
+	 * 
+	 * This implementation calls loadInstances() and fails if no instances
+	 * have been loaded. File formats override it to throw the actual error.
+	 * 
+	 * @throws IOException if the data file cannot be read
+	 */
+	
+	public void load() throws IOException
+	{
+		loadInstances();
+		
+		if(isHeldInMemory() && getInstances() == null)
+			throw new IOException("Cannot load " + fileName);
+	}
+	
 	/**
 	 * Configuration method. 
 	 * 
 	 * Configuration parameters for FileDataset are:
 	 * 
+	 * <ul>
+	 * <li>Element text: data file name</li>
+	 * <li>[@streaming] (boolean, default false): streaming mode</li>
+	 * <li>[@collapse-duplicates] (boolean, default false): load identical 
+	 * rows as a single weighted instance</li>
+	 * </ul>
 	 */
 	
 	public void configure(Configuration settings)
 	{
 		// Set file name
 		setFileName(settings.getString(""));
+		// Set streaming mode
+		setStreaming(settings.getBoolean("[@streaming]", false));
+		// Set duplicate collapsing mode
+		setCollapseDuplicates(settings.getBoolean("[@collapse-duplicates]", false));
+	}
+
+	/**
+	 * Shallow copy. The copy has its own metadata, so its class index can
+	 * be changed, but it shares the instances with this dataset: the list
+	 * is copied, but not the instances, which must not be modified.
+	 * 
+	 * @return A shallow copy of this dataset
+	 */
+	
+	public FileDataset shallowCopy()
+	{
+		FileDataset dataset;
+		
+		try {
+			dataset = getClass().getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) 
+		{
+			throw new IllegalStateException("Cannot instantiate " + getClass().getName(), e);
+		}
+		
+		dataset.setName(name);
+		dataset.setFileName(fileName);
+		dataset.setStreaming(streaming);
+		dataset.setCollapseDuplicates(collapseDuplicates);
+		dataset.setIndexed(indexed);
+		dataset.setMetadata(metadata == null ? null : metadata.copy());
+		
+		dataset.setInstances(instances == null ? null : new ArrayList<IInstance>(instances));
+		
+		return dataset;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Read the data file into columns, one array per attribute. The
+	 * dataset name and metadata are set as in loadInstances().
+	 * 
+	 * This implementation loads the instances and transposes them.
+	 * Text formats override it to parse the file straight into columns.
+	 * 
+	 * @return the columns
+	 * 
+	 * @throws IOException if the data file cannot be read
+	 */
+	
+	protected double[][] loadColumns() throws IOException
+	{
+		loadInstances();
+		
+		ArrayList<IInstance> instances = getInstances();
+		double[][] columns = new double[metadata.numberOfAttributes()][instances.size()];
+		
+		for(int i = 0; i < instances.size(); i++)
+		{
+			IInstance instance = instances.get(i);
+			for(int j = 0; j < columns.length; j++)
+				columns[j][i] = instance.getValue(j);
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * Build the class partition. Streamed instances are not held in
+	 * memory, so only the class totals are computed, with one pass over
+	 * the data file.
+	 * 
+	 * @return the class partition
+	 */
+	
+	@Override
+	protected ClassPartition createClassPartition()
+	{
+		if(isHeldInMemory())
+			return super.createClassPartition();
+		
+		CompiledMetadata compiled = getCompiledMetadata();
+		int classIndex = compiled.getClassIndex();
+		int numberOfClasses = compiled.numberOfClasses();
+		double[] weights = new double[numberOfClasses];
+		double unlabeledWeight = 0.0;
+		
+		IInstanceCursor cursor = openCursor();
+		try {
+			while(cursor.next())
+			{
+				IInstance instance = cursor.getInstance();
+				int label = ClassPartition.label(instance.getValue(classIndex), numberOfClasses);
+				if(label >= 0)
+					weights[label] += instance.getWeight();
+				else
+					unlabeledWeight += instance.getWeight();
+			}
+		}
+		finally {
+			cursor.close();
+		}
+		
+		return new ClassPartition(classIndex, weights, unlabeledWeight);
+	}
+	
+	/**
+	 * Build the attribute index. Streamed instances are not held in 
+	 * memory, so they are not indexed.
+	 * 
+	 * @return the attribute index, or null if the dataset is streamed
+	 */
+	
+	@Override
+	protected AttributeIndex createAttributeIndex()
+	{
+		if(!isHeldInMemory())
+			return null;
+		return super.createAttributeIndex();
+	}
+	
+	/**
+	 * Check if the instances are held in memory
+	 * 
+	 * @return false if the instances are streamed from the data file
+	 */
+	
+	protected boolean isHeldInMemory()
+	{
+		return !streaming || instances != null;
+	}
+	
+	/**
+	 * Settings that change the data loaded from the file. Datasets of the
+	 * same file and class are only shared (see DatasetCache) if they have
+	 * equal load settings, so subclasses with their own settings must add
+	 * them to the list.
+	 * 
+	 * @return the load settings
+	 */
+	
+	protected List<Object> getLoadSettings()
+	{
+		List<Object> settings = new ArrayList<Object>();
+		settings.add(collapseDuplicates);
+		return settings;
+	}
+	
+	/**
+	 * Build row instances from columns
+	 * 
+	 * @param columns the columns, one array per attribute
+	 * 
+	 * @return the instances
+	 */
+	
+	protected static ArrayList<IInstance> toInstances(double[][] columns)
+	{
+		return toInstances(columns, null);
+	}
+	
+	/**
+	 * Build weighted row instances from columns
+	 * 
+	 * @param columns the columns, one array per attribute
+	 * @param weights the instance weights, null if all the instances weigh 1
+	 * 
+	 * @return the instances
+	 */
+	
+	protected static ArrayList<IInstance> toInstances(double[][] columns, double[] weights)
+	{
+		int numberOfRows = columns.length == 0 ? 0 : columns[0].length;
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(numberOfRows);
+		
+		for(int i = 0; i < numberOfRows; i++)
+		{
+			Instance instance = new Instance(columns.length);
+			for(int j = 0; j < columns.length; j++)
+				instance.setValue(j, columns[j][i]);
+			if(weights != null)
+				instance.setWeight(weights[i]);
+			instances.add(instance);
+		}
+		
+		return instances;
+	}
+	
+	/**
+	 * Collapse the duplicate rows of a set of columns. Every group of
+	 * identical rows is replaced by its first row, in the original order,
+	 * and the columns are replaced by the collapsed ones.
+	 * 
+	 * @param columns the columns, one array per attribute
+	 * 
+	 * @return the weight (number of rows) of every collapsed row, or null
+	 *         if there are no duplicate rows
+	 */
+	
+	protected static double[] collapseRows(double[][] columns)
+	{
+		int numberOfRows = columns.length == 0 ? 0 : columns[0].length;
+		
+		// Row hashes, computed column by column
+		long[] hashes = new long[numberOfRows];
+		for(double[] column : columns)
+			for(int i = 0; i < numberOfRows; i++)
+				hashes[i] = 31 * hashes[i] + Double.doubleToLongBits(column[i]);
+		
+		// Open addressing table with the group of every slot (-1 if empty)
+		int[] table = new int[Integer.highestOneBit(Math.max(1, 2 * numberOfRows - 1)) << 1];
+		Arrays.fill(table, -1);
+		int mask = table.length - 1;
+		
+		int[] firstRows = new int[numberOfRows];
+		double[] weights = new double[numberOfRows];
+		int numberOfGroups = 0;
+		
+		for(int i = 0; i < numberOfRows; i++)
+		{
+			long h = hashes[i] * 0x9e3779b97f4a7c15L;
+			int slot = (int) (h ^ (h >>> 32)) & mask;
+			
+			while(true)
+			{
+				int group = table[slot];
+				if(group < 0)
+				{
+					table[slot] = numberOfGroups;
+					firstRows[numberOfGroups] = i;
+					weights[numberOfGroups++] = 1.0;
+					break;
+				}
+				if(hashes[firstRows[group]] == hashes[i] && sameRow(columns, firstRows[group], i))
+				{
+					weights[group]++;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		
+		if(numberOfGroups == numberOfRows)
+			return null;
+		
+		for(int j = 0; j < columns.length; j++)
+		{
+			double[] collapsed = new double[numberOfGroups];
+			for(int k = 0; k < numberOfGroups; k++)
+				collapsed[k] = columns[j][firstRows[k]];
+			columns[j] = collapsed;
+		}
+		
+		return Arrays.copyOf(weights, numberOfGroups);
+	}
+	
+	/**
+	 * Collapse the duplicate instances of a list. Every group of identical
+	 * instances is replaced by its first instance, in the original order,
+	 * whose weight becomes the sum of the weights of the group.
+	 * 
+	 * The given instances are not modified: the weights are summed on a
+	 * copy of the first instance of the groups with duplicates, so the
+	 * rows of other datasets (see ColumnarInstance) can be collapsed too.
+	 * 
+	 * @param instances the instances
+	 * 
+	 * @return the collapsed instances
+	 */
+	
+	protected static ArrayList<IInstance> collapseRows(ArrayList<IInstance> instances)
+	{
+		HashMap<RowKey, Integer> groups = new HashMap<RowKey, Integer>();
+		ArrayList<IInstance> collapsed = new ArrayList<IInstance>();
+		BitSet copied = new BitSet();
+		
+		for(IInstance instance : instances)
+		{
+			RowKey key = new RowKey(instance);
+			Integer group = groups.get(key);
+			if(group == null)
+			{
+				groups.put(key, collapsed.size());
+				collapsed.add(instance);
+			}
+			else
+			{
+				IInstance first = collapsed.get(group);
+				if(!copied.get(group))
+				{
+					first = first.copy();
+					collapsed.set(group, first);
+					copied.set(group);
+				}
+				first.setWeight(first.getWeight() + instance.getWeight());
+			}
+		}
+		
+		return collapsed;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Compare two rows of a set of columns
+	 * 
+	 * @param columns the columns
+	 * @param row1 first row
+	 * @param row2 second row
+	 * 
+	 * @return true if all the values are identical
+	 */
+	
+	private static boolean sameRow(double[][] columns, int row1, int row2)
+	{
+		for(double[] column : columns)
+			if(Double.doubleToLongBits(column[row1]) != Double.doubleToLongBits(column[row2]))
+				return false;
+		return true;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Hash key of the values of an instance. Sparse instances are compared
+	 * by their stored values, so they are never equal to dense instances.
+	 */
+	
+	private static final class RowKey
+	{
+		/** Instance */
+		
+		private final IInstance instance;
+		
+		/** Hash of the instance values */
+		
+		private final int hash;
+		
+		/**
+		 * Constructor that computes the hash of the instance values
+		 * 
+		 * @param instance the instance
+		 */
+		
+		RowKey(IInstance instance)
+		{
+			this.instance = instance;
+			
+			long h = 0;
+			if(instance instanceof SparseInstance)
+			{
+				SparseInstance sparse = (SparseInstance) instance;
+				for(int k = 0; k < sparse.numberOfValues(); k++)
+					h = 31 * (31 * h + sparse.getIndex(k)) + Double.doubleToLongBits(sparse.getValueAt(k));
+			}
+			else
+				for(double value : instance.getValues())
+					h = 31 * h + Double.doubleToLongBits(value);
+			this.hash = (int) (h ^ (h >>> 32));
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other)
+		{
+			if(!(other instanceof RowKey))
+				return false;
+			
+			IInstance that = ((RowKey) other).instance;
+			if(instance instanceof SparseInstance != that instanceof SparseInstance)
+				return false;
+			
+			if(instance instanceof SparseInstance)
+			{
+				SparseInstance s1 = (SparseInstance) instance, s2 = (SparseInstance) that;
+				if(s1.numberOfAttributes() != s2.numberOfAttributes() || s1.numberOfValues() != s2.numberOfValues())
+					return false;
+				for(int k = 0; k < s1.numberOfValues(); k++)
+					if(s1.getIndex(k) != s2.getIndex(k) ||
+							Double.doubleToLongBits(s1.getValueAt(k)) != Double.doubleToLongBits(s2.getValueAt(k)))
+						return false;
+				return true;
+			}
+			
+			return Arrays.equals(instance.getValues(), that.getValues());
+		}
 	}
 }
\ No newline at end of file
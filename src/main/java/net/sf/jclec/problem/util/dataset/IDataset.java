@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import net.sf.jclec.IConfigure;
 import net.sf.jclec.JCLEC;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.CompiledMetadata;
 import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
 
 /**
@@ -34,6 +35,18 @@ public interface IDataset extends JCLEC, IConfigure
     
     public IMetadata getMetadata();
     
+    /**
+     * Access to the compiled snapshot of the metadata, for the class index
+     * currently set. The snapshot is compiled the first time it is
+     * requested, and again whenever the metadata or its class index
+     * change. Code that queries the metadata for every instance or
+     * evaluation should use it instead of getMetadata().
+     * 
+     * @return the compiled metadata
+     */
+    
+    public CompiledMetadata getCompiledMetadata();
+    
 	/**
 	 * Get the number of Instances. 
 	 *  
@@ -61,13 +74,53 @@ public interface IDataset extends JCLEC, IConfigure
     public void addInstances(ArrayList<IInstance> instances);
     
     /**
-     * Access to all dataset instances
+     * Access to all dataset instances. Datasets that are not held in
+     * memory (streamed file datasets) do not support this method: their
+     * instances are read through openCursor().
+     * 
+     * The instances of columnar datasets (ColumnarDataset, MappedDataset)
+     * are views over their columns: the values and weights set through
+     * them are written into the columns of the dataset.
      * 
      * @return All the instances contained in this dataset
+     * 
+     * @throws IllegalStateException if the instances are not held in memory
      */
     
     public ArrayList<IInstance> getInstances();
     
+    /**
+     * Open a cursor over the dataset instances. Datasets that are not
+     * held in memory read their instances block by block, so a cursor
+     * allows a single pass over datasets larger than the heap.
+     * 
+     * @return a new cursor positioned before the first instance
+     */
+    
+    public IInstanceCursor openCursor();
+    
+    /**
+     * Access to the partition of the instances by class, for the class
+     * index currently set in the metadata. The partition is built the
+     * first time it is requested, and again whenever the instances or
+     * the class index change. 
+     * 
+     * @return the class partition
+     */
+    
+    public ClassPartition getClassPartition();
+    
+    /**
+     * Access to the index of the attribute values. The index is
+     * built the first time it is requested, and again whenever the
+     * instances change.
+     * 
+     * @return the attribute index, or null if the dataset is not indexed
+     *         or its instances are not held in memory
+     */
+    
+    public AttributeIndex getAttributeIndex();
+    
    /**
     * Copy method
     * 
@@ -0,0 +1,37 @@
+package net.sf.jclec.problem.util.dataset;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Cursor over the instances of a dataset.
+ * 
+ * A cursor visits the instances once, in dataset order. The instance
+ * returned by getInstance() is only valid until the next call to next():
+ * cursors may reuse the same object for all the instances, so it must be
+ * copied if it has to be kept.
+ */
+
+public interface IInstanceCursor extends AutoCloseable
+{
+	/**
+	 * Move the cursor to the next instance
+	 * 
+	 * @return false if there are no more instances
+	 */
+	
+	public boolean next();
+	
+	/**
+	 * Access to the current instance
+	 * 
+	 * @return the current instance
+	 */
+	
+	public IInstance getInstance();
+	
+	/**
+	 * Release the resources held by this cursor
+	 */
+	
+	public void close();
+}
@@ -0,0 +1,76 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.List;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Cursor over a list of instances held in memory.
+ */
+
+public class InstanceListCursor implements IInstanceCursor
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+	
+	/** Instances */
+	
+	private final List<IInstance> instances;
+	
+	/** Current position */
+	
+	private int position = -1;
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param instances Instances to visit
+	 */
+	
+	public InstanceListCursor(List<IInstance> instances)
+	{
+		super();
+		this.instances = instances;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public boolean next()
+	{
+		if(position + 1 < instances.size())
+		{
+			position++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public IInstance getInstance()
+	{
+		return instances.get(position);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public void close()
+	{
+		// Nothing to release
+	}
+}
@@ -1,20 +1,17 @@
 package net.sf.jclec.problem.util.dataset;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 
 import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
-import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
 import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
 import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
 import net.sf.jclec.problem.util.dataset.instance.IInstance;
-import net.sf.jclec.problem.util.dataset.instance.Instance;
 import net.sf.jclec.problem.util.dataset.metadata.ClassificationMetadata;
 import net.sf.jclec.util.range.Closure;
 import net.sf.jclec.util.range.Interval;
@@ -73,12 +70,10 @@ public class KeelDataSet extends FileDataset {
 	
 	protected String separationValue;
 
-	/** Buffer Instance */
+	/** Number of instances of a streamed dataset */
 	
-	protected String bufferInstance = new String();
+	protected int numberOfRows;
 	
-	/** Private cursor */
-	private Instance cursorInstance;
 	
 	/////////////////////////////////////////////////////////////////
 	// -------------------------------------------------- Constructor
@@ -106,26 +101,54 @@ public class KeelDataSet extends FileDataset {
 	public void loadInstances()
 	{		
 		try {
-			
-			open();
-			
-            instances = new ArrayList<IInstance>();
-            
-            reset();
-            
-            while(next())
-            {
-            	instances.add(cursorInstance.copy());
-            }
-            
-            setInstances(instances);
-            
-            close();
-        }
+			load();
+		}
 		catch (Exception e) 
-        {
-            e.printStackTrace();
-        }
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Load instances from the data set, throwing the errors
+	 * 
+	 * @throws IOException if the data file cannot be read
+	 */
+	
+	@Override
+	public void load() throws IOException
+	{
+		if(streaming)
+			scanInstances();
+		else
+		{
+			double[][] columns = loadColumns();
+			double[] weights = collapseDuplicates ? collapseRows(columns) : null;
+			setInstances(toInstances(columns, weights));
+		}
+	}
+	
+	/**
+	 * Read the metadata from the header of the data file, without reading
+	 * the data section. Only the first lines of the file are read.
+	 */
+	
+	@Override
+	public void loadMetadata()
+	{
+		try {
+			InputStream input = DataFileInput.openHeader(fileName);
+			try {
+				readHeader(input);
+			}
+			finally {
+				input.close();
+			}
+		}
+		catch (Exception e) 
+		{
+			e.printStackTrace();
+		}
 	}
 	
 	/**
@@ -137,19 +160,59 @@ public class KeelDataSet extends FileDataset {
 	public void setInstances(ArrayList<IInstance> instances)
 	{
 		this.instances = instances;
+		invalidateIndexes();
 	}
 	
 	/**
-	 * Get the dataset instances
+	 * Get the dataset instances. Streamed instances are not held in
+	 * memory, they are read through openCursor().
 	 * 
 	 * @return instances
+	 * 
+	 * @throws IllegalStateException if the dataset is streamed
 	 */
 	
 	public ArrayList<IInstance> getInstances()
 	{
+		if(instances == null && streaming)
+			throw new IllegalStateException("The instances of " + fileName + " are streamed, read them through openCursor()");
 		return instances;
 	}
 	
+	/**
+	 * Get the number of instances
+	 * 
+	 * @return the number of instances
+	 */
+	
+	@Override
+	public int numberOfInstances()
+	{
+		return instances == null ? numberOfRows : instances.size();
+	}
+	
+	/**
+	 * Open a cursor over the instances. Streamed datasets read the data
+	 * file block by block and reuse the same instance for all the rows.
+	 * 
+	 * @return a new cursor
+	 */
+	
+	@Override
+	public IInstanceCursor openCursor()
+	{
+		if(instances != null)
+			return super.openCursor();
+		
+		try {
+			return createParser(true).openCursor(fileName);
+		}
+		catch (IOException e) 
+		{
+			throw new IllegalStateException("Cannot open " + fileName, e);
+		}
+	}
+	
 	/**
 	 * Add the new instances to the dataset
 	 * 
@@ -159,191 +222,157 @@ public class KeelDataSet extends FileDataset {
 	public void addInstances(ArrayList<IInstance> newinstances)
 	{
 		this.instances.addAll(newinstances);
+		invalidateIndexes();
 	}
 	
 	/////////////////////////////////////////////////////////////////
-	// ---------------------------------------------- Private Methods
+	// -------------------------------------------- Protected methods
 	/////////////////////////////////////////////////////////////////
-
+	
 	/**
-	 * Opens the dataset and obtains the metadata
+	 * Read the metadata from the header and parse the data section
+	 * straight into columns
+	 * 
+	 * @return the columns
+	 * 
+	 * @throws IOException if the data file cannot be read
 	 */
 	
-	private void open()
+	@Override
+	protected double[][] loadColumns() throws IOException
 	{
-		// Generate the specification from header of data source file
-		obtainMetadata(fileName);
+		InputStream input = open();
+		
+		try {
+			return createParser(false).parse(input);
+		}
+		finally {
+			input.close();
+		}
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private Methods
+	/////////////////////////////////////////////////////////////////
+
 	/**
-	 * Resets the dataset cursor to the beginning
+	 * Opens the dataset and obtains the metadata. The header and the data
+	 * section are read in a single pass: the returned stream is left at
+	 * the start of the data section.
+	 * 
+	 * @return the stream of the data section
+	 * 
+	 * @throws IOException if the header cannot be read
 	 */
 	
-	private void reset(){
-				
-		try {
-			fileReader.close();
-			fileReader = new BufferedReader(new FileReader(new File(fileName)));
-
-			//Read until finding the sentence @DATA
-			String line = ((BufferedReader) fileReader).readLine();
-			while (!line.equalsIgnoreCase(KEEL_DATA)){
-				line = ((BufferedReader) fileReader).readLine();
-			}
-			bufferInstance = ((BufferedReader) fileReader).readLine();
+	private InputStream open() throws IOException
+	{
+		InputStream input = new BufferedInputStream(DataFileInput.open(fileName));
 		
-			while(bufferInstance.startsWith(commentedValue) || bufferInstance.equalsIgnoreCase("")){
-				bufferInstance = ((BufferedReader) fileReader).readLine();
-			}
-			
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (Exception e){
-			e.printStackTrace();
+		// Generate the specification from header of data source file
+		try {
+			readHeader(input);
 		}
-	
+		catch (IOException | RuntimeException e) 
+		{
+			input.close();
+			throw e;
+		}
+		return input;
 	}
 	
 	/**
-	 * Reads the next instance
+	 * Read the metadata and scan the data file once to count the instances
 	 */
 	
-	private boolean next() throws Exception
+	private void scanInstances() throws IOException
 	{
-		if(bufferInstance != null)
-		{
-			try{
-				//Get the attributes of this instance
-				StringTokenizer token = new StringTokenizer(bufferInstance, separationValue);
-				int numAttributes = 0;
-				ArrayList<Double> values = new ArrayList<Double>();
-			
-				while(token.hasMoreTokens()){
-					IAttribute attribute = metadata.getAttribute(numAttributes);
-					double value = attribute.parse(token.nextToken().trim());
-					values.add(value);
-								
-					numAttributes++;
-				}
-				
-				cursorInstance = new Instance(numAttributes);
-				
-				for(int i = 0; i < numAttributes; i++)
-					cursorInstance.setValue(i,values.get(i));
-				
-				prepareNextInstance();
-			
-			}catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-			
-			return true;
+		InputStream input = open();
+		
+		instances = null;
+		numberOfRows = 0;
+		
+		IInstanceCursor cursor = createParser(false).openCursor(input);
+		try {
+			while(cursor.next())
+				numberOfRows++;
+		}
+		finally {
+			cursor.close();
 		}
-		else
-			return false;
 	}
 	
 	/**
-	 * Closes the dataset file
+	 * Create a parser for the data section of this dataset
+	 * 
+	 * @param skipHeader The parsed streams start with the header
+	 * 
+	 * @return the parser
 	 */
-
-	private void close() throws Exception {
-		try {
-			fileReader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	
+	private TextDataParser createParser(boolean skipHeader)
+	{
+		TextDataParser parser = new TextDataParser(metadata, KEEL_DATA, separationValue.charAt(0), commentedValue.charAt(0), missedValue);
+		parser.setSkipHeader(skipHeader);
+		return parser;
 	}
 	
 	/**
-	 * Generate the dataset specification
+	 * Generate the dataset specification from the header, leaving the
+	 * stream right after the line of the data keyword
 	 *  
-	 * @param fileName Name of data source file
+	 * @param input Stream of the data source file, at its beginning
+	 * 
+	 * @throws IOException if the header cannot be read
 	 */
 	
-	private void obtainMetadata(String fileName)
+	private void readHeader(InputStream input) throws IOException
 	{
-		File file = new File(fileName);
+		setMetadata(new ClassificationMetadata());
 		
-		metadata = new ClassificationMetadata();
+		//Read until finding the sentence @DATA
+		String line = DataFileInput.readLine(input);
+		if(line == null)
+			throw new EOFException("No " + KEEL_DATA + " section in " + fileName);
+		StringTokenizer elementLine = new StringTokenizer(line);
+		String element = elementLine.nextToken();
 		
-		try {
-			
-			fileReader = new BufferedReader(new FileReader(file));
-			
-			//Read until finding the sentence @DATA
-			String line = ((BufferedReader) fileReader).readLine();
-			StringTokenizer elementLine = new StringTokenizer(line);
-			String element = elementLine.nextToken();
+		while (!element.equalsIgnoreCase(KEEL_DATA)){
 			
-			while (!element.equalsIgnoreCase(KEEL_DATA)){
+			if(element.equalsIgnoreCase(KEEL_ATTRIBUTE)){
+				//The next attribute	
+				String name = elementLine.nextToken();
+				String type = elementLine.nextToken();
 				
-				if(element.equalsIgnoreCase(KEEL_ATTRIBUTE)){
-					//The next attribute	
-					String name = elementLine.nextToken();
-					String type = elementLine.nextToken();
-					
-					if(type.equalsIgnoreCase("REAL") || type.equalsIgnoreCase("INTEGER")){
-						addAttributeToSpecification(type, line, name);
-					}
-					else {
-						addAttributeToSpecification("STRING", line, name);
-					}
-					
+				if(type.equalsIgnoreCase("REAL") || type.equalsIgnoreCase("INTEGER")){
+					addAttributeToSpecification(type, line, name);
 				}
-				if(element.equalsIgnoreCase(KEEL_RELATION)){
-					setName(elementLine.nextToken());
+				else {
+					addAttributeToSpecification("STRING", line, name);
 				}
-		
-				//Next line of the file
-				line = ((BufferedReader) fileReader).readLine();
-				while(line.startsWith(commentedValue) || line.equalsIgnoreCase(""))
-					line = ((BufferedReader) fileReader).readLine();
-				
-				int index = line.indexOf('[');
-				if(index != -1)
-				line = line.substring(0,index) + " [" + line.substring(index+1);
 				
-				index = line.indexOf('{');
-				if(index != -1)
-				line = line.substring(0,index) + " {" + line.substring(index+1);
-				
-				elementLine = new StringTokenizer(line);
-				element = elementLine.nextToken();
 			}
-					
-			bufferInstance = ((BufferedReader) fileReader).readLine();
-			
-			while(bufferInstance.startsWith(commentedValue) || bufferInstance.equalsIgnoreCase("")){
-				bufferInstance = ((BufferedReader) fileReader).readLine();
+			if(element.equalsIgnoreCase(KEEL_RELATION)){
+				setName(elementLine.nextToken());
 			}
-			
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (Exception e){
-			e.printStackTrace();
-		}
-	}
-	
-	
-	/**
-	 * Store the next instance in bufferInstance
-	 */
-	private void prepareNextInstance()
-	{		
-		try
-		{
-			//Get the next instance
-			String lineInstance = ((BufferedReader) fileReader).readLine();
-			while(lineInstance.startsWith(commentedValue) || lineInstance.equalsIgnoreCase("")){
-				lineInstance = ((BufferedReader) fileReader).readLine();
-			}	
-
-			bufferInstance = lineInstance;
 		
-		}catch(Exception e){
-				bufferInstance = null;
+			//Next line of the file
+			line = DataFileInput.readLine(input);
+			while(line != null && (line.startsWith(commentedValue) || line.equalsIgnoreCase("")))
+				line = DataFileInput.readLine(input);
+			if(line == null)
+				throw new EOFException("No " + KEEL_DATA + " section in " + fileName);
+			
+			int index = line.indexOf('[');
+			if(index != -1)
+			line = line.substring(0,index) + " [" + line.substring(index+1);
+			
+			index = line.indexOf('{');
+			if(index != -1)
+			line = line.substring(0,index) + " {" + line.substring(index+1);
+			
+			elementLine = new StringTokenizer(line);
+			element = elementLine.nextToken();
 		}
 	}
 	
@@ -451,6 +480,16 @@ public class KeelDataSet extends FileDataset {
 		
 		dataset.setMetadata(metadata.copy());
 		
+		// Streamed datasets share the data file
+		if(instances == null)
+		{
+			dataset.setName(name);
+			dataset.setFileName(fileName);
+			dataset.setStreaming(streaming);
+			dataset.numberOfRows = numberOfRows;
+			return dataset;
+		}
+		
 		ArrayList<IInstance> instances = new ArrayList<IInstance>();
 		
 		for(IInstance instance : this.instances)
@@ -0,0 +1,262 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+import net.sf.jclec.problem.util.dataset.column.BufferColumn;
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.metadata.ClassificationMetadata;
+
+/**
+ * Dataset implementation for the JCLEC binary format.
+ *
+ * The file starts with a header that describes the metadata, followed by
+ * the data stored column by column. The columns are not read: they are
+ * memory-mapped, so opening a dataset is immediate and the data pages are
+ * shared through the OS page cache between all the processes that use the
+ * same file. Binary files are generated from KEEL and ARFF files with
+ * BinaryDatasetConverter.
+ *
+ * File layout:
+ * <pre>
+ *   magic (8 bytes) | version (int) | header length (int) | header
+ *   padding up to a multiple of 8 bytes
+ *   column 0 | column 1 | ... | column n-1 | [weights]
+ * </pre>
+ * Header fields are written with DataOutput. Columns and weights are
+ * little-endian doubles.
+ */
+
+public class MappedDataset extends ColumnarDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 8245719356407120833L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal Variables
+	/////////////////////////////////////////////////////////////////
+
+	/** File signature */
+
+	static final byte[] MAGIC = {'J', 'C', 'L', 'E', 'C', 'B', 'I', 'N'};
+
+	/** Format version */
+
+	static final int VERSION = 1;
+
+	/** Byte order of the data section */
+
+	static final ByteOrder DATA_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty (default) constructor
+	 */
+
+	public MappedDataset()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Read the header of the binary file and map its columns
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+
+	@Override
+	public void load() throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+
+		try {
+			FileChannel channel = file.getChannel();
+
+			// Read the header
+			byte[] header = readHeader(file);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+
+			readMetadata(in);
+
+			int numberOfRows = in.readInt();
+			boolean weighted = in.readBoolean();
+
+			// Map the columns
+			long offset = dataOffset(header.length);
+			long columnLength = 8L * numberOfRows;
+			IColumn[] columns = new IColumn[metadata.numberOfAttributes()];
+
+			for(int j = 0; j < columns.length; j++)
+			{
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, columnLength);
+				buffer.order(DATA_ORDER);
+				columns[j] = new BufferColumn(buffer.asDoubleBuffer());
+				offset += columnLength;
+			}
+
+			// Weights are small, so they are copied to the heap
+			double[] weights = null;
+			if(weighted)
+			{
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, columnLength);
+				buffer.order(DATA_ORDER);
+				weights = new double[numberOfRows];
+				buffer.asDoubleBuffer().get(weights);
+			}
+
+			setColumns(columns, weights, numberOfRows);
+		}
+		finally {
+			// Mappings remain valid once the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * Read the dataset name and metadata from the header of the binary
+	 * file, without mapping its columns
+	 */
+
+	@Override
+	public void loadMetadata()
+	{
+		try {
+			RandomAccessFile file = new RandomAccessFile(fileName, "r");
+
+			try {
+				readMetadata(new DataInputStream(new ByteArrayInputStream(readHeader(file))));
+			}
+			finally {
+				file.close();
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Package methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Offset of the data section
+	 *
+	 * @param headerLength Length of the header in bytes
+	 *
+	 * @return offset of the first column, aligned to 8 bytes
+	 */
+
+	static long dataOffset(int headerLength)
+	{
+		long end = MAGIC.length + 4 + 4 + headerLength;
+		return (end + 7) & ~7L;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check the file signature and version and read the header
+	 *
+	 * @param file Binary file, at its beginning
+	 *
+	 * @return the header bytes
+	 *
+	 * @throws IOException if the header cannot be read
+	 */
+
+	private byte[] readHeader(RandomAccessFile file) throws IOException
+	{
+		// Read the file signature
+		byte[] magic = new byte[MAGIC.length];
+		file.readFully(magic);
+		for(int i = 0; i < MAGIC.length; i++)
+			if(magic[i] != MAGIC[i])
+				throw new IllegalArgumentException(fileName + " is not a JCLEC binary dataset");
+
+		int version = file.readInt();
+		if(version != VERSION)
+			throw new IllegalArgumentException("Unsupported binary dataset version: " + version);
+
+		byte[] header = new byte[file.readInt()];
+		file.readFully(header);
+		return header;
+	}
+
+	/**
+	 * Read the dataset name and metadata from the header
+	 *
+	 * @param in Header input
+	 *
+	 * @throws IOException if the header cannot be read
+	 */
+
+	private void readMetadata(DataInputStream in) throws IOException
+	{
+		setName(in.readUTF());
+
+		setMetadata(new ClassificationMetadata());
+
+		int numberOfAttributes = in.readInt();
+		int classIndex = in.readInt();
+
+		for(int i = 0; i < numberOfAttributes; i++)
+		{
+			AttributeType type = AttributeType.valueOf(in.readUTF());
+			String name = in.readUTF();
+
+			switch(type)
+			{
+				case Numerical:
+					NumericalAttribute numerical = new NumericalAttribute();
+					numerical.setName(name);
+					numerical.setInterval(new net.sf.jclec.util.range.Interval(in.readDouble(), in.readDouble(),
+							net.sf.jclec.util.range.Closure.valueOf(in.readUTF())));
+					metadata.addAttribute(numerical);
+					break;
+				case Integer:
+					IntegerAttribute integer = new IntegerAttribute();
+					integer.setName(name);
+					integer.setInterval(new net.sf.jclec.util.intset.Interval(in.readInt(), in.readInt(),
+							net.sf.jclec.util.intset.Closure.valueOf(in.readUTF())));
+					metadata.addAttribute(integer);
+					break;
+				case Categorical:
+					int numberOfCategories = in.readInt();
+					List<String> categories = new ArrayList<String>(numberOfCategories);
+					for(int j = 0; j < numberOfCategories; j++)
+						categories.add(in.readUTF());
+					metadata.addAttribute(new CategoricalAttribute(name, categories));
+					break;
+			}
+		}
+
+		metadata.setClassIndex(classIndex);
+	}
+}
@@ -0,0 +1,266 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Attribute index that sorts the values of a dataset held in memory.
+ *
+ * For every attribute, the index keeps the rows sorted by value (an
+ * argsort permutation) and the sorted values. A condition that compares
+ * an attribute against constants selects a contiguous range of sorted
+ * values, so its covered rows are found with two binary searches and
+ * visiting only the rows that are covered.
+ *
+ * Values are sorted as Double.compare() does, with the missing values
+ * (NaN) at the end. Range queries follow the primitive comparison
+ * operators, so NaN rows are never selected and -0 equals 0; value
+ * queries follow Double.compareTo(), as the Equal block does.
+ *
+ * The attributes are sorted the first time they are queried, so only the
+ * attributes used by the rules take memory. An index is never modified
+ * once built: datasets build a new one when their instances change.
+ */
+
+public final class SortedAttributeIndex extends AttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Indexed instances */
+
+	private final List<IInstance> instances;
+
+	/** Sorted attributes (null until queried) */
+
+	private final AtomicReferenceArray<SortedAttribute> attributes;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the indexed instances
+	 *
+	 * @param instances Instances. They must not change while the index is used.
+	 * @param numberOfAttributes Number of attributes
+	 */
+
+	public SortedAttributeIndex(List<IInstance> instances, int numberOfAttributes)
+	{
+		super();
+		this.instances = instances;
+		this.attributes = new AtomicReferenceArray<SortedAttribute>(numberOfAttributes);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int numberOfRows()
+	{
+		return instances.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet range(int attributeIndex, double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		SortedAttribute attribute = getAttribute(attributeIndex);
+		double[] values = attribute.values;
+		int numberOfValues = attribute.numberOfValues;
+
+		// First value above the lower bound
+		int from = 0, to = numberOfValues;
+		while(from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if(lowInclusive ? values[middle] >= low : values[middle] > low)
+				to = middle;
+			else
+				from = middle + 1;
+		}
+		int first = from;
+
+		// First value above the upper bound
+		to = numberOfValues;
+		while(from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if(highInclusive ? !(values[middle] <= high) : !(values[middle] < high))
+				to = middle;
+			else
+				from = middle + 1;
+		}
+
+		return select(attribute.rows, first, from);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet equal(int attributeIndex, double value)
+	{
+		SortedAttribute attribute = getAttribute(attributeIndex);
+		double[] values = attribute.values;
+
+		int from = 0, to = values.length;
+		while(from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if(Double.compare(values[middle], value) >= 0)
+				to = middle;
+			else
+				from = middle + 1;
+		}
+		int first = from;
+
+		to = values.length;
+		while(from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if(Double.compare(values[middle], value) > 0)
+				to = middle;
+			else
+				from = middle + 1;
+		}
+
+		return select(attribute.rows, first, from);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get a sorted attribute, sorting it if it is the first query
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the sorted attribute
+	 */
+
+	private SortedAttribute getAttribute(int attributeIndex)
+	{
+		SortedAttribute attribute = attributes.get(attributeIndex);
+
+		if(attribute == null)
+		{
+			synchronized(this)
+			{
+				attribute = attributes.get(attributeIndex);
+				if(attribute == null)
+				{
+					attribute = new SortedAttribute(instances, attributeIndex);
+					attributes.set(attributeIndex, attribute);
+				}
+			}
+		}
+		return attribute;
+	}
+
+	/**
+	 * Build the set of rows of a range of sorted values
+	 *
+	 * @param rows Rows in value order
+	 * @param from First position
+	 * @param to Last position (excluded)
+	 *
+	 * @return the set of rows
+	 */
+
+	private BitSet select(int[] rows, int from, int to)
+	{
+		BitSet selected = new BitSet(rows.length);
+		for(int p = from; p < to; p++)
+			selected.set(rows[p]);
+		return selected;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Rows and values of an attribute, in value order
+	 */
+
+	private static final class SortedAttribute
+	{
+		/** Rows in value order */
+
+		final int[] rows;
+
+		/** Sorted values */
+
+		final double[] values;
+
+		/** Number of values that are not missing */
+
+		final int numberOfValues;
+
+		/**
+		 * Constructor that sorts the values of an attribute
+		 *
+		 * @param instances Instances
+		 * @param attributeIndex Attribute index
+		 */
+
+		SortedAttribute(List<IInstance> instances, int attributeIndex)
+		{
+			int size = instances.size();
+			double[] unsorted = new double[size];
+			for(int i = 0; i < size; i++)
+				unsorted[i] = instances.get(i).getValue(attributeIndex);
+
+			// Stable merge sort of the rows
+			int[] rows = new int[size];
+			int[] buffer = new int[size];
+			for(int i = 0; i < size; i++)
+				rows[i] = i;
+
+			for(int width = 1; width < size; width <<= 1)
+			{
+				for(int from = 0; from < size; from += width << 1)
+				{
+					int middle = Math.min(from + width, size);
+					int to = Math.min(from + (width << 1), size);
+					int i = from, j = middle, k = from;
+
+					while(i < middle && j < to)
+						buffer[k++] = Double.compare(unsorted[rows[j]], unsorted[rows[i]]) < 0 ? rows[j++] : rows[i++];
+					while(i < middle)
+						buffer[k++] = rows[i++];
+					while(j < to)
+						buffer[k++] = rows[j++];
+				}
+
+				int[] swap = rows;
+				rows = buffer;
+				buffer = swap;
+			}
+
+			this.rows = rows;
+			this.values = new double[size];
+			int numberOfValues = size;
+			for(int p = 0; p < size; p++)
+			{
+				values[p] = unsorted[rows[p]];
+				if(values[p] != values[p] && numberOfValues == size)
+					numberOfValues = p;
+			}
+			this.numberOfValues = numberOfValues;
+		}
+	}
+}
@@ -0,0 +1,1125 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.CategoryDictionary;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+import net.sf.jclec.problem.util.dataset.instance.SparseInstance;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Parser for the data section of the text dataset formats (KEEL and ARFF).
+ *
+ * The file is read in large byte chunks that end at a line boundary. Each
+ * chunk is parsed on a fork-join pool directly from its bytes into
+ * primitive columns, and the columns of all the chunks are merged in file
+ * order once they are parsed. No object is allocated per line or value.
+ * The data section can also be read as a stream, one chunk at a time,
+ * through a cursor.
+ *
+ * Rows are either dense (all the values, in attribute order) or sparse
+ * ARFF rows ({index value, ...}, omitted values are 0). A chunk that
+ * contains sparse rows keeps all its rows in compressed form, so sparse
+ * data can be read as SparseInstances without ever building dense rows.
+ *
+ * Values are parsed with the same semantics as IAttribute.parse():
+ * numbers are converted exactly as Double.parseDouble() does (simple
+ * decimals are converted from the bytes, any other token falls back to
+ * the attribute), unknown categories are -1 and values that cannot be
+ * parsed are NaN. The missing value symbol is recognized from the bytes
+ * and stored as NaN for every type of attribute, so dirty data is parsed
+ * as fast as clean data, without exceptions.
+ */
+
+public class TextDataParser
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Default size of the chunks (4 MB) */
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+	/** Exact powers of ten */
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+
+	/** Dataset metadata */
+
+	protected final IMetadata metadata;
+
+	/** Keyword that starts the data section */
+
+	protected final String dataKeyword;
+
+	/** Separator between values */
+
+	protected final byte separator;
+
+	/** First character of the commented lines */
+
+	protected final byte comment;
+
+	/** Symbol of missing values */
+
+	protected final byte[] missingValue;
+
+	/** Chunk size */
+
+	protected int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/** Number of threads */
+
+	protected int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/** Whether the streams start with the header */
+
+	protected boolean skipHeader = true;
+
+	/** Attributes */
+
+	private final IAttribute[] attributes;
+
+	/** Category dictionaries (null for non categorical attributes) */
+
+	private final CategoryDictionary[] categories;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param metadata Dataset metadata
+	 * @param dataKeyword Keyword that starts the data section
+	 * @param separator Separator between values
+	 * @param comment First character of the commented lines
+	 * @param missingValue Symbol of missing values
+	 */
+
+	public TextDataParser(IMetadata metadata, String dataKeyword, char separator, char comment, String missingValue)
+	{
+		super();
+
+		this.metadata = metadata;
+		this.dataKeyword = dataKeyword;
+		this.separator = (byte) separator;
+		this.comment = (byte) comment;
+		this.missingValue = missingValue.getBytes(Charset.defaultCharset());
+
+		int numberOfAttributes = metadata.numberOfAttributes();
+		this.attributes = new IAttribute[numberOfAttributes];
+		this.categories = new CategoryDictionary[numberOfAttributes];
+
+		for(int j = 0; j < numberOfAttributes; j++)
+		{
+			attributes[j] = metadata.getAttribute(j);
+			if(attributes[j].getType() == AttributeType.Categorical)
+				categories[j] = ((CategoricalAttribute) attributes[j]).getDictionary();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Set the chunk size
+	 *
+	 * @param chunkSize Size of the chunks in bytes
+	 */
+
+	public void setChunkSize(int chunkSize)
+	{
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Set the number of threads
+	 *
+	 * @param parallelism Number of threads used to parse the chunks
+	 */
+
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set whether the parsed streams start with the header. Datasets that
+	 * read the header from the same stream set it to false, so the data
+	 * section is parsed from the current position of the stream.
+	 *
+	 * @param skipHeader The header is skipped until the data keyword
+	 */
+
+	public void setSkipHeader(boolean skipHeader)
+	{
+		this.skipHeader = skipHeader;
+	}
+
+	/**
+	 * Parse the data section of a file
+	 *
+	 * @param fileName Dataset file name
+	 *
+	 * @return the columns, one array per attribute
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+
+	public double[][] parse(String fileName) throws IOException
+	{
+		InputStream input = DataFileInput.open(fileName);
+
+		try {
+			return parse(input);
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Parse the data section of a stream. Unless setSkipHeader(false) was
+	 * called, the stream is read from its beginning, so the header is
+	 * skipped until the data keyword.
+	 *
+	 * @param input Dataset stream
+	 *
+	 * @return the columns, one array per attribute
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+
+	public double[][] parse(InputStream input) throws IOException
+	{
+		return merge(parseChunks(input));
+	}
+
+	/**
+	 * Parse the data section of a file into instances
+	 *
+	 * @param fileName Dataset file name
+	 *
+	 * @return the instances. Sparse rows are read as SparseInstances.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+
+	public ArrayList<IInstance> parseInstances(String fileName) throws IOException
+	{
+		InputStream input = DataFileInput.open(fileName);
+
+		try {
+			return parseInstances(input);
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Parse the data section of a stream into instances
+	 *
+	 * @param input Dataset stream
+	 *
+	 * @return the instances. Sparse rows are read as SparseInstances.
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+
+	public ArrayList<IInstance> parseInstances(InputStream input) throws IOException
+	{
+		List<Chunk> chunks = parseChunks(input);
+
+		int numberOfRows = 0;
+		for(Chunk chunk : chunks)
+			numberOfRows += chunk.rows;
+
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(numberOfRows);
+
+		for(int c = 0; c < chunks.size(); c++)
+		{
+			Chunk chunk = chunks.get(c);
+			for(int row = 0; row < chunk.rows; row++)
+				instances.add(chunk.getInstance(row));
+			chunks.set(c, null);
+		}
+
+		return instances;
+	}
+
+	/**
+	 * Open a cursor over the data section of a stream. The stream is
+	 * read and parsed one chunk at a time, so only one chunk is held in
+	 * memory. The cursor closes the stream when it is closed.
+	 *
+	 * @param input Dataset stream
+	 *
+	 * @return a cursor that reuses the same instance for all the rows
+	 */
+
+	public IInstanceCursor openCursor(InputStream input)
+	{
+		return new StreamCursor(input);
+	}
+
+	/**
+	 * Open a cursor over the data section of a file
+	 *
+	 * @param fileName Dataset file name
+	 *
+	 * @return a cursor that reuses the same instance for all the rows
+	 *
+	 * @throws IOException if the file cannot be opened
+	 */
+
+	public IInstanceCursor openCursor(String fileName) throws IOException
+	{
+		return openCursor(DataFileInput.open(fileName));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Parse the chunks of the data section of a stream in parallel
+	 *
+	 * @param input Dataset stream
+	 *
+	 * @return the chunks, in file order
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+
+	private List<Chunk> parseChunks(InputStream input) throws IOException
+	{
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+
+		try {
+			int maxPending = 2 * pool.getParallelism();
+			ChunkReader reader = new ChunkReader(input, maxPending);
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			LinkedList<ForkJoinTask<Chunk>> pending = new LinkedList<ForkJoinTask<Chunk>>();
+			LinkedList<byte[]> buffers = new LinkedList<byte[]>();
+
+			// The buffer of a parsed chunk is reused for a following chunk
+			while(reader.next())
+			{
+				if(pending.size() >= maxPending)
+				{
+					chunks.add(pending.removeFirst().join());
+					reader.recycle(buffers.removeFirst());
+				}
+				pending.addLast(pool.submit(new ChunkParser(reader.chunk, reader.start, reader.end)));
+				buffers.addLast(reader.chunk);
+			}
+
+			while(!pending.isEmpty())
+				chunks.add(pending.removeFirst().join());
+
+			return chunks;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Position after the last line break of a buffer
+	 *
+	 * @param buffer Buffer
+	 * @param length Number of bytes in the buffer
+	 *
+	 * @return the end of the last complete line, 0 if there is none
+	 */
+
+	private static int lastLineEnd(byte[] buffer, int length)
+	{
+		for(int i = length - 1; i >= 0; i--)
+			if(buffer[i] == '\n')
+				return i + 1;
+		return 0;
+	}
+
+	/**
+	 * Search the data keyword in the complete lines of a buffer
+	 *
+	 * @param buffer Buffer
+	 * @param end End of the complete lines
+	 *
+	 * @return the position of the line after the keyword, -1 if not found
+	 */
+
+	private int dataStart(byte[] buffer, int end)
+	{
+		int lineStart = 0;
+
+		while(lineStart < end)
+		{
+			int lineEnd = lineStart;
+			while(lineEnd < end && buffer[lineEnd] != '\n')
+				lineEnd++;
+
+			int from = trimStart(buffer, lineStart, lineEnd);
+			int to = trimEnd(buffer, from, lineEnd);
+
+			if(to - from == dataKeyword.length())
+			{
+				boolean keyword = true;
+				for(int i = 0; keyword && i < dataKeyword.length(); i++)
+					keyword = Character.toLowerCase((char) buffer[from + i]) == Character.toLowerCase(dataKeyword.charAt(i));
+				if(keyword)
+					return Math.min(lineEnd + 1, end);
+			}
+
+			lineStart = lineEnd + 1;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Merge the chunk columns in file order
+	 *
+	 * @param chunks Parsed chunks
+	 *
+	 * @return the dataset columns
+	 */
+
+	private double[][] merge(List<Chunk> chunks)
+	{
+		int numberOfRows = 0;
+		for(Chunk chunk : chunks)
+			numberOfRows += chunk.rows;
+
+		double[][] columns = new double[attributes.length][numberOfRows];
+		int row = 0;
+
+		for(int c = 0; c < chunks.size(); c++)
+		{
+			Chunk chunk = chunks.get(c);
+			if(chunk.columns != null)
+			{
+				for(int j = 0; j < attributes.length; j++)
+					System.arraycopy(chunk.columns[j], 0, columns[j], row, chunk.rows);
+			}
+			else
+			{
+				// Omitted values of sparse rows are the zeros of the new arrays
+				for(int r = 0; r < chunk.rows; r++)
+					for(int k = chunk.offsets[r]; k < chunk.offsets[r + 1]; k++)
+						columns[chunk.indexes[k]][row + r] = chunk.values[k];
+			}
+			row += chunk.rows;
+			chunks.set(c, null);
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Skip the leading white spaces
+	 */
+
+	private static int trimStart(byte[] buffer, int from, int to)
+	{
+		while(from < to && (buffer[from] & 0xff) <= ' ')
+			from++;
+		return from;
+	}
+
+	/**
+	 * Skip the trailing white spaces
+	 */
+
+	private static int trimEnd(byte[] buffer, int from, int to)
+	{
+		while(to > from && (buffer[to - 1] & 0xff) <= ' ')
+			to--;
+		return to;
+	}
+
+	/**
+	 * Parse a value
+	 *
+	 * @param attribute Attribute index
+	 * @param buffer Buffer
+	 * @param from Start of the value
+	 * @param to End of the value
+	 *
+	 * @return the internal value
+	 */
+
+	private double parseValue(int attribute, byte[] buffer, int from, int to)
+	{
+		if(isMissing(buffer, from, to))
+			return Double.NaN;
+
+		if(categories[attribute] != null)
+		{
+			int category = categories[attribute].indexOf(buffer, from, to);
+			if(category >= 0)
+				return category;
+		}
+		else
+		{
+			double value = parseDecimal(buffer, from, to);
+			if(value == value)
+				return value;
+		}
+
+		// Slow path
+		try {
+			return attributes[attribute].parse(new String(buffer, from, to - from, Charset.defaultCharset()));
+		}
+		catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Check if a value is the missing value symbol
+	 *
+	 * @param buffer Buffer
+	 * @param from Start of the value
+	 * @param to End of the value
+	 *
+	 * @return true if the value is missing
+	 */
+
+	private boolean isMissing(byte[] buffer, int from, int to)
+	{
+		if(to - from != missingValue.length)
+			return false;
+
+		for(int i = 0; i < missingValue.length; i++)
+			if(buffer[from + i] != missingValue[i])
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Convert a simple decimal number (at most 15 significant digits and
+	 * a power of ten up to 22). In this case the conversion of the digits
+	 * and the scaling are exact operations, so the result is the same as
+	 * the one of Double.parseDouble().
+	 *
+	 * @return the value, or NaN if the number is not a simple decimal
+	 */
+
+	private static double parseDecimal(byte[] buffer, int from, int to)
+	{
+		int i = from;
+		boolean negative = false;
+
+		if(i < to && (buffer[i] == '-' || buffer[i] == '+'))
+			negative = buffer[i++] == '-';
+
+		long mantissa = 0;
+		int digits = 0, significant = 0, fraction = 0;
+		boolean point = false;
+
+		for(; i < to; i++)
+		{
+			byte b = buffer[i];
+			if(b >= '0' && b <= '9')
+			{
+				digits++;
+				if(mantissa != 0 || b != '0')
+					significant++;
+				mantissa = 10 * mantissa + (b - '0');
+				if(point)
+					fraction++;
+			}
+			else if(b == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+
+		if(digits == 0 || significant > 15)
+			return Double.NaN;
+
+		int exponent = 0;
+		if(i < to)
+		{
+			if(buffer[i] != 'e' && buffer[i] != 'E')
+				return Double.NaN;
+			i++;
+			boolean negativeExponent = false;
+			if(i < to && (buffer[i] == '-' || buffer[i] == '+'))
+				negativeExponent = buffer[i++] == '-';
+			if(i == to || to - i > 3)
+				return Double.NaN;
+			for(; i < to; i++)
+			{
+				if(buffer[i] < '0' || buffer[i] > '9')
+					return Double.NaN;
+				exponent = 10 * exponent + (buffer[i] - '0');
+			}
+			if(negativeExponent)
+				exponent = -exponent;
+		}
+
+		exponent -= fraction;
+
+		double value;
+		if(mantissa == 0)
+			value = 0.0;
+		else if(exponent == 0)
+			value = mantissa;
+		else if(exponent > 0 && exponent < POWERS_OF_TEN.length)
+			value = mantissa * POWERS_OF_TEN[exponent];
+		else if(exponent < 0 && -exponent < POWERS_OF_TEN.length)
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		else
+			return Double.NaN;
+
+		return negative ? -value : value;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reads a stream in chunks of complete lines of the data section. The
+	 * buffers of the chunks already parsed are given back to the reader,
+	 * which keeps a bounded number of them to read the next chunks.
+	 */
+
+	private class ChunkReader
+	{
+		/** Input stream */
+
+		private final InputStream input;
+
+		/** Free buffers */
+
+		private final ArrayDeque<byte[]> free = new ArrayDeque<byte[]>();
+
+		/** Maximum number of free buffers */
+
+		private final int maxFree;
+
+		/** Read buffer */
+
+		private byte[] buffer = new byte[chunkSize];
+
+		/** Number of bytes in the buffer */
+
+		private int length;
+
+		/** Whether the data section has been reached */
+
+		private boolean data;
+
+		/** Whether the end of the stream has been reached */
+
+		private boolean eof;
+
+		/** Current chunk */
+
+		byte[] chunk;
+
+		/** Start of the current chunk */
+
+		int start;
+
+		/** End of the current chunk */
+
+		int end;
+
+		ChunkReader(InputStream input, int maxFree)
+		{
+			this.input = input;
+			this.maxFree = maxFree;
+			this.data = !skipHeader;
+		}
+
+		/**
+		 * Read the next chunk. The chunk array belongs to the caller until
+		 * it is given back with recycle().
+		 *
+		 * @return false at the end of the stream
+		 */
+
+		boolean next() throws IOException
+		{
+			while(!eof)
+			{
+				// Fill the buffer
+				int read = input.read(buffer, length, buffer.length - length);
+				eof = read < 0;
+				if(!eof)
+				{
+					length += read;
+					if(length < buffer.length)
+						continue;
+				}
+
+				// Cut the buffer at the last complete line
+				int end = eof ? length : lastLineEnd(buffer, length);
+				if(end == 0 && !eof)
+				{
+					// A line longer than the buffer
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+					continue;
+				}
+
+				int start = 0;
+				if(!data)
+				{
+					start = dataStart(buffer, end);
+					data = start >= 0;
+					if(!data)
+						start = end;
+				}
+
+				byte[] chunk = buffer;
+
+				// Carry the incomplete line to the next buffer
+				if(!eof)
+				{
+					buffer = free.poll();
+					if(buffer == null || buffer.length < chunk.length)
+						buffer = new byte[chunk.length];
+					System.arraycopy(chunk, end, buffer, 0, length - end);
+					length -= end;
+				}
+
+				if(start < end)
+				{
+					this.chunk = chunk;
+					this.start = start;
+					this.end = end;
+					return true;
+				}
+				recycle(chunk);
+			}
+
+			return false;
+		}
+
+		/**
+		 * Give back the array of a chunk that is no longer used
+		 *
+		 * @param chunk Chunk array
+		 */
+
+		void recycle(byte[] chunk)
+		{
+			if(free.size() < maxFree)
+				free.push(chunk);
+		}
+	}
+
+	/**
+	 * Cursor that parses a stream one chunk at a time
+	 */
+
+	private class StreamCursor implements IInstanceCursor
+	{
+		/** Input stream */
+
+		private final InputStream input;
+
+		/** Chunk reader */
+
+		private final ChunkReader reader;
+
+		/** Reused instance */
+
+		private final Instance instance;
+
+		/** Current chunk */
+
+		private Chunk chunk;
+
+		/** Current row in the chunk */
+
+		private int row;
+
+		StreamCursor(InputStream input)
+		{
+			this.input = input;
+			this.reader = new ChunkReader(input, 1);
+			this.instance = new Instance(attributes.length);
+		}
+
+		public boolean next()
+		{
+			try {
+				while(chunk == null || row + 1 >= chunk.rows)
+				{
+					if(!reader.next())
+					{
+						chunk = null;
+						return false;
+					}
+					chunk = new ChunkParser(reader.chunk, reader.start, reader.end).call();
+					reader.recycle(reader.chunk);
+					row = -1;
+				}
+			}
+			catch(IOException e) {
+				throw new IllegalStateException("Cannot read the data section", e);
+			}
+
+			row++;
+			chunk.getRow(row, instance.getValues());
+
+			return true;
+		}
+
+		public IInstance getInstance()
+		{
+			return instance;
+		}
+
+		public void close()
+		{
+			try {
+				input.close();
+			}
+			catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Rows parsed from a chunk, stored by columns (dense chunks) or in
+	 * compressed sparse row format (sparse chunks)
+	 */
+
+	private static class Chunk
+	{
+		/** Number of attributes */
+
+		final int numberOfAttributes;
+
+		/** Columns (null for sparse chunks) */
+
+		double[][] columns;
+
+		/** Start of every row in the stored values, plus their end (sparse chunks) */
+
+		int[] offsets;
+
+		/** Attribute indexes of the stored values (sparse chunks) */
+
+		int[] indexes;
+
+		/** Stored values (sparse chunks) */
+
+		double[] values;
+
+		/** Number of stored values (sparse chunks) */
+
+		int size;
+
+		/** Number of rows */
+
+		int rows;
+
+		Chunk(int numberOfAttributes, boolean sparse, int capacity)
+		{
+			this.numberOfAttributes = numberOfAttributes;
+
+			if(sparse)
+			{
+				offsets = new int[capacity + 1];
+				indexes = new int[4 * capacity];
+				values = new double[4 * capacity];
+			}
+			else
+				columns = new double[numberOfAttributes][capacity];
+		}
+
+		/**
+		 * Make room for a new row
+		 */
+
+		void startRow()
+		{
+			if(columns != null)
+			{
+				if(rows == columns[0].length)
+					for(int j = 0; j < numberOfAttributes; j++)
+						columns[j] = Arrays.copyOf(columns[j], 2 * rows);
+			}
+			else if(rows + 1 == offsets.length)
+				offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+		}
+
+		/**
+		 * Set a value of the current row
+		 */
+
+		void set(int attribute, double value)
+		{
+			if(columns != null)
+				columns[attribute][rows] = value;
+			else if(Double.doubleToRawLongBits(value) != 0L)
+			{
+				// Zeros are implicit
+				if(size == indexes.length)
+				{
+					indexes = Arrays.copyOf(indexes, 2 * size);
+					values = Arrays.copyOf(values, 2 * size);
+				}
+				indexes[size] = attribute;
+				values[size] = value;
+				size++;
+			}
+		}
+
+		/**
+		 * Convert the rows parsed so far to compressed sparse row format
+		 */
+
+		void toSparse()
+		{
+			double[][] columns = this.columns;
+			int rows = this.rows;
+
+			this.columns = null;
+			this.rows = 0;
+			offsets = new int[Math.max(16, rows) + 1];
+			indexes = new int[64];
+			values = new double[64];
+
+			for(int row = 0; row < rows; row++)
+			{
+				startRow();
+				for(int j = 0; j < numberOfAttributes; j++)
+					set(j, columns[j][row]);
+				endRow();
+			}
+		}
+
+		/**
+		 * Close the current row
+		 */
+
+		void endRow()
+		{
+			if(columns == null)
+			{
+				// Indexes of sparse rows should be sorted, but it is not required
+				int from = offsets[rows];
+				for(int k = from + 1; k < size; k++)
+				{
+					int index = indexes[k];
+					double value = values[k];
+					int l = k - 1;
+					for(; l >= from && indexes[l] > index; l--)
+					{
+						indexes[l + 1] = indexes[l];
+						values[l + 1] = values[l];
+					}
+					indexes[l + 1] = index;
+					values[l + 1] = value;
+				}
+				offsets[rows + 1] = size;
+			}
+			rows++;
+		}
+
+		/**
+		 * Copy the values of a row
+		 */
+
+		void getRow(int row, double[] dest)
+		{
+			if(columns != null)
+			{
+				for(int j = 0; j < numberOfAttributes; j++)
+					dest[j] = columns[j][row];
+			}
+			else
+			{
+				Arrays.fill(dest, 0.0);
+				for(int k = offsets[row]; k < offsets[row + 1]; k++)
+					dest[indexes[k]] = values[k];
+			}
+		}
+
+		/**
+		 * Build the instance of a row
+		 */
+
+		IInstance getInstance(int row)
+		{
+			if(columns != null)
+			{
+				Instance instance = new Instance(numberOfAttributes);
+				getRow(row, instance.getValues());
+				return instance;
+			}
+			else
+			{
+				int from = offsets[row], to = offsets[row + 1];
+				return new SparseInstance(numberOfAttributes,
+						Arrays.copyOfRange(indexes, from, to), Arrays.copyOfRange(values, from, to));
+			}
+		}
+	}
+
+	/**
+	 * Task that parses a chunk
+	 */
+
+	private class ChunkParser implements Callable<Chunk>
+	{
+		/** Chunk bytes */
+
+		private final byte[] buffer;
+
+		/** Start of the chunk */
+
+		private final int start;
+
+		/** End of the chunk */
+
+		private final int end;
+
+		ChunkParser(byte[] buffer, int start, int end)
+		{
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Chunk call()
+		{
+			int numberOfAttributes = attributes.length;
+			int capacity = Math.max(16, (end - start) / (4 * numberOfAttributes + 1));
+			Chunk chunk = null;
+
+			int lineStart = start;
+			while(lineStart < end)
+			{
+				int lineEnd = lineStart;
+				while(lineEnd < end && buffer[lineEnd] != '\n')
+					lineEnd++;
+
+				int position = trimStart(buffer, lineStart, lineEnd);
+
+				if(position < lineEnd && buffer[lineStart] != comment)
+				{
+					boolean sparse = buffer[position] == '{';
+
+					// The first row sets the format of the chunk, and the
+					// first sparse row turns a dense chunk into a sparse one
+					if(chunk == null)
+						chunk = new Chunk(numberOfAttributes, sparse, sparse ? Math.max(16, (end - start) / 64) : capacity);
+					else if(sparse && chunk.columns != null)
+						chunk.toSparse();
+
+					chunk.startRow();
+					if(sparse)
+						parseSparseRow(chunk, position + 1, lineEnd);
+					else
+						parseDenseRow(chunk, position, lineEnd);
+					chunk.endRow();
+				}
+
+				lineStart = lineEnd + 1;
+			}
+
+			return chunk == null ? new Chunk(numberOfAttributes, false, 0) : chunk;
+		}
+
+		/**
+		 * Parse a row with all the values, separated by one or more
+		 * separators. Missing trailing values are NaN.
+		 */
+
+		private void parseDenseRow(Chunk chunk, int position, int lineEnd)
+		{
+			int numberOfAttributes = attributes.length;
+			int attribute = 0;
+
+			while(attribute < numberOfAttributes)
+			{
+				while(position < lineEnd && buffer[position] == separator)
+					position++;
+				if(position == lineEnd)
+					break;
+
+				int valueEnd = position;
+				while(valueEnd < lineEnd && buffer[valueEnd] != separator)
+					valueEnd++;
+
+				int from = trimStart(buffer, position, valueEnd);
+				int to = trimEnd(buffer, from, valueEnd);
+				chunk.set(attribute, parseValue(attribute, buffer, from, to));
+
+				attribute++;
+				position = valueEnd;
+			}
+
+			for(; attribute < numberOfAttributes; attribute++)
+				chunk.set(attribute, Double.NaN);
+		}
+
+		/**
+		 * Parse the pairs of a sparse row (after the opening brace). Pairs
+		 * with an invalid attribute index are ignored.
+		 */
+
+		private void parseSparseRow(Chunk chunk, int position, int lineEnd)
+		{
+			while(position < lineEnd)
+			{
+				int pairEnd = position;
+				while(pairEnd < lineEnd && buffer[pairEnd] != separator && buffer[pairEnd] != '}')
+					pairEnd++;
+
+				int from = trimStart(buffer, position, pairEnd);
+				int to = trimEnd(buffer, from, pairEnd);
+
+				if(from < to)
+				{
+					// Attribute index
+					int attribute = 0, digitsEnd = from;
+					while(digitsEnd < to && buffer[digitsEnd] >= '0' && buffer[digitsEnd] <= '9' && attribute < attributes.length)
+						attribute = 10 * attribute + (buffer[digitsEnd++] - '0');
+
+					if(digitsEnd > from && attribute < attributes.length && digitsEnd < to && (buffer[digitsEnd] & 0xff) <= ' ')
+						chunk.set(attribute, parseValue(attribute, buffer, trimStart(buffer, digitsEnd, to), to));
+				}
+
+				if(pairEnd == lineEnd || buffer[pairEnd] == '}')
+					break;
+				position = pairEnd + 1;
+			}
+		}
+	}
+}
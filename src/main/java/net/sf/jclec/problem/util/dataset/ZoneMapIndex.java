@@ -0,0 +1,133 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.column.ZoneMap;
+
+/**
+ * Attribute index that keeps block statistics (zone maps) of the columns
+ * of a columnar dataset.
+ *
+ * Unlike SortedAttributeIndex, this index takes a few values per block of
+ * rows instead of two arrays as long as the column, and it is built with a
+ * single pass over the column. Queries skip the blocks that the statistics
+ * prove fully covered or fully uncovered and scan the others, so they are
+ * fastest on sorted or clustered data.
+ *
+ * The zone map of a column is built the first time it is queried.
+ */
+
+public final class ZoneMapIndex extends AttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Indexed columns */
+
+	private final IColumn[] columns;
+
+	/** Number of categories of every column, 0 if it is not categorical */
+
+	private final int[] numberOfCategories;
+
+	/** Number of rows */
+
+	private final int numberOfRows;
+
+	/** Number of rows per block */
+
+	private final int blockSize;
+
+	/** Zone maps (null until queried) */
+
+	private final AtomicReferenceArray<ZoneMap> zoneMaps;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the indexed columns
+	 *
+	 * @param columns Columns. They must not change while the index is used.
+	 * @param numberOfCategories Number of categories of every column, 0 if
+	 *                           the column is not categorical
+	 * @param numberOfRows Number of rows
+	 * @param blockSize Number of rows per block
+	 */
+
+	public ZoneMapIndex(IColumn[] columns, int[] numberOfCategories, int numberOfRows, int blockSize)
+	{
+		super();
+		this.columns = columns;
+		this.numberOfCategories = numberOfCategories;
+		this.numberOfRows = numberOfRows;
+		this.blockSize = blockSize;
+		this.zoneMaps = new AtomicReferenceArray<ZoneMap>(columns.length);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int numberOfRows()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet range(int attributeIndex, double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		return getZoneMap(attributeIndex).range(low, lowInclusive, high, highInclusive);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public BitSet equal(int attributeIndex, double value)
+	{
+		return getZoneMap(attributeIndex).equal(value);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the zone map of a column, building it if it is the first query
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the zone map
+	 */
+
+	private ZoneMap getZoneMap(int attributeIndex)
+	{
+		ZoneMap zoneMap = zoneMaps.get(attributeIndex);
+
+		if(zoneMap == null)
+		{
+			synchronized(this)
+			{
+				zoneMap = zoneMaps.get(attributeIndex);
+				if(zoneMap == null)
+				{
+					zoneMap = new ZoneMap(columns[attributeIndex], blockSize, numberOfCategories[attributeIndex]);
+					zoneMaps.set(attributeIndex, zoneMap);
+				}
+			}
+		}
+		return zoneMap;
+	}
+}
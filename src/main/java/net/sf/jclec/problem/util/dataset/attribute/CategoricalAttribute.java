@@ -2,7 +2,6 @@ package net.sf.jclec.problem.util.dataset.attribute;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Hashtable;
 
 import net.sf.jclec.util.intset.Closure;
 import net.sf.jclec.util.intset.Interval;
@@ -38,15 +37,9 @@ public class CategoricalAttribute extends AbstractAttribute {
 	// ------------------------------------------- Internal variables 
 	/////////////////////////////////////////////////////////////////
 	
-	/** Association between categories and double (internal) values */
+	/** Association between categories and internal values (category codes) */
 
-	protected transient Hashtable<String, Double> categoryToValue = 
-		new Hashtable<String, Double>();
-	
-	/** Association between internal (double) values and categories */
-	
-	protected transient Hashtable<Double, String> valueToCategory =
-		new Hashtable<Double, String>();
+	protected transient CategoryDictionary dictionary = new CategoryDictionary(categories);
 	
 	/////////////////////////////////////////////////////////////////
 	// --------------------------------------------------- Constructor
@@ -101,22 +94,10 @@ public class CategoricalAttribute extends AbstractAttribute {
 		
 	public void setCategories(List<String> categories)
 	{
+		// Initialize the dictionary
+		dictionary = new CategoryDictionary(categories);
 		// Set the list of categories
 		this.categories = categories;
-		// Initialize hash tables
-		categoryToValue.clear();
-		valueToCategory.clear();
-		double aux = 0.0;
-		for (String category : categories) {
-			if (! categoryToValue.containsKey(category)) {
-				categoryToValue.put(category, aux);
-				valueToCategory.put(aux, category);
-				aux += 1.0;
-			}
-			else {
-				throw new IllegalArgumentException("List of categories contain duplicated values");
-			}
-		}
 	}	
 	
 	/**
@@ -141,6 +122,20 @@ public class CategoricalAttribute extends AbstractAttribute {
 		return this.categories;
 	}
 	
+	/**
+	 * Get the dictionary that encodes the categories.
+	 * 
+	 * @return the dictionary
+	 */
+	
+	public CategoryDictionary getDictionary() 
+	{
+		// The dictionary is not serialized
+		if(dictionary == null)
+			dictionary = new CategoryDictionary(categories);
+		return dictionary;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// -------------------------- Overwriting AbstractAttribute methods
 	/////////////////////////////////////////////////////////////////
@@ -163,8 +158,9 @@ public class CategoricalAttribute extends AbstractAttribute {
 	public double parse(String string) 
 	{
 		// If this string is valid...
-		if( categoryToValue.containsKey(string))
-			 return ((Double) categoryToValue.get(string)).doubleValue();
+		int code = getDictionary().indexOf(string);
+		if(code >= 0)
+			 return code;
 		return -1.0d;
 	}
 
@@ -176,8 +172,9 @@ public class CategoricalAttribute extends AbstractAttribute {
 	public String show(double ivalue) 
 	{
 		// If internal value exists...
-		if( valueToCategory.containsKey(new Double(ivalue)))
-			 return (String) valueToCategory.get(new Double(ivalue));
+		int code = (int) ivalue;
+		if(code == ivalue)
+			 return getDictionary().get(code);
 		// Else return null
 		return null;
 	}
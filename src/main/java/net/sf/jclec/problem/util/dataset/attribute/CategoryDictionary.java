@@ -0,0 +1,348 @@
+package net.sf.jclec.problem.util.dataset.attribute;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Dictionary of the categories of a categorical attribute.
+ *
+ * Category codes are the positions of the categories in the list, so
+ * decoding is an array access. Encoding uses a collision-free
+ * (perfect) hash function built with the hash-and-displace method: the
+ * categories are grouped in buckets by a first hash, and every bucket
+ * gets a seed for a second hash that sends all its categories to free
+ * slots. A lookup is then two hash computations and one comparison.
+ *
+ * Categories can be looked up from strings or straight from the bytes of
+ * a data file, encoded with the default charset.
+ */
+
+public final class CategoryDictionary
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of seeds tried for a bucket before changing the salt */
+
+	private static final int MAXIMUM_SEEDS = 1 << 12;
+
+	/** Categories */
+
+	private final String[] categories;
+
+	/** Bytes of the categories */
+
+	private final byte[][] keys;
+
+	/** Salt of the first hash */
+
+	private final long salt;
+
+	/** Seed of the second hash for every bucket */
+
+	private final int[] seeds;
+
+	/** Category of every slot (-1 if empty) */
+
+	private final int[] slots;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that builds the dictionary
+	 *
+	 * @param categories List of categories
+	 *
+	 * @throws IllegalArgumentException If list contains duplicated
+	 * 									categories
+	 */
+
+	public CategoryDictionary(List<String> categories)
+	{
+		super();
+
+		int size = categories.size();
+
+		this.categories = categories.toArray(new String[size]);
+		this.keys = new byte[size][];
+
+		HashSet<String> distinct = new HashSet<String>();
+		for(int c = 0; c < size; c++)
+		{
+			if(!distinct.add(this.categories[c]))
+				throw new IllegalArgumentException("List of categories contain duplicated values");
+			keys[c] = this.categories[c].getBytes(Charset.defaultCharset());
+		}
+
+		int numberOfSlots = Integer.highestOneBit(Math.max(1, 2 * size - 1)) << 1;
+		int numberOfBuckets = Math.max(1, numberOfSlots >> 2);
+		this.seeds = new int[numberOfBuckets];
+		this.slots = new int[numberOfSlots];
+
+		// Distinct categories with the same hash would never be separated
+		// by the seeds, so the salt is changed until all the buckets fit
+		long salt = 0;
+		while(!place(salt))
+			salt++;
+		this.salt = salt;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of categories
+	 *
+	 * @return the number of categories
+	 */
+
+	public int size()
+	{
+		return categories.length;
+	}
+
+	/**
+	 * Get a category
+	 *
+	 * @param code Category code
+	 *
+	 * @return the category, or null if the code is not valid
+	 */
+
+	public String get(int code)
+	{
+		if(code < 0 || code >= categories.length)
+			return null;
+		return categories[code];
+	}
+
+	/**
+	 * Get the code of a category
+	 *
+	 * @param category Category
+	 *
+	 * @return the category code, or -1 if it is not in the dictionary
+	 */
+
+	public int indexOf(String category)
+	{
+		long hash = hash(category);
+		if(hash == 0)
+		{
+			// Not an ASCII string
+			byte[] bytes = category.getBytes(Charset.defaultCharset());
+			return indexOf(bytes, 0, bytes.length);
+		}
+
+		int c = slots[slot(hash)];
+		return c >= 0 && categories[c].equals(category) ? c : -1;
+	}
+
+	/**
+	 * Get the code of a category from its bytes
+	 *
+	 * @param buffer Buffer
+	 * @param from Start of the category
+	 * @param to End of the category
+	 *
+	 * @return the category code, or -1 if it is not in the dictionary
+	 */
+
+	public int indexOf(byte[] buffer, int from, int to)
+	{
+		int c = slots[slot(hash(buffer, from, to))];
+		if(c < 0)
+			return -1;
+
+		byte[] key = keys[c];
+		if(key.length != to - from)
+			return -1;
+		for(int i = 0; i < key.length; i++)
+			if(key[i] != buffer[from + i])
+				return -1;
+		return c;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Find a seed for every bucket
+	 *
+	 * @param salt Salt of the first hash
+	 *
+	 * @return true if all the categories were placed
+	 */
+
+	private boolean place(long salt)
+	{
+		int bucketMask = seeds.length - 1;
+		int slotMask = slots.length - 1;
+
+		// Group the categories by bucket
+		long[] hashes = new long[keys.length];
+		int[] bucketSizes = new int[seeds.length];
+		for(int c = 0; c < keys.length; c++)
+		{
+			hashes[c] = hash(keys[c], 0, keys[c].length, salt);
+			bucketSizes[(int) (hashes[c] >>> 32) & bucketMask]++;
+		}
+
+		int[][] buckets = new int[seeds.length][];
+		for(int b = 0; b < seeds.length; b++)
+			buckets[b] = new int[bucketSizes[b]];
+		Arrays.fill(bucketSizes, 0);
+		for(int c = 0; c < keys.length; c++)
+		{
+			int b = (int) (hashes[c] >>> 32) & bucketMask;
+			buckets[b][bucketSizes[b]++] = c;
+		}
+
+		// Place the largest buckets first
+		Integer[] order = new Integer[seeds.length];
+		for(int b = 0; b < order.length; b++)
+			order[b] = b;
+		final int[][] sorted = buckets;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer b1, Integer b2)
+			{
+				return sorted[b2].length - sorted[b1].length;
+			}
+		});
+
+		Arrays.fill(slots, -1);
+		Arrays.fill(seeds, 0);
+		int[] taken = new int[slots.length];
+
+		for(int b : order)
+		{
+			int[] bucket = buckets[b];
+			if(bucket.length == 0)
+				break;
+
+			boolean placed = false;
+			for(int seed = 0; seed < MAXIMUM_SEEDS && !placed; seed++)
+			{
+				placed = true;
+				for(int i = 0; i < bucket.length && placed; i++)
+				{
+					int slot = (int) mix(hashes[bucket[i]], seed) & slotMask;
+					if(slots[slot] >= 0)
+						placed = false;
+					else
+						for(int k = 0; k < i && placed; k++)
+							if(taken[k] == slot)
+								placed = false;
+					taken[i] = slot;
+				}
+
+				if(placed)
+				{
+					seeds[b] = seed;
+					for(int i = 0; i < bucket.length; i++)
+						slots[taken[i]] = bucket[i];
+				}
+			}
+
+			if(!placed)
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Slot of a hash
+	 *
+	 * @param hash First hash
+	 *
+	 * @return the slot
+	 */
+
+	private int slot(long hash)
+	{
+		int seed = seeds[(int) (hash >>> 32) & (seeds.length - 1)];
+		return (int) mix(hash, seed) & (slots.length - 1);
+	}
+
+	/**
+	 * First hash of a string, if it is an ASCII string
+	 *
+	 * @param category String
+	 *
+	 * @return the hash, or 0 if the string is not an ASCII string
+	 */
+
+	private long hash(String category)
+	{
+		long h = 0xcbf29ce484222325L + salt * 0x9e3779b97f4a7c15L;
+		for(int i = 0; i < category.length(); i++)
+		{
+			char c = category.charAt(i);
+			if(c >= 0x80)
+				return 0;
+			h = (h ^ c) * 0x100000001b3L;
+		}
+		return mix(h, 0);
+	}
+
+	/**
+	 * First hash of a byte sequence
+	 *
+	 * @param buffer Buffer
+	 * @param from Start of the sequence
+	 * @param to End of the sequence
+	 *
+	 * @return the hash
+	 */
+
+	private long hash(byte[] buffer, int from, int to)
+	{
+		return hash(buffer, from, to, salt);
+	}
+
+	/**
+	 * First hash of a byte sequence (FNV-1a). The high bits of FNV are
+	 * poorly distributed for short sequences, so the result is mixed.
+	 *
+	 * @param buffer Buffer
+	 * @param from Start of the sequence
+	 * @param to End of the sequence
+	 * @param salt Salt
+	 *
+	 * @return the hash
+	 */
+
+	private static long hash(byte[] buffer, int from, int to, long salt)
+	{
+		long h = 0xcbf29ce484222325L + salt * 0x9e3779b97f4a7c15L;
+		for(int i = from; i < to; i++)
+			h = (h ^ buffer[i]) * 0x100000001b3L;
+		return mix(h, 0);
+	}
+
+	/**
+	 * Second hash
+	 *
+	 * @param hash First hash
+	 * @param seed Bucket seed
+	 *
+	 * @return the second hash
+	 */
+
+	private static long mix(long hash, int seed)
+	{
+		long h = hash + seed * 0x9e3779b97f4a7c15L;
+		h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+}
@@ -0,0 +1,92 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Column that keeps its values in a DoubleBuffer.
+ *
+ * The buffer is usually a view of a direct or memory-mapped byte buffer,
+ * so the column data lives outside of the Java heap.
+ */
+
+public class BufferColumn implements IColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 3059318786380651286L;
+
+	/** Column values. Buffers are not serializable, so neither are these columns */
+
+	protected final transient DoubleBuffer values;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the column values. The column reads the
+	 * buffer from index 0 to its limit using absolute accesses, so the
+	 * buffer position is never modified.
+	 *
+	 * @param values Column values
+	 */
+
+	public BufferColumn(DoubleBuffer values)
+	{
+		super();
+		this.values = values;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int size()
+	{
+		return values.limit();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final double getValue(int row)
+	{
+		return values.get(row);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public void getValues(int fromRow, double[] dest, int offset, int length)
+	{
+		DoubleBuffer block = values.duplicate();
+		block.position(fromRow);
+		block.get(dest, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public long memoryUsage()
+	{
+		return 8L * values.capacity();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean isOffHeap()
+	{
+		return values.isDirect();
+	}
+}
@@ -0,0 +1,91 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+/**
+ * Quantized column with 8-bit codes.
+ */
+
+public class ByteColumn extends QuantizedColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 4418026935719285713L;
+
+	/** Maximum number of value codes */
+
+	public static final int MAXIMUM_CODES = 255;
+
+	/** Column codes */
+
+	protected final byte[] codes;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the column codes. The array is not copied.
+	 *
+	 * @param codes Column codes
+	 * @param base Value of code 0, multiplied by the scale
+	 * @param scale Scale of the codes
+	 * @param numberOfCodes Number of value codes, at most MAXIMUM_CODES
+	 */
+
+	public ByteColumn(byte[] codes, double base, double scale, int numberOfCodes)
+	{
+		super(base, scale, numberOfCodes);
+		this.codes = codes;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int size()
+	{
+		return codes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final double getValue(int row)
+	{
+		return table[codes[row] & 0xFF];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public void getValues(int fromRow, double[] dest, int offset, int length)
+	{
+		for(int i = 0; i < length; i++)
+			dest[offset + i] = table[codes[fromRow + i] & 0xFF];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final int getCode(int row)
+	{
+		return codes[row] & 0xFF;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public long memoryUsage()
+	{
+		return codes.length + 8L * table.length;
+	}
+}
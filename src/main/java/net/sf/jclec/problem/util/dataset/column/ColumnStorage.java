@@ -0,0 +1,269 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Storage modes for numerical columns, and factory of category code
+ * columns.
+ *
+ * Rules compare the attribute values against constants that were taken
+ * from the same values, so a compact mode is only used for a column when
+ * all its values are recovered exactly. Otherwise the column falls back to
+ * the next wider mode, down to double storage.
+ *
+ * The Direct mode keeps the values outside of the Java heap, in a direct
+ * buffer, so large datasets neither count against the heap size nor are
+ * copied by the garbage collector.
+ */
+
+public enum ColumnStorage
+{
+	/** Double precision values */
+
+	Double,
+
+	/** Single precision values, used only if no value loses precision */
+
+	Float,
+
+	/** 8 or 16-bit decimal codes, falling back to Float if the values are not short decimals */
+
+	Quantized,
+
+	/** Double precision values in a direct buffer, outside of the Java heap */
+
+	Direct;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Maximum number of decimals of the quantized values */
+
+	private static final int MAXIMUM_DECIMALS = 6;
+
+	/** Largest integer below which all integers are exact doubles */
+
+	private static final double MAXIMUM_EXACT = 9007199254740992.0;
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create a column with this storage mode
+	 *
+	 * @param values Column values. The array is not copied if the column
+	 *               is stored with double precision on the heap.
+	 *
+	 * @return a column that returns exactly the given values
+	 */
+
+	public IColumn createColumn(double[] values)
+	{
+		switch(this)
+		{
+			case Float:
+				return floatColumn(values);
+			case Quantized:
+				IColumn column = quantizedColumn(values);
+				return column == null ? floatColumn(values) : column;
+			case Direct:
+				return directColumn(values);
+			default:
+				return new DoubleColumn(values);
+		}
+	}
+
+	/**
+	 * Create a column of category codes, stored in 8 or 16 bits. Codes are
+	 * integers from 0 to numberOfCodes-1, missing values are NaN.
+	 *
+	 * @param values Column values
+	 * @param numberOfCodes Number of categories
+	 *
+	 * @return a code column, or a double column if there are too many
+	 *         categories or some value is not a valid code
+	 */
+
+	public static IColumn createCodeColumn(double[] values, int numberOfCodes)
+	{
+		if(numberOfCodes > ShortColumn.MAXIMUM_CODES)
+			return new DoubleColumn(values);
+
+		for(double value : values)
+			if(value == value && (value < 0 || value >= numberOfCodes || value != (int) value))
+				return new DoubleColumn(values);
+
+		if(numberOfCodes <= ByteColumn.MAXIMUM_CODES)
+		{
+			byte[] codes = new byte[values.length];
+			for(int i = 0; i < values.length; i++)
+				codes[i] = (byte) code(values[i], 1.0, 0.0, numberOfCodes);
+			return new ByteColumn(codes, 0.0, 1.0, numberOfCodes);
+		}
+		else
+		{
+			short[] codes = new short[values.length];
+			for(int i = 0; i < values.length; i++)
+				codes[i] = (short) code(values[i], 1.0, 0.0, numberOfCodes);
+			return new ShortColumn(codes, 0.0, 1.0, numberOfCodes);
+		}
+	}
+
+	/**
+	 * Get the storage mode with the given name, ignoring case
+	 *
+	 * @param name Storage mode name
+	 *
+	 * @return the storage mode
+	 *
+	 * @throws IllegalArgumentException if there is no mode with this name
+	 */
+
+	public static ColumnStorage forName(String name)
+	{
+		for(ColumnStorage storage : values())
+			if(storage.name().equalsIgnoreCase(name))
+				return storage;
+
+		throw new IllegalArgumentException("Unknown column storage: " + name);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Store the values as floats if none of them loses precision
+	 *
+	 * @param values Column values
+	 *
+	 * @return a float column, or a double column
+	 */
+
+	private static IColumn floatColumn(double[] values)
+	{
+		float[] floats = new float[values.length];
+
+		for(int i = 0; i < values.length; i++)
+		{
+			floats[i] = (float) values[i];
+			if(java.lang.Double.doubleToLongBits(floats[i]) != java.lang.Double.doubleToLongBits(values[i]))
+				return new DoubleColumn(values);
+		}
+
+		return new FloatColumn(floats);
+	}
+
+	/**
+	 * Store the values in a direct buffer. Buffers are indexed with an
+	 * int, so columns of more than 2GB are kept on the heap.
+	 *
+	 * @param values Column values
+	 *
+	 * @return a buffer column, or a double column if it is too large
+	 */
+
+	private static IColumn directColumn(double[] values)
+	{
+		if(values.length > Integer.MAX_VALUE / 8)
+			return new DoubleColumn(values);
+
+		DoubleBuffer buffer = ByteBuffer.allocateDirect(8 * values.length).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		buffer.put(values);
+
+		return new BufferColumn(buffer);
+	}
+
+	/**
+	 * Store the values as decimal codes. The smallest number of decimals
+	 * that represents all the values exactly is used.
+	 *
+	 * @param values Column values
+	 *
+	 * @return a quantized column, or null if the values are not short decimals
+	 */
+
+	private static IColumn quantizedColumn(double[] values)
+	{
+		double scale = 1.0;
+
+		for(int decimals = 0; decimals <= MAXIMUM_DECIMALS; decimals++, scale *= 10.0)
+		{
+			double min = java.lang.Double.POSITIVE_INFINITY;
+			double max = java.lang.Double.NEGATIVE_INFINITY;
+			boolean exact = true;
+
+			for(double value : values)
+			{
+				// Missing values
+				if(value != value)
+					continue;
+
+				// Adding 0 turns -0 into 0, so negative zeros are not exact
+				double scaled = Math.rint(value * scale) + 0.0;
+				if(Math.abs(scaled) >= MAXIMUM_EXACT ||
+						java.lang.Double.doubleToLongBits(scaled / scale) != java.lang.Double.doubleToLongBits(value))
+				{
+					exact = false;
+					break;
+				}
+
+				if(scaled < min)
+					min = scaled;
+				if(scaled > max)
+					max = scaled;
+			}
+
+			if(!exact)
+				continue;
+
+			// All the values are missing
+			if(min > max)
+				min = max = 0.0;
+
+			// More decimals would only widen the range
+			double numberOfCodes = max - min + 1.0;
+			if(numberOfCodes > ShortColumn.MAXIMUM_CODES)
+				return null;
+
+			if(numberOfCodes <= ByteColumn.MAXIMUM_CODES)
+			{
+				byte[] codes = new byte[values.length];
+				for(int i = 0; i < values.length; i++)
+					codes[i] = (byte) code(values[i], scale, min, (int) numberOfCodes);
+				return new ByteColumn(codes, min, scale, (int) numberOfCodes);
+			}
+			else
+			{
+				short[] codes = new short[values.length];
+				for(int i = 0; i < values.length; i++)
+					codes[i] = (short) code(values[i], scale, min, (int) numberOfCodes);
+				return new ShortColumn(codes, min, scale, (int) numberOfCodes);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Code of a value
+	 *
+	 * @param value Value
+	 * @param scale Scale of the codes
+	 * @param base Value of code 0, multiplied by the scale
+	 * @param missingCode Code of missing values
+	 *
+	 * @return the value code
+	 */
+
+	private static int code(double value, double scale, double base, int missingCode)
+	{
+		if(value != value)
+			return missingCode;
+		return (int) (Math.rint(value * scale) - base);
+	}
+}
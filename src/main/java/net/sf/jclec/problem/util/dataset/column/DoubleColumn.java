@@ -0,0 +1,94 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+/**
+ * Column that keeps its values in a double array.
+ */
+
+public class DoubleColumn implements IColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -2755823457981937470L;
+	
+	/** Column values */
+	
+	protected final double[] values;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the column values. The array is not copied.
+	 * 
+	 * @param values Column values
+	 */
+	
+	public DoubleColumn(double[] values) 
+	{
+		super();
+		this.values = values;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the backing array of this column.
+	 * 
+	 * @return column values
+	 */
+	
+	public final double[] getArray()
+	{
+		return values;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public int size() 
+	{
+		return values.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public final double getValue(int row) 
+	{
+		return values[row];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public void getValues(int fromRow, double[] dest, int offset, int length) 
+	{
+		System.arraycopy(values, fromRow, dest, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public long memoryUsage()
+	{
+		return 8L * values.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	
+	public boolean isOffHeap()
+	{
+		return false;
+	}
+}
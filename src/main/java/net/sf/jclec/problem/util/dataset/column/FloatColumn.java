@@ -0,0 +1,88 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+/**
+ * Column that keeps its values in a float array.
+ *
+ * Values are widened back to double when they are read, so this column
+ * only returns the original values if all of them were representable as
+ * floats (see ColumnStorage).
+ */
+
+public class FloatColumn implements IColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = 6811390347262140235L;
+
+	/** Column values */
+
+	protected final float[] values;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the column values. The array is not copied.
+	 *
+	 * @param values Column values
+	 */
+
+	public FloatColumn(float[] values)
+	{
+		super();
+		this.values = values;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int size()
+	{
+		return values.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final double getValue(int row)
+	{
+		return values[row];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public void getValues(int fromRow, double[] dest, int offset, int length)
+	{
+		for(int i = 0; i < length; i++)
+			dest[offset + i] = values[fromRow + i];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public long memoryUsage()
+	{
+		return 4L * values.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean isOffHeap()
+	{
+		return false;
+	}
+}
@@ -0,0 +1,59 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+import java.io.Serializable;
+
+/**
+ * Interface for a dataset column.
+ * 
+ * A column keeps the internal values of one attribute for all the 
+ * instances of a dataset, stored contiguously.
+ */
+
+public interface IColumn extends Serializable
+{
+	/**
+	 * Get the number of values (rows) of this column.
+	 * 
+	 * @return number of rows
+	 */
+	
+	public int size();
+	
+	/**
+	 * Get the internal value stored in a row.
+	 * 
+	 * @param row row index
+	 * 
+	 * @return internal value of the attribute for this row
+	 */
+	
+	public double getValue(int row);
+	
+	/**
+	 * Copy a block of consecutive values into an array.
+	 * 
+	 * @param fromRow first row to read
+	 * @param dest destination array
+	 * @param offset first position of the destination array to write
+	 * @param length number of values to read
+	 */
+	
+	public void getValues(int fromRow, double[] dest, int offset, int length);
+	
+	/**
+	 * Get the number of bytes taken by the column data, not counting
+	 * object headers.
+	 * 
+	 * @return size of the column data in bytes
+	 */
+	
+	public long memoryUsage();
+	
+	/**
+	 * Check if the column data lives outside of the Java heap.
+	 * 
+	 * @return true if the data is kept in a direct or mapped buffer
+	 */
+	
+	public boolean isOffHeap();
+}
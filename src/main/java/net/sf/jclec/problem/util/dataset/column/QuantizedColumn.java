@@ -0,0 +1,113 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+/**
+ * Base class for columns that keep their values as small unsigned
+ * integer codes.
+ *
+ * A code c represents the value (base + c) / scale, where base is an
+ * integer and scale is a power of ten. Both operands are exact doubles,
+ * so the division is correctly rounded and returns exactly the double
+ * that parsing the decimal number gives. The values of all the codes are
+ * computed once and kept in a small table, and the code that follows the
+ * last value code is reserved for missing values (NaN).
+ */
+
+public abstract class QuantizedColumn implements IColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -1920473645410581302L;
+
+	/** Value of code 0, multiplied by the scale */
+
+	protected final double base;
+
+	/** Scale of the codes (a power of ten) */
+
+	protected final double scale;
+
+	/** Value of every code */
+
+	protected final double[] table;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the code transformation
+	 *
+	 * @param base Value of code 0, multiplied by the scale
+	 * @param scale Scale of the codes
+	 * @param numberOfCodes Number of value codes, not including the missing value code
+	 */
+
+	protected QuantizedColumn(double base, double scale, int numberOfCodes)
+	{
+		super();
+		this.base = base;
+		this.scale = scale;
+		this.table = new double[numberOfCodes + 1];
+		for(int code = 0; code < numberOfCodes; code++)
+			table[code] = (base + code) / scale;
+		table[numberOfCodes] = Double.NaN;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Access to the value of code 0, multiplied by the scale
+	 *
+	 * @return the base of the codes
+	 */
+
+	public final double getBase()
+	{
+		return base;
+	}
+
+	/**
+	 * Access to the scale of the codes
+	 *
+	 * @return the scale of the codes
+	 */
+
+	public final double getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * Get the code stored in a row
+	 *
+	 * @param row row index
+	 *
+	 * @return the code of this row
+	 */
+
+	public abstract int getCode(int row);
+
+	/**
+	 * Get the code that represents missing values
+	 *
+	 * @return the missing value code
+	 */
+
+	public final int missingCode()
+	{
+		return table.length - 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean isOffHeap()
+	{
+		return false;
+	}
+}
@@ -0,0 +1,91 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+/**
+ * Quantized column with 16-bit codes.
+ */
+
+public class ShortColumn extends QuantizedColumn
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -5406215794731680522L;
+
+	/** Maximum number of value codes */
+
+	public static final int MAXIMUM_CODES = 65535;
+
+	/** Column codes */
+
+	protected final short[] codes;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the column codes. The array is not copied.
+	 *
+	 * @param codes Column codes
+	 * @param base Value of code 0, multiplied by the scale
+	 * @param scale Scale of the codes
+	 * @param numberOfCodes Number of value codes, at most MAXIMUM_CODES
+	 */
+
+	public ShortColumn(short[] codes, double base, double scale, int numberOfCodes)
+	{
+		super(base, scale, numberOfCodes);
+		this.codes = codes;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public int size()
+	{
+		return codes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final double getValue(int row)
+	{
+		return table[codes[row] & 0xFFFF];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public void getValues(int fromRow, double[] dest, int offset, int length)
+	{
+		for(int i = 0; i < length; i++)
+			dest[offset + i] = table[codes[fromRow + i] & 0xFFFF];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public final int getCode(int row)
+	{
+		return codes[row] & 0xFFFF;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public long memoryUsage()
+	{
+		return 2L * codes.length + 8L * table.length;
+	}
+}
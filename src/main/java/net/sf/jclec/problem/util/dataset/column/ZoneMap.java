@@ -0,0 +1,276 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+import java.util.BitSet;
+
+/**
+ * Block statistics of a column, used to skip blocks during rule scans.
+ *
+ * The rows of the column are split into blocks of consecutive rows. For
+ * every block, the zone map keeps the minimum and maximum values and the
+ * number of missing values; for category code columns, it also keeps the
+ * set of categories present in the block. A condition on the column is
+ * then proved to cover all the rows of a block, or none of them, from
+ * these statistics alone, and only the remaining blocks are scanned.
+ * Blocks are skipped most often when the data is sorted or clustered by
+ * the attribute, as time-ordered logs are.
+ *
+ * Queries follow the same semantics as AttributeIndex: range queries use
+ * the primitive comparison operators and value queries follow
+ * Double.compareTo(). A zone map is never modified once built.
+ */
+
+public final class ZoneMap
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Default number of rows per block */
+
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	/** Maximum number of categories tracked by the presence bitmaps */
+
+	public static final int MAXIMUM_CATEGORIES = 4096;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Column */
+
+	private final IColumn column;
+
+	/** Number of rows per block */
+
+	private final int blockSize;
+
+	/** Minimum value of every block, in Double.compare() order */
+
+	private final double[] minimum;
+
+	/** Maximum value of every block, in Double.compare() order */
+
+	private final double[] maximum;
+
+	/** Number of missing values of every block */
+
+	private final int[] missing;
+
+	/** Categories present in every block (null if not tracked) */
+
+	private final long[] presence;
+
+	/** Number of presence words per block */
+
+	private final int words;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that computes the block statistics of a column
+	 *
+	 * @param column Column
+	 * @param blockSize Number of rows per block
+	 * @param numberOfCategories Number of categories if the column keeps
+	 *                           category codes, 0 otherwise
+	 */
+
+	public ZoneMap(IColumn column, int blockSize, int numberOfCategories)
+	{
+		super();
+
+		int size = column.size();
+		int numberOfBlocks = (size + blockSize - 1) / blockSize;
+		boolean categorical = numberOfCategories > 0 && numberOfCategories <= MAXIMUM_CATEGORIES;
+
+		this.column = column;
+		this.blockSize = blockSize;
+		this.minimum = new double[numberOfBlocks];
+		this.maximum = new double[numberOfBlocks];
+		this.missing = new int[numberOfBlocks];
+		this.words = categorical ? (numberOfCategories + 63) >>> 6 : 0;
+
+		long[] presence = categorical ? new long[numberOfBlocks * words] : null;
+		double[] buffer = new double[Math.min(blockSize, size)];
+
+		for(int b = 0; b < numberOfBlocks; b++)
+		{
+			int length = blockLength(b);
+			column.getValues(b * blockSize, buffer, 0, length);
+
+			double min = Double.NaN, max = Double.NaN;
+			for(int i = 0; i < length; i++)
+			{
+				double value = buffer[i];
+				if(value != value)
+				{
+					missing[b]++;
+					continue;
+				}
+				if(min != min || Double.compare(value, min) < 0)
+					min = value;
+				if(max != max || Double.compare(value, max) > 0)
+					max = value;
+
+				if(presence != null)
+				{
+					int code = (int) value;
+					if(code == value && code >= 0 && code < numberOfCategories)
+						presence[b * words + (code >>> 6)] |= 1L << code;
+					else
+						presence = null;
+				}
+			}
+			minimum[b] = min;
+			maximum[b] = max;
+		}
+
+		this.presence = presence;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of blocks
+	 *
+	 * @return number of blocks
+	 */
+
+	public int numberOfBlocks()
+	{
+		return missing.length;
+	}
+
+	/**
+	 * Select the rows whose value lies in a range, as AttributeIndex does
+	 *
+	 * @param low Lower bound
+	 * @param lowInclusive Lower bound is included
+	 * @param high Upper bound
+	 * @param highInclusive Upper bound is included
+	 *
+	 * @return the selected rows
+	 */
+
+	public BitSet range(double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		BitSet selected = new BitSet(column.size());
+		double[] buffer = null;
+
+		for(int b = 0; b < missing.length; b++)
+		{
+			int length = blockLength(b);
+
+			// No value, or all the values below or above the range
+			if(missing[b] == length ||
+					!(lowInclusive ? maximum[b] >= low : maximum[b] > low) ||
+					!(highInclusive ? minimum[b] <= high : minimum[b] < high))
+				continue;
+
+			int from = b * blockSize;
+
+			// All the values in the range
+			if(missing[b] == 0 &&
+					(lowInclusive ? minimum[b] >= low : minimum[b] > low) &&
+					(highInclusive ? maximum[b] <= high : maximum[b] < high))
+			{
+				selected.set(from, from + length);
+				continue;
+			}
+
+			if(buffer == null)
+				buffer = new double[blockSize];
+			column.getValues(from, buffer, 0, length);
+			for(int i = 0; i < length; i++)
+			{
+				double value = buffer[i];
+				if((lowInclusive ? value >= low : value > low) && (highInclusive ? value <= high : value < high))
+					selected.set(from + i);
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Select the rows whose value equals a given value, as
+	 * Double.compareTo() does
+	 *
+	 * @param value Value
+	 *
+	 * @return the selected rows
+	 */
+
+	public BitSet equal(double value)
+	{
+		BitSet selected = new BitSet(column.size());
+		double[] buffer = null;
+
+		int code = (int) value;
+		boolean tracked = presence != null && code == value && code >= 0 && code < words << 6;
+
+		for(int b = 0; b < missing.length; b++)
+		{
+			int length = blockLength(b);
+			int from = b * blockSize;
+
+			if(value != value)
+			{
+				// Only the missing values are selected
+				if(missing[b] == 0)
+					continue;
+				if(missing[b] == length)
+				{
+					selected.set(from, from + length);
+					continue;
+				}
+			}
+			else
+			{
+				// The value is out of the block bounds or absent
+				if(missing[b] == length ||
+						Double.compare(value, minimum[b]) < 0 || Double.compare(value, maximum[b]) > 0 ||
+						(tracked && (presence[b * words + (code >>> 6)] & (1L << code)) == 0))
+					continue;
+
+				// The block only has this value
+				if(missing[b] == 0 && Double.compare(minimum[b], maximum[b]) == 0)
+				{
+					selected.set(from, from + length);
+					continue;
+				}
+			}
+
+			if(buffer == null)
+				buffer = new double[blockSize];
+			column.getValues(from, buffer, 0, length);
+			for(int i = 0; i < length; i++)
+				if(Double.compare(buffer[i], value) == 0)
+					selected.set(from + i);
+		}
+
+		return selected;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of rows of a block
+	 *
+	 * @param block Block index
+	 *
+	 * @return number of rows, blockSize for all but the last block
+	 */
+
+	private int blockLength(int block)
+	{
+		return Math.min(blockSize, column.size() - block * blockSize);
+	}
+}
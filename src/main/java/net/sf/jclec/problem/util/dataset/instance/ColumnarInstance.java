@@ -0,0 +1,134 @@
+package net.sf.jclec.problem.util.dataset.instance;
+
+import net.sf.jclec.problem.util.dataset.ColumnarDataset;
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+
+/**
+ * View of one row of a columnar dataset.
+ *
+ * The view does not store any attribute value. It keeps a reference to
+ * the dataset and the row index, so reading a value accesses the
+ * corresponding column directly, and setting the values or the weight
+ * writes them into the dataset (see ColumnarDataset.setValues()).
+ */
+
+public class ColumnarInstance implements IInstance
+{
+	/////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -4506235016472394286L;
+
+	/** Dataset of this row */
+
+	protected final ColumnarDataset dataset;
+
+	/** Row of this instance */
+
+	protected final int row;
+
+	/////////////////////////////////////////////////////////////
+	// --------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataset Dataset of this row
+	 * @param row Row of this instance
+	 */
+
+	public ColumnarInstance(ColumnarDataset dataset, int row)
+	{
+		super();
+
+		this.dataset = dataset;
+		this.row = row;
+	}
+
+	/////////////////////////////////////////////////////////////
+	// ------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the row of this instance in its dataset
+	 *
+	 * @return row index
+	 */
+
+	public final int getRow()
+	{
+		return row;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public double getWeight()
+	{
+		double[] weights = dataset.getWeights();
+		return weights == null ? 1.0 : weights[row];
+	}
+
+	/**
+	 * Sets the weight of this row in the dataset.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	public void setWeight(double weight)
+	{
+		dataset.setWeight(row, weight);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public double getValue(int attributeIndex)
+	{
+		return dataset.getColumn(attributeIndex).getValue(row);
+	}
+
+	/**
+	 * Builds a new array with the values of this instance.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	public double[] getValues()
+	{
+		IColumn[] columns = dataset.getColumns();
+		double[] values = new double[columns.length];
+		for(int i=0; i<columns.length; i++)
+			values[i] = columns[i].getValue(row);
+		return values;
+	}
+
+	/**
+	 * Sets the values of this row in the dataset.
+	 *
+	 * {@inheritDoc}
+	 */
+
+	public void setValues(double[] values)
+	{
+		dataset.setValues(row, values);
+	}
+
+	/**
+	 * Copy method. The copy is a row-based instance.
+	 *
+	 * @return A copy of this instance
+	 */
+
+	public IInstance copy()
+	{
+		Instance result = new Instance(dataset.getColumns().length);
+		result.setValues(getValues());
+		result.setWeight(getWeight());
+		return result;
+	}
+}
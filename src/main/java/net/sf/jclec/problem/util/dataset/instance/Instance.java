@@ -32,7 +32,7 @@ public class Instance implements IInstance
 	/////////////////////////////////////////////////////////////
 
 	/**
-	 * Default constructor
+	 * Default constructor. The instance weighs 1.
 	 * 
 	 * @param numberAttributes Number of attributes
 	 */
@@ -42,6 +42,7 @@ public class Instance implements IInstance
 		super();
 
 		this.values = new double[numberAttributes];
+		this.weight = 1.0;
 	}
 
 	/////////////////////////////////////////////////////////////
@@ -117,6 +118,7 @@ public class Instance implements IInstance
 		// Copy content
 		for(int i=0; i<values.length; i++)
 			result.setValue(i,values[i]);
+		result.setWeight(weight);
 		// Return resulting copy
 		return result;
 	}
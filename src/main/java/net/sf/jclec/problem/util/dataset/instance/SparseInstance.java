@@ -0,0 +1,243 @@
+package net.sf.jclec.problem.util.dataset.instance;
+
+import java.util.Arrays;
+
+/**
+ * Sparse implementation of the IInstance interface.
+ *
+ * Only the values that are explicitly defined are stored, as a pair of
+ * arrays with the attribute indexes (in ascending order) and their values.
+ * Any other attribute is 0. getValue() finds a value with a binary search,
+ * so rules are evaluated without expanding the instance; only getValues()
+ * builds the dense array of values.
+ */
+
+public class SparseInstance implements IInstance
+{
+	/////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -6390471738210564932L;
+
+	/** Number of attributes */
+
+	protected int numberOfAttributes;
+
+	/** Indexes of the stored values, in ascending order */
+
+	protected int[] indexes;
+
+	/** Stored values */
+
+	protected double[] values;
+
+	/** weight of this instance */
+
+	protected double weight;
+
+	/////////////////////////////////////////////////////////////
+	// --------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sets the stored values. The arrays are not copied.
+	 * The instance weighs 1.
+	 *
+	 * @param numberOfAttributes Number of attributes
+	 * @param indexes Indexes of the stored values, in ascending order
+	 * @param values Stored values
+	 */
+
+	public SparseInstance(int numberOfAttributes, int[] indexes, double[] values)
+	{
+		super();
+		this.numberOfAttributes = numberOfAttributes;
+		this.indexes = indexes;
+		this.values = values;
+		this.weight = 1.0;
+	}
+
+	/**
+	 * Constructor that builds an instance with all its values set to 0.
+	 *
+	 * @param numberOfAttributes Number of attributes
+	 */
+
+	public SparseInstance(int numberOfAttributes)
+	{
+		this(numberOfAttributes, new int[0], new double[0]);
+	}
+
+	/////////////////////////////////////////////////////////////
+	// ------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////
+
+	/**
+	 * Set the value of the index-th element of this instance.
+	 *
+	 * @param index Index of the element to change
+	 * @param value Internal value for this element
+	 */
+
+	public final void setValue(int index, double value)
+	{
+		int position = Arrays.binarySearch(indexes, index);
+
+		if(position >= 0)
+			values[position] = value;
+		else
+		{
+			position = -position - 1;
+
+			int[] newIndexes = new int[indexes.length + 1];
+			double[] newValues = new double[values.length + 1];
+
+			System.arraycopy(indexes, 0, newIndexes, 0, position);
+			System.arraycopy(values, 0, newValues, 0, position);
+			newIndexes[position] = index;
+			newValues[position] = value;
+			System.arraycopy(indexes, position, newIndexes, position + 1, indexes.length - position);
+			System.arraycopy(values, position, newValues, position + 1, values.length - position);
+
+			indexes = newIndexes;
+			values = newValues;
+		}
+	}
+
+	/**
+	 * Sets the weigth for this instance
+	 *
+	 * @param weight New weigth value
+	 */
+
+	public final void setWeight(double weight)
+	{
+		this.weight = weight;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public double getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public double getValue(int attributeIndex)
+	{
+		int position = Arrays.binarySearch(indexes, attributeIndex);
+
+		return position >= 0 ? values[position] : 0.0;
+	}
+
+	/**
+	 * Get the number of attributes
+	 *
+	 * @return number of attributes
+	 */
+
+	public int numberOfAttributes()
+	{
+		return numberOfAttributes;
+	}
+
+	/**
+	 * Get the number of stored values
+	 *
+	 * @return number of stored values
+	 */
+
+	public int numberOfValues()
+	{
+		return indexes.length;
+	}
+
+	/**
+	 * Get the attribute index of a stored value
+	 *
+	 * @param position Position of the stored value
+	 *
+	 * @return attribute index
+	 */
+
+	public final int getIndex(int position)
+	{
+		return indexes[position];
+	}
+
+	/**
+	 * Get a stored value
+	 *
+	 * @param position Position of the stored value
+	 *
+	 * @return value
+	 */
+
+	public final double getValueAt(int position)
+	{
+		return values[position];
+	}
+
+	/**
+	 * Build the dense array of values of this instance.
+	 *
+	 * @return a new array with all the values
+	 */
+
+	public double[] getValues()
+	{
+		double[] result = new double[numberOfAttributes];
+
+		for(int i = 0; i < indexes.length; i++)
+			result[indexes[i]] = values[i];
+
+		return result;
+	}
+
+	/**
+	 * Set all the values of this instance. Only the values different
+	 * from 0 are stored; -0 is stored, as Equal tells it from 0.
+	 *
+	 * @param values array of the vector
+	 */
+
+	public void setValues(double[] values)
+	{
+		int size = 0;
+		for(double value : values)
+			if(Double.doubleToRawLongBits(value) != 0L)
+				size++;
+
+		this.numberOfAttributes = values.length;
+		this.indexes = new int[size];
+		this.values = new double[size];
+
+		size = 0;
+		for(int i = 0; i < values.length; i++)
+			if(Double.doubleToRawLongBits(values[i]) != 0L)
+			{
+				this.indexes[size] = i;
+				this.values[size] = values[i];
+				size++;
+			}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public SparseInstance copy()
+	{
+		SparseInstance result = new SparseInstance(numberOfAttributes, indexes.clone(), values.clone());
+
+		result.setWeight(weight);
+
+		return result;
+	}
+}
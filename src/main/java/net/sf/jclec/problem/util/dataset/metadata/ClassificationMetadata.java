@@ -154,7 +154,8 @@ public class ClassificationMetadata implements IMetadata
 	}
 	
 	/**
-	 * Copy method
+	 * Copy method. The copy shares the attributes, but attributes added
+	 * to it are not added to this metadata.
 	 * 
 	 * @return A copy of this metadata
 	 */
@@ -164,8 +165,8 @@ public class ClassificationMetadata implements IMetadata
 		ClassificationMetadata metadata = new ClassificationMetadata();
 		
 		metadata.classIndex = this.classIndex;
-		metadata.attributesList = this.attributesList;
-		metadata.attributesMap = this.attributesMap;
+		metadata.attributesList = new ArrayList<IAttribute>(this.attributesList);
+		metadata.attributesMap = new HashMap<String, IAttribute>(this.attributesMap);
 		
 		return metadata;
 	}
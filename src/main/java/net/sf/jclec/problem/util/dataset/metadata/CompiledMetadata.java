@@ -0,0 +1,337 @@
+package net.sf.jclec.problem.util.dataset.metadata;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+
+/**
+ * Frozen snapshot of the metadata of a dataset, compiled into primitive
+ * tables for the code that queries the metadata once per instance or per
+ * evaluation.
+ *
+ * The snapshot keeps the number of classes, the type, name and bounds of
+ * every attribute, the indexes of the input attributes of every type and
+ * a map from attribute names to indexes, so every query is an array or
+ * hash lookup without casts. It is never modified: datasets compile a new
+ * snapshot when their metadata or its class index change (see
+ * IDataset.getCompiledMetadata()).
+ *
+ * The attributes themselves are shared with the compiled metadata.
+ */
+
+public final class CompiledMetadata implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	private static final long serialVersionUID = -4620714389067652174L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------- Internal variables
+	/////////////////////////////////////////////////////////////////
+
+	/** Compiled metadata */
+
+	private final IMetadata source;
+
+	/** Attributes */
+
+	private final IAttribute[] attributes;
+
+	/** Attribute names */
+
+	private final String[] names;
+
+	/** Attribute types */
+
+	private final AttributeType[] types;
+
+	/** Index of every attribute name */
+
+	private final HashMap<String, Integer> indexes;
+
+	/** Index of the class attribute */
+
+	private final int classIndex;
+
+	/** Number of classes */
+
+	private final int numberOfClasses;
+
+	/** Indexes of the input attributes */
+
+	private final int[] inputAttributes;
+
+	/** Indexes of the input attributes of every type, by type ordinal */
+
+	private final int[][] inputAttributesByType;
+
+	/** Lower bound of every attribute */
+
+	private final double[] lowerBounds;
+
+	/** Upper bound of every attribute */
+
+	private final double[] upperBounds;
+
+	/** Number of categories of every attribute, 0 if not categorical */
+
+	private final int[] numberOfCategories;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that compiles a metadata
+	 *
+	 * @param metadata Metadata. Its attributes must not change while the
+	 *                 snapshot is used.
+	 */
+
+	public CompiledMetadata(IMetadata metadata)
+	{
+		super();
+
+		int numberOfAttributes = metadata.numberOfAttributes();
+
+		this.source = metadata;
+		this.classIndex = metadata.getClassIndex();
+		this.attributes = new IAttribute[numberOfAttributes];
+		this.names = new String[numberOfAttributes];
+		this.types = new AttributeType[numberOfAttributes];
+		this.indexes = new HashMap<String, Integer>(2 * numberOfAttributes);
+		this.lowerBounds = new double[numberOfAttributes];
+		this.upperBounds = new double[numberOfAttributes];
+		this.numberOfCategories = new int[numberOfAttributes];
+
+		AttributeType[] allTypes = AttributeType.values();
+		int[] typeCounts = new int[allTypes.length];
+
+		for(int i = 0; i < numberOfAttributes; i++)
+		{
+			IAttribute attribute = metadata.getAttribute(i);
+			attributes[i] = attribute;
+			names[i] = attribute.getName();
+			types[i] = attribute.getType();
+			indexes.put(names[i], i);
+
+			switch(types[i])
+			{
+				case Numerical:
+					net.sf.jclec.util.range.Interval interval = ((NumericalAttribute) attribute).intervalValues();
+					lowerBounds[i] = interval.getLeft();
+					upperBounds[i] = interval.getRight();
+					break;
+				case Integer:
+					net.sf.jclec.util.intset.Interval integers = ((IntegerAttribute) attribute).intervalValues();
+					lowerBounds[i] = integers.getLeft();
+					upperBounds[i] = integers.getRight();
+					break;
+				case Categorical:
+					numberOfCategories[i] = ((CategoricalAttribute) attribute).getCategories().size();
+					lowerBounds[i] = 0;
+					upperBounds[i] = numberOfCategories[i] - 1;
+					break;
+			}
+
+			if(i != classIndex)
+				typeCounts[types[i].ordinal()]++;
+		}
+
+		this.numberOfClasses = classIndex >= 0 && classIndex < numberOfAttributes ? numberOfCategories[classIndex] : 0;
+
+		// Input attribute tables
+		this.inputAttributes = new int[classIndex >= 0 && classIndex < numberOfAttributes ? numberOfAttributes - 1 : numberOfAttributes];
+		this.inputAttributesByType = new int[allTypes.length][];
+		for(int t = 0; t < allTypes.length; t++)
+			inputAttributesByType[t] = new int[typeCounts[t]];
+
+		int[] filled = new int[allTypes.length];
+		for(int i = 0, input = 0; i < numberOfAttributes; i++)
+			if(i != classIndex)
+			{
+				inputAttributes[input++] = i;
+				int t = types[i].ordinal();
+				inputAttributesByType[t][filled[t]++] = i;
+			}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check if this snapshot is up to date with a metadata
+	 *
+	 * @param metadata Metadata
+	 *
+	 * @return true if this snapshot was compiled from this metadata, with
+	 *         its current attributes and class index
+	 */
+
+	public boolean isCompiledFrom(IMetadata metadata)
+	{
+		return metadata == source && metadata.getClassIndex() == classIndex &&
+				metadata.numberOfAttributes() == attributes.length;
+	}
+
+	/**
+	 * Get the number of attributes
+	 *
+	 * @return number of attributes
+	 */
+
+	public int numberOfAttributes()
+	{
+		return attributes.length;
+	}
+
+	/**
+	 * Get the number of classes
+	 *
+	 * @return number of categories of the class attribute, 0 if it is not
+	 *         categorical
+	 */
+
+	public int numberOfClasses()
+	{
+		return numberOfClasses;
+	}
+
+	/**
+	 * Get the index of the class attribute
+	 *
+	 * @return index of the class attribute
+	 */
+
+	public int getClassIndex()
+	{
+		return classIndex;
+	}
+
+	/**
+	 * Get an attribute
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the attribute
+	 */
+
+	public IAttribute getAttribute(int attributeIndex)
+	{
+		return attributes[attributeIndex];
+	}
+
+	/**
+	 * Get the name of an attribute
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the attribute name
+	 */
+
+	public String getName(int attributeIndex)
+	{
+		return names[attributeIndex];
+	}
+
+	/**
+	 * Get the type of an attribute
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the attribute type
+	 */
+
+	public AttributeType getType(int attributeIndex)
+	{
+		return types[attributeIndex];
+	}
+
+	/**
+	 * Get the index of an attribute
+	 *
+	 * @param attributeName Attribute name
+	 *
+	 * @return the attribute index, -1 if there is no attribute with this name
+	 */
+
+	public int getIndex(String attributeName)
+	{
+		Integer index = indexes.get(attributeName);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Get the indexes of the input attributes (all but the class)
+	 *
+	 * @return the indexes, in ascending order. The array must not be modified.
+	 */
+
+	public int[] getInputAttributes()
+	{
+		return inputAttributes;
+	}
+
+	/**
+	 * Get the indexes of the input attributes of a type
+	 *
+	 * @param type Attribute type
+	 *
+	 * @return the indexes, in ascending order. The array must not be modified.
+	 */
+
+	public int[] getInputAttributes(AttributeType type)
+	{
+		return inputAttributesByType[type.ordinal()];
+	}
+
+	/**
+	 * Get the lower bound of an attribute: the left end of the interval of
+	 * numerical and integer attributes, 0 for categorical attributes
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the lower bound
+	 */
+
+	public double getLowerBound(int attributeIndex)
+	{
+		return lowerBounds[attributeIndex];
+	}
+
+	/**
+	 * Get the upper bound of an attribute: the right end of the interval
+	 * of numerical and integer attributes, the last category code for
+	 * categorical attributes
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return the upper bound
+	 */
+
+	public double getUpperBound(int attributeIndex)
+	{
+		return upperBounds[attributeIndex];
+	}
+
+	/**
+	 * Get the number of categories of an attribute
+	 *
+	 * @param attributeIndex Attribute index
+	 *
+	 * @return number of categories, 0 if the attribute is not categorical
+	 */
+
+	public int numberOfCategories(int attributeIndex)
+	{
+		return numberOfCategories[attributeIndex];
+	}
+}
@@ -0,0 +1,352 @@
+package net.sf.jclec.problem.classification.algorithm.tan;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.crisprule.CrispRule;
+import net.sf.jclec.problem.classification.syntaxtree.SyntaxTreeRuleIndividual;
+import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.KeelDataSet;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Equivalence of the fitness of the rules on a dataset with duplicate
+ * rows, loaded with and without collapsing them into weighted instances,
+ * and on a dataset with missing classes, against a scan of its rows.
+ */
+
+public class TanEvaluatorTest extends TestCase
+{
+	/** Iris training set */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of attributes of iris, besides the class */
+
+	private static final int NUMBER_OF_INPUTS = 4;
+
+	/** Number of rules */
+
+	private static final int NUMBER_OF_RULES = 500;
+
+	/** Dataset with repeated rows */
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		file = File.createTempFile("iris-duplicates", ".dat");
+		writeDuplicates(IRIS, file, new Random(1));
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		file.delete();
+	}
+
+	public void testDefaultFitness() throws IOException
+	{
+		checkFitness("DEFAULT", 2);
+	}
+
+	public void testOMAEFitness() throws IOException
+	{
+		checkFitness("OMAE", 3);
+	}
+
+	public void testMissingClasses() throws IOException
+	{
+		File unlabeled = File.createTempFile("iris-unlabeled", ".dat");
+		try {
+			writeMissingClasses(IRIS, unlabeled, 5);
+
+			KeelDataSet dataset = load(unlabeled, false, false);
+			assertTrue(dataset.getClassPartition().getUnlabeledWeight() > 0);
+
+			// Rows visited by class, covered rows from the index, and streamed rows
+			IDataset[] datasets = {dataset, load(unlabeled, false, true), load(unlabeled, true, false)};
+			Random random = new Random(4);
+			ArrayList<IInstance> instances = dataset.getInstances();
+			int numberOfClasses = dataset.getMetadata().numberOfClasses();
+
+			for(int i = 0; i < NUMBER_OF_RULES; i++)
+			{
+				ExprTree code = antecedent(random, instances);
+				int classifiedClass = random.nextInt(numberOfClasses);
+				double[] expected = scan(instances, new CrispRule(code), classifiedClass, numberOfClasses);
+
+				for(IDataset d : datasets)
+				{
+					assertEquals(code.toString(), expected[0], evaluate(evaluator(d, "DEFAULT"), code, classifiedClass), 1e-12);
+					assertEquals(code.toString(), expected[1], evaluate(evaluator(d, "OMAE"), code, classifiedClass), 1e-12);
+				}
+			}
+		}
+		finally {
+			unlabeled.delete();
+		}
+	}
+
+	/**
+	 * Check that every rule gets the same fitness on both datasets
+	 *
+	 * @param fitness Fitness function
+	 * @param seed Random seed of the rules
+	 */
+
+	private void checkFitness(String fitness, long seed) throws IOException
+	{
+		IDataset expanded = load(false);
+		IDataset collapsed = load(true);
+
+		assertTrue(collapsed.numberOfInstances() < expanded.numberOfInstances());
+		assertEquals(totalWeight(expanded), totalWeight(collapsed), 0.0);
+
+		TanEvaluator expandedEvaluator = evaluator(expanded, fitness);
+		TanEvaluator collapsedEvaluator = evaluator(collapsed, fitness);
+
+		Random random = new Random(seed);
+		ArrayList<IInstance> instances = expanded.getInstances();
+		int numberOfClasses = expanded.getMetadata().numberOfClasses();
+
+		for(int i = 0; i < NUMBER_OF_RULES; i++)
+		{
+			ExprTree code = antecedent(random, instances);
+			int classifiedClass = random.nextInt(numberOfClasses);
+
+			double expected = evaluate(expandedEvaluator, code, classifiedClass);
+			double actual = evaluate(collapsedEvaluator, code, classifiedClass);
+
+			assertEquals(code.toString(), expected, actual, 1e-12);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private IDataset load(boolean collapseDuplicates) throws IOException
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(file.getPath());
+		dataset.setCollapseDuplicates(collapseDuplicates);
+		dataset.loadInstances();
+		// The class is the last attribute, as the algorithms set it by default
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+		return dataset;
+	}
+
+	private static KeelDataSet load(File file, boolean streaming, boolean indexed) throws IOException
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(file.getPath());
+		dataset.setStreaming(streaming);
+		dataset.setIndexed(indexed);
+		dataset.load();
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+		return dataset;
+	}
+
+	/**
+	 * Fitness of a rule from the confusion matrix of a scan of the rows.
+	 * Rows without a class are negatives, and have no class distance.
+	 *
+	 * @return the DEFAULT and OMAE fitness
+	 */
+
+	private static double[] scan(ArrayList<IInstance> instances, CrispRule rule, int classifiedClass, int numberOfClasses)
+	{
+		double tp = 0, fp = 0, tn = 0, fn = 0, OMAE = 0, totalWeight = 0;
+		int classIndex = NUMBER_OF_INPUTS;
+
+		for(IInstance instance : instances)
+		{
+			double value = instance.getValue(classIndex);
+			double weight = instance.getWeight();
+			boolean labeled = value >= 0 && value < numberOfClasses;
+			totalWeight += weight;
+
+			if((Boolean) rule.covers(instance))
+			{
+				if(value == classifiedClass)
+					tp += weight;
+				else
+					fp += weight;
+				if(labeled)
+					OMAE += weight * Math.abs(classifiedClass - value);
+			}
+			else if(value == classifiedClass)
+			{
+				fn += weight;
+				OMAE += weight * numberOfClasses;
+			}
+			else
+				tn += weight;
+		}
+
+		double se = tp + fn == 0 ? 1 : tp / (tp + 0.7 * fn);
+		double sp = tn + fp == 0 ? 1 : tn / (tn + 0.8 * fp);
+		return new double[] {se * sp, OMAE / totalWeight};
+	}
+
+	private static double totalWeight(IDataset dataset)
+	{
+		double totalWeight = 0;
+		for(IInstance instance : dataset.getInstances())
+			totalWeight += instance.getWeight();
+		return totalWeight;
+	}
+
+	private static TanEvaluator evaluator(IDataset dataset, String fitness)
+	{
+		TanEvaluator evaluator = new TanEvaluator();
+		evaluator.setDataset(dataset);
+		evaluator.setFitness(fitness);
+		evaluator.setW1(0.7);
+		evaluator.setW2(0.8);
+		return evaluator;
+	}
+
+	private static double evaluate(TanEvaluator evaluator, ExprTree code, int classifiedClass)
+	{
+		CrispRule rule = new CrispRule(code);
+		rule.setConsequent(classifiedClass);
+
+		SyntaxTreeRuleIndividual individual = new SyntaxTreeRuleIndividual(null, rule);
+		evaluator.setClassifiedClass(classifiedClass);
+		evaluator.evaluate(individual);
+
+		return ((SimpleValueFitness) individual.getFitness()).getValue();
+	}
+
+	/**
+	 * A conjunction of conditions on the inputs, with constants taken
+	 * from the instances so that some rows are on the limits
+	 */
+
+	private static ExprTree antecedent(Random random, ArrayList<IInstance> instances)
+	{
+		ExprTree code = new ExprTree();
+		int conditions = 1 + random.nextInt(3);
+
+		for(int i = 1; i < conditions; i++)
+			code.addBlock(new And());
+
+		for(int i = 0; i < conditions; i++)
+		{
+			int attribute = random.nextInt(NUMBER_OF_INPUTS);
+			switch(random.nextInt(3))
+			{
+				case 0:
+					addCondition(code, new Less(), attribute, random, instances, 1);
+					break;
+				case 1:
+					addCondition(code, new GreaterOrEqual(), attribute, random, instances, 1);
+					break;
+				default:
+					addCondition(code, new In(), attribute, random, instances, 2);
+			}
+		}
+
+		return code;
+	}
+
+	private static void addCondition(ExprTree code, IPrimitive comparison, int attribute, Random random, ArrayList<IInstance> instances, int constants)
+	{
+		code.addBlock(comparison);
+
+		AttributeValue value = new AttributeValue();
+		value.setAttributeIndex(attribute);
+		code.addBlock(value);
+
+		for(int i = 0; i < constants; i++)
+		{
+			ConstantValue constant = new ConstantValue(null, Double.class);
+			constant.setValue(instances.get(random.nextInt(instances.size())).getValue(attribute));
+			code.addBlock(constant);
+		}
+	}
+
+	/**
+	 * Copy a Keel dataset, writing a missing class in one of every few rows
+	 */
+
+	private static void writeMissingClasses(String source, File target, int period) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(source));
+		Writer writer = new FileWriter(target);
+
+		try {
+			String line;
+			boolean data = false;
+			for(int i = 0; (line = reader.readLine()) != null; )
+			{
+				if(data && !line.trim().isEmpty() && i++ % period == 0)
+					line = line.substring(0, line.lastIndexOf(',') + 1) + " ?";
+				writer.write(line + "\n");
+				data |= line.trim().equalsIgnoreCase("@data");
+			}
+		}
+		finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	/**
+	 * Copy a Keel dataset repeating every row from one to three times,
+	 * in a random order
+	 */
+
+	private static void writeDuplicates(String source, File target, Random random) throws IOException
+	{
+		ArrayList<String> rows = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(source));
+		Writer writer = new FileWriter(target);
+
+		try {
+			String line;
+			boolean data = false;
+			while((line = reader.readLine()) != null)
+			{
+				if(data)
+				{
+					for(int i = random.nextInt(3); i >= 0; i--)
+						rows.add(line);
+				}
+				else
+				{
+					writer.write(line + "\n");
+					data = line.trim().equalsIgnoreCase("@data");
+				}
+			}
+
+			Collections.shuffle(rows, random);
+			for(String row : rows)
+				writer.write(row + "\n");
+		}
+		finally {
+			reader.close();
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package net.sf.jclec.problem.classification.base;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.KeelDataSet;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+import org.apache.commons.configuration.XMLConfiguration;
+
+/**
+ * Dataset settings of the classification algorithms: the training set is
+ * loaded while the algorithm is configured, the test and validation sets
+ * on the background thread, and only if they are configured.
+ */
+
+public class ClassificationAlgorithmTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String TRAIN = "data/iris/iris-10-1tra.dat";
+
+	/** Iris test set in Keel format */
+
+	private static final String TEST = "data/iris/iris-10-1tst.dat";
+
+	/** Thread that loaded every file */
+
+	private static final Map<String, Thread> loaders = Collections.synchronizedMap(new HashMap<String, Thread>());
+
+	@Override
+	protected void setUp()
+	{
+		loaders.clear();
+	}
+
+	public void testLoadedInBackground() throws ConfigurationException
+	{
+		Algorithm algorithm = new Algorithm();
+		algorithm.setDatasetSettings(settings("<train-data>" + TRAIN + "</train-data><test-data>" + TEST + "</test-data>" +
+				"<validation-data>" + TRAIN + "</validation-data>"));
+
+		// The training set is loaded by the caller
+		IDataset train = algorithm.getTrainSet();
+		assertEquals(135, train.numberOfInstances());
+		assertEquals(train.getMetadata().numberOfAttributes() - 1, train.getMetadata().getClassIndex());
+
+		IDataset test = algorithm.getTestSet();
+		assertSame(test, algorithm.getTestSet());
+		assertEquals(15, test.numberOfInstances());
+		assertEquals(test.getMetadata().getIndex("Class"), test.getMetadata().getClassIndex());
+		assertNotSame(Thread.currentThread(), loaders.get(TEST));
+
+		IDataset validation = algorithm.getValidationSet();
+		assertNotSame(train, validation);
+		assertEquals(135, validation.numberOfInstances());
+
+		// Datasets set later replace the pending ones
+		algorithm.setDatasetSettings(settings("<train-data>" + TRAIN + "</train-data><test-data>" + TEST + "</test-data>"));
+		algorithm.setTestSet(train);
+		assertSame(train, algorithm.getTestSet());
+	}
+
+	public void testNotConfigured() throws ConfigurationException
+	{
+		Algorithm algorithm = new Algorithm();
+		algorithm.setDatasetSettings(settings("<train-data>" + TRAIN + "</train-data>"));
+
+		assertNotNull(algorithm.getTrainSet());
+		assertNull(algorithm.getTestSet());
+		assertNull(algorithm.getValidationSet());
+		assertEquals(Collections.singleton(TRAIN), loaders.keySet());
+	}
+
+	public void testLoadError() throws ConfigurationException
+	{
+		Algorithm algorithm = new Algorithm();
+		algorithm.setDatasetSettings(settings("<train-data>" + TRAIN + "</train-data><test-data>data/none.dat</test-data>"));
+
+		// The error is thrown to the first caller that needs the dataset
+		assertNotNull(algorithm.getTrainSet());
+		try {
+			algorithm.getTestSet();
+			fail("The test set cannot be loaded");
+		}
+		catch(ConfigurationRuntimeException e) {
+			// Expected
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Settings of the algorithm, with a dataset of type RecordingDataSet
+	 */
+
+	private static XMLConfiguration settings(String files) throws ConfigurationException
+	{
+		XMLConfiguration settings = new XMLConfiguration();
+		settings.load(new StringReader("<process><dataset type=\"" + RecordingDataSet.class.getName() + "\">" + files +
+				"<attribute-class-name>Class</attribute-class-name></dataset></process>"));
+		return settings;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Keel dataset that records the thread that loads it
+	 */
+
+	public static class RecordingDataSet extends KeelDataSet
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void loadInstances()
+		{
+			loaders.put(getFileName(), Thread.currentThread());
+			super.loadInstances();
+		}
+	}
+
+	/**
+	 * Algorithm that only reads its dataset settings
+	 */
+
+	private static class Algorithm extends ClassificationAlgorithm
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void doSelection() {}
+
+		@Override
+		protected void doGeneration() {}
+
+		@Override
+		protected void doReplacement() {}
+
+		@Override
+		protected void doUpdate() {}
+	}
+}
@@ -0,0 +1,279 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.Comparison;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.Greater;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.blocks.Not;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.blocks.Or;
+import net.sf.jclec.problem.classification.blocks.Out;
+import net.sf.jclec.problem.classification.crisprule.CrispRule;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+
+/**
+ * Random crisp antecedents and instances for the equivalence tests of
+ * the coverage package.
+ *
+ * Values are drawn from a small set that includes missing values (NaN),
+ * both zeros and both infinities, so that every comparison finds ties
+ * and missing operands.
+ */
+
+final class AntecedentGenerator
+{
+	/** Values of the constants and the attributes */
+
+	private static final double [] VALUES = {Double.NaN, 0.0, -0.0, 1, 2, 3, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+	/** Depth from which only conditions are generated */
+
+	private static final int MAX_DEPTH = 4;
+
+	/** Random generator */
+
+	private final Random random;
+
+	/** Number of attributes */
+
+	private final int numberOfAttributes;
+
+	/** Semantics of missing values of the conditions, null for random semantics */
+
+	private MissingValues missingValues;
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed Random seed
+	 * @param numberOfAttributes Number of attributes
+	 */
+
+	AntecedentGenerator(long seed, int numberOfAttributes)
+	{
+		this.random = new Random(seed);
+		this.numberOfAttributes = numberOfAttributes;
+	}
+
+	/**
+	 * Set the semantics of missing values of the generated conditions
+	 *
+	 * @param missingValues Semantics, null to draw them for every condition
+	 */
+
+	void setMissingValues(MissingValues missingValues)
+	{
+		this.missingValues = missingValues;
+	}
+
+	/**
+	 * Generate an antecedent
+	 *
+	 * @return a random antecedent
+	 */
+
+	ExprTree antecedent()
+	{
+		ExprTree code = new ExprTree();
+		addCondition(code, 0);
+		return code;
+	}
+
+	/**
+	 * Generate an instance
+	 *
+	 * @return a random instance
+	 */
+
+	IInstance instance()
+	{
+		Instance instance = new Instance(numberOfAttributes);
+		for(int j = 0; j < numberOfAttributes; j++)
+			instance.setValue(j, value());
+		return instance;
+	}
+
+	/**
+	 * Generate a list of instances
+	 *
+	 * @param size Number of instances
+	 *
+	 * @return random instances
+	 */
+
+	ArrayList<IInstance> instances(int size)
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(size);
+		for(int i = 0; i < size; i++)
+			instances.add(instance());
+		return instances;
+	}
+
+	/**
+	 * Copy an antecedent, swapping the arguments of some And and Or blocks
+	 *
+	 * @param code Antecedent
+	 *
+	 * @return an equivalent antecedent
+	 */
+
+	ExprTree shuffle(ExprTree code)
+	{
+		ExprTree shuffled = new ExprTree();
+		shuffle(code, 0, shuffled);
+		return shuffled;
+	}
+
+	/**
+	 * Rule that evaluates an antecedent by interpreting its blocks, as
+	 * the rules did before antecedents were compiled
+	 *
+	 * @param code Antecedent
+	 *
+	 * @return the rule
+	 */
+
+	static CrispRule interpreter(ExprTree code)
+	{
+		return new CrispRule(code) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object covers(IInstance instance)
+			{
+				setActualInstance(instance);
+				return execute(this);
+			}
+		};
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private double value()
+	{
+		return VALUES[random.nextInt(VALUES.length)];
+	}
+
+	private void addCondition(ExprTree code, int depth)
+	{
+		switch(depth < MAX_DEPTH ? random.nextInt(5) : 3 + random.nextInt(2))
+		{
+			case 0:
+				code.addBlock(new And());
+				addCondition(code, depth + 1);
+				addCondition(code, depth + 1);
+				break;
+			case 1:
+				code.addBlock(new Or());
+				addCondition(code, depth + 1);
+				addCondition(code, depth + 1);
+				break;
+			case 2:
+				code.addBlock(new Not());
+				addCondition(code, depth + 1);
+				break;
+			case 3:
+				Comparison [] comparisons = {new Less(), new LessOrEqual(), new Greater(), new GreaterOrEqual(), new Equal(), new NotEqual()};
+				code.addBlock(comparison(comparisons[random.nextInt(comparisons.length)]));
+				// Constants are also compared from the left
+				if(random.nextBoolean())
+				{
+					code.addBlock(attribute());
+					code.addBlock(constant());
+				}
+				else
+				{
+					code.addBlock(constant());
+					code.addBlock(attribute());
+				}
+				break;
+			default:
+				code.addBlock(comparison(random.nextBoolean() ? new In() : new Out()));
+				code.addBlock(attribute());
+				code.addBlock(constant());
+				code.addBlock(constant());
+		}
+	}
+
+	private Comparison comparison(Comparison comparison)
+	{
+		MissingValues semantics = missingValues;
+		if(semantics == null)
+			semantics = MissingValues.values()[random.nextInt(MissingValues.values().length)];
+		comparison.setMissingValues(semantics);
+		return comparison;
+	}
+
+	private AttributeValue attribute()
+	{
+		AttributeValue attribute = new AttributeValue();
+		attribute.setAttributeIndex(random.nextInt(numberOfAttributes));
+		return attribute;
+	}
+
+	private ConstantValue constant()
+	{
+		ConstantValue constant = new ConstantValue(null, Double.class);
+		constant.setValue(value());
+		return constant;
+	}
+
+	/**
+	 * Position after the subtree that starts at a block
+	 */
+
+	private static int end(ExprTree code, int position)
+	{
+		IPrimitive block = code.getBlock(position);
+		// In and Out take three operands
+		int arguments = (block instanceof In || block instanceof Out) ? 3 : block.argumentTypes().length;
+		position++;
+		for(int i = 0; i < arguments; i++)
+			position = end(code, position);
+		return position;
+	}
+
+	private int shuffle(ExprTree code, int position, ExprTree shuffled)
+	{
+		IPrimitive block = code.getBlock(position);
+
+		if((block instanceof And || block instanceof Or) && random.nextBoolean())
+		{
+			int second = end(code, position + 1);
+			int last = end(code, second);
+			shuffled.addBlock(block);
+			shuffle(code, second, shuffled);
+			shuffle(code, position + 1, shuffled);
+			return last;
+		}
+
+		if(block instanceof Comparison || block.argumentTypes().length == 0)
+		{
+			int last = end(code, position);
+			for(int i = position; i < last; i++)
+				shuffled.addBlock(code.getBlock(i));
+			return last;
+		}
+
+		shuffled.addBlock(block);
+		int next = position + 1;
+		for(int i = 0; i < block.argumentTypes().length; i++)
+			next = shuffle(code, next, shuffled);
+		return next;
+	}
+}
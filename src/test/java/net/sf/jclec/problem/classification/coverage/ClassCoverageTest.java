@@ -0,0 +1,124 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.crisprule.CrispRule;
+import net.sf.jclec.problem.util.dataset.ColumnScanIndex;
+import net.sf.jclec.problem.util.dataset.ColumnarDataset;
+import net.sf.jclec.problem.util.dataset.DatasetView;
+import net.sf.jclec.problem.util.dataset.FileDataset;
+import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.KeelDataSet;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Covered weight of every class counted with the bit masks of the class
+ * partitions, against the rule evaluated row by row, on every kind of
+ * dataset: row by row, indexed, by columns, views scanned a column at a
+ * time, and streamed.
+ */
+
+public class ClassCoverageTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of input attributes of Iris */
+
+	private static final int NUMBER_OF_ATTRIBUTES = 4;
+
+	/** Number of antecedents */
+
+	private static final int NUMBER_OF_ANTECEDENTS = 1000;
+
+	/** Number of rows of the views */
+
+	private static final int NUMBER_OF_ROWS = 200;
+
+	public void testClassCoverage() throws IOException
+	{
+		Random random = new Random(23);
+
+		KeelDataSet rows = load(new KeelDataSet(), false);
+		KeelDataSet indexed = load(new KeelDataSet(), false);
+		indexed.setIndexed(true);
+		ColumnarDataset columnar = load(new ColumnarDataset(), false);
+
+		// Views sampled with replacement, as the training samples are
+		int[] sample = new int[NUMBER_OF_ROWS];
+		for(int i = 0; i < sample.length; i++)
+			sample[i] = random.nextInt(rows.numberOfInstances());
+		DatasetView rowView = view(rows, sample);
+		DatasetView columnView = view(columnar, sample);
+		assertTrue(rowView.getAttributeIndex() instanceof ColumnScanIndex);
+		assertTrue(columnView.getAttributeIndex() instanceof ColumnScanIndex);
+
+		IDataset[] datasets = {rows, indexed, columnar, rowView, columnView, load(new KeelDataSet(), true)};
+		// The streamed dataset is compared with the rows it streams
+		IDataset[] references = {rows, rows, rows, rowView, rowView, rows};
+
+		AntecedentGenerator generator = new AntecedentGenerator(19, NUMBER_OF_ATTRIBUTES);
+
+		for(int i = 0; i < NUMBER_OF_ANTECEDENTS; i++)
+		{
+			ExprTree code = generator.antecedent();
+			CrispRule rule = new CrispRule(code);
+			CrispRule interpreter = AntecedentGenerator.interpreter(code);
+
+			for(int k = 0; k < datasets.length; k++)
+			{
+				double[] expected = coverage(interpreter, references[k]);
+				double[] actual = rule.getClassCoverage(datasets[k]);
+				assertEquals(expected.length, actual.length);
+				for(int c = 0; c < expected.length; c++)
+					assertEquals("Dataset " + k + ", class " + c + ": " + code, expected[c], actual[c], 0.0);
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private static <T extends FileDataset> T load(T dataset, boolean streaming) throws IOException
+	{
+		dataset.setFileName(IRIS);
+		dataset.setStreaming(streaming);
+		dataset.load();
+		dataset.getMetadata().setClassIndex(NUMBER_OF_ATTRIBUTES);
+		return dataset;
+	}
+
+	private static DatasetView view(IDataset parent, int[] rows)
+	{
+		DatasetView view = new DatasetView(parent, rows.clone(), rows.length);
+		view.getMetadata().setClassIndex(NUMBER_OF_ATTRIBUTES);
+		return view;
+	}
+
+	/**
+	 * Covered weight of every class, and of the rows without a class,
+	 * evaluating the rule row by row
+	 */
+
+	private static double[] coverage(CrispRule interpreter, IDataset dataset)
+	{
+		int numberOfClasses = dataset.getMetadata().numberOfClasses();
+		double[] coverage = new double[numberOfClasses + 1];
+
+		ArrayList<IInstance> instances = dataset.getInstances();
+		for(IInstance instance : instances)
+			if((Boolean) interpreter.covers(instance))
+			{
+				double label = instance.getValue(NUMBER_OF_ATTRIBUTES);
+				int c = label >= 0 && label < numberOfClasses && label == (int) label ? (int) label : numberOfClasses;
+				coverage[c] += instance.getWeight();
+			}
+		return coverage;
+	}
+}
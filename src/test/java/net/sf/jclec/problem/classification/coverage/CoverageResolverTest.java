@@ -0,0 +1,83 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.crisprule.CrispRule;
+import net.sf.jclec.problem.util.dataset.AttributeIndex;
+import net.sf.jclec.problem.util.dataset.CachedAttributeIndex;
+import net.sf.jclec.problem.util.dataset.ColumnScanIndex;
+import net.sf.jclec.problem.util.dataset.SortedAttributeIndex;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Equivalence of the rows resolved from the attribute indexes and the
+ * rows covered by the interpreted antecedents, with and without the
+ * cache of covered rows.
+ */
+
+public class CoverageResolverTest extends TestCase
+{
+	/** Number of antecedents */
+
+	private static final int NUMBER_OF_ANTECEDENTS = 2000;
+
+	/** Number of rows of the dataset */
+
+	private static final int NUMBER_OF_ROWS = 500;
+
+	/** Number of attributes of the dataset */
+
+	private static final int NUMBER_OF_ATTRIBUTES = 3;
+
+	public void testResolvedRows()
+	{
+		AntecedentGenerator generator = new AntecedentGenerator(11, NUMBER_OF_ATTRIBUTES);
+		ArrayList<IInstance> instances = generator.instances(NUMBER_OF_ROWS);
+
+		AttributeIndex [] indexes = {
+			new SortedAttributeIndex(instances, NUMBER_OF_ATTRIBUTES),
+			new ColumnScanIndex(instances),
+			// A small cache evicts most of the subtrees
+			new CachedAttributeIndex(new SortedAttributeIndex(instances, NUMBER_OF_ATTRIBUTES), 3000),
+			new CachedAttributeIndex(new ColumnScanIndex(instances), 1L << 26)
+		};
+
+		for(int i = 0; i < NUMBER_OF_ANTECEDENTS; i++)
+		{
+			ExprTree code = generator.antecedent();
+			ExprTree shuffled = generator.shuffle(code);
+			BitSet expected = covered(code, instances);
+
+			assertEquals(SubtreeKey.parse(code), SubtreeKey.parse(shuffled));
+			assertEquals(SubtreeKey.parse(code).hashCode(), SubtreeKey.parse(shuffled).hashCode());
+
+			for(int k = 0; k < indexes.length; k++)
+			{
+				assertEquals("Index " + k + ": " + code, expected, CoverageResolver.resolve(code, indexes[k]));
+
+				// The resolved rows can be modified without changing the cache
+				BitSet rows = CoverageResolver.resolve(shuffled, indexes[k]);
+				assertEquals("Index " + k + ": " + shuffled, expected, rows);
+				rows.flip(0, NUMBER_OF_ROWS);
+				assertEquals("Index " + k + ": " + code, expected, CoverageResolver.resolve(code, indexes[k]));
+			}
+		}
+	}
+
+	/**
+	 * Rows covered by the interpreted antecedent
+	 */
+
+	private static BitSet covered(ExprTree code, ArrayList<IInstance> instances)
+	{
+		CrispRule interpreter = AntecedentGenerator.interpreter(code);
+		BitSet covered = new BitSet(instances.size());
+		for(int i = 0; i < instances.size(); i++)
+			if((Boolean) interpreter.covers(instances.get(i)))
+				covered.set(i);
+		return covered;
+	}
+}
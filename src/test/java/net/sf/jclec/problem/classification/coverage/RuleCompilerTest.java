@@ -0,0 +1,125 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import junit.framework.TestCase;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.blocks.MissingValues;
+import net.sf.jclec.problem.classification.crisprule.CrispRule;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.SparseInstance;
+
+/**
+ * Equivalence of the compiled antecedents (RuleCompiler and
+ * AntecedentProgram) and the interpretation of their ExprTree, under
+ * every semantics of missing values.
+ */
+
+public class RuleCompilerTest extends TestCase
+{
+	/** Number of antecedents of every test */
+
+	private static final int NUMBER_OF_ANTECEDENTS = 2000;
+
+	/** Number of instances covered by every antecedent */
+
+	private static final int NUMBER_OF_INSTANCES = 30;
+
+	/** Number of attributes of the instances */
+
+	private static final int NUMBER_OF_ATTRIBUTES = 3;
+
+	public void testCompareMissingValues()
+	{
+		checkEquivalence(MissingValues.Compare, 1);
+	}
+
+	public void testFailMissingValues()
+	{
+		checkEquivalence(MissingValues.Fail, 2);
+	}
+
+	public void testMatchMissingValues()
+	{
+		checkEquivalence(MissingValues.Match, 3);
+	}
+
+	public void testMixedMissingValues()
+	{
+		checkEquivalence(null, 4);
+	}
+
+	public void testSparseInstances()
+	{
+		// Omitted values are evaluated as 0, without densifying the instances
+		AntecedentGenerator generator = new AntecedentGenerator(7, NUMBER_OF_ATTRIBUTES);
+
+		for(int i = 0; i < NUMBER_OF_ANTECEDENTS; i++)
+		{
+			ExprTree code = generator.antecedent();
+			CrispRule interpreter = AntecedentGenerator.interpreter(code);
+			CrispRule rule = new CrispRule(code);
+
+			for(int j = 0; j < NUMBER_OF_INSTANCES; j++)
+			{
+				IInstance instance = generator.instance();
+				SparseInstance sparse = new SparseInstance(NUMBER_OF_ATTRIBUTES);
+				sparse.setValues(instance.getValues());
+				String message = code + " on " + instance;
+
+				assertEquals("Interpreted: " + message, interpreter.covers(instance), interpreter.covers(sparse));
+				assertEquals("CrispRule: " + message, rule.covers(instance), rule.covers(sparse));
+			}
+		}
+	}
+
+	public void testMalformedAntecedents()
+	{
+		// A comparison without its second operand
+		AntecedentGenerator generator = new AntecedentGenerator(5, NUMBER_OF_ATTRIBUTES);
+		ExprTree code = generator.antecedent();
+		ExprTree truncated = new ExprTree();
+		for(int i = 0; i < code.size() - 1; i++)
+			truncated.addBlock(code.getBlock(i));
+
+		assertNull(RuleCompiler.compile(truncated));
+		assertNull(AntecedentProgram.compile(truncated));
+	}
+
+	/**
+	 * Check that the compiled antecedents cover the same instances as
+	 * the interpreted ones
+	 *
+	 * @param missingValues Semantics of missing values, null for mixed semantics
+	 * @param seed Random seed
+	 */
+
+	private void checkEquivalence(MissingValues missingValues, long seed)
+	{
+		AntecedentGenerator generator = new AntecedentGenerator(seed, NUMBER_OF_ATTRIBUTES);
+		generator.setMissingValues(missingValues);
+
+		for(int i = 0; i < NUMBER_OF_ANTECEDENTS; i++)
+		{
+			ExprTree code = generator.antecedent();
+
+			InstancePredicate compiled = RuleCompiler.compile(code);
+			assertNotNull("Not compiled: " + code, compiled);
+			AntecedentProgram program = AntecedentProgram.compile(code);
+			assertNotNull("Not translated: " + code, program);
+			InstancePredicate interpreted = program.newPredicate();
+
+			CrispRule interpreter = AntecedentGenerator.interpreter(code);
+			CrispRule rule = new CrispRule(code);
+
+			for(int j = 0; j < NUMBER_OF_INSTANCES; j++)
+			{
+				IInstance instance = generator.instance();
+				boolean expected = (Boolean) interpreter.covers(instance);
+				String message = code + " on " + instance;
+
+				assertEquals("RuleCompiler: " + message, expected, compiled.covers(instance));
+				assertEquals("AntecedentProgram: " + message, expected, interpreted.covers(instance));
+				assertEquals("CrispRule: " + message, Boolean.valueOf(expected), rule.covers(instance));
+			}
+		}
+	}
+}
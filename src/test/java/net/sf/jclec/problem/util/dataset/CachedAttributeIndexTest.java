@@ -0,0 +1,172 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+
+/**
+ * Coverage cache: results equal those of the wrapped index, the hit, miss
+ * and eviction metrics, and the memory usage bounded by the maximum memory.
+ */
+
+public class CachedAttributeIndexTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of rows */
+
+	private static final int NUMBER_OF_ROWS = 300;
+
+	/** Maximum memory of the caches that evict results */
+
+	private static final long MAXIMUM_MEMORY = 10000;
+
+	/** Wrapped index */
+
+	private SortedAttributeIndex index;
+
+	@Override
+	protected void setUp()
+	{
+		Random random = new Random(31);
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(NUMBER_OF_ROWS);
+		for(int i = 0; i < NUMBER_OF_ROWS; i++)
+		{
+			Instance instance = new Instance(2);
+			instance.setValue(0, random.nextInt(10) == 0 ? Double.NaN : random.nextInt(10));
+			instance.setValue(1, random.nextGaussian());
+			instances.add(instance);
+		}
+		index = new SortedAttributeIndex(instances, 2);
+	}
+
+	public void testHitsAndMisses()
+	{
+		CachedAttributeIndex cache = new CachedAttributeIndex(index, 1L << 20);
+		assertSame(index, cache.getIndex());
+		assertEquals(NUMBER_OF_ROWS, cache.numberOfRows());
+
+		BitSet expected = index.range(1, -0.5, true, 0.5, false);
+		BitSet rows = cache.range(1, -0.5, true, 0.5, false);
+		assertEquals(expected, rows);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// The callers own the returned rows
+		rows.clear();
+		assertEquals(expected, cache.range(1, -0.5, true, 0.5, false));
+		assertEquals(1, cache.getHits());
+
+		// Queries differing in a bound or inclusion are different results
+		assertEquals(index.range(1, -0.5, true, 0.5, true), cache.range(1, -0.5, true, 0.5, true));
+		assertEquals(index.range(1, -0.5, false, 0.5, false), cache.range(1, -0.5, false, 0.5, false));
+		assertEquals(index.equal(0, 3.0), cache.equal(0, 3.0));
+		assertEquals(index.range(0, 3.0, true, 3.0, true), cache.range(0, 3.0, true, 3.0, true));
+		assertEquals(index.missing(0), cache.missing(0));
+		assertEquals(index.missing(0), cache.missing(0));
+		assertEquals(index.equal(0, 3.0), cache.equal(0, 3.0));
+
+		assertEquals(3, cache.getHits());
+		assertEquals(6, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		assertEquals(6, cache.size());
+		assertEquals(1.0 / 3.0, cache.getHitRatio(), 1e-12);
+
+		// Clearing the cache keeps the metrics
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMemoryUsage());
+		assertEquals(3, cache.getHits());
+		assertEquals(expected, cache.range(1, -0.5, true, 0.5, false));
+		assertEquals(7, cache.getMisses());
+	}
+
+	public void testMemoryCap()
+	{
+		CachedAttributeIndex cache = new CachedAttributeIndex(index, MAXIMUM_MEMORY);
+		assertEquals(MAXIMUM_MEMORY, cache.getMaximumMemory());
+
+		// Rows that were once larger than they are: the cache charges the
+		// copy it keeps
+		cache.store(0, shrunk(0));
+		long entryMemory = cache.getMemoryUsage();
+		assertTrue(entryMemory > 0);
+
+		for(int k = 1; k < 500; k++)
+		{
+			cache.store(k, shrunk(k));
+			assertTrue(cache.getMemoryUsage() <= MAXIMUM_MEMORY);
+			assertEquals(cache.size() * entryMemory, cache.getMemoryUsage());
+		}
+		assertTrue(cache.size() > 1);
+		assertEquals(500 - cache.size(), cache.getEvictions());
+
+		// The least recently used results are evicted first
+		assertNull(cache.lookup(0));
+		assertEquals(shrunk(499), cache.lookup(499));
+
+		// Results larger than the maximum memory are not cached
+		BitSet huge = new BitSet();
+		huge.set(8 * (int) MAXIMUM_MEMORY);
+		assertSame(huge, cache.store("huge", huge));
+		assertNull(cache.lookup("huge"));
+
+		// A result that takes almost the whole cache evicts all the others
+		long evictions = cache.getEvictions();
+		int size = cache.size();
+		BitSet large = new BitSet();
+		large.set(8 * (int) (MAXIMUM_MEMORY - entryMemory) - 1);
+		cache.store("large", large);
+		assertEquals(1, cache.size());
+		assertEquals(evictions + size, cache.getEvictions());
+		assertTrue(cache.getMemoryUsage() <= MAXIMUM_MEMORY);
+		assertEquals(large, cache.lookup("large"));
+
+		cache.clear();
+		assertEquals(0, cache.getMemoryUsage());
+		assertEquals(0, cache.size());
+	}
+
+	public void testCachedDatasets()
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(IRIS);
+		dataset.loadInstances();
+		dataset.setIndexed(true);
+
+		assertTrue(dataset.getAttributeIndex() instanceof SortedAttributeIndex);
+
+		dataset.setCoverageCacheMemory(1L << 20);
+		AttributeIndex cache = dataset.getAttributeIndex();
+		assertTrue(cache instanceof CachedAttributeIndex);
+		assertEquals(1L << 20, ((CachedAttributeIndex) cache).getMaximumMemory());
+		assertTrue(((CachedAttributeIndex) cache).getIndex() instanceof SortedAttributeIndex);
+
+		dataset.setCoverageCacheMemory(0);
+		assertTrue(dataset.getAttributeIndex() instanceof SortedAttributeIndex);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Rows with a single bit, whose words have grown for a bit far away
+	 * that was then cleared
+	 */
+
+	private static BitSet shrunk(int row)
+	{
+		BitSet rows = new BitSet();
+		rows.set(row % 64);
+		rows.set(1 << 16);
+		rows.clear(1 << 16);
+		return rows;
+	}
+}
@@ -0,0 +1,221 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Class partitions against a scan of the instances: the rows and weights
+ * of every class and of the rows without a class, the covered weights,
+ * and the partitions rebuilt when the instances change.
+ */
+
+public class ClassPartitionTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of covered row sets */
+
+	private static final int NUMBER_OF_SETS = 200;
+
+	/** Iris, with the class of some rows missing */
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		file = File.createTempFile("iris-unlabeled", ".dat");
+		writeMissingClasses(IRIS, file, 7);
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		file.delete();
+	}
+
+	public void testUnlabeledRows() throws IOException
+	{
+		KeelDataSet dataset = load(false);
+		ClassPartition partition = dataset.getClassPartition();
+		assertPartition(dataset.getInstances(), partition);
+		assertTrue(partition.getUnlabeledRows().length > 0);
+		assertEquals(dataset.numberOfInstances(), partition.getTotalWeight(), 0.0);
+
+		// Streamed datasets only keep the totals
+		ClassPartition totals = load(true).getClassPartition();
+		assertFalse(totals.hasRows());
+		for(int c = 0; c < partition.numberOfClasses(); c++)
+			assertEquals(partition.getWeight(c), totals.getWeight(c), 0.0);
+		assertEquals(partition.getUnlabeledWeight(), totals.getUnlabeledWeight(), 0.0);
+		assertEquals(partition.getTotalWeight(), totals.getTotalWeight(), 0.0);
+	}
+
+	public void testCoverage() throws IOException
+	{
+		KeelDataSet dataset = load(false);
+		Random random = new Random(17);
+
+		assertCoverage(dataset.getInstances(), dataset.getClassPartition(), random);
+
+		// Weighted rows
+		ArrayList<IInstance> weighted = new ArrayList<IInstance>();
+		for(IInstance instance : dataset.getInstances())
+		{
+			IInstance copy = instance.copy();
+			copy.setWeight(1 + random.nextInt(3));
+			weighted.add(copy);
+		}
+		dataset.setInstances(weighted);
+		assertPartition(weighted, dataset.getClassPartition());
+		assertCoverage(weighted, dataset.getClassPartition(), random);
+	}
+
+	public void testSetAndAddInstances() throws IOException
+	{
+		KeelDataSet dataset = load(false);
+		ArrayList<IInstance> all = new ArrayList<IInstance>(dataset.getInstances());
+		ClassPartition partition = dataset.getClassPartition();
+
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(all.subList(20, 60));
+		dataset.setInstances(instances);
+		assertNotSame(partition, dataset.getClassPartition());
+		assertPartition(instances, dataset.getClassPartition());
+
+		partition = dataset.getClassPartition();
+		ArrayList<IInstance> more = new ArrayList<IInstance>(all.subList(0, 20));
+		dataset.addInstances(more);
+		instances.addAll(more);
+		assertNotSame(partition, dataset.getClassPartition());
+		assertPartition(instances, dataset.getClassPartition());
+
+		// A new class index
+		dataset.getMetadata().setClassIndex(0);
+		assertEquals(0, dataset.getClassPartition().getClassIndex());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private KeelDataSet load(boolean streaming) throws IOException
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(file.getPath());
+		dataset.setStreaming(streaming);
+		dataset.load();
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+		return dataset;
+	}
+
+	/**
+	 * Class of an instance, numberOfClasses if it has no class
+	 */
+
+	private static int slot(IInstance instance, ClassPartition partition)
+	{
+		double value = instance.getValue(partition.getClassIndex());
+		for(int c = 0; c < partition.numberOfClasses(); c++)
+			if(value == c)
+				return c;
+		return partition.numberOfClasses();
+	}
+
+	/**
+	 * Compare the rows and weights of a partition with a scan of the
+	 * instances
+	 */
+
+	private static void assertPartition(ArrayList<IInstance> instances, ClassPartition partition)
+	{
+		int numberOfClasses = partition.numberOfClasses();
+		ArrayList<ArrayList<Integer>> rows = new ArrayList<ArrayList<Integer>>();
+		double[] weights = new double[numberOfClasses + 1];
+		for(int c = 0; c <= numberOfClasses; c++)
+			rows.add(new ArrayList<Integer>());
+
+		double totalWeight = 0.0;
+		for(int i = 0; i < instances.size(); i++)
+		{
+			int c = slot(instances.get(i), partition);
+			rows.get(c).add(i);
+			weights[c] += instances.get(i).getWeight();
+			totalWeight += instances.get(i).getWeight();
+			assertEquals("Row " + i, c < numberOfClasses ? c : -1, partition.getLabel(i));
+		}
+
+		for(int c = 0; c <= numberOfClasses; c++)
+		{
+			int[] actual = c < numberOfClasses ? partition.getRows(c) : partition.getUnlabeledRows();
+			assertEquals("Class " + c, rows.get(c).size(), actual.length);
+			for(int k = 0; k < actual.length; k++)
+				assertEquals("Class " + c, rows.get(c).get(k).intValue(), actual[k]);
+			assertEquals("Class " + c, weights[c], c < numberOfClasses ? partition.getWeight(c) : partition.getUnlabeledWeight(), 0.0);
+		}
+		assertEquals(totalWeight, partition.getTotalWeight(), 1e-12);
+	}
+
+	/**
+	 * Compare the covered weights of random row sets with a scan of the
+	 * instances
+	 */
+
+	private static void assertCoverage(ArrayList<IInstance> instances, ClassPartition partition, Random random)
+	{
+		for(int s = 0; s < NUMBER_OF_SETS; s++)
+		{
+			BitSet covered = new BitSet();
+			double density = random.nextDouble();
+			for(int i = 0; i < instances.size(); i++)
+				if(random.nextDouble() < density)
+					covered.set(i);
+
+			double[] expected = new double[partition.numberOfClasses() + 1];
+			for(int i = covered.nextSetBit(0); i >= 0; i = covered.nextSetBit(i + 1))
+				expected[slot(instances.get(i), partition)] += instances.get(i).getWeight();
+
+			double[] actual = partition.getCoverage(covered);
+			assertEquals(expected.length, actual.length);
+			for(int c = 0; c < expected.length; c++)
+				assertEquals("Class " + c, expected[c], actual[c], 0.0);
+		}
+	}
+
+	/**
+	 * Copy a Keel dataset, writing a missing class in one of every few rows
+	 */
+
+	private static void writeMissingClasses(String source, File target, int period) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(source));
+		Writer writer = new FileWriter(target);
+
+		try {
+			String line;
+			boolean data = false;
+			for(int i = 0; (line = reader.readLine()) != null; )
+			{
+				if(data && !line.trim().isEmpty() && i++ % period == 0)
+					line = line.substring(0, line.lastIndexOf(',') + 1) + " ?";
+				writer.write(line + "\n");
+				data |= line.trim().equalsIgnoreCase("@data");
+			}
+		}
+		finally {
+			reader.close();
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+
+/**
+ * Columnar datasets: the rows read from their columns equal the instances
+ * of the text datasets, and the rows written through the instances are
+ * copied on write, so the copies of a dataset never see each other's
+ * changes.
+ */
+
+public class ColumnarDatasetTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Iris, row by row */
+
+	private KeelDataSet expected;
+
+	/** Iris, by columns */
+
+	private ColumnarDataset dataset;
+
+	@Override
+	protected void setUp()
+	{
+		expected = new KeelDataSet();
+		expected.setFileName(IRIS);
+		expected.loadInstances();
+		expected.getMetadata().setClassIndex(expected.getMetadata().numberOfAttributes() - 1);
+
+		dataset = new ColumnarDataset();
+		dataset.setFileName(IRIS);
+		dataset.loadInstances();
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+	}
+
+	public void testRows()
+	{
+		assertEquals(expected.getName(), dataset.getName());
+		assertRows(expected.getInstances(), dataset);
+		assertNull(dataset.getWeights());
+
+		// The labels of the class partition are read from the class column
+		assertLabels(expected.getClassPartition(), dataset.getClassPartition(), dataset.numberOfInstances());
+
+		// Datasets converted into columns
+		assertRows(expected.getInstances(), new ColumnarDataset(expected));
+	}
+
+	public void testStreamedDataset() throws IOException
+	{
+		KeelDataSet streamed = new KeelDataSet();
+		streamed.setFileName(IRIS);
+		streamed.setStreaming(true);
+		streamed.load();
+
+		// The rows are read through the cursor
+		assertRows(expected.getInstances(), new ColumnarDataset(streamed));
+	}
+
+	public void testSetAndAddInstances()
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		for(int i = 0; i < 10; i++)
+			instances.add(expected.getInstances().get(i).copy());
+		instances.get(3).setWeight(2.5);
+
+		dataset.setInstances(instances);
+		assertRows(instances, dataset);
+		assertEquals(2.5, dataset.getWeights()[3], 0.0);
+		assertLabels(expected.getClassPartition(), dataset.getClassPartition(), 10);
+
+		ArrayList<IInstance> more = new ArrayList<IInstance>();
+		for(int i = 10; i < 15; i++)
+			more.add(expected.getInstances().get(i).copy());
+		dataset.addInstances(more);
+		instances.addAll(more);
+		assertRows(instances, dataset);
+		assertLabels(expected.getClassPartition(), dataset.getClassPartition(), 15);
+	}
+
+	public void testWriteThroughInstances()
+	{
+		ColumnarDataset copy = (ColumnarDataset) dataset.copy();
+		copy.getMetadata().setClassIndex(dataset.getMetadata().getClassIndex());
+		assertSame(dataset.getColumn(0), copy.getColumn(0));
+
+		// Move the first row of the copy to the last class, with weight 3
+		int classIndex = dataset.getMetadata().getClassIndex();
+		IInstance row = copy.getInstances().get(0);
+		double[] values = row.getValues();
+		double oldWeight = dataset.getClassPartition().getWeight(2) - (values[classIndex] == 2.0 ? 1.0 : 0.0);
+		values[0] = -1.0;
+		values[classIndex] = 2.0;
+		row.setValues(values);
+		row.setWeight(3.0);
+
+		assertEquals(-1.0, row.getValue(0), 0.0);
+		assertEquals(3.0, row.getWeight(), 0.0);
+		assertEquals(2, copy.getClassPartition().getLabel(0));
+		assertEquals(oldWeight + 3.0, copy.getClassPartition().getWeight(2), 0.0);
+		BitSet negative = copy.getAttributeIndex().range(0, Double.NEGATIVE_INFINITY, true, 0.0, false);
+		assertEquals(1, negative.cardinality());
+		assertTrue(negative.get(0));
+
+		// Only the written columns are copied, and the dataset is unchanged
+		assertNotSame(dataset.getColumn(0), copy.getColumn(0));
+		assertSame(dataset.getColumn(1), copy.getColumn(1));
+		assertRows(expected.getInstances(), dataset);
+		assertEquals(0, dataset.getAttributeIndex().range(0, Double.NEGATIVE_INFINITY, true, 0.0, false).cardinality());
+
+		// Copies of a written dataset copy the columns again before writing
+		ColumnarDataset second = (ColumnarDataset) copy.copy();
+		second.getInstances().get(0).setValues(expected.getInstances().get(0).getValues());
+		second.getInstances().get(0).setWeight(1.0);
+		assertEquals(-1.0, copy.getInstances().get(0).getValue(0), 0.0);
+		assertEquals(3.0, copy.getInstances().get(0).getWeight(), 0.0);
+		assertRows(expected.getInstances(), second);
+
+		// The copy of an instance is detached from the dataset
+		IInstance detached = copy.getInstances().get(1).copy();
+		assertTrue(detached instanceof Instance);
+		detached.setWeight(5.0);
+		assertEquals(1.0, copy.getInstances().get(1).getWeight(), 0.0);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compare the labels of the first rows of two class partitions
+	 */
+
+	private static void assertLabels(ClassPartition expected, ClassPartition actual, int numberOfRows)
+	{
+		int size = 0;
+		for(int c = 0; c < actual.numberOfClasses(); c++)
+			size += actual.getRows(c).length;
+		assertEquals(numberOfRows, size);
+
+		for(int i = 0; i < numberOfRows; i++)
+			assertEquals("Row " + i, expected.getLabel(i), actual.getLabel(i));
+	}
+
+	/**
+	 * Compare the values and weights of some instances with the rows of
+	 * a columnar dataset
+	 */
+
+	private static void assertRows(ArrayList<IInstance> expected, ColumnarDataset actual)
+	{
+		assertEquals(expected.size(), actual.numberOfInstances());
+		assertEquals(expected.size(), actual.getInstances().size());
+
+		for(int i = 0; i < expected.size(); i++)
+		{
+			IInstance e = expected.get(i);
+			IInstance a = actual.getInstances().get(i);
+			assertEquals("Weight of row " + i, e.getWeight(), a.getWeight(), 0.0);
+			for(int j = 0; j < e.getValues().length; j++)
+			{
+				assertEquals("Row " + i + ", attribute " + j, Double.doubleToLongBits(e.getValue(j)), Double.doubleToLongBits(a.getValue(j)));
+				assertEquals("Row " + i + ", column " + j, Double.doubleToLongBits(e.getValue(j)), Double.doubleToLongBits(actual.getColumn(j).getValue(i)));
+			}
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Reading of gzip-compressed data files: the decompressed content and
+ * the datasets loaded from them equal those of the uncompressed files.
+ */
+
+public class DataFileInputTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Temporary files */
+
+	private final ArrayList<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown()
+	{
+		for(File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	public void testCompressedNames()
+	{
+		assertTrue(DataFileInput.isCompressed("iris.dat.gz"));
+		assertTrue(DataFileInput.isCompressed("iris.arff.GZ"));
+		assertFalse(DataFileInput.isCompressed("iris.dat"));
+		assertFalse(DataFileInput.isCompressed("gz"));
+		assertEquals("data/iris.arff", DataFileInput.uncompressedName("data/iris.arff.gz"));
+		assertEquals("data/iris.dat", DataFileInput.uncompressedName("data/iris.dat"));
+	}
+
+	public void testDecompressedContent() throws IOException
+	{
+		// Several times the decompressed blocks kept ahead of the reader
+		byte[] content = new byte[9 << 20];
+		Random random = new Random(23);
+		for(int i = 0; i < content.length; i += 1 + random.nextInt(64))
+			Arrays.fill(content, i, Math.min(content.length, i + random.nextInt(64)), (byte) random.nextInt(256));
+
+		File file = gzip(content, ".bin.gz");
+
+		byte[] read = new byte[content.length];
+		InputStream input = DataFileInput.open(file.getPath());
+		try {
+			int length = 0;
+			while(length < read.length)
+			{
+				// Mix single bytes and blocks of any size
+				if(random.nextInt(4) == 0)
+				{
+					int value = input.read();
+					assertTrue(value >= 0);
+					read[length++] = (byte) value;
+				}
+				else
+				{
+					int count = input.read(read, length, Math.min(read.length - length, 1 + random.nextInt(100000)));
+					assertTrue(count > 0);
+					length += count;
+				}
+			}
+			assertEquals(-1, input.read());
+		}
+		finally {
+			input.close();
+		}
+		assertTrue(Arrays.equals(content, read));
+
+		// Closing before the end stops the decompression
+		input = DataFileInput.open(file.getPath());
+		assertEquals(content[0], (byte) input.read());
+		input.close();
+	}
+
+	public void testKeel() throws IOException
+	{
+		String fileName = gzip(IRIS, ".dat.gz").getPath();
+
+		KeelDataSet expected = new KeelDataSet();
+		expected.setFileName(IRIS);
+		expected.load();
+
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(fileName);
+		dataset.load();
+		assertEquals(expected.getMetadata().numberOfAttributes(), dataset.getMetadata().numberOfAttributes());
+		assertEquals("Keel", expected.getInstances(), dataset.getInstances());
+
+		// Only the header
+		KeelDataSet header = new KeelDataSet();
+		header.setFileName(fileName);
+		header.loadMetadata();
+		assertEquals(expected.getMetadata().numberOfAttributes(), header.getMetadata().numberOfAttributes());
+		assertEquals(expected.getMetadata().getClassIndex(), header.getMetadata().getClassIndex());
+
+		// Streamed
+		KeelDataSet streamed = new KeelDataSet();
+		streamed.setFileName(fileName);
+		streamed.setStreaming(true);
+		streamed.load();
+		assertEquals(expected.numberOfInstances(), streamed.numberOfInstances());
+		assertEquals("Streamed", expected.getInstances(), cursorInstances(streamed));
+
+		// Columns
+		ColumnarDataset columnar = new ColumnarDataset();
+		columnar.setFileName(fileName);
+		columnar.load();
+		assertEquals("Columnar", expected.getInstances(), columnar.getInstances());
+	}
+
+	public void testArff() throws IOException
+	{
+		String content = "@relation synthetic\n" +
+				"@attribute x numeric\n" +
+				"@attribute y numeric\n" +
+				"@attribute class {red, green, blue}\n" +
+				"@data\n" +
+				"% comment\n" +
+				"1.5, 2, red\n" +
+				"{0 3, 2 blue}\n" +
+				"?, -1, green\n";
+		File plain = write(content.getBytes("UTF-8"), ".arff");
+		String fileName = gzip(content.getBytes("UTF-8"), ".arff.gz").getPath();
+
+		ArffDataSet expected = new ArffDataSet();
+		expected.setFileName(plain.getPath());
+		expected.load();
+		assertEquals(3, expected.numberOfInstances());
+
+		ArffDataSet dataset = new ArffDataSet();
+		dataset.setFileName(fileName);
+		dataset.load();
+		assertEquals("Arff", expected.getInstances(), dataset.getInstances());
+
+		// The loader is chosen by the name of the decompressed file
+		ColumnarDataset columnar = new ColumnarDataset();
+		columnar.setFileName(fileName);
+		columnar.load();
+		assertEquals("Columnar", expected.getInstances(), columnar.getInstances());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compare the values and weights of two lists of instances
+	 */
+
+	private static void assertEquals(String message, ArrayList<IInstance> expected, ArrayList<IInstance> actual)
+	{
+		assertEquals(message + ": number of instances", expected.size(), actual.size());
+
+		for(int i = 0; i < expected.size(); i++)
+		{
+			IInstance e = expected.get(i);
+			IInstance a = actual.get(i);
+			assertEquals(message + ": instance " + i + " weight", e.getWeight(), a.getWeight(), 0.0);
+			for(int j = 0; j < e.getValues().length; j++)
+				assertEquals(message + ": instance " + i + " value " + j,
+						Double.doubleToLongBits(e.getValue(j)), Double.doubleToLongBits(a.getValue(j)));
+		}
+	}
+
+	/**
+	 * Instances read through the cursor of a dataset
+	 */
+
+	private static ArrayList<IInstance> cursorInstances(IDataset dataset)
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			while(cursor.next())
+				instances.add(cursor.getInstance().copy());
+		}
+		finally {
+			cursor.close();
+		}
+		return instances;
+	}
+
+	/**
+	 * Compress a file into a temporary file
+	 */
+
+	private File gzip(String fileName, String suffix) throws IOException
+	{
+		File source = new File(fileName);
+		byte[] content = new byte[(int) source.length()];
+		InputStream input = new FileInputStream(source);
+		try {
+			int length = 0;
+			while(length < content.length)
+				length += input.read(content, length, content.length - length);
+		}
+		finally {
+			input.close();
+		}
+		return gzip(content, suffix);
+	}
+
+	/**
+	 * Compress some content into a temporary file
+	 */
+
+	private File gzip(byte[] content, String suffix) throws IOException
+	{
+		File file = File.createTempFile("input", suffix);
+		files.add(file);
+		OutputStream output = new GZIPOutputStream(new FileOutputStream(file));
+		try {
+			output.write(content);
+		}
+		finally {
+			output.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Write some content into a temporary file
+	 */
+
+	private File write(byte[] content, String suffix) throws IOException
+	{
+		File file = File.createTempFile("input", suffix);
+		files.add(file);
+		OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		}
+		finally {
+			output.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,175 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.column.ColumnStorage;
+
+/**
+ * Sharing of the loaded datasets through the DatasetCache.
+ */
+
+public class DatasetCacheTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Iris test set in Keel format */
+
+	private static final String IRIS_TEST = "data/iris/iris-10-1tst.dat";
+
+	/** Temporary file */
+
+	private File file;
+
+	@Override
+	protected void setUp()
+	{
+		DatasetCache.setMaximumMemory(DatasetCache.DEFAULT_MAXIMUM_MEMORY);
+		DatasetCache.clear();
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		if(file != null)
+			file.delete();
+		DatasetCache.setMaximumMemory(DatasetCache.DEFAULT_MAXIMUM_MEMORY);
+		DatasetCache.clear();
+	}
+
+	public void testSameSettingsShareColumns()
+	{
+		ColumnarDataset first = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Float, false));
+		long memoryUsage = DatasetCache.getMemoryUsage();
+		ColumnarDataset second = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Float, false));
+
+		assertNotSame(first, second);
+		assertSame(first.columns, second.columns);
+		assertEquals(memoryUsage, DatasetCache.getMemoryUsage());
+	}
+
+	public void testStorageIsPartOfTheKey()
+	{
+		ColumnarDataset doubles = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false));
+		long memoryUsage = DatasetCache.getMemoryUsage();
+		ColumnarDataset quantized = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Quantized, false));
+
+		assertEquals(ColumnStorage.Double, doubles.getStorage());
+		assertEquals(ColumnStorage.Quantized, quantized.getStorage());
+		assertNotSame(doubles.columns, quantized.columns);
+		assertTrue(quantized.getHeapMemoryUsage() < doubles.getHeapMemoryUsage());
+		assertTrue(DatasetCache.getMemoryUsage() > memoryUsage);
+	}
+
+	public void testZoneMapsArePartOfTheKey()
+	{
+		ColumnarDataset scanned = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false));
+		ColumnarDataset zoned = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, true));
+
+		assertFalse(scanned.isZoneMaps());
+		assertTrue(zoned.isZoneMaps());
+		assertTrue(scanned.getAttributeIndex() instanceof ColumnScanIndex);
+		assertTrue(zoned.getAttributeIndex() instanceof ZoneMapIndex);
+	}
+
+	public void testFailedLoadsAreNotCached() throws IOException
+	{
+		file = File.createTempFile("cache", ".dat");
+		write(file, "@relation broken\n@attribute x real [0.0, 1.0]\n");
+		long modified = file.lastModified();
+
+		for(int attempt = 0; attempt < 2; attempt++)
+		{
+			try {
+				DatasetCache.load(keel(file.getPath()));
+				fail("A file without data section cannot be loaded");
+			}
+			catch(IllegalStateException e) {
+				// Expected
+			}
+			assertEquals(0, DatasetCache.getMemoryUsage());
+		}
+
+		// Same cache key, so the file is only read again if the failure was not cached
+		write(file, "@relation fixed\n@attribute x real [0.0, 1.0]\n@inputs x\n@data\n0.5\n0.25\n");
+		file.setLastModified(modified);
+
+		IDataset dataset = DatasetCache.load(keel(file.getPath()));
+		assertEquals(2, dataset.numberOfInstances());
+		assertTrue(DatasetCache.getMemoryUsage() > 0);
+	}
+
+	public void testLeastRecentlyUsedIsEvicted()
+	{
+		ColumnarDataset train = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false));
+		long trainMemory = DatasetCache.getMemoryUsage();
+		DatasetCache.setMaximumMemory(trainMemory);
+
+		ColumnarDataset test = (ColumnarDataset) DatasetCache.load(columnar(IRIS_TEST, ColumnStorage.Double, false));
+		assertTrue(DatasetCache.getMemoryUsage() <= DatasetCache.getMaximumMemory());
+
+		// The test set is still cached, the training set was evicted
+		assertSame(test.columns, ((ColumnarDataset) DatasetCache.load(columnar(IRIS_TEST, ColumnStorage.Double, false))).columns);
+		assertNotSame(train.columns, ((ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false))).columns);
+	}
+
+	public void testLargeDatasetsAreNotCached()
+	{
+		DatasetCache.setMaximumMemory(1);
+
+		ColumnarDataset first = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false));
+		ColumnarDataset second = (ColumnarDataset) DatasetCache.load(columnar(IRIS, ColumnStorage.Double, false));
+
+		assertEquals(135, second.numberOfInstances());
+		assertNotSame(first.columns, second.columns);
+		assertEquals(0, DatasetCache.getMemoryUsage());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Configured, unloaded columnar dataset
+	 */
+
+	private static ColumnarDataset columnar(String fileName, ColumnStorage storage, boolean zoneMaps)
+	{
+		ColumnarDataset dataset = new ColumnarDataset();
+		dataset.setFileName(fileName);
+		dataset.setStorage(storage);
+		dataset.setZoneMaps(zoneMaps);
+		return dataset;
+	}
+
+	/**
+	 * Configured, unloaded Keel dataset
+	 */
+
+	private static KeelDataSet keel(String fileName)
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(fileName);
+		return dataset;
+	}
+
+	/**
+	 * Replace the content of a file
+	 */
+
+	private static void write(File file, String content) throws IOException
+	{
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		}
+		finally {
+			writer.close();
+		}
+	}
+}
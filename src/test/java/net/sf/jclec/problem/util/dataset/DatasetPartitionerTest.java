@@ -0,0 +1,237 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+
+/**
+ * Training and test sets split from a single dataset: k folds that cover
+ * every row once as a test row, holdouts of the configured size, and the
+ * class proportions kept by stratification.
+ */
+
+public class DatasetPartitionerTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of folds */
+
+	private static final int NUMBER_OF_FOLDS = 10;
+
+	/** Iris, with some rows without class */
+
+	private KeelDataSet dataset;
+
+	/** Class of every row, -1 if it has none */
+
+	private int[] labels;
+
+	/** Number of rows of every class */
+
+	private int[] classSizes;
+
+	@Override
+	protected void setUp()
+	{
+		KeelDataSet iris = new KeelDataSet();
+		iris.setFileName(IRIS);
+		iris.loadInstances();
+
+		int classIndex = iris.getMetadata().numberOfAttributes() - 1;
+		iris.getMetadata().setClassIndex(classIndex);
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		for(int i = 0; i < iris.numberOfInstances(); i++)
+		{
+			IInstance instance = iris.getInstances().get(i).copy();
+			if(i % 11 == 5)
+			{
+				double[] values = instance.getValues();
+				values[classIndex] = Double.NaN;
+				instance.setValues(values);
+			}
+			instances.add(instance);
+		}
+
+		dataset = new KeelDataSet();
+		dataset.setName("iris");
+		dataset.setMetadata(iris.getMetadata());
+		dataset.setInstances(instances);
+
+		ClassPartition partition = dataset.getClassPartition();
+		labels = new int[instances.size()];
+		assertEquals(3, partition.numberOfClasses());
+		classSizes = new int[partition.numberOfClasses()];
+		for(int i = 0; i < labels.length; i++)
+		{
+			labels[i] = partition.getLabel(i);
+			if(labels[i] >= 0)
+				classSizes[labels[i]]++;
+		}
+	}
+
+	public void testStratifiedFolds()
+	{
+		assertFolds(true);
+	}
+
+	public void testFolds()
+	{
+		assertFolds(false);
+	}
+
+	public void testStratifiedHoldout()
+	{
+		DatasetView[] sets = holdout(true);
+		int numberOfRows = dataset.numberOfInstances();
+		int testSize = (int) Math.round(0.3 * numberOfRows);
+
+		int[] testRows = assertPartition(sets, numberOfRows);
+		assertEquals(testSize, sets[1].numberOfInstances());
+		assertEquals("iris-tra", sets[0].getName());
+		assertEquals("iris-tst", sets[1].getName());
+
+		int[] classRows = new int[classSizes.length];
+		for(int i = 0; i < numberOfRows; i++)
+			if(testRows[i] > 0)
+			{
+				// Rows without class stay in the training set
+				assertTrue(labels[i] >= 0);
+				classRows[labels[i]]++;
+			}
+
+		int labeled = 0;
+		for(int size : classSizes)
+			labeled += size;
+		for(int c = 0; c < classSizes.length; c++)
+			assertTrue(Math.abs(classRows[c] - (double) testSize * classSizes[c] / labeled) < 1.0);
+	}
+
+	public void testHoldout()
+	{
+		DatasetView[] sets = holdout(false);
+		int numberOfRows = dataset.numberOfInstances();
+
+		assertPartition(sets, numberOfRows);
+		assertEquals(Math.round(0.3 * numberOfRows), sets[1].numberOfInstances());
+	}
+
+	public void testRanges()
+	{
+		DatasetPartitioner partitioner = new DatasetPartitioner();
+		partitioner.setNumberOfFolds(NUMBER_OF_FOLDS);
+
+		try {
+			partitioner.setFold(NUMBER_OF_FOLDS + 1);
+			fail("The fold is out of range");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			partitioner.setTestSize(1.0);
+			fail("The test size is out of range");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Split all the folds and check that every row is a test row once,
+	 * that the folds have the same size and, with stratification, the
+	 * same number of rows of every class, give or take one
+	 */
+
+	private void assertFolds(boolean stratified)
+	{
+		int numberOfRows = dataset.numberOfInstances();
+		int[] testCount = new int[numberOfRows];
+
+		for(int fold = 1; fold <= NUMBER_OF_FOLDS; fold++)
+		{
+			DatasetPartitioner partitioner = new DatasetPartitioner();
+			partitioner.setNumberOfFolds(NUMBER_OF_FOLDS);
+			partitioner.setFold(fold);
+			partitioner.setStratified(stratified);
+
+			DatasetView[] sets = partitioner.split(dataset);
+			int[] testRows = assertPartition(sets, numberOfRows);
+			assertEquals("iris-10-" + fold + "tra", sets[0].getName());
+			assertEquals("iris-10-" + fold + "tst", sets[1].getName());
+
+			// The same fold is always split in the same way
+			assertTrue(Arrays.equals(testRows, assertPartition(partitioner.split(dataset), numberOfRows)));
+
+			assertTrue(Math.abs(sets[1].numberOfInstances() - (double) numberOfRows / NUMBER_OF_FOLDS) < 1.0);
+
+			int[] classRows = new int[classSizes.length];
+			for(int i = 0; i < numberOfRows; i++)
+			{
+				testCount[i] += testRows[i];
+				if(testRows[i] > 0 && labels[i] >= 0)
+					classRows[labels[i]]++;
+			}
+			if(stratified)
+				for(int c = 0; c < classSizes.length; c++)
+					assertTrue(Math.abs(classRows[c] - (double) classSizes[c] / NUMBER_OF_FOLDS) < 1.0);
+		}
+
+		for(int i = 0; i < numberOfRows; i++)
+			assertEquals("Row " + i, 1, testCount[i]);
+	}
+
+	/**
+	 * Holdout of 30% of the rows
+	 */
+
+	private DatasetView[] holdout(boolean stratified)
+	{
+		DatasetPartitioner partitioner = new DatasetPartitioner();
+		partitioner.setMethod(DatasetPartitioner.Method.Holdout);
+		partitioner.setTestSize(0.3);
+		partitioner.setStratified(stratified);
+		return partitioner.split(dataset);
+	}
+
+	/**
+	 * Check that the training and test sets are disjoint, cover all the
+	 * rows in ascending order and share the instances of the dataset
+	 *
+	 * @return 1 for the test rows, 0 for the training rows
+	 */
+
+	private int[] assertPartition(DatasetView[] sets, int numberOfRows)
+	{
+		assertEquals(2, sets.length);
+		int[] testRows = new int[numberOfRows];
+		int[] count = new int[numberOfRows];
+
+		for(int s = 0; s < sets.length; s++)
+		{
+			DatasetView set = sets[s];
+			assertSame(dataset, set.getParent());
+
+			int[] rows = set.getRows();
+			ArrayList<IInstance> instances = set.getInstances();
+			for(int k = 0; k < set.numberOfInstances(); k++)
+			{
+				assertTrue(k == 0 || rows[k - 1] < rows[k]);
+				assertSame(dataset.getInstances().get(rows[k]), instances.get(k));
+				count[rows[k]]++;
+				testRows[rows[k]] = s;
+			}
+		}
+
+		for(int i = 0; i < numberOfRows; i++)
+			assertEquals("Row " + i, 1, count[i]);
+		return testRows;
+	}
+}
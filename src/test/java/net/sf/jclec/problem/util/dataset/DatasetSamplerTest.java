@@ -0,0 +1,204 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.RanecuFactory;
+
+/**
+ * Samples of the rows of a dataset: sizes, class quotas and the sampled
+ * views that reuse their buffers.
+ */
+
+public class DatasetSamplerTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of samples drawn by every test */
+
+	private static final int NUMBER_OF_SAMPLES = 50;
+
+	/** Iris training set */
+
+	private KeelDataSet dataset;
+
+	/** Random generator */
+
+	private IRandGen randgen;
+
+	@Override
+	protected void setUp()
+	{
+		dataset = new KeelDataSet();
+		dataset.setFileName(IRIS);
+		dataset.loadInstances();
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+
+		RanecuFactory factory = new RanecuFactory();
+		factory.setSeed(987654321);
+		randgen = factory.createRandGen();
+	}
+
+	public void testRandom()
+	{
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Random, 0.25);
+		int numberOfRows = dataset.numberOfInstances();
+		int[] rows = new int[numberOfRows];
+		int[] hits = new int[numberOfRows];
+
+		for(int s = 0; s < NUMBER_OF_SAMPLES; s++)
+		{
+			int size = sampler.sample(dataset, randgen, rows);
+			assertEquals(Math.round(0.25 * numberOfRows), size);
+			for(int k = 0; k < size; k++)
+			{
+				assertTrue(rows[k] >= 0 && rows[k] < numberOfRows);
+				assertTrue(k == 0 || rows[k - 1] < rows[k]);
+				hits[rows[k]]++;
+			}
+		}
+
+		// Every row is drawn sometimes, none of them always
+		for(int i = 0; i < numberOfRows; i++)
+			assertTrue("Row " + i, hits[i] > 0 && hits[i] < NUMBER_OF_SAMPLES);
+	}
+
+	public void testStratified()
+	{
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Stratified, 0.3);
+		ClassPartition partition = dataset.getClassPartition();
+		int numberOfRows = dataset.numberOfInstances();
+		int[] rows = new int[numberOfRows];
+
+		for(int s = 0; s < NUMBER_OF_SAMPLES; s++)
+		{
+			int size = sampler.sample(dataset, randgen, rows);
+			assertEquals(Math.round(0.3 * numberOfRows), size);
+
+			int[] classRows = assertGroupedByClass(partition, rows, size);
+			for(int c = 0; c < classRows.length; c++)
+				assertTrue(Math.abs(classRows[c] - 0.3 * partition.getRows(c).length) < 1.0);
+		}
+
+		// The whole dataset
+		sampler.setSize(1.0);
+		assertEquals(numberOfRows, sampler.sample(dataset, randgen, rows));
+		int[] sorted = Arrays.copyOf(rows, numberOfRows);
+		Arrays.sort(sorted);
+		for(int i = 0; i < numberOfRows; i++)
+			assertEquals(i, sorted[i]);
+	}
+
+	public void testBalanced()
+	{
+		// The last class keeps 10 of its rows
+		int[] viewRows = new int[dataset.numberOfInstances()];
+		int viewSize = 0;
+		int[] kept = new int[3];
+		ClassPartition parentPartition = dataset.getClassPartition();
+		for(int i = 0; i < viewRows.length; i++)
+		{
+			int label = parentPartition.getLabel(i);
+			if(label < 2 || kept[2] < 10)
+			{
+				viewRows[viewSize++] = i;
+				kept[label]++;
+			}
+		}
+		DatasetView view = new DatasetView(dataset, viewRows, viewSize);
+
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Balanced, 0.6);
+		ClassPartition partition = view.getClassPartition();
+		int[] rows = new int[viewSize];
+		int quota = (int) Math.round(0.6 * viewSize) / 3;
+
+		for(int s = 0; s < NUMBER_OF_SAMPLES; s++)
+		{
+			int size = sampler.sample(view, randgen, rows);
+			int[] classRows = assertGroupedByClass(partition, rows, size);
+			for(int c = 0; c < classRows.length; c++)
+				assertEquals(Math.min(quota, partition.getRows(c).length), classRows[c]);
+		}
+	}
+
+	public void testResample()
+	{
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Stratified, 0.2);
+		DatasetView view = new DatasetView(dataset);
+		assertEquals(dataset.numberOfInstances(), view.numberOfInstances());
+
+		int[] buffer = null;
+		for(int s = 0; s < NUMBER_OF_SAMPLES; s++)
+		{
+			view.resample(sampler, randgen);
+			assertEquals(Math.round(0.2 * dataset.numberOfInstances()), view.numberOfInstances());
+			assertEquals(view.numberOfInstances(), view.getInstances().size());
+
+			// The row buffer is reused
+			if(buffer != null)
+				assertSame(buffer, view.getRows());
+			buffer = view.getRows();
+
+			for(int k = 0; k < view.numberOfInstances(); k++)
+				assertSame(dataset.getInstances().get(buffer[k]), view.getInstances().get(k));
+
+			// The class partition follows the sampled rows
+			ClassPartition partition = view.getClassPartition();
+			for(int k = 0; k < view.numberOfInstances(); k++)
+				assertEquals(dataset.getClassPartition().getLabel(buffer[k]), partition.getLabel(k));
+		}
+	}
+
+	public void testSizes()
+	{
+		DatasetSampler sampler = new DatasetSampler();
+
+		try {
+			sampler.setSize(0.0);
+			fail("The sample size is out of range");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			sampler.setSize(1.5);
+			fail("The sample size is out of range");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check that the rows of a sample are grouped by class, in ascending
+	 * order within every class, and count the rows of every class
+	 *
+	 * @return number of sampled rows of every class
+	 */
+
+	private static int[] assertGroupedByClass(ClassPartition partition, int[] rows, int size)
+	{
+		int[] classRows = new int[partition.numberOfClasses()];
+
+		for(int k = 0; k < size; k++)
+		{
+			int label = partition.getLabel(rows[k]);
+			assertTrue(label >= 0);
+			if(k > 0)
+			{
+				int previous = partition.getLabel(rows[k - 1]);
+				assertTrue(previous < label || previous == label && rows[k - 1] < rows[k]);
+			}
+			classRows[label]++;
+		}
+
+		return classRows;
+	}
+}
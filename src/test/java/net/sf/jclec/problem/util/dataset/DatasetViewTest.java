@@ -0,0 +1,126 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.util.random.RanecuFactory;
+
+/**
+ * Views of the rows of a dataset: they share the instances of their
+ * parent, or copy the rows of a streamed parent, and are detached from
+ * it when their instances are set.
+ */
+
+public class DatasetViewTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Iris training set */
+
+	private KeelDataSet dataset;
+
+	@Override
+	protected void setUp()
+	{
+		dataset = new KeelDataSet();
+		dataset.setFileName(IRIS);
+		dataset.loadInstances();
+		dataset.getMetadata().setClassIndex(dataset.getMetadata().numberOfAttributes() - 1);
+	}
+
+	public void testRows()
+	{
+		int[] rows = {4, 8, 15, 16, 23, 42};
+		DatasetView view = new DatasetView(dataset, rows, 4);
+
+		assertSame(dataset, view.getParent());
+		assertSame(dataset.getMetadata(), view.getMetadata());
+		assertEquals(4, view.numberOfInstances());
+		for(int k = 0; k < 4; k++)
+		{
+			assertSame(dataset.getInstances().get(rows[k]), view.getInstances().get(k));
+			assertEquals(dataset.getClassPartition().getLabel(rows[k]), view.getClassPartition().getLabel(k));
+		}
+	}
+
+	public void testStreamedParent() throws IOException
+	{
+		KeelDataSet streamed = new KeelDataSet();
+		streamed.setFileName(IRIS);
+		streamed.setStreaming(true);
+		streamed.load();
+		streamed.getMetadata().setClassIndex(streamed.getMetadata().numberOfAttributes() - 1);
+
+		// Rows out of order and repeated
+		int[] rows = {42, 4, 8, 4, 134, 0, 99};
+		DatasetView view = new DatasetView(streamed, rows, rows.length);
+		assertEquals(rows.length, view.numberOfInstances());
+		for(int k = 0; k < rows.length; k++)
+			assertTrue(Arrays.equals(dataset.getInstances().get(rows[k]).getValues(), view.getInstances().get(k).getValues()));
+		assertNotSame(view.getInstances().get(1), view.getInstances().get(3));
+
+		// Random samples are read through the cursor of the parent
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Random, 0.2);
+		RanecuFactory factory = new RanecuFactory();
+		view = new DatasetView(streamed, new int[streamed.numberOfInstances()], 0);
+		view.resample(sampler, factory.createRandGen());
+		assertEquals(Math.round(0.2 * dataset.numberOfInstances()), view.numberOfInstances());
+		for(int k = 0; k < view.numberOfInstances(); k++)
+			assertTrue(Arrays.equals(dataset.getInstances().get(view.getRows()[k]).getValues(), view.getInstances().get(k).getValues()));
+	}
+
+	public void testSetInstances()
+	{
+		DatasetView view = new DatasetView(dataset, new int[] {0, 1, 2}, 3);
+		ArrayList<IInstance> parentInstances = new ArrayList<IInstance>(dataset.getInstances());
+
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		for(int i = 140; i < dataset.numberOfInstances(); i++)
+			instances.add(dataset.getInstances().get(i).copy());
+		view.setInstances(instances);
+
+		// The view shows the new instances, with the same metadata
+		assertNotSame(dataset, view.getParent());
+		assertSame(dataset.getMetadata(), view.getMetadata());
+		assertEquals(instances.size(), view.numberOfInstances());
+		for(int k = 0; k < instances.size(); k++)
+		{
+			assertSame(instances.get(k), view.getInstances().get(k));
+			assertEquals(dataset.getClassPartition().getLabel(140 + k), view.getClassPartition().getLabel(k));
+		}
+
+		// The parent is not modified
+		assertEquals(parentInstances, dataset.getInstances());
+	}
+
+	public void testAddInstances()
+	{
+		DatasetView view = new DatasetView(dataset, new int[] {5, 6}, 2);
+		int numberOfInstances = dataset.numberOfInstances();
+		ClassPartition partition = view.getClassPartition();
+
+		ArrayList<IInstance> more = new ArrayList<IInstance>();
+		more.add(dataset.getInstances().get(100).copy());
+		view.addInstances(more);
+
+		assertEquals(3, view.numberOfInstances());
+		assertSame(dataset.getInstances().get(5), view.getInstances().get(0));
+		assertSame(more.get(0), view.getInstances().get(2));
+		assertEquals(numberOfInstances, dataset.numberOfInstances());
+
+		// The class partition follows the new rows
+		assertNotSame(partition, view.getClassPartition());
+		assertEquals(dataset.getClassPartition().getLabel(100), view.getClassPartition().getLabel(2));
+
+		// Resampling draws the rows of the detached parent
+		DatasetSampler sampler = new DatasetSampler(DatasetSampler.Method.Random, 1.0);
+		RanecuFactory factory = new RanecuFactory();
+		view.resample(sampler, factory.createRandGen());
+		assertEquals(3, view.numberOfInstances());
+	}
+}
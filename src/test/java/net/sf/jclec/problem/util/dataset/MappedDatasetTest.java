@@ -0,0 +1,198 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Datasets written by the BinaryDatasetConverter and mapped back by the
+ * MappedDataset have the metadata, values and weights of the text
+ * datasets they were converted from.
+ */
+
+public class MappedDatasetTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Temporary files */
+
+	private final ArrayList<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown()
+	{
+		for(File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	public void testIris() throws IOException
+	{
+		ColumnarDataset expected = new ColumnarDataset();
+		expected.setFileName(IRIS);
+		expected.load();
+
+		String fileName = temporary(".bin").getPath();
+		new BinaryDatasetConverter().convert(IRIS, fileName);
+
+		MappedDataset dataset = new MappedDataset();
+		dataset.setFileName(fileName);
+		dataset.load();
+
+		assertDataset(expected, dataset);
+		assertNull(dataset.getWeights());
+		assertEquals(0, dataset.getHeapMemoryUsage());
+		assertEquals(8L * dataset.numberOfInstances() * dataset.getMetadata().numberOfAttributes(), dataset.getOffHeapMemoryUsage());
+
+		// Only the header
+		MappedDataset header = new MappedDataset();
+		header.setFileName(fileName);
+		header.loadMetadata();
+		assertMetadata(expected.getMetadata(), header.getMetadata());
+	}
+
+	public void testWeightedSynthetic() throws IOException
+	{
+		File text = temporary(".dat");
+		Writer writer = new FileWriter(text);
+		try {
+			writer.write("@relation synthetic\n" +
+					"@attribute x real [-1.5, 2.5]\n" +
+					"@attribute n integer [0, 10]\n" +
+					"@attribute class {yes, no}\n" +
+					"@inputs x, n\n" +
+					"@outputs class\n" +
+					"@data\n" +
+					"1.5, 3, yes\n" +
+					"-0.25, 7, no\n" +
+					"1.5, 3, yes\n" +
+					"?, 10, no\n" +
+					"2.5, ?, yes\n" +
+					"1.5, 3, yes\n");
+		}
+		finally {
+			writer.close();
+		}
+
+		ColumnarDataset expected = new ColumnarDataset();
+		expected.setFileName(text.getPath());
+		expected.setCollapseDuplicates(true);
+		expected.load();
+		assertEquals(4, expected.numberOfInstances());
+
+		String fileName = temporary(".bin").getPath();
+		new BinaryDatasetConverter().write(expected, fileName);
+
+		MappedDataset dataset = new MappedDataset();
+		dataset.setFileName(fileName);
+		dataset.load();
+
+		assertDataset(expected, dataset);
+		assertEquals(3.0, dataset.getWeights()[0], 0.0);
+		assertEquals(3.0, dataset.getInstances().get(0).getWeight(), 0.0);
+	}
+
+	public void testNotBinary() throws IOException
+	{
+		MappedDataset dataset = new MappedDataset();
+		dataset.setFileName(IRIS);
+
+		try {
+			dataset.load();
+			fail(IRIS + " is not a binary dataset");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compare the name, metadata, values and weights of two datasets
+	 */
+
+	private static void assertDataset(ColumnarDataset expected, MappedDataset actual)
+	{
+		assertEquals(expected.getName(), actual.getName());
+		assertMetadata(expected.getMetadata(), actual.getMetadata());
+
+		int numberOfRows = expected.numberOfInstances();
+		assertEquals(numberOfRows, actual.numberOfInstances());
+
+		for(int j = 0; j < expected.getColumns().length; j++)
+		{
+			assertTrue(actual.getColumn(j).isOffHeap());
+			for(int i = 0; i < numberOfRows; i++)
+				assertEquals("Attribute " + j + ", row " + i,
+						Double.doubleToLongBits(expected.getColumn(j).getValue(i)),
+						Double.doubleToLongBits(actual.getColumn(j).getValue(i)));
+		}
+
+		for(int i = 0; i < numberOfRows; i++)
+			assertEquals("Weight of row " + i, expected.getInstances().get(i).getWeight(), actual.getInstances().get(i).getWeight(), 0.0);
+	}
+
+	/**
+	 * Compare the attributes and class index of two metadata
+	 */
+
+	private static void assertMetadata(IMetadata expected, IMetadata actual)
+	{
+		assertEquals(expected.numberOfAttributes(), actual.numberOfAttributes());
+		assertEquals(expected.getClassIndex(), actual.getClassIndex());
+
+		for(int j = 0; j < expected.numberOfAttributes(); j++)
+		{
+			IAttribute e = expected.getAttribute(j);
+			IAttribute a = actual.getAttribute(j);
+			assertEquals(e.getName(), a.getName());
+			assertEquals(e.getType(), a.getType());
+
+			switch(e.getType())
+			{
+				case Numerical:
+					net.sf.jclec.util.range.Interval range = ((NumericalAttribute) e).intervalValues();
+					net.sf.jclec.util.range.Interval actualRange = ((NumericalAttribute) a).intervalValues();
+					assertEquals(range.getLeft(), actualRange.getLeft(), 0.0);
+					assertEquals(range.getRight(), actualRange.getRight(), 0.0);
+					assertEquals(range.getClosure(), actualRange.getClosure());
+					break;
+				case Integer:
+					net.sf.jclec.util.intset.Interval interval = ((IntegerAttribute) e).intervalValues();
+					net.sf.jclec.util.intset.Interval actualInterval = ((IntegerAttribute) a).intervalValues();
+					assertEquals(interval.getLeft(), actualInterval.getLeft());
+					assertEquals(interval.getRight(), actualInterval.getRight());
+					assertEquals(interval.getClosure(), actualInterval.getClosure());
+					break;
+				case Categorical:
+					assertEquals(((CategoricalAttribute) e).getCategories(), ((CategoricalAttribute) a).getCategories());
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Create a temporary file, deleted by tearDown()
+	 */
+
+	private File temporary(String suffix) throws IOException
+	{
+		File file = File.createTempFile("mapped", suffix);
+		files.add(file);
+		return file;
+	}
+}
@@ -0,0 +1,161 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+
+/**
+ * Rows selected by the SortedAttributeIndex against a linear scan of the
+ * instances, and the datasets that build it.
+ */
+
+public class SortedAttributeIndexTest extends TestCase
+{
+	/** Iris training set in Keel format */
+
+	private static final String IRIS = "data/iris/iris-10-1tra.dat";
+
+	/** Number of rows */
+
+	private static final int NUMBER_OF_ROWS = 500;
+
+	/** Number of queries per attribute */
+
+	private static final int NUMBER_OF_QUERIES = 500;
+
+	public void testLinearScan()
+	{
+		Random random = new Random(29);
+
+		// Duplicates, signed zeros, infinities and missing values
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(NUMBER_OF_ROWS);
+		for(int i = 0; i < NUMBER_OF_ROWS; i++)
+		{
+			Instance instance = new Instance(3);
+			instance.setValue(0, random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20) / 2.0);
+			instance.setValue(1, random.nextInt(6) == 0 ? -0.0 : random.nextGaussian());
+			instance.setValue(2, random.nextInt(50) == 0 ? Double.NEGATIVE_INFINITY : random.nextInt(3));
+			instances.add(instance);
+		}
+		instances.get(7).setValues(new double[] {0.0, Double.NaN, Double.POSITIVE_INFINITY});
+
+		SortedAttributeIndex index = new SortedAttributeIndex(instances, 3);
+		assertEquals(NUMBER_OF_ROWS, index.numberOfRows());
+
+		for(int j = 0; j < 3; j++)
+		{
+			assertEquals("Missing " + j, scanMissing(instances, j), index.missing(j));
+
+			for(int q = 0; q < NUMBER_OF_QUERIES; q++)
+			{
+				double value = bound(random, instances, j);
+				assertEquals("Attribute " + j + " equal " + value, scanEqual(instances, j, value), index.equal(j, value));
+
+				double low = bound(random, instances, j), high = bound(random, instances, j);
+				boolean lowInclusive = random.nextBoolean(), highInclusive = random.nextBoolean();
+				assertEquals("Attribute " + j + " range " + low + " " + high,
+						scanRange(instances, j, low, lowInclusive, high, highInclusive),
+						index.range(j, low, lowInclusive, high, highInclusive));
+			}
+		}
+	}
+
+	public void testIndexedDatasets()
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(IRIS);
+		dataset.loadInstances();
+
+		// Text datasets are evaluated row by row unless they are indexed
+		assertNull(dataset.getAttributeIndex());
+
+		dataset.setIndexed(true);
+		AttributeIndex index = dataset.getAttributeIndex();
+		assertTrue(index instanceof SortedAttributeIndex);
+		assertSame(index, dataset.getAttributeIndex());
+		assertEquals(scanRange(dataset.getInstances(), 2, 1.5, true, 4.5, false), index.range(2, 1.5, true, 4.5, false));
+
+		// The index follows the instances
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(dataset.getInstances().subList(0, 10));
+		dataset.setInstances(instances);
+		assertEquals(10, dataset.getAttributeIndex().numberOfRows());
+
+		dataset.setIndexed(false);
+		assertNull(dataset.getAttributeIndex());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Rows of a range, compared with the primitive operators
+	 */
+
+	private static BitSet scanRange(ArrayList<IInstance> instances, int j, double low, boolean lowInclusive, double high, boolean highInclusive)
+	{
+		BitSet rows = new BitSet();
+		for(int i = 0; i < instances.size(); i++)
+		{
+			double value = instances.get(i).getValue(j);
+			if((lowInclusive ? value >= low : value > low) && (highInclusive ? value <= high : value < high))
+				rows.set(i);
+		}
+		return rows;
+	}
+
+	/**
+	 * Rows of a value, compared as Double.compareTo() does
+	 */
+
+	private static BitSet scanEqual(ArrayList<IInstance> instances, int j, double value)
+	{
+		BitSet rows = new BitSet();
+		for(int i = 0; i < instances.size(); i++)
+			if(Double.compare(instances.get(i).getValue(j), value) == 0)
+				rows.set(i);
+		return rows;
+	}
+
+	/**
+	 * Rows with a missing value
+	 */
+
+	private static BitSet scanMissing(ArrayList<IInstance> instances, int j)
+	{
+		BitSet rows = new BitSet();
+		for(int i = 0; i < instances.size(); i++)
+			if(Double.isNaN(instances.get(i).getValue(j)))
+				rows.set(i);
+		return rows;
+	}
+
+	/**
+	 * Query bound: a value of the attribute, a value between values of the
+	 * attribute, a signed zero, an infinity or NaN
+	 */
+
+	private static double bound(Random random, ArrayList<IInstance> instances, int j)
+	{
+		double value = instances.get(random.nextInt(instances.size())).getValue(j);
+
+		switch(random.nextInt(10))
+		{
+			case 0:
+				return random.nextBoolean() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			case 1:
+				return random.nextBoolean() ? 0.0 : -0.0;
+			case 2:
+				return Double.NaN;
+			case 3:
+			case 4:
+				return value + 0.25;
+			default:
+				return value;
+		}
+	}
+}
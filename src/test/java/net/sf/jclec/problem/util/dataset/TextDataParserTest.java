@@ -0,0 +1,340 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Equivalence of the TextDataParser and the line by line parsing of the
+ * Keel and ARFF datasets that it replaced.
+ *
+ * The reference parsing reads the data section with a BufferedReader,
+ * skips the commented and empty lines, splits every line with a
+ * StringTokenizer and converts the trimmed values with the attributes,
+ * as KeelDataSet and ArffDataSet did. Missing values, which made the
+ * former parsing fail, are expected as NaN.
+ */
+
+public class TextDataParserTest extends TestCase
+{
+	/** Iris datasets in Keel format */
+
+	private static final String [] IRIS = {"data/iris/iris-10-1tra.dat", "data/iris/iris-10-1tst.dat"};
+
+	/** Categories of the synthetic datasets */
+
+	private static final String [] CATEGORIES = {"red", "green", "blue"};
+
+	/** Temporary files */
+
+	private final ArrayList<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown()
+	{
+		for(File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	public void testKeelIris() throws IOException
+	{
+		for(String fileName : IRIS)
+		{
+			KeelDataSet dataset = new KeelDataSet();
+			dataset.setFileName(fileName);
+			dataset.loadInstances();
+
+			assertEquals(fileName, reference(fileName, dataset.getMetadata(), "@data", "%", "?"), dataset.getInstances());
+		}
+	}
+
+	public void testKeelSynthetic() throws IOException
+	{
+		String fileName = writeSynthetic(".dat", true, 1);
+
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(fileName);
+		dataset.loadInstances();
+
+		assertEquals(fileName, reference(fileName, dataset.getMetadata(), "@data", "%", "?"), dataset.getInstances());
+	}
+
+	public void testArffSynthetic() throws IOException
+	{
+		String fileName = writeSynthetic(".arff", false, 2);
+
+		ArffDataSet dataset = new ArffDataSet();
+		dataset.setFileName(fileName);
+		dataset.loadInstances();
+
+		assertEquals(fileName, reference(fileName, dataset.getMetadata(), "@data", "%", "?"), dataset.getInstances());
+	}
+
+	public void testChunks() throws IOException
+	{
+		String fileName = writeSynthetic(".dat", true, 3);
+
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(fileName);
+		dataset.loadInstances();
+		IMetadata metadata = dataset.getMetadata();
+		ArrayList<IInstance> expected = reference(fileName, metadata, "@data", "%", "?");
+
+		// Chunks that cut the header, the lines and the values, read into
+		// the buffers of the chunks already parsed
+		int [] chunkSizes = {1, 7, 64, 1000, TextDataParser.DEFAULT_CHUNK_SIZE};
+		for(int chunkSize : chunkSizes)
+			for(int parallelism = 1; parallelism <= 4; parallelism += 3)
+			{
+				TextDataParser parser = new TextDataParser(metadata, "@data", ',', '%', "?");
+				parser.setChunkSize(chunkSize);
+				parser.setParallelism(parallelism);
+
+				String message = "chunk size " + chunkSize + ", parallelism " + parallelism;
+				assertEquals(message, expected, toInstances(parser.parse(fileName)));
+				assertEquals(message, expected, cursorInstances(parser, fileName));
+			}
+	}
+
+	public void testStreaming() throws IOException
+	{
+		String fileName = writeSynthetic(".dat", true, 4);
+
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(fileName);
+		dataset.setStreaming(true);
+		dataset.loadInstances();
+		ArrayList<IInstance> expected = reference(fileName, dataset.getMetadata(), "@data", "%", "?");
+
+		assertEquals(expected.size(), dataset.numberOfInstances());
+
+		ArrayList<IInstance> streamed = new ArrayList<IInstance>();
+		IInstanceCursor cursor = dataset.openCursor();
+		try {
+			while(cursor.next())
+				streamed.add(cursor.getInstance().copy());
+		}
+		finally {
+			cursor.close();
+		}
+		assertEquals(fileName, expected, streamed);
+
+		// Streamed instances are never parsed into the heap
+		try {
+			dataset.getInstances();
+			fail("Streamed instances are not held in memory");
+		}
+		catch(IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Parse the data section line by line
+	 *
+	 * @param fileName Data file
+	 * @param metadata Dataset metadata
+	 * @param dataKeyword Keyword that starts the data section
+	 * @param comment Prefix of the commented lines
+	 * @param missingValue Symbol of missing values
+	 *
+	 * @return the instance values
+	 */
+
+	private static ArrayList<IInstance> reference(String fileName, IMetadata metadata, String dataKeyword, String comment, String missingValue) throws IOException
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+
+		try {
+			String line = reader.readLine();
+			while(!line.trim().equalsIgnoreCase(dataKeyword))
+				line = reader.readLine();
+
+			while((line = reader.readLine()) != null)
+			{
+				if(line.startsWith(comment) || line.equals(""))
+					continue;
+
+				StringTokenizer tokens = new StringTokenizer(line, ",");
+				Instance instance = new Instance(metadata.numberOfAttributes());
+				for(int j = 0; tokens.hasMoreTokens(); j++)
+				{
+					String token = tokens.nextToken().trim();
+					instance.setValue(j, token.equals(missingValue) ? Double.NaN : metadata.getAttribute(j).parse(token));
+				}
+				instances.add(instance);
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		return instances;
+	}
+
+	/**
+	 * Build the instances of the columns parsed from a file
+	 */
+
+	private static ArrayList<IInstance> toInstances(double[][] columns)
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		for(int i = 0; columns.length > 0 && i < columns[0].length; i++)
+		{
+			Instance instance = new Instance(columns.length);
+			for(int j = 0; j < columns.length; j++)
+				instance.setValue(j, columns[j][i]);
+			instances.add(instance);
+		}
+		return instances;
+	}
+
+	/**
+	 * Read the instances of a file through a cursor of the parser
+	 */
+
+	private static ArrayList<IInstance> cursorInstances(TextDataParser parser, String fileName) throws IOException
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>();
+		InputStream input = new FileInputStream(fileName);
+		IInstanceCursor cursor = parser.openCursor(input);
+		try {
+			while(cursor.next())
+				instances.add(cursor.getInstance().copy());
+		}
+		finally {
+			cursor.close();
+		}
+		return instances;
+	}
+
+	/**
+	 * Compare two lists of instances value by value. Missing values are
+	 * equal, zeros of different sign are not.
+	 */
+
+	private static void assertEquals(String message, ArrayList<IInstance> expected, ArrayList<IInstance> actual)
+	{
+		assertNotNull(message, actual);
+		assertEquals(message + ": number of instances", expected.size(), actual.size());
+
+		for(int i = 0; i < expected.size(); i++)
+		{
+			IInstance e = expected.get(i);
+			IInstance a = actual.get(i);
+			assertEquals(message + ": instance " + i + " weight", e.getWeight(), a.getWeight(), 0.0);
+			for(int j = 0; j < e.getValues().length; j++)
+				assertEquals(message + ": instance " + i + " value " + j,
+						Double.doubleToLongBits(e.getValue(j)), Double.doubleToLongBits(a.getValue(j)));
+		}
+	}
+
+	/**
+	 * Write a dataset with numbers in every notation, comments, empty
+	 * lines, missing values and Windows line ends
+	 *
+	 * @param suffix File name suffix
+	 * @param keel Keel format, ARFF format otherwise
+	 * @param seed Random seed
+	 *
+	 * @return the file name
+	 */
+
+	private String writeSynthetic(String suffix, boolean keel, long seed) throws IOException
+	{
+		File file = File.createTempFile("synthetic", suffix);
+		files.add(file);
+
+		Random random = new Random(seed);
+		Writer writer = new FileWriter(file);
+
+		try {
+			writer.write("@relation synthetic\n");
+			writer.write("% attributes\n");
+			if(keel)
+			{
+				writer.write("@attribute x real [-1000.0, 1000.0]\n");
+				writer.write("@attribute y real [-1000.0, 1000.0]\n");
+				writer.write("@attribute n integer [0, 100]\n");
+			}
+			else
+			{
+				writer.write("@attribute x real\n");
+				writer.write("@attribute y numeric\n");
+				writer.write("@attribute n numeric\n");
+			}
+			writer.write("@attribute color {red, green, blue}\n");
+			if(keel)
+			{
+				writer.write("@inputs x, y, n\n");
+				writer.write("@outputs color\n");
+			}
+			writer.write("@data\n");
+
+			for(int i = 0; i < 2000; i++)
+			{
+				if(random.nextInt(50) == 0)
+					writer.write("% comment, 1, 2, 3\n");
+				if(random.nextInt(50) == 0)
+					writer.write("\n");
+
+				writer.write(number(random) + "," + (random.nextBoolean() ? " " : "") + number(random) + ", ");
+				writer.write(random.nextInt(20) == 0 ? "?" : Integer.toString(random.nextInt(101)));
+				writer.write(", " + (random.nextInt(20) == 0 ? "?" : CATEGORIES[random.nextInt(CATEGORIES.length)]));
+				writer.write(random.nextInt(10) == 0 ? "\r\n" : "\n");
+			}
+		}
+		finally {
+			writer.close();
+		}
+
+		return file.getPath();
+	}
+
+	/**
+	 * A number in one of the notations of the data files
+	 */
+
+	private static String number(Random random)
+	{
+		switch(random.nextInt(10))
+		{
+			case 0:
+				return "?";
+			case 1:
+				return "-0.0";
+			case 2:
+				return Integer.toString(random.nextInt(2001) - 1000);
+			case 3:
+				return (random.nextBoolean() ? "+" : "-") + "." + random.nextInt(1000);
+			case 4:
+				return random.nextInt(1000) + "." + random.nextInt(1000) + (random.nextBoolean() ? "e" : "E-") + random.nextInt(30);
+			case 5:
+				// More digits than the fast conversion handles
+				return Double.toString(random.nextDouble() * 1000);
+			case 6:
+				return "1e400";
+			default:
+				return Double.toString(Math.round(random.nextGaussian() * 100000) / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Loading of the KEEL and ARFF text datasets: the header read alone, and
+ * the header and data read in a single pass, in memory, streamed and by
+ * columns.
+ */
+
+public class TextDatasetTest extends TestCase
+{
+	/** KEEL dataset, with comments and blank lines in the header */
+
+	private static final String KEEL =
+			"% synthetic\n" +
+			"@relation synthetic\n" +
+			"\n" +
+			"@attribute x real [-1.5, 2.5]\n" +
+			"% a comment\n" +
+			"@attribute n integer [0, 10]\n" +
+			"@attribute class {yes, no}\n" +
+			"@inputs x, n\n" +
+			"@outputs class\n" +
+			"@data\n" +
+			"1.5, 3, yes\n" +
+			"-0.25, 7, no\n" +
+			"?, 10, no\n" +
+			"2.5, ?, yes\n";
+
+	/** ARFF dataset, with a sparse row */
+
+	private static final String ARFF =
+			"@relation synthetic\n" +
+			"@attribute x numeric\n" +
+			"@attribute n numeric\n" +
+			"@attribute class {yes, no}\n" +
+			"\n" +
+			"@data\n" +
+			"% a comment\n" +
+			"1.5, 3, yes\n" +
+			"{0 -0.25, 1 7, 2 no}\n" +
+			"?, 10, no\n" +
+			"2.5, ?, yes\n";
+
+	/** Values of the rows of both datasets */
+
+	private static final double[][] ROWS = {
+		{1.5, 3, 0},
+		{-0.25, 7, 1},
+		{Double.NaN, 10, 1},
+		{2.5, Double.NaN, 0}
+	};
+
+	/** Temporary files */
+
+	private final ArrayList<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown()
+	{
+		for(File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	public void testKeel() throws IOException
+	{
+		String fileName = write(KEEL, ".dat");
+
+		checkLoads(new KeelDataSet(), new KeelDataSet(), fileName);
+
+		// Only the header, with the ranges of the numerical attributes
+		KeelDataSet header = new KeelDataSet();
+		header.setFileName(fileName);
+		header.loadMetadata();
+		assertHeader(header);
+		assertEquals(-1.5, ((NumericalAttribute) header.getMetadata().getAttribute(0)).intervalValues().getLeft(), 0.0);
+	}
+
+	public void testArff() throws IOException
+	{
+		String fileName = write(ARFF, ".arff");
+
+		checkLoads(new ArffDataSet(), new ArffDataSet(), fileName);
+
+		// Only the header
+		ArffDataSet header = new ArffDataSet();
+		header.setFileName(fileName);
+		header.loadMetadata();
+		assertHeader(header);
+	}
+
+	public void testNoDataSection() throws IOException
+	{
+		FileDataset[] datasets = {new KeelDataSet(), new ArffDataSet()};
+		String[] contents = {KEEL.substring(0, KEEL.indexOf("@data")), ARFF.substring(0, ARFF.indexOf("@data"))};
+
+		for(int i = 0; i < datasets.length; i++)
+		{
+			datasets[i].setFileName(write(contents[i], i == 0 ? ".dat" : ".arff"));
+			try {
+				datasets[i].load();
+				fail("There is no data section");
+			}
+			catch(EOFException e) {
+				// Expected
+			}
+		}
+	}
+
+	public void testReloadedHeader() throws IOException
+	{
+		// Streamed datasets only keep the class totals, which must follow
+		// the file whose header is read
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(write(KEEL, ".dat"));
+		dataset.setStreaming(true);
+		dataset.load();
+		dataset.getMetadata().setClassIndex(2);
+		assertEquals(4.0, dataset.getClassPartition().getTotalWeight(), 0.0);
+
+		dataset.setFileName(write(KEEL + "1.0, 2, no\n", ".dat"));
+		dataset.load();
+		dataset.getMetadata().setClassIndex(2);
+		assertEquals(5.0, dataset.getClassPartition().getTotalWeight(), 0.0);
+		assertEquals(3.0, dataset.getClassPartition().getWeight(1), 0.0);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load a file in memory, streamed and by columns, and compare the rows
+	 * with the expected values
+	 */
+
+	private static void checkLoads(FileDataset inMemory, FileDataset streamed, String fileName) throws IOException
+	{
+		inMemory.setFileName(fileName);
+		inMemory.load();
+		assertHeader(inMemory);
+		assertRows("In memory", inMemory.getInstances());
+
+		streamed.setFileName(fileName);
+		streamed.setStreaming(true);
+		streamed.load();
+		assertHeader(streamed);
+		assertEquals(ROWS.length, streamed.numberOfInstances());
+		ArrayList<IInstance> rows = new ArrayList<IInstance>();
+		IInstanceCursor cursor = streamed.openCursor();
+		try {
+			while(cursor.next())
+				rows.add(cursor.getInstance().copy());
+		}
+		finally {
+			cursor.close();
+		}
+		assertRows("Streamed", rows);
+
+		ColumnarDataset columnar = new ColumnarDataset();
+		columnar.setFileName(fileName);
+		columnar.load();
+		assertHeader(columnar);
+		assertRows("Columnar", columnar.getInstances());
+	}
+
+	/**
+	 * Check the name and attributes read from the header
+	 */
+
+	private static void assertHeader(IDataset dataset)
+	{
+		assertEquals("synthetic", dataset.getName());
+
+		IMetadata metadata = dataset.getMetadata();
+		assertEquals(3, metadata.numberOfAttributes());
+		assertEquals("x", metadata.getAttribute(0).getName());
+		assertEquals("n", metadata.getAttribute(1).getName());
+		assertEquals("class", metadata.getAttribute(2).getName());
+		assertEquals(2, ((CategoricalAttribute) metadata.getAttribute(2)).getCategories().size());
+	}
+
+	/**
+	 * Compare some rows with the expected values
+	 */
+
+	private static void assertRows(String message, ArrayList<IInstance> rows)
+	{
+		assertEquals(message, ROWS.length, rows.size());
+		for(int i = 0; i < ROWS.length; i++)
+			for(int j = 0; j < ROWS[i].length; j++)
+				assertEquals(message + ", row " + i + ", attribute " + j,
+						Double.doubleToLongBits(ROWS[i][j]), Double.doubleToLongBits(rows.get(i).getValue(j)));
+	}
+
+	/**
+	 * Write a temporary file, deleted by tearDown()
+	 */
+
+	private String write(String content, String suffix) throws IOException
+	{
+		File file = File.createTempFile("text", suffix);
+		files.add(file);
+
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		}
+		finally {
+			writer.close();
+		}
+		return file.getPath();
+	}
+}
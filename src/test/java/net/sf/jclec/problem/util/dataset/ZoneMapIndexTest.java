@@ -0,0 +1,141 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.column.ColumnStorage;
+import net.sf.jclec.problem.util.dataset.column.IColumn;
+import net.sf.jclec.problem.util.dataset.instance.IInstance;
+import net.sf.jclec.problem.util.dataset.instance.Instance;
+
+/**
+ * Equivalence of the rows selected by the ZoneMapIndex and the
+ * SortedAttributeIndex, for several block sizes, on random, sorted,
+ * constant and categorical columns with missing values.
+ */
+
+public class ZoneMapIndexTest extends TestCase
+{
+	/** Number of rows */
+
+	private static final int NUMBER_OF_ROWS = 1000;
+
+	/** Number of queries per attribute and block size */
+
+	private static final int NUMBER_OF_QUERIES = 300;
+
+	/** Number of categories of the categorical column */
+
+	private static final int NUMBER_OF_CATEGORIES = 5;
+
+	/** Block sizes, from single rows to a single block */
+
+	private static final int [] BLOCK_SIZES = {1, 7, 64, 100, NUMBER_OF_ROWS, 4 * NUMBER_OF_ROWS};
+
+	public void testEquivalence()
+	{
+		Random random = new Random(17);
+		double[][] values = values(random);
+
+		IColumn[] columns = new IColumn[values.length];
+		int[] numberOfCategories = new int[values.length];
+		for(int j = 0; j < values.length - 1; j++)
+			columns[j] = ColumnStorage.Double.createColumn(values[j]);
+		columns[values.length - 1] = ColumnStorage.createCodeColumn(values[values.length - 1], NUMBER_OF_CATEGORIES);
+		numberOfCategories[values.length - 1] = NUMBER_OF_CATEGORIES;
+
+		SortedAttributeIndex expected = new SortedAttributeIndex(instances(values), values.length);
+
+		for(int blockSize : BLOCK_SIZES)
+		{
+			ZoneMapIndex index = new ZoneMapIndex(columns, numberOfCategories, NUMBER_OF_ROWS, blockSize);
+			assertEquals(NUMBER_OF_ROWS, index.numberOfRows());
+
+			for(int j = 0; j < values.length; j++)
+			{
+				String message = "Block size " + blockSize + ", attribute " + j;
+
+				assertEquals(message, expected.missing(j), index.missing(j));
+
+				for(int q = 0; q < NUMBER_OF_QUERIES; q++)
+				{
+					double value = bound(random, values[j]);
+					assertEquals(message + ", value " + value, expected.equal(j, value), index.equal(j, value));
+
+					double low = bound(random, values[j]), high = bound(random, values[j]);
+					boolean lowInclusive = random.nextBoolean(), highInclusive = random.nextBoolean();
+					assertEquals(message + ", range " + low + " " + high,
+							expected.range(j, low, lowInclusive, high, highInclusive),
+							index.range(j, low, lowInclusive, high, highInclusive));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Random columns: random values, sorted values, a constant and
+	 * category codes, all of them with missing values
+	 */
+
+	private static double[][] values(Random random)
+	{
+		double[][] values = new double[4][NUMBER_OF_ROWS];
+
+		for(int i = 0; i < NUMBER_OF_ROWS; i++)
+		{
+			values[0][i] = random.nextInt(8) == 0 ? -0.0 : Math.round(random.nextGaussian() * 100) / 10.0;
+			values[1][i] = random.nextInt(40) / 4.0;
+			values[2][i] = 3.5;
+			values[3][i] = random.nextInt(NUMBER_OF_CATEGORIES);
+		}
+		Arrays.sort(values[1]);
+
+		for(int j = 0; j < values.length; j++)
+			for(int k = 0; k < NUMBER_OF_ROWS / 20; k++)
+				values[j][random.nextInt(NUMBER_OF_ROWS)] = Double.NaN;
+
+		return values;
+	}
+
+	/**
+	 * Rows of the columns as instances
+	 */
+
+	private static ArrayList<IInstance> instances(double[][] values)
+	{
+		ArrayList<IInstance> instances = new ArrayList<IInstance>(NUMBER_OF_ROWS);
+		for(int i = 0; i < NUMBER_OF_ROWS; i++)
+		{
+			Instance instance = new Instance(values.length);
+			for(int j = 0; j < values.length; j++)
+				instance.setValue(j, values[j][i]);
+			instances.add(instance);
+		}
+		return instances;
+	}
+
+	/**
+	 * Query bound: a value of the column, a value between values of the
+	 * column, a signed zero, an infinity or NaN
+	 */
+
+	private static double bound(Random random, double[] values)
+	{
+		switch(random.nextInt(10))
+		{
+			case 0:
+				return random.nextBoolean() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			case 1:
+				return random.nextBoolean() ? 0.0 : -0.0;
+			case 2:
+				return Double.NaN;
+			case 3:
+			case 4:
+				return values[random.nextInt(values.length)] + 0.05;
+			default:
+				return values[random.nextInt(values.length)];
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package net.sf.jclec.problem.util.dataset.attribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Perfect hash dictionaries of categories: every category is found from
+ * its string and from its bytes, unknown categories are never found, and
+ * the categorical attributes parse and show the categories as their codes.
+ */
+
+public class CategoryDictionaryTest extends TestCase
+{
+	public void testRoundtrip()
+	{
+		// Categories with equal String hash codes, prefixes of each other,
+		// empty, and not ASCII
+		List<String> categories = Arrays.asList("Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa",
+				"a", "ab", "abc", "", " ", "yes", "no", "\u00f1and\u00fa", "caf\u00e9");
+		assertRoundtrip(categories);
+
+		// Many categories share the buckets of the first hash
+		ArrayList<String> many = new ArrayList<String>();
+		for(int i = 0; i < 5000; i++)
+			many.add("c" + i);
+		assertRoundtrip(many);
+
+		// No categories, and one
+		assertRoundtrip(new ArrayList<String>());
+		assertRoundtrip(Arrays.asList("single"));
+	}
+
+	public void testUnknownCategories()
+	{
+		ArrayList<String> categories = new ArrayList<String>();
+		for(int i = 0; i < 100; i++)
+			categories.add("category-" + i);
+		CategoryDictionary dictionary = new CategoryDictionary(categories);
+
+		String[] unknown = {"category-100", "category-", "Category-1", "category-1 ", "", "\u00f1", "category-10x"};
+		for(String category : unknown)
+		{
+			assertEquals(category, -1, dictionary.indexOf(category));
+			byte[] bytes = category.getBytes(Charset.defaultCharset());
+			assertEquals(category, -1, dictionary.indexOf(bytes, 0, bytes.length));
+		}
+
+		// A known category, and the same bytes with one byte more
+		byte[] bytes = "xcategory-42y".getBytes(Charset.defaultCharset());
+		assertEquals(42, dictionary.indexOf(bytes, 1, bytes.length - 1));
+		assertEquals(-1, dictionary.indexOf(bytes, 0, bytes.length - 1));
+		assertEquals(-1, dictionary.indexOf(bytes, 1, bytes.length));
+
+		// Codes out of range
+		assertNull(dictionary.get(-1));
+		assertNull(dictionary.get(100));
+	}
+
+	public void testDuplicatedCategories()
+	{
+		try {
+			new CategoryDictionary(Arrays.asList("yes", "no", "yes"));
+			fail("The categories are duplicated");
+		}
+		catch(IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testParseAndShow() throws IOException, ClassNotFoundException
+	{
+		CategoricalAttribute attribute = new CategoricalAttribute("class", Arrays.asList("low", "medium", "high"));
+
+		assertEquals(0.0, attribute.parse("low"), 0.0);
+		assertEquals(2.0, attribute.parse("high"), 0.0);
+		assertEquals(-1.0, attribute.parse("none"), 0.0);
+		assertEquals("medium", attribute.show(1.0));
+		assertNull(attribute.show(3.0));
+		assertNull(attribute.show(-1.0));
+		assertNull(attribute.show(0.5));
+		assertNull(attribute.show(Double.NaN));
+
+		// New categories replace the dictionary
+		attribute.setCategories(Arrays.asList("no", "yes"));
+		assertEquals(1.0, attribute.parse("yes"), 0.0);
+		assertEquals(-1.0, attribute.parse("high"), 0.0);
+		assertNull(attribute.show(2.0));
+
+		// The dictionary is not serialized, but rebuilt
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(attribute);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		CategoricalAttribute copy = (CategoricalAttribute) in.readObject();
+		in.close();
+		assertEquals(1.0, copy.parse("yes"), 0.0);
+		assertEquals("no", copy.show(0.0));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check that every category is found from its string and from its
+	 * bytes within a larger buffer, and that its code shows it back
+	 */
+
+	private static void assertRoundtrip(List<String> categories)
+	{
+		CategoryDictionary dictionary = new CategoryDictionary(categories);
+		CategoricalAttribute attribute = new CategoricalAttribute("attribute", categories);
+		assertEquals(categories.size(), dictionary.size());
+
+		for(int c = 0; c < categories.size(); c++)
+		{
+			String category = categories.get(c);
+			assertEquals(category, c, dictionary.indexOf(category));
+			assertEquals(category, dictionary.get(c));
+
+			byte[] bytes = ("{" + category + ",").getBytes(Charset.defaultCharset());
+			assertEquals(category, c, dictionary.indexOf(bytes, 1, bytes.length - 1));
+
+			assertEquals(category, c, attribute.parse(category), 0.0);
+			assertEquals(category, attribute.show(c));
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package net.sf.jclec.problem.util.dataset.column;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Values read back from the columns of every storage mode. Compact modes
+ * must recover every value bit for bit, or fall back to a wider mode.
+ */
+
+public class ColumnStorageTest extends TestCase
+{
+	/** Number of rows of the random columns */
+
+	private static final int NUMBER_OF_ROWS = 1000;
+
+	public void testFloat()
+	{
+		Random random = new Random(3);
+
+		// Floats with missing values, signed zeros and infinities
+		double[] floats = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < floats.length; i++)
+			floats[i] = (float) random.nextGaussian();
+		floats[1] = Double.NaN;
+		floats[2] = -0.0;
+		floats[3] = Double.POSITIVE_INFINITY;
+		floats[4] = Float.MAX_VALUE;
+
+		IColumn column = assertRoundtrip(ColumnStorage.Float, floats);
+		assertTrue(column instanceof FloatColumn);
+		assertEquals(4L * floats.length, column.memoryUsage());
+
+		// A single value that is not a float keeps the column in doubles
+		double[] doubles = floats.clone();
+		doubles[500] = 0.1;
+		assertTrue(assertRoundtrip(ColumnStorage.Float, doubles) instanceof DoubleColumn);
+	}
+
+	public void testQuantized()
+	{
+		Random random = new Random(5);
+
+		// Two decimals, 8-bit codes
+		double[] bytes = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = (random.nextInt(200) - 100) / 100.0;
+		bytes[7] = Double.NaN;
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, bytes) instanceof ByteColumn);
+
+		// One decimal, 16-bit codes
+		double[] shorts = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < shorts.length; i++)
+			shorts[i] = 1000.0 + random.nextInt(20000) / 10.0;
+		shorts[9] = Double.NaN;
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, shorts) instanceof ShortColumn);
+
+		// All values missing
+		double[] missing = new double[10];
+		Arrays.fill(missing, Double.NaN);
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, missing) instanceof QuantizedColumn);
+
+		// Negative zeros and wide ranges fall back to floats, then doubles
+		double[] zeros = bytes.clone();
+		zeros[11] = -0.0;
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, zeros) instanceof DoubleColumn);
+
+		double[] wide = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < wide.length; i++)
+			wide[i] = random.nextInt(1 << 20);
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, wide) instanceof FloatColumn);
+
+		double[] precise = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < precise.length; i++)
+			precise[i] = random.nextDouble();
+		assertTrue(assertRoundtrip(ColumnStorage.Quantized, precise) instanceof DoubleColumn);
+	}
+
+	public void testDirect()
+	{
+		Random random = new Random(11);
+
+		double[] values = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < values.length; i++)
+			values[i] = random.nextGaussian();
+		values[1] = Double.NaN;
+		values[2] = -0.0;
+		values[3] = Double.NEGATIVE_INFINITY;
+
+		IColumn column = assertRoundtrip(ColumnStorage.Direct, values);
+		assertTrue(column instanceof BufferColumn);
+		assertTrue(column.isOffHeap());
+		assertEquals(8L * values.length, column.memoryUsage());
+
+		// The column is a copy of the values
+		values[0] = 1.0;
+		assertFalse(column.getValue(0) == 1.0);
+
+		assertEquals(0, assertRoundtrip(ColumnStorage.Direct, new double[0]).size());
+	}
+
+	public void testCodes()
+	{
+		Random random = new Random(7);
+
+		double[] codes = new double[NUMBER_OF_ROWS];
+		for(int i = 0; i < codes.length; i++)
+			codes[i] = random.nextInt(300);
+		codes[13] = Double.NaN;
+
+		IColumn column = ColumnStorage.createCodeColumn(codes, 300);
+		assertTrue(column instanceof ShortColumn);
+		assertValues(codes, column);
+
+		// Codes out of range keep the values in doubles
+		assertTrue(ColumnStorage.createCodeColumn(codes, 200) instanceof DoubleColumn);
+		assertValues(codes, ColumnStorage.createCodeColumn(codes, 200));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Store the values with a storage mode and check that they are read
+	 * back exactly
+	 *
+	 * @return the column
+	 */
+
+	private static IColumn assertRoundtrip(ColumnStorage storage, double[] values)
+	{
+		IColumn column = storage.createColumn(values);
+		assertValues(values, column);
+		return column;
+	}
+
+	/**
+	 * Check the values of a column, one by one and in blocks
+	 */
+
+	private static void assertValues(double[] expected, IColumn column)
+	{
+		assertEquals(expected.length, column.size());
+
+		for(int i = 0; i < expected.length; i++)
+			assertEquals("Row " + i, Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(column.getValue(i)));
+
+		double[] block = new double[expected.length + 2];
+		for(int from = 0; from < expected.length; from += 97)
+		{
+			int length = Math.min(97, expected.length - from);
+			column.getValues(from, block, 1, length);
+			for(int k = 0; k < length; k++)
+				assertEquals("Row " + (from + k), Double.doubleToLongBits(expected[from + k]), Double.doubleToLongBits(block[1 + k]));
+		}
+	}
+}
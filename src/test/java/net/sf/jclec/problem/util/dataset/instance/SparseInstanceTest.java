@@ -0,0 +1,252 @@
+package net.sf.jclec.problem.util.dataset.instance;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.ArffDataSet;
+import net.sf.jclec.problem.util.dataset.IInstanceCursor;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+import net.sf.jclec.problem.util.dataset.metadata.IMetadata;
+
+/**
+ * Sparse instances and sparse ARFF rows against a densified reference:
+ * the dense instances and the dense ARFF rows with the same values.
+ */
+
+public class SparseInstanceTest extends TestCase
+{
+	/** Number of attributes */
+
+	private static final int NUMBER_OF_ATTRIBUTES = 40;
+
+	/** Number of rows */
+
+	private static final int NUMBER_OF_ROWS = 200;
+
+	/** Values of the rows, mostly 0 */
+
+	private static final double [] VALUES = {0.0, 0.0, 0.0, 0.0, 0.0, 0.0, -0.0, 1, 2.5, -3, Double.NaN};
+
+	/** Temporary files */
+
+	private final ArrayList<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown()
+	{
+		for(File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	public void testDenseReference()
+	{
+		Random random = new Random(37);
+
+		for(int r = 0; r < NUMBER_OF_ROWS; r++)
+		{
+			double[] values = row(random);
+			IInstance dense = dense(values);
+
+			// Values set all at once, and one by one in any order
+			SparseInstance sparse = new SparseInstance(NUMBER_OF_ATTRIBUTES);
+			sparse.setValues(values.clone());
+			SparseInstance shuffled = new SparseInstance(NUMBER_OF_ATTRIBUTES);
+			List<Integer> order = new ArrayList<Integer>();
+			for(int j = 0; j < NUMBER_OF_ATTRIBUTES; j++)
+				if(Double.doubleToRawLongBits(values[j]) != 0L)
+					order.add(j);
+			Collections.shuffle(order, random);
+			for(int j : order)
+				shuffled.setValue(j, values[j]);
+
+			assertEquals(order.size(), sparse.numberOfValues());
+			assertSame(dense, "Row " + r, sparse);
+			assertSame(dense, "Row " + r + " shuffled", shuffled);
+			for(int k = 1; k < sparse.numberOfValues(); k++)
+				assertTrue(sparse.getIndex(k - 1) < sparse.getIndex(k));
+
+			// Copies do not share their values
+			SparseInstance copy = sparse.copy();
+			copy.setValue(0, 7.0);
+			copy.setValue(NUMBER_OF_ATTRIBUTES - 1, 7.0);
+			assertSame(dense, "Row " + r + " copied", sparse);
+		}
+	}
+
+	public void testSparseArff() throws IOException
+	{
+		Random random = new Random(41);
+		double[][] rows = new double[NUMBER_OF_ROWS][];
+		StringBuilder dense = new StringBuilder(header());
+		StringBuilder sparse = new StringBuilder(header());
+
+		for(int r = 0; r < NUMBER_OF_ROWS; r++)
+		{
+			rows[r] = row(random);
+			// The class, sometimes omitted as the first category
+			rows[r][NUMBER_OF_ATTRIBUTES - 1] = random.nextInt(2);
+
+			// Some rows of the sparse file stay dense
+			boolean denseRow = random.nextInt(10) == 0;
+			sparse.append(denseRow ? "" : "{");
+			for(int j = 0; j < NUMBER_OF_ATTRIBUTES; j++)
+			{
+				String value = show(rows[r][j], j);
+				dense.append(j == 0 ? "" : ", ").append(value);
+				if(denseRow)
+					sparse.append(j == 0 ? "" : ", ").append(value);
+				else if(Double.doubleToRawLongBits(rows[r][j]) != 0L)
+					sparse.append(sparse.charAt(sparse.length() - 1) == '{' ? "" : ", ").append(j).append(' ').append(value);
+			}
+			dense.append('\n');
+			sparse.append(denseRow ? "\n" : "}\n");
+		}
+
+		ArffDataSet denseDataset = load(write(dense.toString()), false);
+		ArffDataSet sparseDataset = load(write(sparse.toString()), false);
+
+		ArrayList<IInstance> instances = sparseDataset.getInstances();
+		assertEquals(NUMBER_OF_ROWS, instances.size());
+		for(int r = 0; r < NUMBER_OF_ROWS; r++)
+		{
+			assertTrue("Row " + r, instances.get(r) instanceof SparseInstance);
+			assertSame(dense(rows[r]), "Row " + r, instances.get(r));
+			assertSame(denseDataset.getInstances().get(r), "Row " + r + " of the dense file", instances.get(r));
+		}
+
+		// Omitted values count in the ranges of the attributes
+		IMetadata denseMetadata = denseDataset.getMetadata(), sparseMetadata = sparseDataset.getMetadata();
+		for(int j = 0; j < NUMBER_OF_ATTRIBUTES - 1; j++)
+		{
+			NumericalAttribute denseAttribute = (NumericalAttribute) denseMetadata.getAttribute(j);
+			NumericalAttribute sparseAttribute = (NumericalAttribute) sparseMetadata.getAttribute(j);
+			assertEquals("Attribute " + j, denseAttribute.intervalValues().getLeft(), sparseAttribute.intervalValues().getLeft(), 0.0);
+			assertEquals("Attribute " + j, denseAttribute.intervalValues().getRight(), sparseAttribute.intervalValues().getRight(), 0.0);
+		}
+
+		// Streamed sparse rows fill the dense instance of the cursor
+		ArffDataSet streamed = load(files.get(1).getPath(), true);
+		IInstanceCursor cursor = streamed.openCursor();
+		try {
+			for(int r = 0; r < NUMBER_OF_ROWS; r++)
+			{
+				assertTrue(cursor.next());
+				assertSame(dense(rows[r]), "Streamed row " + r, cursor.getInstance());
+			}
+			assertFalse(cursor.next());
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Random row of values
+	 */
+
+	private static double[] row(Random random)
+	{
+		double[] values = new double[NUMBER_OF_ATTRIBUTES];
+		for(int j = 0; j < NUMBER_OF_ATTRIBUTES; j++)
+			values[j] = VALUES[random.nextInt(VALUES.length)];
+		return values;
+	}
+
+	/**
+	 * Dense instance of some values
+	 */
+
+	private static IInstance dense(double[] values)
+	{
+		Instance instance = new Instance(values.length);
+		instance.setValues(values.clone());
+		return instance;
+	}
+
+	/**
+	 * Compare every value, the dense values and the weight of an instance
+	 * with those of a reference instance
+	 */
+
+	private static void assertSame(IInstance expected, String message, IInstance actual)
+	{
+		for(int j = 0; j < NUMBER_OF_ATTRIBUTES; j++)
+			assertEquals(message + ", attribute " + j,
+					Double.doubleToRawLongBits(expected.getValue(j)), Double.doubleToRawLongBits(actual.getValue(j)));
+
+		double[] values = actual.getValues();
+		assertEquals(message, NUMBER_OF_ATTRIBUTES, values.length);
+		for(int j = 0; j < NUMBER_OF_ATTRIBUTES; j++)
+			assertEquals(message + ", dense attribute " + j,
+					Double.doubleToRawLongBits(expected.getValue(j)), Double.doubleToRawLongBits(values[j]));
+
+		assertEquals(message, expected.getWeight(), actual.getWeight(), 0.0);
+	}
+
+	/**
+	 * ARFF header with numerical attributes and a class
+	 */
+
+	private static String header()
+	{
+		StringBuilder header = new StringBuilder("@relation sparse\n");
+		for(int j = 0; j < NUMBER_OF_ATTRIBUTES - 1; j++)
+			header.append("@attribute a").append(j).append(" numeric\n");
+		header.append("@attribute class {no, yes}\n@data\n");
+		return header.toString();
+	}
+
+	/**
+	 * Text of a value in an ARFF row
+	 */
+
+	private static String show(double value, int j)
+	{
+		if(j == NUMBER_OF_ATTRIBUTES - 1)
+			return value == 0 ? "no" : "yes";
+		if(Double.isNaN(value))
+			return "?";
+		return Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(-0.0) ? "-0" : Double.toString(value);
+	}
+
+	private static ArffDataSet load(String fileName, boolean streaming) throws IOException
+	{
+		ArffDataSet dataset = new ArffDataSet();
+		dataset.setFileName(fileName);
+		dataset.setStreaming(streaming);
+		dataset.load();
+		dataset.getMetadata().setClassIndex(NUMBER_OF_ATTRIBUTES - 1);
+		return dataset;
+	}
+
+	/**
+	 * Write a temporary file, deleted by tearDown()
+	 */
+
+	private String write(String content) throws IOException
+	{
+		File file = File.createTempFile("sparse", ".arff");
+		files.add(file);
+
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		}
+		finally {
+			writer.close();
+		}
+		return file.getPath();
+	}
+}
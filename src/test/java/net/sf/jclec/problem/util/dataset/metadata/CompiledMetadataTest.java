@@ -0,0 +1,213 @@
+package net.sf.jclec.problem.util.dataset.metadata;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jclec.problem.util.dataset.KeelDataSet;
+import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
+import net.sf.jclec.problem.util.dataset.attribute.CategoricalAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.IntegerAttribute;
+import net.sf.jclec.problem.util.dataset.attribute.NumericalAttribute;
+
+/**
+ * Compiled metadata against the metadata it was compiled from, the
+ * snapshots compiled by the datasets, and the copies of the metadata.
+ */
+
+public class CompiledMetadataTest extends TestCase
+{
+	/** KEEL dataset with attributes of every type */
+
+	private static final String KEEL =
+			"@relation types\n" +
+			"@attribute x real [-1.5, 2.5]\n" +
+			"@attribute color {red, green, blue}\n" +
+			"@attribute n integer [0, 10]\n" +
+			"@attribute y real [0.0, 100.0]\n" +
+			"@attribute class {yes, no}\n" +
+			"@inputs x, color, n, y\n" +
+			"@outputs class\n" +
+			"@data\n" +
+			"1.5, red, 3, 50.0, yes\n" +
+			"-0.25, blue, 7, 0.5, no\n";
+
+	/** Dataset file */
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		file = File.createTempFile("types", ".dat");
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(KEEL);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		file.delete();
+	}
+
+	public void testAgainstMetadata() throws IOException
+	{
+		IMetadata metadata = load().getMetadata();
+
+		// Both categorical attributes as the class, and no class
+		for(int classIndex : new int[] {4, 1, -1})
+		{
+			metadata.setClassIndex(classIndex);
+			assertCompiled(metadata, new CompiledMetadata(metadata));
+		}
+	}
+
+	public void testRecompiled() throws IOException
+	{
+		KeelDataSet dataset = load();
+		IMetadata metadata = dataset.getMetadata();
+		metadata.setClassIndex(4);
+
+		CompiledMetadata compiled = dataset.getCompiledMetadata();
+		assertSame(compiled, dataset.getCompiledMetadata());
+		assertTrue(compiled.isCompiledFrom(metadata));
+
+		// A new class index
+		metadata.setClassIndex(1);
+		CompiledMetadata recompiled = dataset.getCompiledMetadata();
+		assertNotSame(compiled, recompiled);
+		assertCompiled(metadata, recompiled);
+
+		// Snapshots are never modified
+		assertEquals(4, compiled.getClassIndex());
+		assertEquals(2, compiled.numberOfClasses());
+		assertFalse(compiled.isCompiledFrom(metadata));
+
+		// A new attribute
+		compiled = recompiled;
+		assertTrue(metadata.addAttribute(new CategoricalAttribute("new", Arrays.asList("a", "b"))));
+		recompiled = dataset.getCompiledMetadata();
+		assertNotSame(compiled, recompiled);
+		assertEquals(6, recompiled.numberOfAttributes());
+		assertEquals(5, recompiled.getIndex("new"));
+		assertEquals(-1, compiled.getIndex("new"));
+
+		// A new metadata
+		compiled = recompiled;
+		IMetadata copy = metadata.copy();
+		dataset.setMetadata(copy);
+		recompiled = dataset.getCompiledMetadata();
+		assertNotSame(compiled, recompiled);
+		assertTrue(recompiled.isCompiledFrom(copy));
+		assertFalse(recompiled.isCompiledFrom(metadata));
+	}
+
+	public void testCopy() throws IOException
+	{
+		IMetadata metadata = load().getMetadata();
+		metadata.setClassIndex(4);
+		IMetadata copy = metadata.copy();
+
+		assertEquals(metadata.numberOfAttributes(), copy.numberOfAttributes());
+		assertEquals(4, copy.getClassIndex());
+		for(int i = 0; i < metadata.numberOfAttributes(); i++)
+			assertSame(metadata.getAttribute(i), copy.getAttribute(i));
+
+		// Attributes added to the copy are not added to the original
+		assertTrue(copy.addAttribute(new CategoricalAttribute("copied", Arrays.asList("a"))));
+		assertEquals(5, metadata.numberOfAttributes());
+		assertNull(metadata.getAttribute("copied"));
+		assertEquals(-1, metadata.getIndex("copied"));
+
+		// Nor the other way round
+		assertTrue(metadata.addAttribute(new CategoricalAttribute("original", Arrays.asList("a"))));
+		assertEquals(6, copy.numberOfAttributes());
+		assertNull(copy.getAttribute("original"));
+		assertEquals(5, copy.getIndex("copied"));
+
+		copy.setClassIndex(1);
+		assertEquals(4, metadata.getClassIndex());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	private KeelDataSet load() throws IOException
+	{
+		KeelDataSet dataset = new KeelDataSet();
+		dataset.setFileName(file.getPath());
+		dataset.load();
+		return dataset;
+	}
+
+	/**
+	 * Compare every query of a compiled metadata with the metadata
+	 */
+
+	private static void assertCompiled(IMetadata metadata, CompiledMetadata compiled)
+	{
+		int classIndex = metadata.getClassIndex();
+		int numberOfAttributes = metadata.numberOfAttributes();
+
+		assertTrue(compiled.isCompiledFrom(metadata));
+		assertEquals(numberOfAttributes, compiled.numberOfAttributes());
+		assertEquals(classIndex, compiled.getClassIndex());
+		assertEquals(classIndex < 0 ? 0 : metadata.numberOfClasses(), compiled.numberOfClasses());
+		assertEquals(-1, compiled.getIndex("none"));
+
+		int inputs = 0;
+		int[] inputsByType = new int[AttributeType.values().length];
+
+		for(int i = 0; i < numberOfAttributes; i++)
+		{
+			IAttribute attribute = metadata.getAttribute(i);
+			String message = "Attribute " + i + ", class " + classIndex;
+
+			assertSame(message, attribute, compiled.getAttribute(i));
+			assertEquals(message, attribute.getName(), compiled.getName(i));
+			assertEquals(message, attribute.getType(), compiled.getType(i));
+			assertEquals(message, metadata.getIndex(attribute.getName()), compiled.getIndex(attribute.getName()));
+
+			switch(attribute.getType())
+			{
+				case Numerical:
+					assertEquals(message, ((NumericalAttribute) attribute).intervalValues().getLeft(), compiled.getLowerBound(i), 0.0);
+					assertEquals(message, ((NumericalAttribute) attribute).intervalValues().getRight(), compiled.getUpperBound(i), 0.0);
+					assertEquals(message, 0, compiled.numberOfCategories(i));
+					break;
+				case Integer:
+					assertEquals(message, ((IntegerAttribute) attribute).intervalValues().getLeft(), compiled.getLowerBound(i), 0.0);
+					assertEquals(message, ((IntegerAttribute) attribute).intervalValues().getRight(), compiled.getUpperBound(i), 0.0);
+					assertEquals(message, 0, compiled.numberOfCategories(i));
+					break;
+				case Categorical:
+					int categories = ((CategoricalAttribute) attribute).getCategories().size();
+					assertEquals(message, categories, compiled.numberOfCategories(i));
+					assertEquals(message, 0.0, compiled.getLowerBound(i), 0.0);
+					assertEquals(message, categories - 1, compiled.getUpperBound(i), 0.0);
+					break;
+			}
+
+			if(i != classIndex)
+			{
+				assertEquals(message, i, compiled.getInputAttributes()[inputs++]);
+				int t = attribute.getType().ordinal();
+				assertEquals(message, i, compiled.getInputAttributes(attribute.getType())[inputsByType[t]++]);
+			}
+		}
+
+		assertEquals(inputs, compiled.getInputAttributes().length);
+		for(AttributeType type : AttributeType.values())
+			assertEquals(type.toString(), inputsByType[type.ordinal()], compiled.getInputAttributes(type).length);
+	}
+}